@@ -0,0 +1,90 @@
+package bench;
+
+import models.*;
+import services.*;
+import java.util.Random;
+
+// Batch dispatcher vs the old first-fit rule on a generated day: a mixed fleet,
+// a pool of drivers and parcels of random weight (20% Express) arriving in batches.
+// The dispatcher packs many parcels per vehicle; first-fit puts one parcel on each.
+// Vehicles are emptied between rounds, as drivers finish their runs.
+//
+// Usage: ant bench -Dbench.main=bench.DispatchBenchmark -Dbench.args="<parcels per round> <rounds> <batch size>"
+public class DispatchBenchmark {
+
+    public static void main(String[] args) {
+        int perRound = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : perRound;
+
+        EventBus events = new EventBus();
+        UserDirectory users = new UserDirectory(events);
+        ParcelRepository parcels = new ParcelRepository(events);
+        DeliveryRepository deliveries = new DeliveryRepository(events);
+        VehicleRepository vehicles = new VehicleRepository(events);
+        StaffPool staffPool = new StaffPool(deliveries);
+        events.subscribe(staffPool);
+        IdAllocator ids = new IdAllocator();
+
+        Customer sender = new Customer("C001", "Sender", "s@email.com", "pass123", "012-3456789", "1 Main St, KL");
+        Customer receiver = new Customer("C002", "Receiver", "r@email.com", "pass123", "012-3456789", "2 Main St, KL");
+        users.add(sender);
+        users.add(receiver);
+        for (int i = 1; i <= 20; i++) {
+            users.add(new Staff(IdAllocator.format(IdAllocator.STAFF, i), "Driver " + i, "d" + i + "@courier.com",
+                                "staff123", "011-2223333", "Delivery Driver", 2500));
+        }
+        // Fleet in the order a depot might have registered it: trucks first
+        String[][] fleet = {{"Truck", "2000", "10"}, {"Van", "500", "40"}, {"Motorcycle", "50", "100"}};
+        for (String[] kind : fleet) {
+            for (int i = 0; i < Integer.parseInt(kind[2]); i++) {
+                vehicles.add(new Vehicle(ids.next(IdAllocator.VEHICLE), kind[0], "PLT" + i,
+                                         Double.parseDouble(kind[1])));
+            }
+        }
+
+        Dispatcher dispatcher = new Dispatcher(users, deliveries, vehicles, staffPool, ids, Long.MAX_VALUE, batchSize);
+        Random random = new Random(42);
+        long dispatchNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < perRound; i++) {
+                String type = random.nextInt(5) == 0 ? "EXPRESS" : "STANDARD";
+                // mostly small parcels with a tail of heavy ones
+                double weight = random.nextInt(10) == 0 ? 50 + random.nextInt(50) : 0.5 + random.nextInt(20);
+                Parcel parcel = ParcelFactory.createParcel(type, ids.next(IdAllocator.PARCEL), sender, receiver,
+                                                           weight, "30x20x15", "Item", "");
+                parcels.add(parcel);
+                long start = System.nanoTime();
+                dispatcher.submit(parcel);
+                dispatchNanos += System.nanoTime() - start;
+            }
+            long start = System.nanoTime();
+            dispatcher.dispatch();
+            dispatchNanos += System.nanoTime() - start;
+
+            // End of the round: deliveries done, vehicles back at the depot
+            for (Delivery delivery : deliveries.getAll()) {
+                if (!delivery.getStatus().isTerminal()) deliveries.restoreStatus(delivery, DeliveryStatus.DELIVERED);
+            }
+            for (Vehicle vehicle : vehicles.getAll()) {
+                vehicles.releaseAll(vehicle);
+            }
+        }
+
+        Dispatcher.Metrics metrics = dispatcher.getMetrics();
+        Dispatcher.Totals now = metrics.getDispatched();
+        Dispatcher.Totals before = metrics.getFirstFit();
+        System.out.println("=== DISPATCH BENCHMARK ===");
+        System.out.printf("%,d parcels in %,d batches, fleet of %d vehicles, 20 drivers%n%n",
+                          now.getParcels(), metrics.getBatches(), vehicles.size());
+        System.out.println("                          first-fit    batch dispatcher");
+        System.out.printf("Vehicle fill              %8.1f%%    %8.1f%%%n",
+                          before.getUtilization() * 100, now.getUtilization() * 100);
+        System.out.printf("Vehicle trips             %9d    %9d%n", before.getTrips(), now.getTrips());
+        System.out.printf("Parcels with vehicle      %9d    %9d%n", before.getWithVehicle(), now.getWithVehicle());
+        System.out.printf("Express with vehicle      %9d    %9d   (of %d)%n",
+                          before.getExpressWithVehicle(), now.getExpressWithVehicle(), now.getExpress());
+        System.out.printf("Busiest driver (last run) %9d    %9d%n", before.getMaxDriverLoad(), now.getMaxDriverLoad());
+        System.out.printf("%nDispatch time: %.2f ms per batch%n", dispatchNanos / 1e6 / metrics.getBatches());
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import models.*;
+import persistence.DataExporter;
+import services.*;
+import java.nio.file.*;
+
+// Export throughput per format for a generated data set, plus the time start()
+// takes on the caller's thread.
+//
+// Usage: ant bench -Dbench.main=bench.ExportBenchmark -Dbench.args="<parcels>" -Dbench.jvmargs="-Xmx4g"
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int parcelCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int customerCount = Math.max(2, parcelCount / 100);
+
+        UserDirectory users = new UserDirectory();
+        ParcelRepository parcels = new ParcelRepository();
+        Customer[] customers = new Customer[customerCount];
+        for (int i = 0; i < customerCount; i++) {
+            customers[i] = new Customer(IdAllocator.format(IdAllocator.CUSTOMER, i + 1), "Customer " + i,
+                                        "c" + i + "@email.com", "pass", "012-0000000", "Street " + i);
+            users.add(customers[i]);
+        }
+        String[] types = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+        for (int i = 0; i < parcelCount; i++) {
+            parcels.add(ParcelFactory.createParcel(types[i % 3], IdAllocator.format(IdAllocator.PARCEL, i + 1),
+                                                   customers[i % customerCount],
+                                                   customers[(i * 7 + 1) % customerCount],
+                                                   0.5 + (i % 40), "30x20x15", "Parcel, no. " + i, "Singapore"));
+        }
+
+        System.out.println("=== EXPORT BENCHMARK ===");
+        System.out.printf("%,d parcels%n%n", parcelCount);
+        System.out.println("Format     start ms   write ms      rows/s        bytes");
+
+        Path dir = Files.createTempDirectory("export-bench");
+        try (DataExporter exporter = new DataExporter(parcels, new DeliveryRepository(), new PaymentLedger())) {
+            for (DataExporter.Format format : DataExporter.Format.values()) {
+                Path target = dir.resolve("parcels." + format.getExtension());
+                System.gc();
+                long start = System.nanoTime();
+                var pending = exporter.start(DataExporter.Kind.PARCELS, format, new DataExporter.Filter(), target);
+                long started = System.nanoTime();
+                DataExporter.Result result = pending.get();
+                System.out.printf("%-7s %10.0f %10d %11.0f %12d%n", format,
+                                  (started - start) / 1e6, result.getElapsedMillis(),
+                                  result.getRows() * 1000.0 / Math.max(1, result.getElapsedMillis()),
+                                  result.getBytes());
+                Files.deleteIfExists(target);
+            }
+
+            // A filtered export reads every row but writes only the matching ones
+            DataExporter.Filter filter = new DataExporter.Filter()
+                    .statuses(ParcelStatus.mask(ParcelStatus.CREATED))
+                    .customer(customers[0].getUserId());
+            Path target = dir.resolve("filtered.csv");
+            long start = System.nanoTime();
+            DataExporter.Result result = exporter.export(DataExporter.Kind.PARCELS, DataExporter.Format.CSV,
+                                                         filter, target);
+            System.out.printf("%nFiltered (one customer): %,d rows in %.1f ms%n",
+                              result.getRows(), (System.nanoTime() - start) / 1e6);
+            Files.deleteIfExists(target);
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import models.*;
+import persistence.LogRecorder;
+import persistence.WriteAheadLog;
+import services.*;
+import java.io.BufferedWriter;
+import java.nio.file.*;
+
+// Bulk import throughput for a generated parcel file, with every row logged to
+// the write-ahead log as in the running system. About 1% of the rows are invalid
+// so the reject path is exercised too.
+//
+// Usage: ant bench -Dbench.main=bench.ImportBenchmark -Dbench.args="<parcels> [csv|jsonl] [threads]"
+public class ImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int parcelCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean json = args.length > 1 && args[1].equalsIgnoreCase("jsonl");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int customerCount = Math.max(2, parcelCount / 100);
+
+        Path dir = Files.createTempDirectory("import-bench");
+        Path input = dir.resolve(json ? "parcels.jsonl" : "parcels.csv");
+        Path logFile = dir.resolve("changes.wal");
+        try {
+            System.out.println("=== BULK IMPORT BENCHMARK ===");
+            System.out.printf("%,d parcels (%s), %,d customers, %d worker threads%n%n",
+                              parcelCount, json ? "JSON lines" : "CSV", customerCount, threads);
+
+            long start = System.nanoTime();
+            generate(input, json, parcelCount, customerCount);
+            System.out.printf("Generate file: %8.0f ms  (%,d bytes)%n",
+                              (System.nanoTime() - start) / 1e6, Files.size(input));
+
+            EventBus events = new EventBus();
+            UserDirectory users = new UserDirectory(events);
+            ParcelRepository parcels = new ParcelRepository(events);
+            VehicleRepository vehicles = new VehicleRepository(events);
+            IdAllocator ids = new IdAllocator();
+            for (int i = 1; i <= customerCount; i++) {
+                users.add(new Customer(IdAllocator.format(IdAllocator.CUSTOMER, i), "Customer " + i,
+                                       "c" + i + "@email.com", "pass123", "012-3456789", "Street " + i + ", KL"));
+            }
+
+            try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+                log.recover((lsn, type, in) -> {});
+                events.setJournal(new LogRecorder(log));
+                events.subscribe(new StatisticsEngine());
+
+                BulkImporter importer = new BulkImporter(users, parcels, vehicles, ids,
+                                                         threads, BulkImporter.DEFAULT_CHUNK_SIZE);
+                BulkImporter.Result result = importer.importFile(BulkImporter.Kind.PARCELS, input);
+
+                System.out.printf("Import:        %8d ms%n", result.getElapsedMillis());
+                System.out.printf("  imported %,d, rejected %,d%n", result.getImported(), result.getRejected());
+                System.out.printf("  %,.0f rows/s = %,.0f rows/min%n",
+                                  result.getRowsPerSecond(), result.getRowsPerSecond() * 60);
+                System.out.printf("  log: %,d records in %,d forces, %,d bytes%n",
+                                  log.getRecordCount(), log.getSyncCount(), log.getBytesWritten());
+                if (result.getRejectFile() != null) Files.deleteIfExists(result.getRejectFile());
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            // the log's segments: <file>.<first LSN>
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir, logFile.getFileName() + ".*")) {
+                for (Path segment : segments) Files.delete(segment);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static final String[] TYPES = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+
+    private static void generate(Path input, boolean json, int parcelCount, int customerCount) throws Exception {
+        try (BufferedWriter out = Files.newBufferedWriter(input)) {
+            if (!json) {
+                out.write("type,sender_id,receiver_id,weight,dimensions,description,additional_info");
+                out.newLine();
+            }
+            for (int i = 0; i < parcelCount; i++) {
+                String type = TYPES[i % TYPES.length];
+                String sender = IdAllocator.format(IdAllocator.CUSTOMER, i % customerCount + 1);
+                String receiver = IdAllocator.format(IdAllocator.CUSTOMER, (i + 1) % customerCount + 1);
+                // every 100th row is too heavy and must be rejected
+                String weight = i % 100 == 99 ? "250" : String.valueOf(0.5 + (i % 40));
+                String country = type.equals("INTERNATIONAL") ? "Singapore" : "";
+                if (json) {
+                    out.write("{\"type\":\"" + type + "\",\"sender_id\":\"" + sender
+                              + "\",\"receiver_id\":\"" + receiver + "\",\"weight\":" + weight
+                              + ",\"dimensions\":\"30x20x15\",\"description\":\"Item " + i
+                              + "\",\"additional_info\":\"" + country + "\"}");
+                } else {
+                    out.write(type + "," + sender + "," + receiver + "," + weight
+                              + ",30x20x15,Item " + i + "," + country);
+                }
+                out.newLine();
+            }
+        }
+    }
+}
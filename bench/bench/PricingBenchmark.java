@@ -0,0 +1,84 @@
+package bench;
+
+import models.*;
+import services.PricingEngine;
+import java.nio.file.*;
+import java.util.Random;
+
+// Bulk quoting: one Parcel object per quote (what pricing cost before) against
+// the pricing engine over primitive arrays, single-threaded and on all cores.
+// The rate table has zone surcharges so the destination lookup is exercised.
+//
+// Usage: ant bench -Dbench.main=bench.PricingBenchmark -Dbench.args="<quotes>" -Dbench.jvmargs="-Xmx2g"
+public class PricingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        Random random = new Random(11);
+        byte[] types = new byte[count];
+        double[] weights = new double[count];
+        int[] zones = new int[count];
+        String[] countries = {"Singapore", "Thailand", "Japan", "Germany"};
+        Path ratesFile = Files.createTempFile("rates", ".csv");
+        Files.writeString(ratesFile, String.join("\n",
+                "zone,DOMESTIC,0,0", "zone,ASEAN,5,0.5", "zone,ASIA,12,1.5", "zone,WORLD,20,3",
+                "country,Singapore,ASEAN", "country,Thailand,ASEAN", "country,Japan,ASIA",
+                "country,Germany,WORLD"));
+        RateTable table = RateTable.load(ratesFile);
+        Files.delete(ratesFile);
+        RateTable.setActive(table);
+        for (int i = 0; i < count; i++) {
+            types[i] = (byte) random.nextInt(3);
+            weights[i] = 0.5 + random.nextInt(600) / 10.0;
+            if (types[i] == RateTable.INTERNATIONAL) zones[i] = table.zoneOf(countries[i & 3]);
+        }
+        Customer sender = new Customer("C001", "Sender", "s@email.com", "pass123", "012-3456789", "KL");
+        Customer receiver = new Customer("C002", "Receiver", "r@email.com", "pass123", "012-3456789", "PJ");
+        String[] typeNames = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+
+        System.out.println("=== PRICING BENCHMARK ===");
+        System.out.printf("%,d quotes, %d cores%n%n", count, threads);
+        System.out.println("Method                      ms      quotes/s     total RM");
+
+        // Before: a Parcel per quote, priced by its constructor
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            double total = 0;
+            for (int i = 0; i < count; i++) {
+                Parcel parcel = ParcelFactory.createParcel(typeNames[types[i]], "P", sender, receiver,
+                                                           weights[i], "30x20x15", "Item",
+                                                           countries[i & 3]);
+                total += parcel.getPrice();
+            }
+            if (round == 1) report("Parcel object per quote", start, count, total);
+        }
+
+        double[] prices = new double[count];
+        try (PricingEngine single = new PricingEngine(1, PricingEngine.DEFAULT_CHUNK_SIZE);
+             PricingEngine parallel = new PricingEngine()) {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                single.price(table, types, weights, zones, prices);
+                if (round == 2) report("Engine, 1 thread", start, count, sum(prices));
+            }
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                parallel.price(table, types, weights, zones, prices);
+                if (round == 2) report("Engine, all cores", start, count, sum(prices));
+            }
+        }
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) total += value;
+        return total;
+    }
+
+    private static void report(String method, long start, int count, double total) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-24s %7.0f %13.0f %12.0f%n", method, millis, count / millis * 1000, total);
+    }
+}
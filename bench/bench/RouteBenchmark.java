@@ -0,0 +1,92 @@
+package bench;
+
+import services.DistanceMatrix;
+import services.RoutePlanner;
+import java.util.*;
+
+// Route planner against the old fixed routes, then on generated manifests.
+//
+// Part 1 drives the stops of the three hard-coded DeliveryView routes over the
+// built-in distance table, in their fixed order and in the planned order.
+// Part 2 scatters places over a 60 x 60 km area and plans manifests of growing
+// size: loading order (what the driver did without a plan), nearest neighbour
+// alone, and nearest neighbour + 2-opt / Or-opt within the time budget.
+//
+// Usage: ant bench -Dbench.main=bench.RouteBenchmark -Dbench.args="<runs per size> <budget ms>"
+public class RouteBenchmark {
+
+    private static final String[][] FIXED_ROUTES = {
+        {"Main City", "KLCC", "Pavilion", "Mid Valley", "Central Market"},
+        {"Suburban", "Petaling Jaya", "Subang Jaya", "Shah Alam", "Klang"},
+        {"Rural", "Rawang", "Kuala Selangor", "Sabak Bernam"},
+    };
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : RoutePlanner.DEFAULT_BUDGET_MILLIS;
+
+        System.out.println("=== ROUTE BENCHMARK ===");
+        System.out.println("\nFixed routes over the built-in distance table (km):");
+        System.out.println("Route        fixed order    planned");
+        RoutePlanner builtIn = new RoutePlanner(DistanceMatrix.loadBuiltIn(), budget);
+        for (String[] route : FIXED_ROUTES) {
+            int[] stops = new int[route.length - 1];
+            for (int i = 1; i < route.length; i++) stops[i - 1] = builtIn.getMatrix().indexOf(route[i]);
+            System.out.printf("%-10s %11.1f %10.1f%n", route[0], builtIn.routeLength(stops),
+                              builtIn.plan(stops).getDistance());
+        }
+
+        System.out.printf("%nGenerated manifests, mean of %d runs, budget %d ms:%n", runs, budget);
+        System.out.println("Stops   loading km     NN km   planned km   vs loading   mean ms    max ms");
+        Random random = new Random(7);
+        for (int stops : new int[] {10, 50, 100, 200, 500}) {
+            // warm-up so the first size does not pay for JIT compilation
+            plan(randomMatrix(random, stops + 1), budget);
+            double loading = 0;
+            double constructed = 0;
+            double planned = 0;
+            double totalMillis = 0;
+            double maxMillis = 0;
+            for (int run = 0; run < runs; run++) {
+                double[] result = plan(randomMatrix(random, stops + 1), budget);
+                loading += result[0];
+                constructed += result[1];
+                planned += result[2];
+                totalMillis += result[3];
+                maxMillis = Math.max(maxMillis, result[3]);
+            }
+            System.out.printf("%5d %12.1f %9.1f %12.1f %11.1f%% %9.2f %9.2f%n", stops, loading / runs,
+                              constructed / runs, planned / runs, (planned / loading - 1) * 100,
+                              totalMillis / runs, maxMillis);
+        }
+    }
+
+    // Loading order, nearest neighbour, planned distance, planning time in ms
+    private static double[] plan(DistanceMatrix matrix, long budget) {
+        RoutePlanner planner = new RoutePlanner(matrix, budget);
+        int[] stops = new int[matrix.size() - 1];
+        for (int i = 0; i < stops.length; i++) stops[i] = i + 1;
+        RoutePlanner.Plan plan = planner.plan(stops);
+        return new double[] {planner.routeLength(stops), plan.getConstructedDistance(),
+                             plan.getDistance(), plan.getElapsedNanos() / 1e6};
+    }
+
+    // Depot in the middle, places uniform over 60 x 60 km, roads 1.3x the straight line
+    private static DistanceMatrix randomMatrix(Random random, int places) {
+        double[] x = new double[places];
+        double[] y = new double[places];
+        String[] names = new String[places];
+        for (int i = 0; i < places; i++) {
+            x[i] = i == 0 ? 30 : random.nextDouble() * 60;
+            y[i] = i == 0 ? 30 : random.nextDouble() * 60;
+            names[i] = "Place " + i;
+        }
+        double[] distances = new double[places * places];
+        for (int i = 0; i < places; i++) {
+            for (int j = 0; j < places; j++) {
+                distances[i * places + j] = Math.hypot(x[i] - x[j], y[i] - y[j]) * 1.3;
+            }
+        }
+        return new DistanceMatrix(names, distances);
+    }
+}
@@ -0,0 +1,138 @@
+package bench;
+
+import models.*;
+import persistence.SnapshotManager;
+import persistence.WriteAheadLog;
+import services.*;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Random;
+
+// Snapshot capture pause, background write time and cold-start load time
+// for a generated data set.
+//
+// The parcels are added in rounds of <per round> (default 1,000,000): each round
+// starts from the previous round's snapshot, adds its parcels and takes a new
+// snapshot, as a running system does, so no round needs every parcel on the
+// heap. The capture and write times are those of the last round. The cold start
+// then loads the last snapshot into empty repositories and, as Main does, counts
+// the parcels for the statistics and moves the ID allocator past them.
+//
+// Usage: ant bench -Dbench.main=bench.SnapshotBenchmark -Dbench.args="<parcels> [<per round>]" -Dbench.jvmargs="-Xmx3g"
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int parcelCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int perRound = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int customerCount = Math.max(2, parcelCount / 100);
+
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path snapshotFile = dir.resolve("snapshot.bin");
+        Path logFile = dir.resolve("changes.wal");
+        try {
+            System.out.println("=== SNAPSHOT BENCHMARK ===");
+            System.out.printf("%,d parcels, %,d customers, %,d parcels per round%n%n",
+                              parcelCount, customerCount, perRound);
+
+            // Build the state (not logged - only the snapshots are measured)
+            long populate = 0, capture = 0, write = 0;
+            try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+                log.recover((lsn, type, in) -> {});
+                for (int added = 0; added < parcelCount || added == 0; ) {
+                    UserDirectory users = new UserDirectory();
+                    ParcelRepository parcels = new ParcelRepository();
+                    SnapshotManager snapshots = new SnapshotManager(snapshotFile, log, users, parcels,
+                                                                    new DeliveryRepository(), new VehicleRepository(),
+                                                                    new PaymentLedger(), Long.MAX_VALUE);
+                    long start = System.nanoTime();
+                    if (snapshots.load() == 0) addCustomers(users, customerCount);
+                    int count = Math.min(perRound, parcelCount - added);
+                    addParcels(users, parcels, customerCount, added, count);
+                    added += Math.max(1, count);
+                    populate += System.nanoTime() - start;
+
+                    log.append((byte) 0, new byte[0]); // state is newer than the last snapshot
+                    start = System.nanoTime();
+                    snapshots.checkpoint();
+                    long captured = System.nanoTime();
+                    snapshots.awaitIdle();
+                    long written = System.nanoTime();
+                    snapshots.close();
+                    capture = captured - start;
+                    write = written - captured;
+                }
+            }
+            System.out.printf("Populate:        %8.0f ms%n", populate / 1e6);
+            System.out.printf("Capture (pause): %8.0f ms%n", capture / 1e6);
+            System.out.printf("Background write:%8.0f ms  (%,d bytes)%n", write / 1e6, directorySize(dir));
+
+            // Cold start: fresh repositories loaded from the snapshot
+            System.gc();
+            UserDirectory users = new UserDirectory();
+            ParcelRepository parcels = new ParcelRepository();
+            DeliveryRepository deliveries = new DeliveryRepository();
+            VehicleRepository vehicles = new VehicleRepository();
+            SnapshotManager loader = new SnapshotManager(snapshotFile, null, users, parcels, deliveries,
+                                                         vehicles, new PaymentLedger(), Long.MAX_VALUE);
+            long start = System.nanoTime();
+            loader.load();
+            long loaded = System.nanoTime();
+            StatisticsEngine stats = StatisticsEngine.recount(users, parcels, deliveries, vehicles);
+            IdAllocator ids = new IdAllocator();
+            parcels.observeIds(ids);
+            long ready = System.nanoTime();
+            System.out.printf("Load:            %8.0f ms  (%,d parcels)%n", (loaded - start) / 1e6, parcels.size());
+            System.out.printf("Counts and IDs:  %8.0f ms  (%,d parcels counted, next ID %s)%n",
+                              (ready - loaded) / 1e6, stats.getParcelCount(), ids.next(IdAllocator.PARCEL));
+            System.out.printf("Cold start:      %8.0f ms%n", (ready - start) / 1e6);
+
+            // First use of stored parcels: built from their rows on demand
+            Random random = new Random(1);
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < 1000; i++) {
+                String parcelId = IdAllocator.format(IdAllocator.PARCEL, 1 + random.nextInt(parcelCount));
+                if (parcels.findById(parcelId) != null) found++;
+            }
+            long lookups = System.nanoTime() - start;
+            start = System.nanoTime();
+            int sent = parcels.findBySender(IdAllocator.format(IdAllocator.CUSTOMER, 1 + random.nextInt(customerCount))).size();
+            System.out.printf("First lookups:   %8.3f ms each (%d of 1000 found); a customer's %d parcels in %.1f ms%n",
+                              lookups / 1e6 / 1000, found, sent, (System.nanoTime() - start) / 1e6);
+            loader.close();
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) Files.delete(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void addCustomers(UserDirectory users, int customerCount) {
+        for (int i = 0; i < customerCount; i++) {
+            users.add(new Customer(IdAllocator.format(IdAllocator.CUSTOMER, i + 1), "Customer " + i,
+                                   "c" + i + "@email.com", "pass", "012-0000000", "Street " + i));
+        }
+    }
+
+    // Parcels first .. first + count - 1
+    private static void addParcels(UserDirectory users, ParcelRepository parcels,
+                                   int customerCount, int first, int count) {
+        String[] types = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+        for (int i = first; i < first + count; i++) {
+            User sender = users.findById(IdAllocator.format(IdAllocator.CUSTOMER, i % customerCount + 1));
+            User receiver = users.findById(IdAllocator.format(IdAllocator.CUSTOMER, (i * 7 + 1) % customerCount + 1));
+            parcels.add(ParcelFactory.createParcel(types[i % 3], IdAllocator.format(IdAllocator.PARCEL, i + 1),
+                                                   sender, receiver, 0.5 + (i % 40), "30x20x15",
+                                                   "Parcel " + i, "Singapore"));
+        }
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) size += Files.size(file);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import persistence.WriteAheadLog;
+import java.nio.file.*;
+import java.util.concurrent.*;
+
+// Durable operations per second for the write-ahead log.
+// Each writer thread appends records and waits for each one to be on disk,
+// like a console session performing one change after another. With more
+// writers, group commit lets several records share one fsync.
+//
+// Usage: ant bench -Dbench.main=bench.WalBenchmark -Dbench.args="<opsPerThread> <payloadBytes> <threads...>"
+public class WalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int payloadBytes = args.length > 1 ? Integer.parseInt(args[1]) : 96;
+        int[] threadCounts = {1, 4, 16, 64};
+        if (args.length > 2) {
+            threadCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) threadCounts[i - 2] = Integer.parseInt(args[i]);
+        }
+
+        System.out.println("=== WRITE-AHEAD LOG BENCHMARK ===");
+        System.out.printf("%d ops per thread, %d-byte payloads%n%n", opsPerThread, payloadBytes);
+        System.out.printf("%-8s %12s %12s %10s %14s%n", "Threads", "Ops", "Ops/sec", "fsyncs", "Records/fsync");
+
+        for (int threads : threadCounts) {
+            run(threads, opsPerThread, payloadBytes);
+        }
+    }
+
+    private static void run(int threads, int opsPerThread, int payloadBytes) throws Exception {
+        Path dir = Files.createTempDirectory("wal-bench");
+        Path file = dir.resolve("bench.wal");
+        byte[] payload = new byte[payloadBytes];
+
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.recover((lsn, type, in) -> {});
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] workers = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        log.append((byte) 1, payload);
+                    }
+                    return null;
+                });
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> worker : workers) worker.get();
+            long elapsed = System.nanoTime() - begin;
+            pool.shutdown();
+
+            long ops = (long) threads * opsPerThread;
+            System.out.printf("%-8d %12d %12.0f %10d %14.1f%n", threads, ops,
+                              ops / (elapsed / 1e9), log.getSyncCount(),
+                              (double) log.getRecordCount() / Math.max(1, log.getSyncCount()));
+        } finally {
+            // the log's segments: <file>.<first LSN>
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir, file.getFileName() + ".*")) {
+                for (Path segment : segments) Files.delete(segment);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package bench.jmh_generated;
+public class AssignDeliveryBenchmark_jmhType extends AssignDeliveryBenchmark_jmhType_B3 {
+}
+
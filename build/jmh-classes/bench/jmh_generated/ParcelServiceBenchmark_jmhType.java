@@ -0,0 +1,4 @@
+package bench.jmh_generated;
+public class ParcelServiceBenchmark_jmhType extends ParcelServiceBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package bench.jmh_generated;
+public class PricingKernelBenchmark_jmhType extends PricingKernelBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,97 @@
+package bench;
+
+import models.*;
+import services.*;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Booking-time delivery assignment (CustomerController.assignDelivery, i.e.
+// Dispatcher.submit with the console's 0 ms window) with 10^3 to 10^7 open
+// deliveries already in the system. Each operation creates the parcel and
+// dispatches it: a delivery, the least-loaded driver and a best-fit vehicle.
+//
+// The deliveries made during an iteration are removed again before the next,
+// so the system stays at the requested size; vehicles are large enough that the
+// fleet never fills up mid-iteration.
+//   ant jmh -Djmh.args="AssignDeliveryBenchmark -jvmArgsAppend -Xmx8g"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignDeliveryBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int deliveries;
+
+    private ParcelRepository parcels;
+    private DeliveryRepository deliveryRepository;
+    private VehicleRepository vehicles;
+    private IdAllocator ids;
+    private Dispatcher dispatcher;
+    private Customer sender;
+    private Customer receiver;
+    private ArrayList<Delivery> created;
+
+    @Setup
+    public void setUp() {
+        EventBus events = new EventBus();
+        UserDirectory users = new UserDirectory(events);
+        parcels = new ParcelRepository(events);
+        deliveryRepository = new DeliveryRepository(events);
+        vehicles = new VehicleRepository(events);
+        StaffPool staffPool = new StaffPool(deliveryRepository);
+        events.subscribe(staffPool);
+        ids = new IdAllocator();
+
+        sender = new Customer("C001", "Sender", "s@email.com", "pass", "012-0000000", "KL");
+        receiver = new Customer("C002", "Receiver", "r@email.com", "pass", "012-0000000", "PJ");
+        users.add(sender);
+        users.add(receiver);
+        Staff[] staff = new Staff[20];
+        for (int i = 0; i < staff.length; i++) {
+            staff[i] = new Staff(IdAllocator.format(IdAllocator.STAFF, i + 1), "Driver " + i, "d" + i + "@courier.com",
+                                 "staff123", "011-2223333", "Delivery Driver", 2500);
+            users.add(staff[i]);
+        }
+        for (int i = 0; i < 50; i++) {
+            vehicles.add(new Vehicle(ids.next(IdAllocator.VEHICLE), "Truck", "PLT" + i, 1e12));
+        }
+
+        // Existing open deliveries, spread over the drivers (no vehicle)
+        for (int i = 0; i < deliveries; i++) {
+            Parcel parcel = book();
+            deliveryRepository.add(new Delivery(ids.next(IdAllocator.DELIVERY), parcel, staff[i % staff.length]));
+        }
+
+        dispatcher = new Dispatcher(users, deliveryRepository, vehicles, staffPool, ids, 0, 50);
+        created = new ArrayList<>();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreated() {
+        for (Delivery delivery : created) {
+            Vehicle vehicle = delivery.getAssignedVehicle();
+            if (vehicle != null) vehicles.release(vehicle, delivery.getDeliveryId());
+            deliveryRepository.remove(delivery);
+            parcels.remove(delivery.getParcel());
+        }
+        created.clear();
+    }
+
+    @Benchmark
+    public Delivery assignDelivery() {
+        Delivery delivery = dispatcher.submit(book()).get(0);
+        created.add(delivery);
+        return delivery;
+    }
+
+    private Parcel book() {
+        Parcel parcel = ParcelFactory.createParcel("STANDARD", ids.next(IdAllocator.PARCEL), sender, receiver,
+                                                   2.5, "30x20x15", "Item", "");
+        parcels.add(parcel);
+        return parcel;
+    }
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import models.*;
+import services.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// ParcelService hot paths as the repository grows from 10^3 to 10^7 parcels:
+// lookup by ID, count by status, total value, and the next parcel ID (the
+// allocator that replaced generateParcelId's scan over all parcel IDs).
+// Throughput and sampled latency (with percentiles) for each; `ant jmh` adds
+// the gc profiler for the allocation rate.
+//
+// Parcels are created directly in memory, with no archive, so the numbers are
+// for the live tier. 10^7 parcels needs a heap of about 8 GB:
+//   ant jmh -Djmh.args="ParcelServiceBenchmark -jvmArgsAppend -Xmx8g"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParcelServiceBenchmark {
+
+    // IDs looked up in a fixed random order (bounded, so the ID list stays small)
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int parcels;
+
+    private ParcelService service;
+    private IdAllocator ids;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ParcelRepository repository = new ParcelRepository();
+        service = new ParcelService(repository);
+        ids = new IdAllocator();
+        Customer sender = new Customer("C001", "Sender", "s@email.com", "pass", "012-0000000", "KL");
+        Customer receiver = new Customer("C002", "Receiver", "r@email.com", "pass", "012-0000000", "PJ");
+        String[] types = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+        ParcelStatus[] statuses = ParcelStatus.values();
+        for (int i = 0; i < parcels; i++) {
+            Parcel parcel = ParcelFactory.createParcel(types[i % 3], ids.next(IdAllocator.PARCEL), sender, receiver,
+                                                       0.5 + i % 40, "30x20x15", "Item", "Singapore");
+            service.addParcel(parcel);
+            repository.restoreStatus(parcel, statuses[i % statuses.length]);
+        }
+
+        Random random = new Random(42);
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = IdAllocator.format(IdAllocator.PARCEL, 1 + random.nextInt(parcels));
+        }
+    }
+
+    @Benchmark
+    public Parcel findParcelById() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return service.findParcelById(lookups[next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int countParcelsByStatus() {
+        return service.countParcelsByStatus(ParcelStatus.IN_TRANSIT);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double calculateTotalValue() {
+        return service.calculateTotalValue();
+    }
+
+    @Benchmark
+    public String generateParcelId() {
+        return ids.next(IdAllocator.PARCEL);
+    }
+}
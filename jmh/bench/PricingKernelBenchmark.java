@@ -0,0 +1,164 @@
+package bench;
+
+import models.*;
+import services.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Pricing, surcharge and weight-category arithmetic over N parcels, three ways:
+//   object - the per-object path (Parcel.calculatePrice / getWeight per parcel)
+//   scalar - ScalarPricingKernel over primitive columns
+//   vector - VectorPricingKernel (Vector API) over the same columns
+// All single-threaded, so the kernels are compared lane for lane; PricingEngine
+// splits the same work across cores on top.
+//
+// The object path cycles through at most 1M real parcels: 100M Parcel objects
+// would not fit a normal heap, and the column arrays alone need ~1.8 GB at 100M.
+//
+// Usage: ant jmh -Djmh.args="PricingKernelBenchmark -p parcels=1000000"
+//        (add -jvmArgsAppend -Xmx4g for 100M)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class PricingKernelBenchmark {
+
+    private static final int OBJECT_POOL = 1_000_000;
+
+    @Param({"1000000", "10000000", "100000000"})
+    public int parcels;
+
+    private byte[] types;
+    private double[] weights;
+    private int[] zones;
+    private double[] prices;
+    private double[] base;
+    private double[] perKg;
+    private double[] zoneFlat;
+    private double[] zonePerKg;
+    private double[] limits;
+    private long[] counts;
+    private double[] totals;
+    private Parcel[] objects;
+
+    private PricingKernel scalar;
+    private PricingKernel vector;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Zoned rates, so international parcels take the gather path
+        Path file = Files.createTempFile("rates", ".csv");
+        Files.writeString(file, "type,STANDARD,8,2.5\ntype,EXPRESS,15,4\ntype,INTERNATIONAL,25,8\n"
+                                + "zone,DOMESTIC,0,0\nzone,ASEAN,10,1.5\nzone,WORLD,30,4\n"
+                                + "country,Singapore,ASEAN\ncountry,Japan,WORLD\n");
+        RateTable table = RateTable.load(file);
+        Files.delete(file);
+        RateTable.setActive(table);
+        base = table.getBaseRates();
+        perKg = table.getPerKgRates();
+        zoneFlat = table.getZoneFlat();
+        zonePerKg = table.getZonePerKg();
+
+        Random random = new Random(42);
+        types = new byte[parcels];
+        weights = new double[parcels];
+        zones = new int[parcels];
+        prices = new double[parcels];
+        for (int i = 0; i < parcels; i++) {
+            types[i] = (byte) random.nextInt(3);
+            weights[i] = 0.1 + random.nextInt(400) / 10.0;
+            zones[i] = types[i] == RateTable.INTERNATIONAL ? 1 + random.nextInt(2) : 0;
+        }
+        limits = ParcelService.getWeightCategories();
+        counts = new long[limits.length + 1];
+        totals = new double[limits.length + 1];
+
+        Customer sender = new Customer("C001", "Sender", "s@email.com", "pass", "012-0000000", "KL");
+        String[] typeNames = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+        objects = new Parcel[Math.min(parcels, OBJECT_POOL)];
+        for (int i = 0; i < objects.length; i++) {
+            String destination = zones[i] == 2 ? "Japan" : zones[i] == 1 ? "Singapore" : "";
+            objects[i] = ParcelFactory.createParcel(typeNames[types[i]], IdAllocator.format(IdAllocator.PARCEL, i + 1),
+                                                    sender, sender, weights[i], "30x20x15", "Item", destination);
+        }
+
+        scalar = new ScalarPricingKernel();
+        vector = new VectorPricingKernel();
+    }
+
+    // ---------- Price ----------
+
+    @Benchmark
+    public double objectPrice() {
+        double total = 0;
+        for (int i = 0, p = 0; i < parcels; i++) {
+            total += objects[p].calculatePrice();
+            if (++p == objects.length) p = 0;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] scalarPrice() {
+        scalar.price(base, perKg, zoneFlat, zonePerKg, types, weights, zones, prices, 0, parcels);
+        return prices;
+    }
+
+    @Benchmark
+    public double[] vectorPrice() {
+        vector.price(base, perKg, zoneFlat, zonePerKg, types, weights, zones, prices, 0, parcels);
+        return prices;
+    }
+
+    // ---------- Urgent fee (flat + per kg) and total ----------
+
+    @Benchmark
+    public double scalarUrgentFees() {
+        scalar.linear(ExpressParcel.URGENT_FLAT, ExpressParcel.URGENT_PER_KG, weights, prices, 0, parcels);
+        return scalar.sum(prices, 0, parcels);
+    }
+
+    @Benchmark
+    public double vectorUrgentFees() {
+        vector.linear(ExpressParcel.URGENT_FLAT, ExpressParcel.URGENT_PER_KG, weights, prices, 0, parcels);
+        return vector.sum(prices, 0, parcels);
+    }
+
+    // ---------- Weight categories with revenue per category ----------
+
+    @Benchmark
+    public long[] objectBrackets() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+        for (int i = 0, p = 0; i < parcels; i++) {
+            Parcel parcel = objects[p];
+            int bracket = 0;
+            while (bracket < limits.length && parcel.getWeight() > limits[bracket]) bracket++;
+            counts[bracket]++;
+            totals[bracket] += parcel.getPrice();
+            if (++p == objects.length) p = 0;
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public long[] scalarBrackets() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+        scalar.brackets(limits, weights, prices, counts, totals, 0, parcels);
+        return counts;
+    }
+
+    @Benchmark
+    public long[] vectorBrackets() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+        vector.brackets(limits, weights, prices, counts, totals, 0, parcels);
+        return counts;
+    }
+}
@@ -1,33 +1,85 @@
 package controllers;
 
 import models.*;
+import persistence.DataExporter;
+import services.BulkImporter;
+import services.DeliveryRepository;
+import services.Dispatcher;
+import services.IdAllocator;
+import services.ParcelArchive;
+import services.ParcelRepository;
+import services.PaymentLedger;
+import services.PricingEngine;
+import services.QuoteCache;
+import services.RoutePlanner;
+import services.StaffPool;
+import services.StatisticsEngine;
+import services.UserDirectory;
+import services.VehicleRepository;
+import utils.Validator;
 import views.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.time.LocalDate;
+import java.time.ZoneId;
 
 public class AdminController {
     private Scanner scanner;
-    private ArrayList<User> users;
-    private ArrayList<Parcel> parcels;
-    private ArrayList<Delivery> deliveries;
-    private ArrayList<Vehicle> vehicles;
-    private ArrayList<Payment> payments;
+    private UserDirectory users;
+    private ParcelRepository parcels;
+    private DeliveryRepository deliveries;
+    private VehicleRepository vehicles;
+    private PaymentLedger payments;
+    private IdAllocator idAllocator;
+    private StatisticsEngine stats;
+    private BulkImporter importer;
+    private DataExporter exporter;
+    private Dispatcher dispatcher;
+    private StaffPool staffPool;
+    private RoutePlanner routePlanner;
+    private PricingEngine pricing;
+    private QuoteCache quotes;
+    private ParcelArchive archive;
     
-    public AdminController(Scanner scanner, ArrayList<User> users, 
-                          ArrayList<Parcel> parcels, ArrayList<Delivery> deliveries,
-                          ArrayList<Vehicle> vehicles, ArrayList<Payment> payments) {
+    // Outcomes of background exports, shown by this session at its next menu
+    // (the exporter thread must not print into whatever is on screen)
+    private final Queue<Runnable> exportOutcomes = new ConcurrentLinkedQueue<>();
+    
+    public AdminController(Scanner scanner, UserDirectory users, 
+                          ParcelRepository parcels, DeliveryRepository deliveries,
+                          VehicleRepository vehicles, PaymentLedger payments,
+                          IdAllocator idAllocator, StatisticsEngine stats,
+                          BulkImporter importer, DataExporter exporter,
+                          Dispatcher dispatcher, StaffPool staffPool,
+                          RoutePlanner routePlanner, PricingEngine pricing,
+                          QuoteCache quotes, ParcelArchive archive) {
         this.scanner = scanner;
         this.users = users;
         this.parcels = parcels;
         this.deliveries = deliveries;
         this.vehicles = vehicles;
         this.payments = payments;
+        this.idAllocator = idAllocator;
+        this.stats = stats;
+        this.importer = importer;
+        this.exporter = exporter;
+        this.dispatcher = dispatcher;
+        this.staffPool = staffPool;
+        this.routePlanner = routePlanner;
+        this.pricing = pricing;
+        this.quotes = quotes;
+        this.archive = archive;
     }
     
     public void showMenu() {
         boolean logout = false;
         
         while (!logout) {
+            showExportOutcomes();
             MenuView.showSectionHeader("ADMINISTRATOR DASHBOARD");
             System.out.println("1. View System Statistics & Reports");
             System.out.println("2. View All Users");
@@ -38,8 +90,11 @@ public class AdminController {
             System.out.println("7. Add New Staff");
             System.out.println("8. Add New Vehicle");
             System.out.println("9. Generate System Report");
-            System.out.println("10. Logout");
-            System.out.print("\nSelect option (1-10): ");
+            System.out.println("10. Bulk Import Data");
+            System.out.println("11. Export Data");
+            System.out.println("12. Pricing & Repricing");
+            System.out.println("13. Logout");
+            System.out.print("\nSelect option (1-13): ");
             
             try {
                 int choice = scanner.nextInt();
@@ -55,12 +110,15 @@ public class AdminController {
                     case 7: addNewStaff(); break;
                     case 8: addNewVehicle(); break;
                     case 9: generateSystemReport(); break;
-                    case 10: 
+                    case 10: bulkImport(); break;
+                    case 11: exportData(); break;
+                    case 12: managePricing(); break;
+                    case 13: 
                         logout = true;
                         MenuView.showSuccess("Admin logged out successfully!");
                         break;
                     default: 
-                        MenuView.showError("Invalid option! Choose 1-10");
+                        MenuView.showError("Invalid option! Choose 1-13");
                 }
             } catch (InputMismatchException e) {
                 MenuView.showError("Please enter a number!");
@@ -73,71 +131,91 @@ public class AdminController {
     private void showStatistics() {
         MenuView.showSectionHeader("SYSTEM STATISTICS & PERFORMANCE REPORTS");
         
-        // User Statistics
-        int customerCount = 0, staffCount = 0;
-        for (User user : users) {
-            if (user instanceof Customer) customerCount++;
-            else if (user instanceof Staff && !user.getUserId().equals("ADMIN")) staffCount++;
-        }
+        // All figures come from the incrementally maintained statistics engine
+        long customerCount = stats.getCustomerCount();
+        long staffCount = stats.getStaffCount();
         
         System.out.println("\n📊 USER STATISTICS:");
-        System.out.println("   Total Users: " + users.size());
+        System.out.println("   Total Users: " + stats.getUserCount());
         System.out.println("   Customers: " + customerCount);
         System.out.println("   Staff Members: " + staffCount);
         
         // Parcel Statistics
-        int standardCount = 0, expressCount = 0, internationalCount = 0;
-        int created = 0, processing = 0, delivered = 0;
-        
-        for (Parcel parcel : parcels) {
-            if (parcel instanceof StandardParcel) standardCount++;
-            else if (parcel instanceof ExpressParcel) expressCount++;
-            else if (parcel instanceof InternationalParcel) internationalCount++;
-            
-            String status = parcel.getStatus();
-            if (status.contains("Created")) created++;
-            else if (status.contains("Processing")) processing++;
-            else if (status.contains("Delivered")) delivered++;
-        }
+        long totalParcels = stats.getParcelCount();
+        long delivered = stats.getParcelsDelivered();
         
         System.out.println("\n📦 PARCEL STATISTICS (KPIs):");
-        System.out.println("   Total Parcels: " + parcels.size());
-        System.out.println("   Standard: " + standardCount);
-        System.out.println("   Express: " + expressCount);
-        System.out.println("   International: " + internationalCount);
+        System.out.println("   Total Parcels: " + totalParcels);
+        System.out.println("   Standard: " + stats.getStandardCount());
+        System.out.println("   Express: " + stats.getExpressCount());
+        System.out.println("   International: " + stats.getInternationalCount());
         System.out.println("   Delivery Success Rate: " + 
-                         (parcels.size() > 0 ? (double)delivered/parcels.size()*100 : 0) + "%");
+                         (totalParcels > 0 ? (double)delivered/totalParcels*100 : 0) + "%");
         
         // Delivery Statistics
-        int scheduled = 0, inTransit = 0, completed = 0;
-        for (Delivery delivery : deliveries) {
-            String status = delivery.getStatus();
-            if (status.contains("Scheduled")) scheduled++;
-            else if (status.contains("Transit")) inTransit++;
-            else if (status.contains("Delivered")) completed++;
-        }
+        long totalDeliveries = stats.getDeliveryCount();
+        long completed = stats.getDeliveriesCompleted();
         
         System.out.println("\n🚚 DELIVERY PERFORMANCE:");
-        System.out.println("   Total Deliveries: " + deliveries.size());
-        System.out.println("   Scheduled: " + scheduled);
-        System.out.println("   In Transit: " + inTransit);
+        System.out.println("   Total Deliveries: " + totalDeliveries);
+        System.out.println("   Scheduled: " + stats.getDeliveriesScheduled());
+        System.out.println("   In Transit: " + stats.getDeliveriesInTransit());
         System.out.println("   Completed: " + completed);
         System.out.println("   Completion Rate: " + 
-                         (deliveries.size() > 0 ? (double)completed/deliveries.size()*100 : 0) + "%");
+                         (totalDeliveries > 0 ? (double)completed/totalDeliveries*100 : 0) + "%");
         
         // Vehicle Utilization (KPI)
-        int availableVehicles = 0;
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.isAvailable()) availableVehicles++;
-        }
+        long totalVehicles = stats.getVehicleCount();
+        long availableVehicles = stats.getAvailableVehicleCount();
         
         System.out.println("\n🚛 VEHICLE UTILIZATION:");
-        System.out.println("   Total Vehicles: " + vehicles.size());
+        System.out.println("   Total Vehicles: " + totalVehicles);
         System.out.println("   Available: " + availableVehicles);
-        System.out.println("   In Use: " + (vehicles.size() - availableVehicles));
+        System.out.println("   In Use: " + (totalVehicles - availableVehicles));
         System.out.println("   Utilization Rate: " + 
-                         (vehicles.size() > 0 ? 
-                         (double)(vehicles.size() - availableVehicles)/vehicles.size()*100 : 0) + "%");
+                         (totalVehicles > 0 ? 
+                         (double)(totalVehicles - availableVehicles)/totalVehicles*100 : 0) + "%");
+        
+        // Dispatch quality, compared with the old first-fit rule on the same parcels
+        Dispatcher.Metrics dispatch = dispatcher.getMetrics();
+        if (dispatch.getBatches() > 0) {
+            Dispatcher.Totals now = dispatch.getDispatched();
+            Dispatcher.Totals before = dispatch.getFirstFit();
+            System.out.println("\n🧭 DISPATCH (batch dispatcher vs first-fit):");
+            System.out.println("   Parcels Dispatched: " + now.getParcels() + " in " 
+                             + dispatch.getBatches() + " batches (" + dispatcher.getPendingCount() + " waiting)");
+            System.out.printf("   Vehicle Fill (weight / capacity): %.1f%% vs %.1f%%%n",
+                              now.getUtilization() * 100, before.getUtilization() * 100);
+            System.out.println("   Vehicle Trips: " + now.getTrips() + " vs " + before.getTrips());
+            System.out.println("   Parcels With Vehicle: " + now.getWithVehicle() + " vs " + before.getWithVehicle());
+            System.out.println("   Express With Vehicle: " + now.getExpressWithVehicle() + "/" + now.getExpress() 
+                             + " vs " + before.getExpressWithVehicle() + "/" + before.getExpress());
+            System.out.println("   Busiest Driver (open deliveries): " + now.getMaxDriverLoad() 
+                             + " vs " + before.getMaxDriverLoad());
+        }
+        
+        // Quote cache effectiveness
+        long quoted = quotes.getHits() + quotes.getMisses();
+        if (quoted > 0) {
+            System.out.println("\n💲 QUOTES:");
+            System.out.printf("   Quotes: %d (%.1f%% from cache, %d/%d shapes cached)%n", 
+                              quoted, quotes.getHitRate() * 100, quotes.size(), quotes.getCapacity());
+            System.out.println("   Evicted: " + quotes.getEvictions() + " | Expired: " + quotes.getExpirations() 
+                             + " | Dropped for new rates: " + quotes.getInvalidations());
+        }
+        
+        // Verification mode: cross-check counters against a full recount
+        if (stats.isVerifyMode()) {
+            List<String> mismatches = stats.verify(users, parcels, deliveries, vehicles);
+            if (mismatches.isEmpty()) {
+                System.out.println("\n✅ Statistics verified against full recount");
+            } else {
+                MenuView.showError("Statistics drift detected (" + mismatches.size() + " counters):");
+                for (String mismatch : mismatches) {
+                    System.out.println("   " + mismatch);
+                }
+            }
+        }
         
         MenuView.showDivider();
         System.out.println("Report Generated: " + new Date());
@@ -148,21 +226,15 @@ public class AdminController {
         MenuView.showSectionHeader("USER MANAGEMENT");
         
         System.out.println("\n👥 CUSTOMERS:");
-        for (User user : users) {
-            if (user instanceof Customer) {
-                Customer customer = (Customer) user;
-                System.out.println("  " + customer.getUserId() + " - " + customer.getName());
-                System.out.println("    Email: " + customer.getEmail() + " | Phone: " + customer.getPhone());
-            }
+        for (Customer customer : users.getCustomers()) {
+            System.out.println("  " + customer.getUserId() + " - " + customer.getName());
+            System.out.println("    Email: " + customer.getEmail() + " | Phone: " + customer.getPhone());
         }
         
         System.out.println("\n👔 STAFF MEMBERS:");
-        for (User user : users) {
-            if (user instanceof Staff && !user.getUserId().equals("ADMIN")) {
-                Staff staff = (Staff) user;
-                System.out.println("  " + staff.getUserId() + " - " + staff.getName());
-                System.out.println("    Role: " + staff.getRole() + " | Salary: RM" + staff.getSalary());
-            }
+        for (Staff staff : users.getStaff()) {
+            System.out.println("  " + staff.getUserId() + " - " + staff.getName());
+            System.out.println("    Role: " + staff.getRole() + " | Salary: RM" + staff.getSalary());
         }
     }
     
@@ -176,7 +248,7 @@ public class AdminController {
         }
         
         System.out.println("\n📦 ALL PARCELS:");
-        for (Parcel parcel : parcels) {
+        for (Parcel parcel : parcels.getAll()) {
             System.out.println("  " + parcel.getParcelId() + " - " + parcel.getDescription());
             System.out.println("    Type: " + parcel.getClass().getSimpleName() + 
                              " | Status: " + parcel.getStatus() + 
@@ -213,7 +285,7 @@ public class AdminController {
     
     private void viewAllDeliveries() {
         System.out.println("\n🚚 ALL DELIVERIES:");
-        for (Delivery delivery : deliveries) {
+        for (Delivery delivery : deliveries.getAll()) {
             System.out.println("  " + delivery.getDeliveryId() + 
                              " - Parcel: " + delivery.getParcel().getDescription());
             System.out.println("    Status: " + delivery.getStatus() + 
@@ -229,32 +301,28 @@ public class AdminController {
         System.out.print("\nEnter Delivery ID: ");
         String deliveryId = scanner.nextLine();
         
-        Delivery foundDelivery = null;
-        for (Delivery delivery : deliveries) {
-            if (delivery.getDeliveryId().equals(deliveryId)) {
-                foundDelivery = delivery;
-                break;
-            }
-        }
+        Delivery foundDelivery = deliveries.findById(deliveryId);
         
         if (foundDelivery == null) {
             MenuView.showError("Delivery not found!");
             return;
         }
         
-        System.out.println("\nAvailable Staff:");
-        ArrayList<Staff> availableStaff = new ArrayList<>();
+        // Staff can only be assigned to a delivery that can still move to "Assigned"
+        if (!foundDelivery.getStatus().canTransitionTo(DeliveryStatus.ASSIGNED)) {
+            MenuView.showError("Delivery is already " + foundDelivery.getStatus()
+                             + " - staff can no longer be assigned!");
+            return;
+        }
+        
+        System.out.println("\nAvailable Staff (least busy first):");
+        List<Staff> availableStaff = staffPool.getAvailable();
         int count = 1;
         
-        for (User user : users) {
-            if (user instanceof Staff && !user.getUserId().equals("ADMIN")) {
-                Staff staff = (Staff) user;
-                if (staff.isAvailable()) {
-                    System.out.println(count + ". " + staff.getName() + " (" + staff.getRole() + ")");
-                    availableStaff.add(staff);
-                    count++;
-                }
-            }
+        for (Staff staff : availableStaff) {
+            System.out.println(count + ". " + staff.getName() + " (" + staff.getRole() + ", " 
+                             + staffPool.getLoad(staff) + " open deliveries)");
+            count++;
         }
         
         if (availableStaff.isEmpty()) {
@@ -272,8 +340,10 @@ public class AdminController {
         }
         
         Staff selectedStaff = availableStaff.get(staffChoice - 1);
-        foundDelivery.setDeliveryPerson(selectedStaff);
-        foundDelivery.updateDeliveryStatus("Assigned");
+        if (!deliveries.assignTo(foundDelivery, selectedStaff)) {
+            MenuView.showError("Delivery is now " + foundDelivery.getStatus() + " - staff not assigned!");
+            return;
+        }
         
         MenuView.showSuccess("Staff " + selectedStaff.getName() + " assigned to delivery!");
     }
@@ -282,28 +352,31 @@ public class AdminController {
         System.out.print("\nEnter Delivery ID: ");
         String deliveryId = scanner.nextLine();
         
-        Delivery foundDelivery = null;
-        for (Delivery delivery : deliveries) {
-            if (delivery.getDeliveryId().equals(deliveryId)) {
-                foundDelivery = delivery;
-                break;
-            }
-        }
+        Delivery foundDelivery = deliveries.findById(deliveryId);
         
         if (foundDelivery == null) {
             MenuView.showError("Delivery not found!");
             return;
         }
         
-        System.out.println("\nAvailable Vehicles:");
+        System.out.println("\nAvailable Vehicles (best fit first):");
         ArrayList<Vehicle> availableVehicles = new ArrayList<>();
         int count = 1;
         
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.isAvailable() && vehicle.canCarry(foundDelivery.getParcel().getWeight())) {
+        // A delivery rides on one vehicle at a time; choosing another moves it across
+        Vehicle currentVehicle = foundDelivery.getAssignedVehicle();
+        if (currentVehicle != null && !currentVehicle.carries(foundDelivery.getDeliveryId())) {
+            currentVehicle = null;
+        }
+        if (currentVehicle != null) {
+            System.out.println("Currently on: " + currentVehicle.getVehicleId());
+        }
+        
+        for (Vehicle vehicle : vehicles.findWithRoom(foundDelivery.getParcel().getWeight())) {
+            if (vehicle != currentVehicle) {
                 System.out.println(count + ". " + vehicle.getVehicleId() + 
                                  " (" + vehicle.getVehicleType() + ", " + 
-                                 vehicle.getCapacity() + "kg)");
+                                 vehicle.getRemainingCapacity() + " of " + vehicle.getCapacity() + "kg free)");
                 availableVehicles.add(vehicle);
                 count++;
             }
@@ -324,8 +397,13 @@ public class AdminController {
         }
         
         Vehicle selectedVehicle = availableVehicles.get(vehicleChoice - 1);
-        selectedVehicle.assignVehicle(deliveryId);
-        foundDelivery.setAssignedVehicle(selectedVehicle);
+        if (!vehicles.assign(selectedVehicle, foundDelivery)) {
+            MenuView.showError("Vehicle " + selectedVehicle.getVehicleId() + " cannot take this parcel!");
+            return;
+        }
+        if (currentVehicle != null) {
+            vehicles.release(currentVehicle, foundDelivery.getDeliveryId());
+        }
         
         MenuView.showSuccess("Vehicle " + selectedVehicle.getVehicleId() + " assigned to delivery!");
     }
@@ -334,13 +412,7 @@ public class AdminController {
         System.out.print("\nEnter Delivery ID: ");
         String deliveryId = scanner.nextLine();
         
-        Delivery foundDelivery = null;
-        for (Delivery delivery : deliveries) {
-            if (delivery.getDeliveryId().equals(deliveryId)) {
-                foundDelivery = delivery;
-                break;
-            }
-        }
+        Delivery foundDelivery = deliveries.findById(deliveryId);
         
         if (foundDelivery == null) {
             MenuView.showError("Delivery not found!");
@@ -348,33 +420,36 @@ public class AdminController {
         }
         
         System.out.println("\nCurrent Status: " + foundDelivery.getStatus());
-        System.out.println("\nSelect new status:");
-        System.out.println("1. Scheduled");
-        System.out.println("2. Loading");
-        System.out.println("3. In Transit");
-        System.out.println("4. Out for Delivery");
-        System.out.println("5. Delivered");
-        System.out.println("6. Returned");
-        System.out.print("\nChoice (1-6): ");
+        DeliveryView.displayDeliveryStatusOptions();
         
         int statusChoice = scanner.nextInt();
         scanner.nextLine();
         
-        String newStatus = "";
-        switch (statusChoice) {
-            case 1: newStatus = "Scheduled"; break;
-            case 2: newStatus = "Loading"; break;
-            case 3: newStatus = "In Transit"; break;
-            case 4: newStatus = "Out for Delivery"; break;
-            case 5: newStatus = "Delivered"; break;
-            case 6: newStatus = "Returned"; break;
-            default: 
-                MenuView.showError("Invalid choice!");
-                return;
+        DeliveryStatus newStatus = DeliveryView.getStatusFromChoice(statusChoice);
+        if (newStatus == null) {
+            MenuView.showError("Invalid choice!");
+            return;
+        }
+        
+        if (!foundDelivery.getStatus().canTransitionTo(newStatus)) {
+            MenuView.showError("Cannot change status from " + foundDelivery.getStatus() + " to " + newStatus + "!");
+            return;
+        }
+        // The parcel moves with its delivery: check both transitions before
+        // applying either, so the two never fall out of step
+        Parcel parcel = foundDelivery.getParcel();
+        ParcelStatus parcelStatus = newStatus.toParcelStatus();
+        boolean moveParcel = parcelStatus != null && parcel.getStatus() != parcelStatus;
+        if (moveParcel && !parcel.getStatus().canTransitionTo(parcelStatus)) {
+            MenuView.showError("Parcel " + parcel.getParcelId() + " cannot change from "
+                               + parcel.getStatus() + " to " + parcelStatus + "!");
+            return;
         }
         
-        foundDelivery.updateDeliveryStatus(newStatus);
-        foundDelivery.getParcel().updateStatus(newStatus);
+        deliveries.updateStatus(foundDelivery, newStatus);
+        if (moveParcel) {
+            parcels.updateStatus(parcel, parcelStatus);
+        }
         
         MenuView.showSuccess("Delivery status updated to: " + newStatus);
     }
@@ -385,8 +460,9 @@ public class AdminController {
         
         System.out.println("\n1. View All Vehicles");
         System.out.println("2. Add New Vehicle");
-        System.out.println("3. Back to Admin Menu");
-        System.out.print("\nSelect option (1-3): ");
+        System.out.println("3. Plan Vehicle Route");
+        System.out.println("4. Back to Admin Menu");
+        System.out.print("\nSelect option (1-4): ");
         
         int choice = scanner.nextInt();
         scanner.nextLine();
@@ -394,38 +470,72 @@ public class AdminController {
         switch (choice) {
             case 1: viewAllVehicles(); break;
             case 2: addNewVehicle(); break;
-            case 3: return;
+            case 3: planVehicleRoute(); break;
+            case 4: return;
             default: MenuView.showError("Invalid option!");
         }
     }
     
     private void viewAllVehicles() {
         System.out.println("\n🚛 VEHICLE FLEET:");
-        for (Vehicle vehicle : vehicles) {
+        for (Vehicle vehicle : vehicles.getAll()) {
             System.out.println("  " + vehicle.getVehicleId() + 
                              " - " + vehicle.getVehicleType() + 
                              " (" + vehicle.getPlateNumber() + ")");
             System.out.println("    Capacity: " + vehicle.getCapacity() + "kg | " +
+                             "Loaded: " + vehicle.getLoadedWeight() + "kg | " +
                              "Status: " + (vehicle.isAvailable() ? "✅ Available" : "⛔ In Use"));
             if (!vehicle.isAvailable()) {
-                System.out.println("    Assigned to: " + vehicle.getCurrentDeliveryId());
+                System.out.println("    Carrying: " + String.join(", ", vehicle.getDeliveryIds()));
             }
             System.out.println();
         }
     }
     
+    // Order the vehicle's manifest into a run and label each delivery with its stop
+    private void planVehicleRoute() {
+        if (routePlanner == null) {
+            MenuView.showError("Route planning is not available (no distance table)!");
+            return;
+        }
+        System.out.print("\nEnter Vehicle ID: ");
+        Vehicle vehicle = vehicles.findById(scanner.nextLine().trim());
+        if (vehicle == null) {
+            MenuView.showError("Vehicle not found!");
+            return;
+        }
+        if (vehicle.isAvailable()) {
+            MenuView.showError("Vehicle " + vehicle.getVehicleId() + " has no deliveries on board!");
+            return;
+        }
+        
+        RoutePlanner.VehicleRoute route = routePlanner.planVehicle(vehicle, deliveries);
+        DeliveryView.displayRouteMap(route, null);
+        
+        int stops = route.getPlan().getStopCount();
+        for (String deliveryId : vehicle.getDeliveryIds()) {
+            Delivery delivery = deliveries.findById(deliveryId);
+            if (delivery == null) continue;
+            int stop = route.getStopNumber(delivery);
+            deliveries.assignRoute(delivery, vehicle.getVehicleId() + " run, "
+                                   + (stop > 0 ? "stop " + stop + " of " + stops : "off-route"));
+        }
+        MenuView.showSuccess(String.format("Route planned: %d stops, %.1f km (%.1f km in loading order)",
+                                           stops, route.getPlan().getDistance(), 
+                                           route.getLoadingOrderDistance()));
+    }
+    
     private void addNewVehicle() {
         MenuView.showSectionHeader("ADD NEW VEHICLE");
         
-        System.out.print("Enter Vehicle ID (e.g., V003): ");
+        System.out.print("Enter Vehicle ID (e.g., " + IdAllocator.format(IdAllocator.VEHICLE, 
+                         idAllocator.getHighWaterMark(IdAllocator.VEHICLE) + 1) + "): ");
         String vehicleId = scanner.nextLine();
         
-        // Check if ID exists
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.getVehicleId().equals(vehicleId)) {
-                MenuView.showError("Vehicle ID already exists!");
-                return;
-            }
+        // Check if ID exists (hash lookup)
+        if (vehicles.contains(vehicleId)) {
+            MenuView.showError("Vehicle ID already exists!");
+            return;
         }
         
         System.out.print("Enter Vehicle Type (Van/Motorcycle/Truck): ");
@@ -445,6 +555,7 @@ public class AdminController {
         
         Vehicle newVehicle = new Vehicle(vehicleId, vehicleType, plateNumber, capacity);
         vehicles.add(newVehicle);
+        idAllocator.observe(vehicleId);
         
         MenuView.showSuccess("Vehicle " + vehicleId + " added to fleet!");
     }
@@ -458,20 +569,11 @@ public class AdminController {
             return;
         }
         
-        double totalRevenue = 0;
-        double pendingAmount = 0;
-        int completedCount = 0;
-        int pendingCount = 0;
-        
-        for (Payment payment : payments) {
-            if (payment.getStatus().equals("Completed")) {
-                totalRevenue += payment.getAmount();
-                completedCount++;
-            } else {
-                pendingAmount += payment.getAmount();
-                pendingCount++;
-            }
-        }
+        // Running totals from the ledger - no pass over payment history
+        double totalRevenue = payments.getRevenue();
+        double pendingAmount = payments.getGrandTotal() - totalRevenue;
+        int completedCount = payments.getCountByStatus(PaymentStatus.COMPLETED);
+        int pendingCount = payments.size() - completedCount;
         
         System.out.println("\n💰 FINANCIAL SUMMARY:");
         System.out.println("   Total Revenue: RM" + String.format("%.2f", totalRevenue));
@@ -480,14 +582,32 @@ public class AdminController {
         System.out.println("   Pending Payments: " + pendingCount);
         System.out.println("   Total Transactions: " + payments.size());
         
+        System.out.println("\n💳 REVENUE BY PAYMENT METHOD:");
+        for (String method : payments.getPaymentMethods()) {
+            System.out.println("   " + method + ": RM" + 
+                             String.format("%.2f", payments.getRevenueByMethod(method)) +
+                             " (" + payments.getCountByMethod(method) + " transactions)");
+        }
+        
+        // Range scans over the ledger's ID order (IDs sort by creation time)
+        System.out.println("\n📅 LAST 7 DAYS:");
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        for (int daysBack = 6; daysBack >= 0; daysBack--) {
+            LocalDate day = today.minusDays(daysBack);
+            List<Payment> created = payments.getCreatedBetween(
+                    day.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+            double amount = 0;
+            for (Payment payment : created) amount += payment.getAmount();
+            System.out.printf("   %s: %d payments, RM%.2f%n", day, created.size(), amount);
+        }
+        
         System.out.println("\n📈 RECENT PAYMENTS:");
-        int count = 0;
-        for (Payment payment : payments) {
-            if (count >= 5) break; // Show last 5 payments
+        for (Payment payment : payments.getRecent(5)) { // Show last 5 payments
             System.out.println("  " + payment.getPaymentId() + 
                              " - RM" + payment.getAmount() + 
                              " (" + payment.getStatus() + ")");
-            count++;
         }
     }
     
@@ -495,15 +615,14 @@ public class AdminController {
     private void addNewStaff() {
         MenuView.showSectionHeader("ADD NEW STAFF MEMBER");
         
-        System.out.print("Enter Staff ID (e.g., S003): ");
+        System.out.print("Enter Staff ID (e.g., " + IdAllocator.format(IdAllocator.STAFF, 
+                         idAllocator.getHighWaterMark(IdAllocator.STAFF) + 1) + "): ");
         String staffId = scanner.nextLine();
         
-        // Check if ID exists
-        for (User user : users) {
-            if (user.getUserId().equals(staffId)) {
-                MenuView.showError("Staff ID already exists!");
-                return;
-            }
+        // Check if ID exists (hash lookup)
+        if (users.containsId(staffId)) {
+            MenuView.showError("Staff ID already exists!");
+            return;
         }
         
         System.out.print("Enter Full Name: ");
@@ -523,6 +642,7 @@ public class AdminController {
         
         Staff newStaff = new Staff(staffId, name, "", "pass123", "", role, salary);
         users.add(newStaff);
+        idAllocator.observe(staffId);
         
         MenuView.showSuccess("Staff member " + name + " added successfully!");
     }
@@ -530,6 +650,235 @@ public class AdminController {
     // 8. ADD NEW VEHICLE (Already implemented above)
     
     // 9. GENERATE SYSTEM REPORT (Matches: "generate reports")
+    // 10. BULK IMPORT (streams CSV / JSON-lines files, rejects go to <file>.rejected)
+    private void bulkImport() {
+        MenuView.showSectionHeader("BULK IMPORT DATA");
+        System.out.println("1. Parcels   (" + String.join(",", BulkImporter.Kind.PARCELS.getColumns()) + ")");
+        System.out.println("2. Customers (" + String.join(",", BulkImporter.Kind.CUSTOMERS.getColumns()) + ")");
+        System.out.println("3. Vehicles  (" + String.join(",", BulkImporter.Kind.VEHICLES.getColumns()) + ")");
+        System.out.print("\nSelect data type (1-3): ");
+        
+        int choice = scanner.nextInt();
+        scanner.nextLine();
+        BulkImporter.Kind kind;
+        switch (choice) {
+            case 1: kind = BulkImporter.Kind.PARCELS; break;
+            case 2: kind = BulkImporter.Kind.CUSTOMERS; break;
+            case 3: kind = BulkImporter.Kind.VEHICLES; break;
+            default:
+                MenuView.showError("Invalid option!");
+                return;
+        }
+        
+        System.out.print("Enter file path (.csv with header row, or .jsonl): ");
+        Path input = Path.of(scanner.nextLine().trim());
+        if (!Files.isRegularFile(input)) {
+            MenuView.showError("File not found: " + input);
+            return;
+        }
+        
+        MenuView.showLoading("Importing " + input.getFileName());
+        try {
+            BulkImporter.Result result = importer.importFile(kind, input);
+            System.out.println("\n📥 IMPORT SUMMARY:");
+            System.out.println("   Rows Read: " + result.getRowsRead());
+            System.out.println("   Imported: " + result.getImported());
+            System.out.println("   Rejected: " + result.getRejected());
+            System.out.println("   Time: " + result.getElapsedMillis() + " ms (" 
+                             + String.format("%.0f", result.getRowsPerSecond()) + " rows/s)");
+            if (result.getRejectFile() != null) {
+                System.out.println("   Rejected rows written to: " + result.getRejectFile());
+            }
+            MenuView.showSuccess("Import finished!");
+        } catch (IOException e) {
+            MenuView.showError("Import failed: " + e.getMessage());
+        }
+    }
+    
+    // 11. EXPORT DATA (written in the background; the console stays usable)
+    private void exportData() {
+        MenuView.showSectionHeader("EXPORT DATA");
+        System.out.println("1. Parcels");
+        System.out.println("2. Deliveries");
+        System.out.println("3. Payments");
+        System.out.print("\nSelect data to export (1-3): ");
+        int kindChoice = scanner.nextInt();
+        scanner.nextLine();
+        if (kindChoice < 1 || kindChoice > 3) {
+            MenuView.showError("Invalid option!");
+            return;
+        }
+        DataExporter.Kind kind = DataExporter.Kind.values()[kindChoice - 1];
+        
+        System.out.print("Format (1=CSV, 2=JSON lines, 3=Binary): ");
+        int formatChoice = scanner.nextInt();
+        scanner.nextLine();
+        if (formatChoice < 1 || formatChoice > 3) {
+            MenuView.showError("Invalid format!");
+            return;
+        }
+        DataExporter.Format format = DataExporter.Format.values()[formatChoice - 1];
+        
+        // Filters (blank = no filter)
+        DataExporter.Filter filter = new DataExporter.Filter();
+        Enum<?>[] statuses = kind == DataExporter.Kind.PARCELS ? ParcelStatus.values()
+                           : kind == DataExporter.Kind.DELIVERIES ? DeliveryStatus.values()
+                           : PaymentStatus.values();
+        System.out.println("\nStatuses:");
+        for (int i = 0; i < statuses.length; i++) {
+            System.out.println("  " + (i + 1) + ". " + statuses[i]);
+        }
+        System.out.print("Only these statuses (e.g. 1,3 - blank for all): ");
+        String statusInput = scanner.nextLine().trim();
+        long mask = 0;
+        if (!statusInput.isEmpty()) {
+            for (String part : statusInput.split(",")) {
+                try {
+                    int index = Integer.parseInt(part.trim()) - 1;
+                    if (index < 0 || index >= statuses.length) throw new NumberFormatException();
+                    mask |= 1L << statuses[index].ordinal();
+                } catch (NumberFormatException e) {
+                    MenuView.showError("Invalid status number: " + part.trim());
+                    return;
+                }
+            }
+        }
+        filter.statuses(mask);
+        
+        try {
+            System.out.print("From date (YYYY-MM-DD, blank for none): ");
+            String from = scanner.nextLine().trim();
+            if (!from.isEmpty()) filter.from(LocalDate.parse(from));
+            System.out.print("To date (YYYY-MM-DD, blank for none): ");
+            String to = scanner.nextLine().trim();
+            if (!to.isEmpty()) filter.to(LocalDate.parse(to));
+        } catch (java.time.format.DateTimeParseException e) {
+            MenuView.showError("Invalid date! Use YYYY-MM-DD");
+            return;
+        }
+        
+        if (kind != DataExporter.Kind.PAYMENTS) {
+            System.out.print("Customer ID (sender or receiver, blank for all): ");
+            String customerId = scanner.nextLine().trim();
+            if (!customerId.isEmpty()) filter.customer(customerId);
+        }
+        
+        String defaultName = "exports/" + kind.name().toLowerCase() + "-" 
+                           + LocalDate.now() + "." + format.getExtension();
+        System.out.print("Output file (blank for " + defaultName + "): ");
+        String output = scanner.nextLine().trim();
+        Path target = Path.of(output.isEmpty() ? defaultName : output);
+        
+        // A background thread reads the rows a page at a time (taking the session
+        // lock for each page) and writes the file; the outcome waits for the next menu
+        try {
+            exporter.start(kind, format, filter, target).whenComplete((result, error) -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    exportOutcomes.add(() -> MenuView.showError("Export to " + target + " failed: " 
+                                                                + cause.getMessage()));
+                } else {
+                    exportOutcomes.add(() -> MenuView.showSuccess("Export finished: " + result.getRows() 
+                                       + " rows, " + result.getBytes() + " bytes in " 
+                                       + result.getElapsedMillis() + " ms → " + result.getFile()));
+                }
+            });
+            MenuView.showSuccess("Export started in the background → " + target);
+        } catch (IllegalArgumentException e) {
+            MenuView.showError(e.getMessage());
+        }
+    }
+    
+    private void showExportOutcomes() {
+        Runnable outcome;
+        while ((outcome = exportOutcomes.poll()) != null) {
+            outcome.run();
+        }
+    }
+    
+    // 12. PRICING: quotes from the active rate table, what-if repricing against another
+    private void managePricing() {
+        MenuView.showSectionHeader("PRICING & REPRICING");
+        
+        System.out.println("\n1. Quote a Parcel");
+        System.out.println("2. Reprice All Parcels (preview)");
+        System.out.println("3. Back to Admin Menu");
+        System.out.print("\nSelect option (1-3): ");
+        
+        int choice = scanner.nextInt();
+        scanner.nextLine();
+        
+        switch (choice) {
+            case 1: quoteParcel(); break;
+            case 2: repriceParcels(); break;
+            case 3: return;
+            default: MenuView.showError("Invalid option!");
+        }
+    }
+    
+    private void quoteParcel() {
+        System.out.print("Parcel type (1=Standard, 2=Express, 3=International): ");
+        int type = scanner.nextInt() - 1;
+        System.out.print("Weight (kg): ");
+        double weight = scanner.nextDouble();
+        scanner.nextLine();
+        if (type < RateTable.STANDARD || type > RateTable.INTERNATIONAL || !Validator.isValidWeight(weight)) {
+            MenuView.showError("Invalid type or weight!");
+            return;
+        }
+        String destination = "";
+        if (type == RateTable.INTERNATIONAL) {
+            System.out.print("Destination country: ");
+            destination = scanner.nextLine();
+        }
+        RateTable rates = RateTable.getActive();
+        System.out.printf("\n💲 Quote: RM%.2f (zone %s)%n", quotes.quote(type, weight, destination),
+                          rates.getZoneName(rates.zoneOf(destination)));
+    }
+    
+    private void repriceParcels() {
+        System.out.print("Rate file (CSV): ");
+        String file = scanner.nextLine().trim();
+        RateTable table;
+        try {
+            table = RateTable.load(Path.of(file));
+        } catch (IOException | InvalidPathException e) {
+            MenuView.showError("Cannot load rates: " + e.getMessage());
+            return;
+        }
+        
+        PricingEngine.Repricing result = pricing.reprice(table, parcels, archive);
+        System.out.println("\n💲 REPRICING PREVIEW:");
+        System.out.println("   Parcels: " + result.getParcels() + " (" + result.getArchived() + " archived)");
+        System.out.printf("   Current Total: RM%.2f%n", result.getCurrentTotal());
+        System.out.printf("   Repriced Total: RM%.2f (%+.2f)%n", result.getRepricedTotal(), 
+                          result.getRepricedTotal() - result.getCurrentTotal());
+        System.out.println("   Dearer: " + result.getIncreased() + " | Cheaper: " + result.getDecreased());
+        System.out.printf("   Surcharges: RM%.2f urgent, RM%.2f customs%n", 
+                          result.getUrgentFees(), result.getCustomsFees());
+        
+        // Revenue forecast per weight category at the new rates
+        double[] limits = result.getBracketLimits();
+        long[] counts = result.getBracketCounts();
+        double[] totals = result.getBracketTotals();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            String label = i < limits.length ? String.format("up to %.1f kg", limits[i]) 
+                                             : String.format("over %.1f kg", limits[limits.length - 1]);
+            System.out.printf("   %-14s %6d parcels  RM%.2f%n", label, counts[i], totals[i]);
+        }
+        System.out.println("   Time: " + result.getCaptureMillis() + " ms capture, " 
+                         + result.getPriceMillis() + " ms pricing (" + result.getKernel() + ")");
+        
+        // Existing parcels keep the price they were charged; only new parcels change
+        System.out.print("\nUse these rates for new parcels? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            RateTable.setActive(table);
+            MenuView.showSuccess("New parcels are now priced with " + file 
+                               + " (until restart; use -Dcourier.rates to keep it)");
+        }
+    }
+    
     private void generateSystemReport() {
         MenuView.showSectionHeader("SYSTEM REPORT GENERATION");
         
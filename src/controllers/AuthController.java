@@ -1,16 +1,20 @@
 package controllers;
 
 import models.*;
+import services.IdAllocator;
+import services.UserDirectory;
 import utils.Validator;
 import java.util.*;
 
 public class AuthController {
     private Scanner scanner;
-    private ArrayList<User> users;
+    private UserDirectory users;
+    private IdAllocator idAllocator;
     
-    public AuthController(Scanner scanner, ArrayList<User> users) {
+    public AuthController(Scanner scanner, UserDirectory users, IdAllocator idAllocator) {
         this.scanner = scanner;
         this.users = users;
+        this.idAllocator = idAllocator;
     }
     
     public User login() {
@@ -39,20 +43,17 @@ public class AuthController {
     private Customer customerLogin() {
         try {
             views.MenuView.showSubSection("CUSTOMER LOGIN");
-            System.out.print("Enter Customer ID (e.g., C001): ");
-            String id = scanner.nextLine();
+            System.out.print("Enter Customer ID or Email (e.g., C001): ");
+            String id = scanner.nextLine().trim();
             
             System.out.print("Enter Password: ");
             String password = scanner.nextLine();
             
-            // Search through users array
-            for (User user : users) {
-                if (user instanceof Customer && 
-                    user.getUserId().equals(id) && 
-                    user.validateLogin(password)) {
-                    views.MenuView.showSuccess("Login successful! Welcome " + user.getName());
-                    return (Customer) user;
-                }
+            // Hash lookup by ID or email in the customer index
+            Customer customer = users.authenticateCustomer(id, password);
+            if (customer != null) {
+                views.MenuView.showSuccess("Login successful! Welcome " + customer.getName());
+                return customer;
             }
             views.MenuView.showError("Invalid customer ID or password!");
             return null;
@@ -65,22 +66,18 @@ public class AuthController {
     private Staff staffLogin() {
         try {
             views.MenuView.showSubSection("STAFF LOGIN");
-            System.out.print("Enter Staff ID (e.g., S001): ");
-            String id = scanner.nextLine();
+            System.out.print("Enter Staff ID or Email (e.g., S001): ");
+            String id = scanner.nextLine().trim();
             
             System.out.print("Enter Password: ");
             String password = scanner.nextLine();
             
-            // Search through users array
-            for (User user : users) {
-                if (user instanceof Staff && 
-                    user.getUserId().equals(id) && 
-                    user.validateLogin(password)) {
-                    Staff staff = (Staff) user;
-                    views.MenuView.showSuccess("Login successful! Welcome " + staff.getName());
-                    staff.login(); // Polymorphic method call
-                    return staff;
-                }
+            // Hash lookup by ID or email in the staff index
+            Staff staff = users.authenticateStaff(id, password);
+            if (staff != null) {
+                views.MenuView.showSuccess("Login successful! Welcome " + staff.getName());
+                staff.login(); // Polymorphic method call
+                return staff;
             }
             views.MenuView.showError("Invalid staff ID or password!");
             return null;
@@ -119,21 +116,22 @@ public class AuthController {
         try {
             views.MenuView.showSectionHeader("REGISTER NEW CUSTOMER");
             
-            System.out.print("Enter Customer ID (e.g., C004): ");
+            String suggestedId = IdAllocator.format(IdAllocator.CUSTOMER, 
+                                 idAllocator.getHighWaterMark(IdAllocator.CUSTOMER) + 1);
+            System.out.print("Enter Customer ID (e.g., " + suggestedId + "): ");
             String id = scanner.nextLine().trim();
             
             // Validate ID format
-            if (!id.matches("C\\d{3}")) {
-                views.MenuView.showError("Invalid ID format! Must be C followed by 3 digits (e.g., C004)");
+            if (!Validator.isValidCustomerId(id)) {
+                views.MenuView.showError("Invalid ID format! Must be C followed by at least 3 digits (e.g., " 
+                                         + suggestedId + ")");
                 return null;
             }
             
             // Check if ID already exists
-            for (User user : users) {
-                if (user.getUserId().equals(id)) {
-                    views.MenuView.showError("Customer ID already exists!");
-                    return null;
-                }
+            if (users.containsId(id)) {
+                views.MenuView.showError("Customer ID already exists!");
+                return null;
             }
             
             System.out.print("Enter Full Name: ");
@@ -152,6 +150,11 @@ public class AuthController {
                 return null;
             }
             
+            if (users.containsCustomerEmail(email)) {
+                views.MenuView.showError("Email is already registered!");
+                return null;
+            }
+            
             System.out.print("Enter Password (min 6 characters): ");
             String password = scanner.nextLine();
             
@@ -179,6 +182,7 @@ public class AuthController {
             // Create new customer
             Customer newCustomer = new Customer(id, name, email, password, phone, address);
             users.add(newCustomer);
+            idAllocator.observe(id);
             
             views.MenuView.showSuccess("Registration successful! Customer " + name + " added.");
             return newCustomer;
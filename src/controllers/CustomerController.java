@@ -10,24 +10,30 @@ public class CustomerController {
     private Scanner scanner;
     private ParcelService parcelService;
     private PaymentService paymentService;
-    private ArrayList<Parcel> parcels;
-    private ArrayList<Delivery> deliveries;
-    private ArrayList<Payment> payments;
-    private ArrayList<User> users;
-    private ArrayList<Vehicle> vehicles;
+    private IdAllocator idAllocator;
+    private ParcelRepository parcels;
+    private DeliveryRepository deliveries;
+    private UserDirectory users;
+    private VehicleRepository vehicles;
+    private Dispatcher dispatcher;
+    private QuoteCache quotes;
     
     public CustomerController(Scanner scanner, ParcelService parcelService, 
-                            PaymentService paymentService, ArrayList<Parcel> parcels,
-                            ArrayList<Delivery> deliveries, ArrayList<Payment> payments,
-                            ArrayList<User> users, ArrayList<Vehicle> vehicles) {
+                            PaymentService paymentService, IdAllocator idAllocator,
+                            ParcelRepository parcels,
+                            DeliveryRepository deliveries,
+                            UserDirectory users, VehicleRepository vehicles,
+                            Dispatcher dispatcher, QuoteCache quotes) {
         this.scanner = scanner;
         this.parcelService = parcelService;
         this.paymentService = paymentService;
+        this.idAllocator = idAllocator;
         this.parcels = parcels;
         this.deliveries = deliveries;
-        this.payments = payments;
         this.users = users;
         this.vehicles = vehicles;
+        this.dispatcher = dispatcher;
+        this.quotes = quotes;
     }
     
     public void showMenu(Customer customer) {
@@ -72,18 +78,16 @@ public class CustomerController {
     scanner.nextLine();
     
     String parcelType = "";
+    int typeCode = RateTable.STANDARD;
     switch (typeChoice) {
         case 1: parcelType = "STANDARD"; break;
-        case 2: parcelType = "EXPRESS"; break;
-        case 3: parcelType = "INTERNATIONAL"; break;
+        case 2: parcelType = "EXPRESS"; typeCode = RateTable.EXPRESS; break;
+        case 3: parcelType = "INTERNATIONAL"; typeCode = RateTable.INTERNATIONAL; break;
         default: 
             MenuView.showError("Invalid type! Using STANDARD.");
             parcelType = "STANDARD";
     }
     
-    // ✅ FIXED: Generate sequential IDs (P003, P004, etc.)
-    String parcelId = generateParcelId(parcels);
-    
     System.out.print("Enter parcel description: ");
     String description = scanner.nextLine();
     
@@ -121,6 +125,14 @@ public class CustomerController {
         additionalInfo = scanner.nextLine();
     }
     
+    // Price before anything is booked; repeat shapes come from the quote cache
+    // and always match the price the parcel is charged
+    System.out.printf("\n💲 Price: RM%.2f for %.2f kg%n", quotes.quote(typeCode, weight, additionalInfo),
+                      RateTable.chargeableWeight(weight));
+    
+    // Sequential ID from the atomic allocator (P003, P004, ..., P1000)
+    String parcelId = idAllocator.next(IdAllocator.PARCEL);
+    
     // Use FACTORY PATTERN to create parcel
     MenuView.showLoading("Creating parcel");
     Parcel newParcel = ParcelFactory.createParcel(
@@ -135,79 +147,28 @@ public class CustomerController {
     assignDelivery(newParcel);
     
     // Add loyalty points
-    sender.addLoyaltyPoints(10);
+    users.addLoyaltyPoints(sender, 10);
     
     // Show success
     CustomerView.showParcelSummary(newParcel);
     MenuView.showSuccess("Parcel created successfully! +10 loyalty points added.");
 }
 
-// ✅ NEW METHOD: Generate sequential parcel IDs
-private String generateParcelId(ArrayList<Parcel> parcels) {
-    if (parcels.isEmpty()) {
-        return "P001"; // Start from P001
-    }
-    
-    // Find highest existing parcel ID
-    int maxId = 0;
-    for (Parcel parcel : parcels) {
-        String id = parcel.getParcelId();
-        if (id.startsWith("P")) {
-            try {
-                int num = Integer.parseInt(id.substring(1));
-                if (num > maxId) {
-                    maxId = num;
-                }
-            } catch (NumberFormatException e) {
-                // Ignore non-numeric IDs
-            }
-        }
-    }
-    
-    // Generate next ID with leading zeros
-    int nextId = maxId + 1;
-    return String.format("P%03d", nextId); // P001, P002, ..., P010, P011, etc.
-}
-    
     private Customer findCustomerById(String id) {
-        for (User user : users) {
-            if (user instanceof Customer && user.getUserId().equals(id)) {
-                return (Customer) user;
-            }
-        }
-        return null;
+        return users.findCustomerById(id);
     }
     
     private void assignDelivery(Parcel parcel) {
-    // Find available staff
-    Staff availableStaff = null;
-    for (User user : users) {
-        if (user instanceof Staff) {
-            Staff staff = (Staff) user;
-            if (staff.isAvailable()) {
-                availableStaff = staff;
-                break;
-            }
-        }
-    }
-    
-    if (availableStaff != null) {
-        // ✅ FIXED: Generate sequential delivery ID (D001, D002, D003...)
-        String deliveryId = generateDeliveryId(deliveries);
-        
-        Delivery newDelivery = new Delivery(deliveryId, parcel, availableStaff);
-        deliveries.add(newDelivery);
-        
-        // Find available vehicle
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.isAvailable() && vehicle.canCarry(parcel.getWeight())) {
-                vehicle.assignVehicle(deliveryId);
-                newDelivery.setAssignedVehicle(vehicle);
-                break;
-            }
-        }
-        
-        MenuView.showSuccess("Delivery assigned to: " + availableStaff.getName());
+    // Batch dispatcher: best-fit vehicle, least-loaded driver, Express first
+    dispatcher.submit(parcel);
+    Delivery delivery = deliveries.findByParcel(parcel);
+    
+    if (delivery != null) {
+        Vehicle vehicle = delivery.getAssignedVehicle();
+        MenuView.showSuccess("Delivery assigned to: " + delivery.getDeliveryPerson().getName() +
+                             (vehicle != null ? " (" + vehicle.getVehicleType() + " " + vehicle.getVehicleId() + ")" : ""));
+    } else if (dispatcher.getWindowMillis() > 0) {
+        MenuView.showSuccess("Parcel queued for dispatch - a driver will be assigned shortly.");
     } else {
         MenuView.showError("No staff available. Delivery will be assigned later.");
     }
@@ -219,18 +180,17 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
         boolean hasParcels = false;
         int count = 1;
         
-        for (Parcel parcel : parcels) {
-            if (parcel.getSender().getUserId().equals(customer.getUserId())) {
-                System.out.println("\n" + count + ". " + parcel.getParcelId());
-                System.out.println("   Description: " + parcel.getDescription());
-                System.out.println("   Type: " + parcel.getClass().getSimpleName());
-                System.out.println("   Status: " + parcel.getStatus());
-                System.out.println("   Price: RM" + parcel.getPrice());
-                System.out.println("   Recipient: " + parcel.getReceiver().getName());
-                System.out.println("   Created: " + parcel.getCreatedDate());
-                hasParcels = true;
-                count++;
-            }
+        // Sender index - only this customer's parcels are visited
+        for (Parcel parcel : parcels.findBySender(customer.getUserId())) {
+            System.out.println("\n" + count + ". " + parcel.getParcelId());
+            System.out.println("   Description: " + parcel.getDescription());
+            System.out.println("   Type: " + parcel.getClass().getSimpleName());
+            System.out.println("   Status: " + parcel.getStatus());
+            System.out.println("   Price: RM" + parcel.getPrice());
+            System.out.println("   Recipient: " + parcel.getReceiver().getName());
+            System.out.println("   Created: " + parcel.getCreatedDate());
+            hasParcels = true;
+            count++;
         }
         
         if (!hasParcels) {
@@ -247,19 +207,16 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
     System.out.println("Parcels sent by you OR addressed to you:");
     System.out.println("----------------------------------------");
     
-    for (Parcel parcel : parcels) {
-        if (parcel.getSender().getUserId().equals(customer.getUserId()) ||
-            parcel.getReceiver().getUserId().equals(customer.getUserId())) {
-            
-            String role = parcel.getSender().getUserId().equals(customer.getUserId()) ? 
-                         "📤 Sending" : "📥 Receiving";
-            
-            System.out.println(count + ". " + parcel.getParcelId() + 
-                             " - " + parcel.getDescription() + 
-                             " (" + role + ", " + parcel.getStatus() + ")");
-            customerParcels.add(parcel);
-            count++;
-        }
+    // Customer index - parcels sent OR received, in creation order
+    for (Parcel parcel : parcels.findByCustomer(customer.getUserId())) {
+        String role = parcel.getSender().getUserId().equals(customer.getUserId()) ? 
+                     "📤 Sending" : "📥 Receiving";
+        
+        System.out.println(count + ". " + parcel.getParcelId() + 
+                         " - " + parcel.getDescription() + 
+                         " (" + role + ", " + parcel.getStatus() + ")");
+        customerParcels.add(parcel);
+        count++;
     }
     
     if (customerParcels.isEmpty()) {
@@ -282,12 +239,11 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
     // Display detailed information
     CustomerView.showParcelSummary(selectedParcel);
     
-    // Show delivery info if exists
-    for (Delivery delivery : deliveries) {
-        if (delivery.getParcel().getParcelId().equals(selectedParcel.getParcelId())) {
-            System.out.println("\n--- DELIVERY INFORMATION ---");
-            delivery.displayDeliveryInfo();
-        }
+    // Show delivery info if exists (parcel -> delivery index)
+    Delivery delivery = deliveries.findByParcel(selectedParcel);
+    if (delivery != null) {
+        System.out.println("\n--- DELIVERY INFORMATION ---");
+        delivery.displayDeliveryInfo();
     }
 }
     
@@ -298,14 +254,8 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
     System.out.print("Enter Parcel ID (e.g., P001): ");
     String parcelId = scanner.nextLine();
     
-    // Find the parcel
-    Parcel parcel = null;
-    for (Parcel p : parcels) {
-        if (p.getParcelId().equals(parcelId)) {
-            parcel = p;
-            break;
-        }
-    }
+    // Find the parcel (hash lookup)
+    Parcel parcel = parcelService.findParcelById(parcelId);
     
     if (parcel == null) {
         MenuView.showError("Parcel not found!");
@@ -346,28 +296,28 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
     System.out.printf("%-20s: %s (%s)\n", "Receiver", 
                      parcel.getReceiver().getName(), parcel.getReceiver().getUserId());
     
-    // Find delivery information if exists
-    boolean hasDelivery = false;
-    for (Delivery delivery : deliveries) {
-        if (delivery.getParcel().getParcelId().equals(parcelId)) {
-            System.out.println("\n--- DELIVERY INFORMATION ---");
-            System.out.printf("%-20s: %s\n", "Delivery ID", delivery.getDeliveryId());
-            System.out.printf("%-20s: %s\n", "Delivery Status", delivery.getStatus());
-            System.out.printf("%-20s: %s\n", "Route", delivery.getRoute());
-            System.out.printf("%-20s: %s\n", "Est. Delivery", delivery.getEstimatedTime());
-            
-            if (delivery.getDeliveryPerson() != null) {
-                System.out.printf("%-20s: %s\n", "Delivery Staff", 
-                                delivery.getDeliveryPerson().getName());
-            }
-            
-            if (delivery.getAssignedVehicle() != null) {
-                System.out.printf("%-20s: %s (%s)\n", "Vehicle", 
-                                delivery.getAssignedVehicle().getVehicleId(),
-                                delivery.getAssignedVehicle().getVehicleType());
-            }
-            hasDelivery = true;
-            break;
+    // Find delivery information if exists (parcel -> delivery index, then the archive)
+    Delivery delivery = deliveries.findByParcel(parcel);
+    if (delivery == null) {
+        delivery = parcelService.findArchivedDelivery(parcel);
+    }
+    boolean hasDelivery = delivery != null;
+    if (hasDelivery) {
+        System.out.println("\n--- DELIVERY INFORMATION ---");
+        System.out.printf("%-20s: %s\n", "Delivery ID", delivery.getDeliveryId());
+        System.out.printf("%-20s: %s\n", "Delivery Status", delivery.getStatus());
+        System.out.printf("%-20s: %s\n", "Route", delivery.getRoute());
+        System.out.printf("%-20s: %s\n", "Est. Delivery", delivery.getEstimatedTime());
+        
+        if (delivery.getDeliveryPerson() != null) {
+            System.out.printf("%-20s: %s\n", "Delivery Staff", 
+                            delivery.getDeliveryPerson().getName());
+        }
+        
+        if (delivery.getAssignedVehicle() != null) {
+            System.out.printf("%-20s: %s (%s)\n", "Vehicle", 
+                            delivery.getAssignedVehicle().getVehicleId(),
+                            delivery.getAssignedVehicle().getVehicleType());
         }
     }
     
@@ -379,33 +329,24 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
     
     // Show delivery progress
     if (hasDelivery) {
-        for (Delivery delivery : deliveries) {
-            if (delivery.getParcel().getParcelId().equals(parcelId)) {
-                views.DeliveryView.displayDeliveryProgress(delivery.getStatus());
-                break;
-            }
-        }
+        views.DeliveryView.displayDeliveryProgress(delivery.getStatus());
     }
 }
     
     private void makePayment(Customer customer) {
         CustomerView.showPaymentHeader();
         
-        // Find unp1aid parcels
-        ArrayList<Parcel> unpaidParcels = new ArrayList<>();
+        // Unpaid index - maintained by the repository on every status change
+        List<Parcel> unpaidParcels = parcels.findUnpaidBySender(customer.getUserId());
         int count = 1;
         
         System.out.println("Your unpaid parcels:");
-        for (Parcel parcel : parcels) {
-            if (parcel.getSender().getUserId().equals(customer.getUserId()) &&
-                parcel.getStatus().equals("Created")) {
-                System.out.println(count + ". " + parcel.getParcelId());
-                System.out.println("   Description: " + parcel.getDescription());
-                System.out.println("   Amount: RM" + parcel.getPrice());
-                System.out.println("   Type: " + parcel.getClass().getSimpleName());
-                unpaidParcels.add(parcel);
-                count++;
-            }
+        for (Parcel parcel : unpaidParcels) {
+            System.out.println(count + ". " + parcel.getParcelId());
+            System.out.println("   Description: " + parcel.getDescription());
+            System.out.println("   Amount: RM" + parcel.getPrice());
+            System.out.println("   Type: " + parcel.getClass().getSimpleName());
+            count++;
         }
         
         if (unpaidParcels.isEmpty()) {
@@ -437,18 +378,17 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
             default: paymentMethod = "Unknown";
         }
         
-        // Create payment
+        // Create payment (recorded in the payment ledger)
         Payment payment = paymentService.createPayment(amount, paymentMethod);
         paymentService.processPayment(payment.getPaymentId());
-        payments.add(payment);
         
         // Update parcel status
-        selectedParcel.updateStatus("Paid - Processing");
+        parcelService.updateParcelStatus(selectedParcel.getParcelId(), ParcelStatus.PAID);
         
         // Add loyalty points
         int points = (int)(amount / 10);
         if (points < 5) points = 5;
-        customer.addLoyaltyPoints(points);
+        users.addLoyaltyPoints(customer, points);
         
         // Show receipt
         System.out.println("\n" + "=".repeat(50));
@@ -465,30 +405,4 @@ private String generateParcelId(ArrayList<Parcel> parcels) {
         
         MenuView.showSuccess("Payment successful! Parcel is now being processed.");
     }
-    
-    private String generateDeliveryId(ArrayList<Delivery> deliveries) {
-    if (deliveries.isEmpty()) {
-        return "D001";
-    }
-    
-    // Find highest existing delivery ID
-    int maxId = 0;
-    for (Delivery delivery : deliveries) {
-        String id = delivery.getDeliveryId();
-        if (id.startsWith("D")) {
-            try {
-                int num = Integer.parseInt(id.substring(1));
-                if (num > maxId) {
-                    maxId = num;
-                }
-            } catch (NumberFormatException e) {
-                // Skip non-numeric IDs
-            }
-        }
-    }
-    
-    // Generate next ID with 3 digits
-    int nextId = maxId + 1;
-    return String.format("D%03d", nextId); // D001, D002, ..., D010, D011
-}
 }
\ No newline at end of file
@@ -1,24 +1,31 @@
 package controllers;
 
 import models.*;
+import services.DeliveryRepository;
+import services.ParcelRepository;
+import services.RoutePlanner;
+import services.UserDirectory;
+import services.VehicleRepository;
 import views.*;
 import java.util.*;
 
 public class StaffController {
     private Scanner scanner;
-    private ArrayList<Delivery> deliveries;
-    private ArrayList<Parcel> parcels;
-    private ArrayList<Vehicle> vehicles;
-    private ArrayList<User> users;
+    private DeliveryRepository deliveries;
+    private ParcelRepository parcels;
+    private VehicleRepository vehicles;
+    private UserDirectory users;
+    private RoutePlanner routePlanner;
     
-    public StaffController(Scanner scanner, ArrayList<Delivery> deliveries,
-                          ArrayList<Parcel> parcels, ArrayList<Vehicle> vehicles,
-                          ArrayList<User> users) {
+    public StaffController(Scanner scanner, DeliveryRepository deliveries,
+                          ParcelRepository parcels, VehicleRepository vehicles,
+                          UserDirectory users, RoutePlanner routePlanner) {
         this.scanner = scanner;
         this.deliveries = deliveries;
         this.parcels = parcels;
         this.vehicles = vehicles;
         this.users = users;
+        this.routePlanner = routePlanner;
     }
     
     public void showMenu(Staff staff) {
@@ -68,22 +75,18 @@ public class StaffController {
     private void viewAssignedDeliveries(Staff staff) {
     DeliveryView.displayDeliveryHeader();
     
-    boolean hasDeliveries = false;
+    // Staff workload index - only this staff member's deliveries are visited
+    List<Delivery> myDeliveries = deliveries.findByStaff(staff.getUserId());
     int count = 1;
     
     DeliveryView.displayDeliveryListHeader();
     
-    for (Delivery delivery : deliveries) {
-        if (delivery.getDeliveryPerson() != null && 
-            delivery.getDeliveryPerson().getUserId().equals(staff.getUserId())) {
-            
-            DeliveryView.displayDeliveryInList(delivery, count);
-            hasDeliveries = true;
-            count++;
-        }
+    for (Delivery delivery : myDeliveries) {
+        DeliveryView.displayDeliveryInList(delivery, count);
+        count++;
     }
     
-    if (!hasDeliveries) {
+    if (myDeliveries.isEmpty()) {
         System.out.println("No deliveries assigned to you.");
     } else {
         System.out.println("-".repeat(90));
@@ -94,27 +97,17 @@ public class StaffController {
             scanner.nextLine();
             
             if (choice > 0 && choice < count) {
-                // Find the delivery
-                Delivery selected = null;
-                int current = 1;
-                for (Delivery delivery : deliveries) {
-                    if (delivery.getDeliveryPerson() != null && 
-                        delivery.getDeliveryPerson().getUserId().equals(staff.getUserId())) {
-                        if (current == choice) {
-                            selected = delivery;
-                            break;
-                        }
-                        current++;
-                    }
-                }
+                Delivery selected = myDeliveries.get(choice - 1);
                 
-                if (selected != null) {
-                    DeliveryView.displayDeliveryDetails(selected);
-                    DeliveryView.displayDeliveryProgress(selected.getStatus());
-                    
-                    if (selected.getRoute() != null && !selected.getRoute().isEmpty()) {
-                        DeliveryView.displayRouteMap(selected.getRoute());
-                    }
+                DeliveryView.displayDeliveryDetails(selected);
+                DeliveryView.displayDeliveryProgress(selected.getStatus());
+                
+                // On a vehicle: show today's planned run for that vehicle
+                Vehicle vehicle = selected.getAssignedVehicle();
+                if (routePlanner != null && vehicle != null && vehicle.carries(selected.getDeliveryId())) {
+                    DeliveryView.displayRouteMap(routePlanner.planVehicle(vehicle, deliveries), selected);
+                } else if (selected.getRoute() != null && !selected.getRoute().isEmpty()) {
+                    DeliveryView.displayRouteMap(selected.getRoute());
                 }
             }
         } catch (InputMismatchException e) {
@@ -147,58 +140,60 @@ public class StaffController {
         int choice = scanner.nextInt();
         scanner.nextLine();
         
-        String newStatus = "";
+        ParcelStatus newStatus;
         switch (choice) {
-            case 1: newStatus = "Processing"; break;
-            case 2: newStatus = "In Transit"; break;
-            case 3: newStatus = "Out for Delivery"; break;
-            case 4: newStatus = "Delivered"; break;
-            case 5: newStatus = "Returned"; break;
+            case 1: newStatus = ParcelStatus.PROCESSING; break;
+            case 2: newStatus = ParcelStatus.IN_TRANSIT; break;
+            case 3: newStatus = ParcelStatus.OUT_FOR_DELIVERY; break;
+            case 4: newStatus = ParcelStatus.DELIVERED; break;
+            case 5: newStatus = ParcelStatus.RETURNED; break;
             default: 
                 MenuView.showError("Invalid choice!");
                 return;
         }
         
-        // POLYMORPHISM: updateStatus() behaves differently for each parcel type
-        parcel.updateStatus(newStatus);
-        MenuView.showSuccess("Status updated to: " + newStatus);
+        if (!parcel.getStatus().canTransitionTo(newStatus)) {
+            MenuView.showError("Cannot change status from " + parcel.getStatus() + " to " + newStatus + "!");
+            return;
+        }
+        // The delivery moves with the parcel (parcel -> delivery index): check both
+        // transitions before applying either, so the two never fall out of step
+        Delivery delivery = deliveries.findByParcel(parcel);
+        DeliveryStatus deliveryStatus = newStatus.toDeliveryStatus();
+        boolean moveDelivery = delivery != null && deliveryStatus != null
+                               && delivery.getStatus() != deliveryStatus;
+        if (moveDelivery && !delivery.getStatus().canTransitionTo(deliveryStatus)) {
+            MenuView.showError("Delivery " + delivery.getDeliveryId() + " cannot change from "
+                               + delivery.getStatus() + " to " + deliveryStatus + "!");
+            return;
+        }
         
-        // Update corresponding delivery if exists
-        for (Delivery delivery : deliveries) {
-            if (delivery.getParcel().getParcelId().equals(parcelId)) {
-                delivery.updateDeliveryStatus(newStatus);
-            }
+        // POLYMORPHISM: updateStatus() behaves differently for each parcel type
+        parcels.updateStatus(parcel, newStatus);
+        if (moveDelivery) {
+            deliveries.updateStatus(delivery, deliveryStatus);
         }
+        MenuView.showSuccess("Status updated to: " + newStatus);
     }
     
     private Parcel findParcelById(String id) {
-        for (Parcel parcel : parcels) {
-            if (parcel.getParcelId().equals(id)) {
-                return parcel;
-            }
-        }
-        return null;
+        return parcels.findById(id);
     }
     
     private void markDeliveryComplete(Staff staff) {
         MenuView.showSectionHeader("MARK DELIVERY COMPLETE");
         
-        // Find deliveries assigned to this staff with "Out for Delivery" status
-        ArrayList<Delivery> readyDeliveries = new ArrayList<>();
+        // Deliveries assigned to this staff with "Out for Delivery" status (direct bucket lookup)
+        List<Delivery> readyDeliveries = deliveries.findByStaffAndStatus(staff.getUserId(), 
+                                                                          DeliveryStatus.OUT_FOR_DELIVERY);
         int count = 1;
         
         System.out.println("Deliveries ready for completion:");
-        for (Delivery delivery : deliveries) {
-            if (delivery.getDeliveryPerson() != null && 
-                delivery.getDeliveryPerson().getUserId().equals(staff.getUserId()) &&
-                delivery.getStatus().equals("Out for Delivery")) {
-                
-                System.out.println(count + ". Delivery " + delivery.getDeliveryId());
-                System.out.println("   Parcel: " + delivery.getParcel().getDescription());
-                System.out.println("   Recipient: " + delivery.getParcel().getReceiver().getName());
-                readyDeliveries.add(delivery);
-                count++;
-            }
+        for (Delivery delivery : readyDeliveries) {
+            System.out.println(count + ". Delivery " + delivery.getDeliveryId());
+            System.out.println("   Parcel: " + delivery.getParcel().getDescription());
+            System.out.println("   Recipient: " + delivery.getParcel().getReceiver().getName());
+            count++;
         }
         
         if (readyDeliveries.isEmpty()) {
@@ -216,16 +211,28 @@ public class StaffController {
         }
         
         Delivery selectedDelivery = readyDeliveries.get(choice - 1);
+        Parcel parcel = selectedDelivery.getParcel();
+        if (parcel.getStatus() != ParcelStatus.DELIVERED
+                && !parcel.getStatus().canTransitionTo(ParcelStatus.DELIVERED)) {
+            MenuView.showError("Parcel " + parcel.getParcelId() + " cannot change from "
+                               + parcel.getStatus() + " to " + ParcelStatus.DELIVERED + "!");
+            return;
+        }
         
         System.out.print("Enter recipient signature/name: ");
         String signature = scanner.nextLine();
         
-        selectedDelivery.updateDeliveryStatus("Delivered");
-        selectedDelivery.getParcel().updateStatus("Delivered");
+        // Closing the delivery takes it off its vehicle; the rest of the load stays on board
+        Vehicle vehicle = selectedDelivery.getAssignedVehicle();
+        boolean onBoard = vehicle != null && vehicle.carries(selectedDelivery.getDeliveryId());
+        deliveries.updateStatus(selectedDelivery, DeliveryStatus.DELIVERED);
+        if (parcel.getStatus() != ParcelStatus.DELIVERED) {
+            parcels.updateStatus(parcel, ParcelStatus.DELIVERED);
+        }
         
-        // Release vehicle if assigned
-        if (selectedDelivery.getAssignedVehicle() != null) {
-            selectedDelivery.getAssignedVehicle().releaseVehicle();
+        if (onBoard && !vehicle.carries(selectedDelivery.getDeliveryId())) {
+            System.out.println("Vehicle " + vehicle.getVehicleId() + " released from Delivery "
+                               + selectedDelivery.getDeliveryId());
         }
         
         System.out.println("\n" + "=".repeat(50));
@@ -246,14 +253,14 @@ public class StaffController {
         MenuView.showSectionHeader("AVAILABLE VEHICLES");
         
         boolean hasAvailable = false;
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.isAvailable()) {
-                System.out.println("\nVehicle ID: " + vehicle.getVehicleId());
-                System.out.println("Type: " + vehicle.getVehicleType());
-                System.out.println("Plate: " + vehicle.getPlateNumber());
-                System.out.println("Capacity: " + vehicle.getCapacity() + " kg");
-                hasAvailable = true;
-            }
+        for (Vehicle vehicle : vehicles.findNotFull()) {
+            System.out.println("\nVehicle ID: " + vehicle.getVehicleId());
+            System.out.println("Type: " + vehicle.getVehicleType());
+            System.out.println("Plate: " + vehicle.getPlateNumber());
+            System.out.println("Capacity: " + vehicle.getCapacity() + " kg");
+            System.out.println("Free: " + vehicle.getRemainingCapacity() + " kg"
+                               + " (" + vehicle.getDeliveryCount() + " deliveries on board)");
+            hasAvailable = true;
         }
         
         if (!hasAvailable) {
@@ -263,7 +270,7 @@ public class StaffController {
     
     private void toggleAvailability(Staff staff) {
         boolean current = staff.isAvailable();
-        staff.setAvailable(!current);
+        users.setStaffAvailable(staff, !current);
         
         if (staff.isAvailable()) {
             MenuView.showSuccess("You are now AVAILABLE for new assignments.");
@@ -283,11 +290,12 @@ public class StaffController {
         System.out.println("Total parcels: " + parcels.size());
         System.out.println("\nParcel List:");
         
-        for (int i = 0; i < parcels.size(); i++) {
-            Parcel parcel = parcels.get(i);
-            System.out.println((i + 1) + ". " + parcel.getParcelId() + 
+        int count = 1;
+        for (Parcel parcel : parcels.getAll()) {
+            System.out.println(count + ". " + parcel.getParcelId() + 
                              " - " + parcel.getDescription() + 
                              " (" + parcel.getStatus() + ")");
+            count++;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,442 @@
+package couriersystem;
+
+import models.*;
+import services.*;
+import utils.SessionConsole;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless load generator for the console menus. Runs many sessions through the
+// real controllers (Main.Session), each with its own scripted input and its own
+// screen, and reports latency percentiles and throughput per operation.
+//
+// A session is a list of operations; an operation is the input for one menu
+// action (e.g. "create-parcel": 1, type, description, weight, ..., recipient). Sessions
+// either replay a script file or are generated at random:
+//   3 of 4: register a new customer, log in, create / pay / track parcels, log out
+//   1 of 4: log in as a staff member, move parcels along / complete deliveries, log out
+// Generated operations are built when they start, from the current data, so they
+// always refer to parcels and deliveries that exist.
+//
+// Operations run one at a time across all sessions (each holds Main.SYSTEM, as
+// sessions of the SessionServer do), so latency includes waiting for the other
+// sessions. An operation ends once its changes are durable (Main.leave), so
+// latency includes the fsync as well. With a rate set, latency is measured from
+// when the operation was due rather than when it was sent, so queueing is not
+// hidden.
+//
+// Usage: ant load -Dload.args="<sessions> <concurrency> <ops/s, 0 = unpaced> [script]"
+//   -Dcourier.load.ops=<operations per generated session> (default 10)
+//   -Dcourier.load.seed=<random seed> (default 42)
+//   -Dcourier.load.transcripts=<dir> saves each session's screen to a file
+// and the usual -Dcourier.* settings (point courier.data.dir at a scratch directory).
+//
+// Script format: "@name" starts an operation and the lines after it are its
+// input; "#" lines are comments. {session} becomes the session number and {seq}
+// a number unique across the run.
+public class LoadDriver {
+
+    private static final ConcurrentHashMap<String, Latencies> results = new ConcurrentHashMap<>();
+    private static final AtomicInteger aborted = new AtomicInteger();
+    private static final AtomicLong sequence = new AtomicLong();
+
+    private static List<String[]> script;   // {name, input template}
+    private static int opsPerSession;
+    private static long seed;
+    private static long intervalNanos;      // between operations of one session (0 = unpaced)
+    private static Path transcripts;
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        if (args.length > 3) script = readScript(Path.of(args[3]));
+        opsPerSession = Integer.getInteger("courier.load.ops", 10);
+        seed = Long.getLong("courier.load.seed", 42);
+        intervalNanos = rate > 0 ? (long) (concurrency * 1e9 / rate) : 0;
+        String transcriptDir = System.getProperty("courier.load.transcripts");
+        if (transcriptDir != null) {
+            transcripts = Files.createDirectories(Path.of(transcriptDir));
+        }
+
+        Main.start();
+        SessionConsole.install();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int number = 1; number <= sessions; number++) {
+            int session = number;
+            workers.execute(() -> runSession(session));
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        long elapsed = System.nanoTime() - start;
+
+        report(sessions, concurrency, rate, elapsed);
+        Main.shutdown();
+    }
+
+    private static void runSession(int number) {
+        // Seeds mixed per session: neighbouring java.util.Random seeds start out alike
+        Plan plan = script != null ? new ScriptPlan(number)
+                                   : new RandomPlan(new Random(new SplittableRandom(seed + number).nextLong()));
+        ScriptedInput input = null;
+        PrintStream screen = null;
+        try {
+            OutputStream sink = transcripts == null ? OutputStream.nullOutputStream()
+                    : new BufferedOutputStream(Files.newOutputStream(transcripts.resolve("session-" + number + ".txt")));
+            ErrorCounter errors = new ErrorCounter(sink);
+            screen = new PrintStream(errors, false, StandardCharsets.UTF_8);
+            input = new ScriptedInput(plan, errors);
+            SessionConsole.bind(screen, false);
+            new Main.Session(new Scanner(input)).run();
+        } catch (IOException | RuntimeException e) {
+            // Script out of step with the menus (input ran out mid-menu) or a failure in a controller
+            aborted.incrementAndGet();
+        } finally {
+            if (input != null) input.finish();
+            SessionConsole.unbind();
+            if (screen != null) screen.close();
+        }
+    }
+
+    // ---------- Operations ----------
+
+    private interface Plan {
+        // The next operation, or null when the session is over. Called holding Main.SYSTEM.
+        Operation next();
+    }
+
+    private static class Operation {
+        final String name;
+        final byte[] input;
+
+        Operation(String name, String input) {
+            this.name = name;
+            this.input = input.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class ScriptPlan implements Plan {
+        private final int session;
+        private int step;
+
+        ScriptPlan(int session) {
+            this.session = session;
+        }
+
+        @Override
+        public Operation next() {
+            if (step == script.size()) return null;
+            String[] operation = script.get(step++);
+            String input = operation[1].replace("{session}", String.valueOf(session));
+            while (input.contains("{seq}")) {
+                input = input.replaceFirst("\\{seq\\}", String.valueOf(sequence.incrementAndGet()));
+            }
+            return new Operation(operation[0], input);
+        }
+    }
+
+    private static class RandomPlan implements Plan {
+        private final Random random;
+        private final boolean staff;
+        private int step;
+        private String userId;
+        private boolean leaving;
+
+        RandomPlan(Random random) {
+            this.random = random;
+            this.staff = random.nextInt(4) == 0;
+        }
+
+        @Override
+        public Operation next() {
+            if (leaving) return null;
+            int at = step++;
+            // customers register first, so their work starts one step later
+            int first = staff ? 1 : 2;
+            if (at == 0) return staff ? staffLogin() : register();
+            if (at == 1 && !staff) {
+                return new Operation("login", "1\n1\n" + userId + "\npass123\n");
+            }
+            if (at < first + opsPerSession) return staff ? staffOperation() : customerOperation();
+            if (at == first + opsPerSession) return new Operation("logout", "7\n");
+            if (at == first + opsPerSession + 1) return new Operation("exit", "4\n");
+            return null;
+        }
+
+        private Operation register() {
+            IdAllocator ids = Main.getIdAllocator();
+            userId = IdAllocator.format(IdAllocator.CUSTOMER, ids.getHighWaterMark(IdAllocator.CUSTOMER) + 1);
+            return new Operation("register", "2\n" + userId + "\nLoad Customer " + userId + "\nload."
+                                 + userId.toLowerCase() + "@example.com\npass123\n012-3456789\n"
+                                 + userId + " Load Street, KL\n");
+        }
+
+        private Operation customerOperation() {
+            ParcelRepository parcels = Main.getParcels();
+            int pick = random.nextInt(10);
+            if (pick >= 5 && pick < 7) {
+                List<Parcel> unpaid = parcels.findUnpaidBySender(userId);
+                if (!unpaid.isEmpty()) {
+                    return new Operation("pay", "5\n" + (1 + random.nextInt(unpaid.size())) + "\n"
+                                         + (1 + random.nextInt(3)) + "\n");
+                }
+            } else if (pick >= 7) {
+                List<Parcel> sent = parcels.findBySender(userId);
+                if (!sent.isEmpty()) {
+                    return new Operation("track", "4\n" + sent.get(random.nextInt(sent.size())).getParcelId() + "\n");
+                }
+            }
+            // Half-kilo steps up to 20 kg, so shapes repeat as they do at a counter
+            int type = 1 + random.nextInt(3);
+            double weight = (1 + random.nextInt(40)) / 2.0;
+            String recipient = Main.getUsers().findCustomerById("C001") != null ? "C001" : userId;
+            return new Operation("create-parcel", "1\n" + type + "\nLoad parcel\n" + weight + "\n30x20x15\n"
+                                 + recipient + "\n" + (type == 3 ? "Singapore\n" : ""));
+        }
+
+        private Operation staffLogin() {
+            ArrayList<Staff> staff = new ArrayList<>();
+            for (Staff member : Main.getUsers().getStaff()) {
+                if (!member.getUserId().equals("ADMIN")) staff.add(member);
+            }
+            if (staff.isEmpty()) {
+                leaving = true; // no staff to log in as
+                return new Operation("exit", "4\n");
+            }
+            Staff member = staff.get(random.nextInt(staff.size()));
+            userId = member.getUserId();
+            // Fixture credentials, read the way persistence reads them
+            return new Operation("staff-login", "1\n2\n" + userId + "\n" + member.getPassword() + "\n");
+        }
+
+        private Operation staffOperation() {
+            DeliveryRepository deliveries = Main.getDeliveries();
+            if (random.nextInt(10) < 4
+                    && !deliveries.findByStaffAndStatus(userId, DeliveryStatus.OUT_FOR_DELIVERY).isEmpty()) {
+                return new Operation("complete-delivery", "3\n1\nSigned by recipient\n");
+            }
+            // Move one of this staff member's parcels a step towards the door
+            List<Delivery> assigned = deliveries.findByStaff(userId);
+            int offset = assigned.isEmpty() ? 0 : random.nextInt(assigned.size());
+            for (int i = 0; i < assigned.size(); i++) {
+                Parcel parcel = assigned.get((offset + i) % assigned.size()).getParcel();
+                ParcelStatus status = parcel.getStatus();
+                if (status.isTerminal() || status.compareTo(ParcelStatus.OUT_FOR_DELIVERY) >= 0) continue;
+                int choice = status.compareTo(ParcelStatus.PROCESSING) < 0 ? 1     // Processing
+                           : status.compareTo(ParcelStatus.IN_TRANSIT) < 0 ? 2    // In Transit
+                           : 3;                                                    // Out for Delivery
+                return new Operation("update-status", "2\n" + parcel.getParcelId() + "\n" + choice + "\n");
+            }
+            return new Operation("view-deliveries", "1\n");
+        }
+    }
+
+    // ---------- Session input ----------
+
+    // Feeds a session's Scanner one operation at a time. The session asking for
+    // input past the end of an operation means that operation is finished.
+    private static class ScriptedInput extends InputStream {
+        private final Plan plan;
+        private final ErrorCounter errors;
+        private Operation current;
+        private byte[] pending = new byte[0];
+        private int position;
+        private long due;          // when the current operation was due to start
+        private long nextDue;
+        private long errorsAtStart;
+
+        ScriptedInput(Plan plan, ErrorCounter errors) {
+            this.plan = plan;
+            this.errors = errors;
+            this.nextDue = System.nanoTime();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position == pending.length && !advance()) return -1;
+            int count = Math.min(length, pending.length - position);
+            System.arraycopy(pending, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        // Only what is left of the current operation, so the reader never waits on the next one
+        @Override
+        public int available() {
+            return pending.length - position;
+        }
+
+        private boolean advance() throws IOException {
+            finish();
+            if (intervalNanos > 0) {
+                long wait = nextDue - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                due = nextDue;
+                nextDue += intervalNanos;
+            } else {
+                due = System.nanoTime();
+            }
+            Main.enter();
+            current = plan.next();
+            if (current == null) {
+                Main.leave();
+                return false;
+            }
+            pending = current.input;
+            position = 0;
+            errorsAtStart = errors.getCount();
+            return true;
+        }
+
+        // Let the next session in and record the operation in progress (if any)
+        // once its changes are durable
+        void finish() {
+            if (Main.SYSTEM.isHeldByCurrentThread()) Main.leave();
+            if (current != null) {
+                record(current.name, System.nanoTime() - due, errors.getCount() > errorsAtStart);
+                current = null;
+            }
+        }
+    }
+
+    // Session screen: passes output on and counts the menus' error messages
+    private static class ErrorCounter extends FilterOutputStream {
+        private static final byte[] MARKER = "ERROR:".getBytes(StandardCharsets.UTF_8);
+        private int matched;
+        private volatile long count;
+
+        ErrorCounter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            matched = b == MARKER[matched] ? matched + 1 : (b == MARKER[0] ? 1 : 0);
+            if (matched == MARKER.length) {
+                count++;
+                matched = 0;
+            }
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                byte b = buffer[i];
+                matched = b == MARKER[matched] ? matched + 1 : (b == MARKER[0] ? 1 : 0);
+                if (matched == MARKER.length) {
+                    count++;
+                    matched = 0;
+                }
+            }
+            out.write(buffer, offset, length);
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    // ---------- Results ----------
+
+    private static class Latencies {
+        private long[] nanos = new long[256];
+        private int size;
+        private int errors;
+
+        synchronized void add(long latency, boolean error) {
+            if (size == nanos.length) nanos = Arrays.copyOf(nanos, size * 2);
+            nanos[size++] = latency;
+            if (error) errors++;
+        }
+    }
+
+    private static void record(String operation, long nanos, boolean error) {
+        results.computeIfAbsent(operation, name -> new Latencies()).add(nanos, error);
+    }
+
+    private static void report(int sessions, int concurrency, double rate, long elapsedNanos) {
+        System.out.println("\n=== LOAD TEST ===");
+        System.out.printf("%d sessions (%s), %d at a time, %s%n", sessions,
+                          script != null ? "scripted" : opsPerSession + " operations each, generated",
+                          concurrency, rate > 0 ? "paced at " + rate + " ops/s" : "unpaced");
+        System.out.printf("%n%-18s %7s %6s %9s %9s %9s %9s %9s   (ms)%n",
+                          "Operation", "count", "errors", "mean", "p50", "p90", "p99", "max");
+
+        Latencies all = new Latencies();
+        TreeMap<String, Latencies> sorted = new TreeMap<>(results);
+        for (Map.Entry<String, Latencies> entry : sorted.entrySet()) {
+            Latencies latencies = entry.getValue();
+            printRow(entry.getKey(), latencies);
+            for (int i = 0; i < latencies.size; i++) all.add(latencies.nanos[i], false);
+            all.errors += latencies.errors;
+        }
+        printRow("all", all);
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nThroughput: %.1f operations/s, %.1f sessions/s (%.1f s)%n",
+                          all.size / seconds, (sessions - aborted.get()) / seconds, seconds);
+        if (aborted.get() > 0) {
+            System.out.println("Aborted sessions (script out of step with the menus): " + aborted.get());
+        }
+    }
+
+    private static void printRow(String name, Latencies latencies) {
+        if (latencies.size == 0) return;
+        long[] sorted = Arrays.copyOf(latencies.nanos, latencies.size);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) total += nanos;
+        System.out.printf("%-18s %7d %6d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, sorted.length, latencies.errors,
+                          total / 1e6 / sorted.length, percentile(sorted, 50), percentile(sorted, 90),
+                          percentile(sorted, 99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    // Nearest-rank percentile in milliseconds
+    private static double percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static List<String[]> readScript(Path file) throws IOException {
+        ArrayList<String[]> operations = new ArrayList<>();
+        String name = null;
+        StringBuilder input = new StringBuilder();
+        for (String line : Files.readAllLines(file)) {
+            if (line.startsWith("#")) continue;
+            if (line.startsWith("@")) {
+                if (name != null) operations.add(new String[] {name, input.toString()});
+                name = line.substring(1).trim();
+                input.setLength(0);
+            } else if (name != null) {
+                input.append(line).append('\n');
+            }
+        }
+        if (name != null) operations.add(new String[] {name, input.toString()});
+        if (operations.isEmpty()) {
+            throw new IOException("No operations in " + file + " (start each with @name)");
+        }
+        return operations;
+    }
+}
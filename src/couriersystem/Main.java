@@ -2,38 +2,247 @@ package couriersystem;
 
 import controllers.*;
 import models.*;
+import persistence.*;
 import services.*;
 import utils.*;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Main {
+    // Held by whichever session is running menu code (the console session, or one
+    // of the SessionServer / LoadDriver sessions), and by a background export while
+    // it reads a page of rows. The repositories, event subscribers
+    // and services below are not synchronized themselves, so one session's
+    // operation always sees and leaves them consistent. Take it with enter()
+    // and let go with leave(): a session's changes are logged in order while it
+    // holds the lock, but the wait for the disk happens after it lets go, so
+    // sessions share fsyncs instead of queueing behind each other's.
+    static final ReentrantLock SYSTEM = new ReentrantLock(true);
+    
+    // Lifecycle events published by the repositories
+    private static EventBus events = new EventBus();
+    
     // Data collections - USING COMPOSITION
-    private static ArrayList<User> users = new ArrayList<>();
-    private static ArrayList<Parcel> parcels = new ArrayList<>(); // SINGLE source for parcels
-    private static ArrayList<Delivery> deliveries = new ArrayList<>();
-    private static ArrayList<Vehicle> vehicles = new ArrayList<>();
-    private static ArrayList<Payment> payments = new ArrayList<>();
+    private static UserDirectory users = new UserDirectory(events);
+    private static ParcelRepository parcels = new ParcelRepository(events); // SINGLE source for parcels
+    private static VehicleRepository vehicles = new VehicleRepository(events);
+    private static DeliveryRepository deliveries = new DeliveryRepository(events, vehicles);
+    private static PaymentLedger payments = new PaymentLedger(events);
     
     // Services - USING AGGREGATION
     private static ParcelService parcelService;
-    private static PaymentService paymentService = new PaymentService();
+    private static PaymentService paymentService = new PaymentService(payments);
+    private static IdAllocator idAllocator = new IdAllocator();
+    private static StatisticsEngine stats = new StatisticsEngine();
+    // Available staff by open deliveries (vehicles are pooled by VehicleRepository)
+    private static StaffPool staffPool = new StaffPool(deliveries);
+    
+    // Durable state: every change is appended to the write-ahead log, and a snapshot
+    // is written in the background every courier.snapshot.interval log records
+    // (-Dcourier.data.dir=<dir>, default "data"; -Dcourier.persistence=false to run in memory only).
+    // The log is kept in courier.log.segment MB files (default 64); those a snapshot
+    // covers are deleted.
+    private static WriteAheadLog changeLog;
+    private static SnapshotManager snapshots;
+    
+    // Closed parcels move to a memory-mapped columnar archive once
+    // courier.archive.batch of them have built up (default 100)
+    private static ParcelArchiver archiver;
+    
+    // Background CSV / JSON-lines / binary extracts started from the admin menu
+    private static DataExporter exporter;
     
-    // Controllers
-    private static AuthController authController;
-    private static CustomerController customerController;
-    private static StaffController staffController;
-    private static AdminController adminController;
+    // New parcels are dispatched in batches: courier.dispatch.window milliseconds
+    // (default 0 = each parcel immediately) or courier.dispatch.batch parcels (default 50)
+    private static Dispatcher dispatcher;
     
-    private static Scanner scanner = new Scanner(System.in);
+    // Vehicle runs are ordered by the route planner over a distance table:
+    // courier.routes.matrix=<csv> (default: the built-in Klang Valley table),
+    // courier.routes.budget milliseconds per plan (default 200)
+    private static RoutePlanner routePlanner;
+    
+    // Parcel rates: -Dcourier.rates=<csv> replaces the default RateTable at startup;
+    // the pricing engine quotes and reprices whole batches from the admin menu
+    private static PricingEngine pricing = new PricingEngine();
+    
+    // Recent quotes by parcel shape: courier.quotes.size entries (default 1024),
+    // each kept courier.quotes.ttl seconds (default 600)
+    private static QuoteCache quoteCache = new QuoteCache(
+            Integer.getInteger("courier.quotes.size", QuoteCache.DEFAULT_CAPACITY),
+            Long.getLong("courier.quotes.ttl", QuoteCache.DEFAULT_TTL_MILLIS / 1000) * 1000);
+    
+    private static BulkImporter importer;
     
     public static void main(String[] args) {
         System.out.println("========================================\n");
         System.out.println("    COURIER PARCEL MANAGEMENT SYSTEM      ");
         System.out.println("          Phase 2 - OOP Project           ");
         
-        initializeData();
-        initializeControllers();
-        startSystem();
+        start();
+        // -Dcourier.server.port=<port>: serve many sessions over TCP instead of this console
+        Integer port = Integer.getInteger("courier.server.port");
+        if (port != null) {
+            try {
+                new SessionServer(port).run();
+            } catch (IOException e) {
+                System.out.println("❌ Cannot serve on port " + port + ": " + e.getMessage());
+            }
+        } else {
+            // Changes made at the console each wait for the disk under the lock,
+            // so there is nothing to gain from enter()/leave() here
+            Scanner scanner = new Scanner(new ConsoleInput(System.in));
+            SYSTEM.lock();
+            try {
+                new Session(scanner).run();
+            } finally {
+                SYSTEM.unlock();
+            }
+            scanner.close();
+        }
+        shutdown();
+    }
+    
+    // Everything before the first session: rates, stored or sample data, services
+    static void start() {
+        initializeRates();
+        initializeEvents();
+        if (!initializePersistence()) {
+            initializeData();
+        }
+        observeExistingIds();
+        initializeServices();
+    }
+    
+    // Take SYSTEM to run menu code. Changes logged until leave() are queued
+    // without waiting for the disk (one journal batch for the whole stretch).
+    static void enter() {
+        SYSTEM.lock();
+        events.journal().batchStarted();
+    }
+    
+    // Let go of SYSTEM, then wait until every change this session made - or saw
+    // another session make - is durable. Call before the session's output is
+    // shown, so nobody is told about a change a crash could still take back.
+    static void leave() {
+        long seen = changeLog == null ? 0 : changeLog.getLastLsn();
+        SYSTEM.unlock();
+        if (seen > 0) changeLog.awaitDurable(seen);
+        events.journal().batchFinished();
+    }
+    
+    // After the last session. Call without holding SYSTEM: running exports need it
+    // to finish, and then it is kept so nothing runs while the data files close.
+    static void shutdown() {
+        exporter.close(); // finish running exports before the data files close
+        SYSTEM.lock();
+        dispatcher.dispatch(); // don't leave queued parcels without a driver
+        pricing.close();
+        closePersistence();
+    }
+    
+    // Between operations: safe point for dispatching, archiving and a background snapshot.
+    // Archiving waits for running exports, which read the live rows by position.
+    static void safePoint() {
+        dispatcher.maybeDispatch();
+        if (archiver != null && !exporter.isExporting()) archiveClosedParcels();
+        if (snapshots != null) snapshots.maybeCheckpoint();
+    }
+    
+    // Shared state, read by the load driver to generate sessions that make sense
+    static UserDirectory getUsers() { return users; }
+    static ParcelRepository getParcels() { return parcels; }
+    static DeliveryRepository getDeliveries() { return deliveries; }
+    static IdAllocator getIdAllocator() { return idAllocator; }
+    
+    private static void initializeRates() {
+        String ratesFile = System.getProperty("courier.rates");
+        if (ratesFile == null) return;
+        try {
+            RateTable.setActive(RateTable.load(Path.of(ratesFile)));
+        } catch (IOException e) {
+            // Charging with the wrong table is worse than not starting
+            System.out.println("❌ Cannot load rates from " + ratesFile + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static void initializeEvents() {
+        // Statistics subscribe before any data exists so counters start exact
+        // (-Dcourier.stats.verify=true cross-checks them against a recount on every report)
+        stats.setVerifyMode(Boolean.getBoolean("courier.stats.verify"));
+        events.subscribe(stats);
+        // The staff pool follows the same events, so recovery fills it as well
+        events.subscribe(staffPool);
+    }
+    
+    // Load the latest snapshot, replay the log written after it, then start logging new changes.
+    // Returns true if earlier state was restored (so the sample data is not added again).
+    private static boolean initializePersistence() {
+        if (!Boolean.parseBoolean(System.getProperty("courier.persistence", "true"))) {
+            return false;
+        }
+        Path dataDir = Path.of(System.getProperty("courier.data.dir", "data"));
+        try {
+            changeLog = new WriteAheadLog(dataDir.resolve("changes.wal"),
+                                          Long.getLong("courier.log.segment", 64) << 20);
+            snapshots = new SnapshotManager(dataDir.resolve("snapshot.bin"), changeLog, users, parcels,
+                                            deliveries, vehicles, payments,
+                                            Long.getLong("courier.snapshot.interval", 1000));
+            ParcelArchive archive = new ParcelArchive(dataDir.resolve("archive"), users);
+            archiver = new ParcelArchiver(parcels, deliveries, archive, events,
+                                          Integer.getInteger("courier.archive.batch", 100));
+            // Archive rows go straight to disk: let the log catch up with the
+            // changes sessions have queued first, so no row is ahead of it
+            archiver.setWriteBarrier(() -> changeLog.awaitDurable(changeLog.getLastLsn()));
+            long snapshotLsn = snapshots.load();
+            long replayed = changeLog.recover(snapshotLsn, snapshots.getLoadedLogPosition(),
+                    new LogReplayer(users, parcels, deliveries, vehicles, payments, archiver));
+            events.setJournal(new LogRecorder(changeLog));
+            archiver.reconcile();
+            deliveries.releaseClosed();
+            
+            // Counters now come from the live tier plus the archive columns
+            stats.setArchive(archive);
+            stats.restoreFrom(StatisticsEngine.recount(users, parcels, deliveries, vehicles, archive));
+            if (snapshotLsn > 0 || replayed > 0) {
+                System.out.println("✓ Restored data from " + dataDir + " (snapshot up to change "
+                                 + snapshotLsn + ", " + replayed + " newer changes replayed)");
+            }
+            return snapshotLsn > 0 || replayed > 0;
+        } catch (IOException | UncheckedIOException e) {
+            // Never start on top of a log we could not read - new writes would bury the problem
+            System.out.println("❌ Cannot open data in " + dataDir + ": " + e.getMessage());
+            System.exit(1);
+            return false;
+        }
+    }
+    
+    private static void archiveClosedParcels() {
+        try {
+            archiver.maybeArchive();
+        } catch (IOException e) {
+            // Parcels stay live and are retried at the next safe point
+            System.out.println("❌ Archiving closed parcels failed: " + e.getMessage());
+        }
+    }
+    
+    private static void closePersistence() {
+        if (changeLog == null) return;
+        // Final snapshot so the next start has no log to replay
+        snapshots.awaitIdle();
+        snapshots.checkpoint();
+        snapshots.close();
+        try {
+            archiver.getArchive().close();
+            changeLog.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing change log: " + e.getMessage());
+        }
     }
     
   private static void initializeData() {
@@ -64,132 +273,213 @@ public class Main {
     parcels.add(p2);
     
     // Create vehicles
-    vehicles.add(new Vehicle("V001", "Van", "ABC1234", 500));
+    Vehicle van = new Vehicle("V001", "Van", "ABC1234", 500);
+    vehicles.add(van);
     vehicles.add(new Vehicle("V002", "Motorcycle", "DEF5678", 50));
     
-    // Create deliveries
-    deliveries.add(new Delivery("D001", p1, s1));  // First delivery
-    deliveries.add(new Delivery("D002", p2, s2));  // Second delivery
+    // Create deliveries (linked to their parcels by the repository)
+    Delivery d1 = new Delivery("D001", p1, s1);  // First delivery
+    Delivery d2 = new Delivery("D002", p2, s2);  // Second delivery
+    deliveries.add(d1);
+    deliveries.add(d2);
     
     // Assign vehicle silently
-    Vehicle van = vehicles.get(0);
-    van.assignVehicle("D001");
-    deliveries.get(0).setAssignedVehicle(van);
+    vehicles.assign(van, d1);
 }
     
-    private static void initializeControllers() {
-        // Initialize services with the single parcels list
+    // Seed and restored IDs were not handed out by the allocator - move it past
+    // them once, so new IDs never need a scan over existing records
+    private static void observeExistingIds() {
+        for (User user : users.getAll()) idAllocator.observe(user.getUserId());
+        parcels.observeIds(idAllocator); // stored parcels and the archive: by their high-water marks
+        for (Delivery delivery : deliveries.getAll()) idAllocator.observe(delivery.getDeliveryId());
+        for (Vehicle vehicle : vehicles.getAll()) idAllocator.observe(vehicle.getVehicleId());
+        if (archiver != null) archiver.getArchive().observeIds(idAllocator);
+        paymentService.observeExistingIds(); // payment IDs: after the highest stored one
+    }
+    
+    private static void initializeServices() {
+        // Initialize services with the single parcel repository
         parcelService = new ParcelService(parcels);
+        exporter = new DataExporter(parcels, deliveries, payments);
+        exporter.setLock(SYSTEM);
+        dispatcher = new Dispatcher(users, deliveries, vehicles, staffPool, idAllocator,
+                                    Long.getLong("courier.dispatch.window", 0),
+                                    Integer.getInteger("courier.dispatch.batch", 50));
+        if (archiver != null) {
+            parcelService.setArchive(archiver.getArchive());
+            exporter.setArchive(archiver.getArchive());
+            exporter.setLog(changeLog);
+        }
+        routePlanner = initializeRoutePlanner();
+        importer = new BulkImporter(users, parcels, vehicles, idAllocator);
+    }
+    
+    // Route planning is optional: without a distance table the menus say so
+    private static RoutePlanner initializeRoutePlanner() {
+        String matrixFile = System.getProperty("courier.routes.matrix");
+        try {
+            DistanceMatrix matrix = matrixFile != null ? DistanceMatrix.load(Path.of(matrixFile))
+                                                       : DistanceMatrix.loadBuiltIn();
+            return new RoutePlanner(matrix, Long.getLong("courier.routes.budget", 
+                                                         RoutePlanner.DEFAULT_BUDGET_MILLIS));
+        } catch (IOException e) {
+            System.out.println("❌ Route planning disabled: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // The console's keyboard: the console session lets go of SYSTEM while it
+    // waits for a key, so a background export can read its pages meanwhile
+    private static class ConsoleInput extends FilterInputStream {
+        ConsoleInput(InputStream in) {
+            super(in);
+        }
         
-        // Initialize controllers with their dependencies
-        authController = new AuthController(scanner, users);
-        customerController = new CustomerController(scanner, parcelService, 
-                                                   paymentService, parcels, 
-                                                   deliveries, payments, users, vehicles);
-        staffController = new StaffController(scanner, deliveries, parcels, 
-                                             vehicles, users);
-        adminController = new AdminController(scanner, users, parcels, deliveries, 
-                                     vehicles, payments);
-    }
-    
-    private static void startSystem() {
-        boolean exit = false;
+        @Override
+        public int read() throws IOException {
+            SYSTEM.unlock();
+            try {
+                return in.read();
+            } finally {
+                SYSTEM.lock();
+            }
+        }
         
-        while (!exit) {
-            views.MenuView.showMainMenu();
-            
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            SYSTEM.unlock();
             try {
-                int choice = scanner.nextInt();
-                scanner.nextLine();
+                return in.read(bytes, offset, length);
+            } finally {
+                SYSTEM.lock();
+            }
+        }
+    }
+    
+    // One person (or script) at the menus: the main menu loop with its own
+    // scanner and controllers over the shared repositories and services
+    static class Session {
+        private final Scanner scanner;
+        private final AuthController authController;
+        private final CustomerController customerController;
+        private final StaffController staffController;
+        private final AdminController adminController;
+        
+        Session(Scanner scanner) {
+            this.scanner = scanner;
+            authController = new AuthController(scanner, users, idAllocator);
+            customerController = new CustomerController(scanner, parcelService, 
+                                                       paymentService, idAllocator, parcels, 
+                                                       deliveries, users, vehicles, dispatcher,
+                                                       quoteCache);
+            staffController = new StaffController(scanner, deliveries, parcels, 
+                                                 vehicles, users, routePlanner);
+            adminController = new AdminController(scanner, users, parcels, deliveries, 
+                                         vehicles, payments, idAllocator, stats, importer,
+                                         exporter, dispatcher, staffPool, routePlanner,
+                                         pricing, quoteCache, archiver == null ? null : archiver.getArchive());
+        }
+        
+        void run() {
+            boolean exit = false;
+        
+            while (!exit) {
+                views.MenuView.showMainMenu();
+            
+                try {
+                    int choice = scanner.nextInt();
+                    scanner.nextLine();
                 
-                switch (choice) {
-                    case 1: handleLogin(); break;
-                    case 2: handleRegistration(); break;
-                    case 3: demonstrateArraysForRubric(); break;
-                    case 4: 
-                        exit = true; 
-                        System.out.println("\nThank you for using Courier System!");
-                        break;
-                    default: 
-                        System.out.println("Invalid option! Choose 1-4");
+                    switch (choice) {
+                        case 1: handleLogin(); break;
+                        case 2: handleRegistration(); break;
+                        case 3: demonstrateArraysForRubric(); break;
+                        case 4: 
+                            exit = true; 
+                            System.out.println("\nThank you for using Courier System!");
+                            break;
+                        default: 
+                            System.out.println("Invalid option! Choose 1-4");
+                    }
+                    safePoint();
+                } catch (InputMismatchException e) {
+                    System.out.println("Please enter a number (1-4)!");
+                    scanner.nextLine();
                 }
-            } catch (InputMismatchException e) {
-                System.out.println("Please enter a number (1-4)!");
-                scanner.nextLine();
             }
         }
-        scanner.close();
-    }
     
-    private static void handleLogin() {
-        User user = authController.login();
+        private void handleLogin() {
+            User user = authController.login();
         
-        if (user != null) {
-            // POLYMORPHISM: Same User type, different behaviors
-            if (user instanceof Customer) {
-                customerController.showMenu((Customer) user);
-            } else if (user instanceof Staff) {
-                Staff staff = (Staff) user;
-                if (staff.getUserId().equals("ADMIN")) {
-                    adminController.showMenu();
-                } else {
-                    staffController.showMenu(staff);
+            if (user != null) {
+                // POLYMORPHISM: Same User type, different behaviors
+                if (user instanceof Customer) {
+                    customerController.showMenu((Customer) user);
+                } else if (user instanceof Staff) {
+                    Staff staff = (Staff) user;
+                    if (staff.getUserId().equals("ADMIN")) {
+                        adminController.showMenu();
+                    } else {
+                        staffController.showMenu(staff);
+                    }
                 }
             }
         }
-    }
     
-    private static void handleRegistration() {
-        Customer newCustomer = authController.registerCustomer();
-        if (newCustomer != null) {
-            System.out.println("Please login with your new account.");
+        private void handleRegistration() {
+            Customer newCustomer = authController.registerCustomer();
+            if (newCustomer != null) {
+                System.out.println("Please login with your new account.");
+            }
         }
-    }
     
-    private static void demonstrateArraysForRubric() {
-        System.out.println("\n" + "=".repeat(70));
-        System.out.println("  📊 ARRAY DEMONSTRATION - PHASE 2 RUBRIC REQUIREMENTS");
-        System.out.println("=".repeat(70));
+        private void demonstrateArraysForRubric() {
+            System.out.println("\n" + "=".repeat(70));
+            System.out.println("  📊 ARRAY DEMONSTRATION - PHASE 2 RUBRIC REQUIREMENTS");
+            System.out.println("=".repeat(70));
         
-        // 1. Demonstrate arrays from utils package
-        ArrayDemo.demonstrateArrays();
+            // 1. Demonstrate arrays from utils package
+            ArrayDemo.demonstrateArrays();
         
-        // 2. Demonstrate arrays from services
-        parcelService.demonstrateArrayUsage();
+            // 2. Demonstrate arrays from services
+            parcelService.demonstrateArrayUsage();
         
-        // 3. Show conversion from ArrayList to Array
-        System.out.println("\n=== ARRAYLIST TO ARRAY CONVERSION ===");
+            // 3. Show conversion from ArrayList to Array
+            System.out.println("\n=== ARRAYLIST TO ARRAY CONVERSION ===");
         
-        // Convert parcels ArrayList to Array
-        Parcel[] parcelArray = parcels.toArray(new Parcel[0]);
-        System.out.println("ArrayList<parcels>.size() = " + parcels.size());
-        System.out.println("parcelArray.length = " + parcelArray.length);
+            // Convert parcel repository to Array
+            Parcel[] parcelArray = parcels.toArray();
+            System.out.println("parcels.size() = " + parcels.size());
+            System.out.println("parcelArray.length = " + parcelArray.length);
         
-        if (parcelArray.length > 0) {
-            System.out.println("First parcel in array: " + parcelArray[0].getParcelId());
-            System.out.println("Last parcel in array: " + parcelArray[parcelArray.length - 1].getParcelId());
-        }
+            if (parcelArray.length > 0) {
+                System.out.println("First parcel in array: " + parcelArray[0].getParcelId());
+                System.out.println("Last parcel in array: " + parcelArray[parcelArray.length - 1].getParcelId());
+            }
         
-        // 4. Demonstrate primitive array operations
-        System.out.println("\n=== PRIMITIVE ARRAY OPERATIONS ===");
-        int[] deliveryCounts = new int[7]; // Days of week
-        deliveryCounts[0] = 5;  // Monday
-        deliveryCounts[1] = 7;  // Tuesday
-        deliveryCounts[2] = 6;  // Wednesday
-        System.out.println("int[] deliveryCounts:");
-        for (int i = 0; i < deliveryCounts.length; i++) {
-            System.out.println("  Day " + (i+1) + ": " + deliveryCounts[i] + " deliveries");
-        }
+            // 4. Demonstrate primitive array operations
+            System.out.println("\n=== PRIMITIVE ARRAY OPERATIONS ===");
+            int[] deliveryCounts = new int[7]; // Days of week
+            deliveryCounts[0] = 5;  // Monday
+            deliveryCounts[1] = 7;  // Tuesday
+            deliveryCounts[2] = 6;  // Wednesday
+            System.out.println("int[] deliveryCounts:");
+            for (int i = 0; i < deliveryCounts.length; i++) {
+                System.out.println("  Day " + (i+1) + ": " + deliveryCounts[i] + " deliveries");
+            }
         
-        System.out.println("\n✅ All array requirements demonstrated:");
-        System.out.println("   ✓ Primitive arrays (int[], double[])");
-        System.out.println("   ✓ String arrays (String[])");
-        System.out.println("   ✓ Object arrays (Parcel[], Vehicle[])");
-        System.out.println("   ✓ ArrayList (dynamic arrays)");
-        System.out.println("   ✓ Array operations (access, iteration, length, conversion)");
-        System.out.println("=".repeat(70));
+            System.out.println("\n✅ All array requirements demonstrated:");
+            System.out.println("   ✓ Primitive arrays (int[], double[])");
+            System.out.println("   ✓ String arrays (String[])");
+            System.out.println("   ✓ Object arrays (Parcel[], Vehicle[])");
+            System.out.println("   ✓ ArrayList (dynamic arrays)");
+            System.out.println("   ✓ Array operations (access, iteration, length, conversion)");
+            System.out.println("=".repeat(70));
         
-        System.out.print("\nPress Enter to continue...");
-        scanner.nextLine();
+            System.out.print("\nPress Enter to continue...");
+            scanner.nextLine();
+        }
     }
 }
\ No newline at end of file
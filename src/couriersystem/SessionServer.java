@@ -0,0 +1,298 @@
+package couriersystem;
+
+import utils.SessionConsole;
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves the console menus to many people at once over a local TCP socket
+// (e.g. `nc localhost 7070`). Each connection gets a virtual thread running its
+// own Main.Session, with the socket as its keyboard and screen.
+//
+// A session holds Main.SYSTEM while it runs menu code and lets go while it
+// waits for its user, so operations of different sessions never overlap and
+// the shared repositories need no locks of their own. A session waiting at a
+// prompt holds no lock and no platform thread: just a parked virtual thread,
+// its socket and a few small buffers.
+//
+// Screen output is collected in memory while the session holds the lock and
+// sent after it lets go, so a slow client never holds up the others. Before
+// sending, the session waits for the change log to reach everything it did or
+// saw (Main.leave): that wait is outside the lock, so the fsyncs of sessions
+// finishing at about the same time are shared rather than taken in turn.
+//
+// Start with -Dcourier.server.port=<port> (ant serve -Dserve.port=<port>).
+// Type "stop" on the server console, or interrupt the server, to close all
+// sessions and shut down cleanly.
+public class SessionServer {
+
+    private static final int BACKLOG = 1024;
+    // How long stop waits for sessions in the middle of an operation
+    private static final long STOP_GRACE_SECONDS = 10;
+
+    private final ServerSocket listener;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public SessionServer(int port) throws IOException {
+        listener = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    }
+
+    // Serve until stopped. Sessions still finishing an operation hold Main.SYSTEM,
+    // which Main.shutdown waits for.
+    public void run() {
+        SessionConsole.install();
+        System.out.println("✓ Serving sessions on " + listener.getLocalSocketAddress()
+                         + " (type \"stop\" to shut down)");
+        Thread.ofVirtual().name("session-acceptor").start(this::accept);
+        Thread.ofPlatform().daemon().name("server-console").start(this::readConsole);
+
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop();
+            try {
+                main.join(TimeUnit.SECONDS.toMillis(STOP_GRACE_SECONDS * 3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "server-shutdown"));
+
+        boolean interrupted = false;
+        while (stopped.getCount() > 0) {
+            try {
+                stopped.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        sessions.shutdown();
+        try {
+            if (!sessions.awaitTermination(STOP_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                System.out.println("⚠ Sessions still busy after " + STOP_GRACE_SECONDS + "s, shutting down anyway");
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        System.out.println("✓ Server stopped after " + served.get() + " sessions");
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Stop accepting and hang up on every session; safe to call more than once
+    public void stop() {
+        if (!stopping.compareAndSet(false, true)) return;
+        System.out.println("Stopping: closing " + open.size() + " open sessions...");
+        closeQuietly(listener);
+        for (Socket socket : open) closeQuietly(socket);
+        stopped.countDown();
+    }
+
+    // ---------- Threads ----------
+
+    private void accept() {
+        while (!listener.isClosed()) {
+            Socket socket;
+            try {
+                socket = listener.accept();
+            } catch (IOException e) {
+                if (listener.isClosed()) return;
+                // e.g. out of file descriptors: back off instead of spinning
+                System.out.println("❌ Accepting a session failed: " + e.getMessage());
+                pause();
+                continue;
+            }
+            open.add(socket);
+            try {
+                int number = served.incrementAndGet();
+                sessions.execute(() -> serve(socket, number));
+            } catch (RejectedExecutionException e) {
+                // stopping
+                open.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket, int number) {
+        Connection connection = null;
+        Exception failure = null;
+        try {
+            socket.setTcpNoDelay(true);
+            connection = new Connection(socket);
+            // No loading pauses: they would be spent holding Main.SYSTEM
+            SessionConsole.bind(connection.screen, false);
+            Main.enter();
+            new Main.Session(new Scanner(connection)).run();
+        } catch (NoSuchElementException e) {
+            // Input ended: the client hung up or the server is stopping
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            if (Main.SYSTEM.isHeldByCurrentThread()) leaveQuietly();
+            SessionConsole.unbind();
+            if (connection != null) connection.sendQuietly();
+            open.remove(socket);
+            closeQuietly(socket);
+        }
+        if (failure != null) {
+            System.out.println("❌ Session " + number + " ended by an error: " + failure);
+        }
+    }
+
+    // The session is over: a failed log only means its last output is not sent
+    private static void leaveQuietly() {
+        try {
+            Main.leave();
+        } catch (UncheckedIOException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    private void readConsole() {
+        Scanner console = new Scanner(System.in);
+        while (console.hasNextLine()) {
+            if (console.nextLine().trim().equalsIgnoreCase("stop")) {
+                stop();
+                return;
+            }
+            System.out.println(open.size() + " sessions open, " + served.get()
+                             + " served. Type \"stop\" to shut down.");
+        }
+        // No console (running in the background): serve until interrupted
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    // ---------- Session streams ----------
+
+    // A session's keyboard and screen. Reading is where the session waits for
+    // its user, so every read lets go of Main.SYSTEM and first sends what the
+    // menus printed, once it is durable. Input is decoded here rather than by an InputStreamReader,
+    // whose 8 KB buffer would be most of an idle session's memory.
+    private static class Connection extends Reader {
+        private static final int INPUT_BUFFER = 128;
+
+        private final InputStream in;
+        private final OutputStream out;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer received = ByteBuffer.allocate(INPUT_BUFFER);   // not yet decoded
+        private final ScreenBuffer buffer = new ScreenBuffer();
+        final PrintStream screen = new PrintStream(buffer, false, StandardCharsets.UTF_8);
+
+        Connection(Socket socket) throws IOException {
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            CharBuffer decoded = CharBuffer.wrap(chars, offset, length);
+            while (true) {
+                received.flip();
+                decoder.decode(received, decoded, false);
+                received.compact();
+                if (decoded.position() > offset) return decoded.position() - offset;
+
+                int count = receive(received.array(), received.position(), received.remaining());
+                if (count < 0) return -1;
+                received.position(received.position() + count);
+            }
+        }
+
+        private int receive(byte[] bytes, int offset, int length) throws IOException {
+            Main.leave();
+            try {
+                send();
+                return in.read(bytes, offset, length);
+            } finally {
+                Main.enter();
+            }
+        }
+
+        private void send() throws IOException {
+            screen.flush();
+            buffer.writeTo(out);
+        }
+
+        void sendQuietly() {
+            try {
+                send();
+            } catch (IOException e) {
+                // client already gone
+            }
+        }
+
+        @Override
+        public void close() {
+            // the socket is closed by the server
+        }
+    }
+
+    // Growable byte buffer for a session's screen. Unlike ByteArrayOutputStream it
+    // does not write to the socket inside a synchronized method, which would pin
+    // the virtual thread to its carrier while a slow client catches up.
+    private static class ScreenBuffer extends OutputStream {
+        private static final int INITIAL = 256;
+        private static final int KEEP = 1024;   // larger buffers are dropped once sent
+
+        private byte[] bytes = new byte[INITIAL];
+        private int count;
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, count, length);
+            count += length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            if (count == 0) return;
+            try {
+                out.write(bytes, 0, count);
+            } finally {
+                count = 0;
+                // An idle session should not keep the buffer of a long screen
+                if (bytes.length > KEEP) bytes = new byte[INITIAL];
+            }
+        }
+
+        private void ensure(int more) {
+            if (count + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + more));
+            }
+        }
+    }
+}
@@ -7,7 +7,7 @@ public class Delivery {
     private Parcel parcel;
     private Staff deliveryPerson;
     private Vehicle assignedVehicle; 
-    private String status;
+    private byte status; // DeliveryStatus ordinal
     private String route;
     private LocalDate estimatedTime;
     
@@ -16,14 +16,14 @@ public class Delivery {
         this.parcel = parcel;
         this.deliveryPerson = deliveryPerson;
         this.assignedVehicle = null; 
-        this.status = "Scheduled";
+        this.status = DeliveryStatus.SCHEDULED.code();
         this.route = "To be assigned";
         this.estimatedTime = LocalDate.now().plusDays(2);
     }
     
     // Update delivery status
-    public void updateDeliveryStatus(String newStatus) {
-        this.status = newStatus;
+    public void updateDeliveryStatus(DeliveryStatus newStatus) {
+        this.status = newStatus.code();
         System.out.println("Delivery " + deliveryId + " status: " + newStatus);
     }
     
@@ -38,7 +38,7 @@ public class Delivery {
     public Parcel getParcel() { return parcel; }
     public Staff getDeliveryPerson() { return deliveryPerson; }
     public Vehicle getAssignedVehicle() { return assignedVehicle; }
-    public String getStatus() { return status; }
+    public DeliveryStatus getStatus() { return DeliveryStatus.fromCode(status); }
     public String getRoute() { return route; }
     public LocalDate getEstimatedTime() { return estimatedTime; }
     
@@ -46,6 +46,20 @@ public class Delivery {
         this.deliveryPerson = staff;
     }
     
+    public void setStatus(DeliveryStatus status) {
+        this.status = status.code();
+    }
+    
+    public void setRoute(String route) {
+        this.route = route;
+    }
+    
+    // Recovery only: route and estimate as recorded, without console output
+    public void restoreSchedule(String route, LocalDate estimatedTime) {
+        this.route = route;
+        this.estimatedTime = estimatedTime;
+    }
+    
      public void setAssignedVehicle(Vehicle vehicle) {
         this.assignedVehicle = vehicle;
        // if (vehicle != null) {
@@ -64,7 +78,7 @@ public class Delivery {
             System.out.println("Assigned Vehicle: " + assignedVehicle.getVehicleId() + 
                              " (" + assignedVehicle.getVehicleType() + ")");
         }
-        System.out.println("Status: " + status);
+        System.out.println("Status: " + getStatus());
         System.out.println("Route: " + route);
         System.out.println("Estimated Delivery: " + estimatedTime);
     }
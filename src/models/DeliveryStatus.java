@@ -0,0 +1,98 @@
+package models;
+
+// Delivery lifecycle. Stored on Delivery as a byte ordinal, so the declaration
+// order below is part of the persisted format - append new values at the end.
+public enum DeliveryStatus {
+    SCHEDULED("Scheduled", 0),
+    ASSIGNED("Assigned", 1),
+    PROCESSING("Processing", 2),
+    LOADED("Loaded", 3),
+    IN_TRANSIT("In Transit", 4),
+    OUT_FOR_DELIVERY("Out for Delivery", 5),
+    DELIVERED("Delivered", 6),
+    RETURNED("Returned", -1),
+    CANCELLED("Cancelled", -1);
+
+    private static final DeliveryStatus[] VALUES = values();
+
+    // Forward path shown by the delivery progress tracker
+    private static final DeliveryStatus[] PROGRESS_STEPS = {
+        SCHEDULED, PROCESSING, LOADED, IN_TRANSIT, OUT_FOR_DELIVERY, DELIVERED
+    };
+
+    private final String label;
+    private final int stage; // position on the forward path, -1 = end state off the path
+
+    DeliveryStatus(String label, int stage) {
+        this.label = label;
+        this.stage = stage;
+    }
+
+    public String getLabel() { return label; }
+
+    public byte code() { return (byte) ordinal(); }
+
+    // Single bit per status, for bitset status groups (see mask(...))
+    public long bit() { return 1L << ordinal(); }
+
+    public boolean isTerminal() {
+        return this == DELIVERED || this == RETURNED || this == CANCELLED;
+    }
+
+    // Legal transitions: forward along the path (skipping is allowed),
+    // or to Returned/Cancelled from any open state. End states are final.
+    public boolean canTransitionTo(DeliveryStatus next) {
+        if (next == null || next == this || isTerminal()) return false;
+        if (next.stage < 0) return true;
+        return next.stage > stage;
+    }
+
+    // Parcel status mirrored when a delivery status changes (null = no parcel change)
+    public ParcelStatus toParcelStatus() {
+        switch (this) {
+            case PROCESSING: return ParcelStatus.PROCESSING;
+            case LOADED: return ParcelStatus.LOADED;
+            case IN_TRANSIT: return ParcelStatus.IN_TRANSIT;
+            case OUT_FOR_DELIVERY: return ParcelStatus.OUT_FOR_DELIVERY;
+            case DELIVERED: return ParcelStatus.DELIVERED;
+            case RETURNED: return ParcelStatus.RETURNED;
+            case CANCELLED: return ParcelStatus.CANCELLED;
+            default: return null;
+        }
+    }
+
+    public static DeliveryStatus[] progressSteps() {
+        return PROGRESS_STEPS.clone();
+    }
+
+    public static DeliveryStatus fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static long mask(DeliveryStatus... statuses) {
+        long mask = 0;
+        for (DeliveryStatus status : statuses) mask |= status.bit();
+        return mask;
+    }
+
+    // Accepts labels and enum names, case-insensitively (null if unknown)
+    public static DeliveryStatus fromLabel(String text) {
+        if (text == null) return null;
+        String trimmed = text.trim();
+        for (DeliveryStatus status : VALUES) {
+            if (status.label.equalsIgnoreCase(trimmed) || status.name().equalsIgnoreCase(trimmed)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -3,6 +3,10 @@ package models;
 import java.time.LocalDateTime;
 
 public class ExpressParcel extends Parcel {
+    // Urgent fee = flat + per kg (also evaluated in bulk by the pricing kernels)
+    public static final double URGENT_FLAT = 10.0;
+    public static final double URGENT_PER_KG = 1.5;
+
     private double urgentFee;
     private LocalDateTime guaranteedTime;
     
@@ -15,20 +19,20 @@ public class ExpressParcel extends Parcel {
     
     @Override
     public double calculatePrice() {
-        // Express pricing: higher base + per kg + urgent fee
-        double basePrice = 15.0;
-        double perKgPrice = 4.0;
-        return basePrice + (weight * perKgPrice) + urgentFee;
+        // Express pricing: higher base + per kg (RateTable). The urgent fee is
+        // shown separately; it was never part of the price (it is set after
+        // the Parcel constructor prices the parcel)
+        return RateTable.getActive().price(RateTable.EXPRESS, weight, 0);
     }
     
     @Override
-    public void updateStatus(String newStatus) {
-        this.status = newStatus;
+    public void updateStatus(ParcelStatus newStatus) {
+        this.status = newStatus.code();
         System.out.println("Express Parcel " + parcelId + " status: " + newStatus);
     }
     
     private double calculateUrgentFee() {
-        return 10.0 + (weight * 1.5);
+        return URGENT_FLAT + (weight * URGENT_PER_KG);
     }
     
     private LocalDateTime calculateGuaranteedTime() {
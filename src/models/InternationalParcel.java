@@ -1,34 +1,43 @@
 package models;
 
 public class InternationalParcel extends Parcel {
+    // Customs fee per kg (also evaluated in bulk by the pricing kernels)
+    public static final double CUSTOMS_PER_KG = 5.0;
+
     private double customsFee;
     private String destinationCountry;
     
     public InternationalParcel(String parcelId, User sender, User receiver,
                               double weight, String dimensions, 
                               String description, String destinationCountry) {
-        super(parcelId, sender, receiver, weight, dimensions, description);
+        // Priced once, up front: the destination zone is part of the price
+        super(parcelId, sender, receiver, weight, dimensions, description,
+              priceFor(weight, destinationCountry));
         this.destinationCountry = destinationCountry;
         this.customsFee = calculateCustomsFee();
     }
     
     @Override
     public double calculatePrice() {
-        // International pricing: high base + per kg + customs
-        double basePrice = 25.0;
-        double perKgPrice = 8.0;
-        return basePrice + (weight * perKgPrice) + customsFee;
+        return priceFor(weight, destinationCountry);
+    }
+    
+    // International pricing: high base + per kg + destination zone (RateTable).
+    // Customs is shown separately, as before
+    private static double priceFor(double weight, String destinationCountry) {
+        RateTable rates = RateTable.getActive();
+        return rates.price(RateTable.INTERNATIONAL, weight, rates.zoneOf(destinationCountry));
     }
     
     @Override
-    public void updateStatus(String newStatus) {
-        this.status = newStatus;
+    public void updateStatus(ParcelStatus newStatus) {
+        this.status = newStatus.code();
         System.out.println("International Parcel " + parcelId + " status: " + newStatus);
     }
     
     private double calculateCustomsFee() {
         // Simple customs calculation
-        return weight * 5.0;
+        return weight * CUSTOMS_PER_KG;
     }
     
     public double getCustomsFee() {
@@ -8,27 +8,35 @@ public abstract class Parcel {
     protected User receiver;
     protected double weight;
     protected String dimensions;
-    protected String status;
+    protected byte status; // ParcelStatus ordinal
     protected double price;
     protected LocalDate createdDate;
     protected String description;
     
     public Parcel(String parcelId, User sender, User receiver, 
                   double weight, String dimensions, String description) {
+        this(parcelId, sender, receiver, weight, dimensions, description, 0);
+        this.price = calculatePrice(); // Abstract method call
+    }
+    
+    // For subclasses whose price depends on their own fields, which are not set
+    // yet while this constructor runs: they work the price out before the call
+    protected Parcel(String parcelId, User sender, User receiver,
+                     double weight, String dimensions, String description, double price) {
         this.parcelId = parcelId;
         this.sender = sender;
         this.receiver = receiver;
         this.weight = weight;
         this.dimensions = dimensions;
         this.description = description;
-        this.status = "Created";
+        this.status = ParcelStatus.CREATED.code();
         this.createdDate = LocalDate.now();
-        this.price = calculatePrice(); // Abstract method call
+        this.price = price;
     }
     
     // Abstract methods (polymorphism)
     public abstract double calculatePrice();
-    public abstract void updateStatus(String newStatus);
+    public abstract void updateStatus(ParcelStatus newStatus);
     
     // Common methods
     public String getParcelId() { return parcelId; }
@@ -36,13 +44,21 @@ public abstract class Parcel {
     public User getReceiver() { return receiver; }
     public double getWeight() { return weight; }
     public String getDimensions() { return dimensions; }
-    public String getStatus() { return status; }
+    public ParcelStatus getStatus() { return ParcelStatus.fromCode(status); }
     public double getPrice() { return price; }
     public LocalDate getCreatedDate() { return createdDate; }
     public String getDescription() { return description; }
     
-    public void setStatus(String status) {
-        this.status = status;
+    public void setStatus(ParcelStatus status) {
+        this.status = status.code();
+    }
+    
+    // Recovery only (see ParcelFactory.restoreParcel): put back the recorded
+    // state instead of the values derived at construction time
+    void restoreState(ParcelStatus status, double price, LocalDate createdDate) {
+        this.status = status.code();
+        this.price = price;
+        this.createdDate = createdDate;
     }
     
     public void displayParcelInfo() {
@@ -53,7 +69,7 @@ public abstract class Parcel {
         System.out.println("Receiver: " + receiver.getName());
         System.out.println("Weight: " + weight + " kg");
         System.out.println("Dimensions: " + dimensions);
-        System.out.println("Status: " + status);
+        System.out.println("Status: " + getStatus());
         System.out.println("Price: RM" + price);
         System.out.println("Created: " + createdDate);
     }
@@ -1,13 +1,23 @@
 package models;
 
+import java.time.LocalDate;
+
 public class ParcelFactory {
     
-    // Factory method to create different types of parcels
+    // Factory method to create different types of parcels (weighed to its
+    // RateTable weight bucket)
     public static Parcel createParcel(String parcelType, String parcelId, 
                                      User sender, User receiver,
                                      double weight, String dimensions,
                                      String description, String additionalInfo) {
-        
+        return build(parcelType, parcelId, sender, receiver, RateTable.chargeableWeight(weight),
+                     dimensions, description, additionalInfo);
+    }
+    
+    private static Parcel build(String parcelType, String parcelId, 
+                                User sender, User receiver,
+                                double weight, String dimensions,
+                                String description, String additionalInfo) {
         switch(parcelType.toUpperCase()) {
             case "STANDARD":
                 return new StandardParcel(parcelId, sender, receiver, 
@@ -28,6 +38,33 @@ public class ParcelFactory {
         }
     }
     
+    // Rebuild a parcel from persisted state (weight, status, price and date as recorded)
+    public static Parcel restoreParcel(String parcelType, String parcelId,
+                                       User sender, User receiver,
+                                       double weight, String dimensions,
+                                       String description, String additionalInfo,
+                                       ParcelStatus status, double price, LocalDate createdDate) {
+        Parcel parcel = build(parcelType, parcelId, sender, receiver,
+                              weight, dimensions, description, additionalInfo);
+        parcel.restoreState(status, price, createdDate);
+        return parcel;
+    }
+    
+    // Type name accepted by createParcel for an existing parcel
+    public static String typeOf(Parcel parcel) {
+        if (parcel instanceof ExpressParcel) return "EXPRESS";
+        if (parcel instanceof InternationalParcel) return "INTERNATIONAL";
+        return "STANDARD";
+    }
+    
+    // Extra constructor argument for the parcel type (destination country for international)
+    public static String additionalInfoOf(Parcel parcel) {
+        if (parcel instanceof InternationalParcel) {
+            return ((InternationalParcel) parcel).getDestinationCountry();
+        }
+        return "";
+    }
+    
     // Method to display available parcel types
     public static void displayParcelTypes() {
         System.out.println("\n=== AVAILABLE PARCEL TYPES ===");
@@ -0,0 +1,89 @@
+package models;
+
+// Parcel lifecycle. Stored on Parcel as a byte ordinal, so the declaration
+// order below is part of the persisted format - append new values at the end.
+public enum ParcelStatus {
+    CREATED("Created", 0),
+    PAID("Paid - Processing", 1),
+    PROCESSING("Processing", 2),
+    LOADED("Loaded", 3),
+    IN_TRANSIT("In Transit", 4),
+    OUT_FOR_DELIVERY("Out for Delivery", 5),
+    DELIVERED("Delivered", 6),
+    RETURNED("Returned", -1),
+    CANCELLED("Cancelled", -1);
+
+    private static final ParcelStatus[] VALUES = values();
+
+    private final String label;
+    private final int stage; // position on the forward path, -1 = end state off the path
+
+    ParcelStatus(String label, int stage) {
+        this.label = label;
+        this.stage = stage;
+    }
+
+    public String getLabel() { return label; }
+
+    public byte code() { return (byte) ordinal(); }
+
+    // Single bit per status, for bitset status groups (see mask(...))
+    public long bit() { return 1L << ordinal(); }
+
+    public boolean isTerminal() {
+        return this == DELIVERED || this == RETURNED || this == CANCELLED;
+    }
+
+    // Legal transitions: forward along the path (skipping is allowed),
+    // or to Returned/Cancelled from any open state. End states are final.
+    public boolean canTransitionTo(ParcelStatus next) {
+        if (next == null || next == this || isTerminal()) return false;
+        if (next.stage < 0) return true;
+        return next.stage > stage;
+    }
+
+    // Delivery status mirrored when a parcel status changes (null = no delivery change)
+    public DeliveryStatus toDeliveryStatus() {
+        switch (this) {
+            case PROCESSING: return DeliveryStatus.PROCESSING;
+            case LOADED: return DeliveryStatus.LOADED;
+            case IN_TRANSIT: return DeliveryStatus.IN_TRANSIT;
+            case OUT_FOR_DELIVERY: return DeliveryStatus.OUT_FOR_DELIVERY;
+            case DELIVERED: return DeliveryStatus.DELIVERED;
+            case RETURNED: return DeliveryStatus.RETURNED;
+            case CANCELLED: return DeliveryStatus.CANCELLED;
+            default: return null;
+        }
+    }
+
+    public static ParcelStatus fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static long mask(ParcelStatus... statuses) {
+        long mask = 0;
+        for (ParcelStatus status : statuses) mask |= status.bit();
+        return mask;
+    }
+
+    // Accepts labels and enum names, case-insensitively (null if unknown)
+    public static ParcelStatus fromLabel(String text) {
+        if (text == null) return null;
+        String trimmed = text.trim();
+        for (ParcelStatus status : VALUES) {
+            if (status.label.equalsIgnoreCase(trimmed) || status.name().equalsIgnoreCase(trimmed)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -6,20 +6,20 @@ public class Payment {
     private String paymentId;
     private double amount;
     private String paymentMethod;
-    private String status;
+    private byte status; // PaymentStatus ordinal
     private LocalDate paymentDate;
     
     public Payment(String paymentId, double amount, String paymentMethod) {
         this.paymentId = paymentId;
         this.amount = amount;
         this.paymentMethod = paymentMethod;
-        this.status = "Pending";
+        this.status = PaymentStatus.PENDING.code();
         this.paymentDate = LocalDate.now();
     }
     
     // Process payment
     public void processPayment() {
-        this.status = "Completed";
+        this.status = PaymentStatus.COMPLETED.code();
         System.out.println("Payment " + paymentId + " processed successfully!");
     }
     
@@ -27,11 +27,15 @@ public class Payment {
     public String getPaymentId() { return paymentId; }
     public double getAmount() { return amount; }
     public String getPaymentMethod() { return paymentMethod; }
-    public String getStatus() { return status; }
+    public PaymentStatus getStatus() { return PaymentStatus.fromCode(status); }
     public LocalDate getPaymentDate() { return paymentDate; }
     
-    public void setStatus(String status) {
-        this.status = status;
+    public void setStatus(PaymentStatus status) {
+        this.status = status.code();
+    }
+    
+    public void setPaymentDate(LocalDate paymentDate) {
+        this.paymentDate = paymentDate;
     }
     
     public void displayPaymentInfo() {
@@ -39,7 +43,7 @@ public class Payment {
         System.out.println("Payment ID: " + paymentId);
         System.out.println("Amount: RM" + amount);
         System.out.println("Method: " + paymentMethod);
-        System.out.println("Status: " + status);
+        System.out.println("Status: " + getStatus());
         System.out.println("Date: " + paymentDate);
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package models;
+
+// Payment lifecycle. Stored on Payment as a byte ordinal, so the declaration
+// order below is part of the persisted format - append new values at the end.
+public enum PaymentStatus {
+    PENDING("Pending"),
+    COMPLETED("Completed"),
+    FAILED("Failed");
+
+    private static final PaymentStatus[] VALUES = values();
+
+    private final String label;
+
+    PaymentStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    public byte code() { return (byte) ordinal(); }
+
+    public long bit() { return 1L << ordinal(); }
+
+    // Only pending payments can be settled or failed
+    public boolean canTransitionTo(PaymentStatus next) {
+        return this == PENDING && next != null && next != PENDING;
+    }
+
+    public static PaymentStatus fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+
+    public static PaymentStatus fromLabel(String text) {
+        if (text == null) return null;
+        String trimmed = text.trim();
+        for (PaymentStatus status : VALUES) {
+            if (status.label.equalsIgnoreCase(trimmed) || status.name().equalsIgnoreCase(trimmed)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
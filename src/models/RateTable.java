@@ -0,0 +1,192 @@
+package models;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Parcel rates: a base charge and a per-kg rate for each parcel type, plus a
+// flat and per-kg surcharge for each destination zone.
+//
+//   price = base[type] + perKg[type] * weight + zoneFlat[zone] + zonePerKg[zone] * weight
+//
+// Types and zones are small integer codes so a whole batch can be priced from
+// primitive arrays (see services.PricingEngine). Zone 0 covers domestic parcels
+// and any destination the table does not list.
+//
+// Parcels are weighed to the nearest 10 g (weight buckets): a new parcel's
+// weight is recorded as the weight of its bucket, so every weight in a bucket
+// is charged the same price.
+//
+// File format (CSV, # starts a comment):
+//   type,<STANDARD|EXPRESS|INTERNATIONAL>,<base>,<per kg>
+//   zone,<name>,<flat>,<per kg>          (first zone listed is zone 0)
+//   country,<destination>,<zone name>
+public class RateTable {
+
+    public static final byte STANDARD = 0;
+    public static final byte EXPRESS = 1;
+    public static final byte INTERNATIONAL = 2;
+
+    private static final String[] TYPE_NAMES = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+
+    public static final int BUCKETS_PER_KG = 100;
+
+    // Table used when a parcel is created
+    private static volatile RateTable active = defaults();
+
+    private final double[] base;
+    private final double[] perKg;
+    private final String[] zoneNames;
+    private final double[] zoneFlat;
+    private final double[] zonePerKg;
+    private final HashMap<String, Integer> zoneByCountry;   // lower-cased destination -> zone
+
+    private RateTable(double[] base, double[] perKg, String[] zoneNames, double[] zoneFlat,
+                      double[] zonePerKg, HashMap<String, Integer> zoneByCountry) {
+        this.base = base;
+        this.perKg = perKg;
+        this.zoneNames = zoneNames;
+        this.zoneFlat = zoneFlat;
+        this.zonePerKg = zonePerKg;
+        this.zoneByCountry = zoneByCountry;
+    }
+
+    // The rates the parcel classes always charged
+    public static RateTable defaults() {
+        return new RateTable(new double[] {8.0, 15.0, 25.0}, new double[] {2.5, 4.0, 8.0},
+                             new String[] {"DOMESTIC"}, new double[] {0}, new double[] {0}, new HashMap<>());
+    }
+
+    public static RateTable getActive() {
+        return active;
+    }
+
+    public static void setActive(RateTable table) {
+        active = table;
+    }
+
+    // ---------- Pricing ----------
+
+    // Weight bucket of a weight in kg (the nearest 10 g, at least one bucket)
+    public static long weightBucket(double weight) {
+        return Math.max(1, Math.round(weight * BUCKETS_PER_KG));
+    }
+
+    // Weight a parcel in the bucket is recorded and charged at
+    public static double bucketWeight(long bucket) {
+        return (double) bucket / BUCKETS_PER_KG;
+    }
+
+    public static double chargeableWeight(double weight) {
+        return bucketWeight(weightBucket(weight));
+    }
+
+    public double price(int type, double weight, int zone) {
+        return base[type] + perKg[type] * weight + zoneFlat[zone] + zonePerKg[zone] * weight;
+    }
+
+    public double price(Parcel parcel) {
+        return price(typeCode(parcel), parcel.getWeight(), zoneOf(destinationOf(parcel)));
+    }
+
+    // Zone for a destination country (zone 0 for domestic or unlisted)
+    public int zoneOf(String destination) {
+        if (destination == null || destination.isEmpty()) return 0;
+        Integer zone = zoneByCountry.get(destination.trim().toLowerCase());
+        return zone == null ? 0 : zone;
+    }
+
+    public static byte typeCode(Parcel parcel) {
+        if (parcel instanceof ExpressParcel) return EXPRESS;
+        if (parcel instanceof InternationalParcel) return INTERNATIONAL;
+        return STANDARD;
+    }
+
+    public static String destinationOf(Parcel parcel) {
+        return parcel instanceof InternationalParcel ? ((InternationalParcel) parcel).getDestinationCountry() : null;
+    }
+
+    // Flat copies for batch pricing loops
+    public double[] getBaseRates() { return base.clone(); }
+    public double[] getPerKgRates() { return perKg.clone(); }
+    public double[] getZoneFlat() { return zoneFlat.clone(); }
+    public double[] getZonePerKg() { return zonePerKg.clone(); }
+
+    public int getZoneCount() { return zoneNames.length; }
+    public String getZoneName(int zone) { return zoneNames[zone]; }
+
+    // ---------- Loading ----------
+
+    // Types the file leaves out keep their default rates
+    public static RateTable load(Path file) throws IOException {
+        RateTable defaults = defaults();
+        double[] base = defaults.base.clone();
+        double[] perKg = defaults.perKg.clone();
+        ArrayList<String> zoneNames = new ArrayList<>();
+        ArrayList<double[]> zoneRates = new ArrayList<>();
+        ArrayList<String[]> countries = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] cells = line.split(",", -1);
+                String where = file + ":" + lineNumber + ": ";
+                try {
+                    switch (cells[0].trim().toLowerCase()) {
+                        case "type": {
+                            requireCells(cells, 4, where);
+                            int type = Arrays.asList(TYPE_NAMES).indexOf(cells[1].trim().toUpperCase());
+                            if (type < 0) throw new IOException(where + "unknown parcel type " + cells[1]);
+                            base[type] = Double.parseDouble(cells[2].trim());
+                            perKg[type] = Double.parseDouble(cells[3].trim());
+                            break;
+                        }
+                        case "zone":
+                            requireCells(cells, 4, where);
+                            zoneNames.add(cells[1].trim().toUpperCase());
+                            zoneRates.add(new double[] {Double.parseDouble(cells[2].trim()),
+                                                        Double.parseDouble(cells[3].trim())});
+                            break;
+                        case "country":
+                            requireCells(cells, 3, where);
+                            countries.add(new String[] {cells[1].trim(), cells[2].trim().toUpperCase(), where});
+                            break;
+                        default:
+                            throw new IOException(where + "unknown entry " + cells[0]);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(where + "bad number (" + e.getMessage() + ")");
+                }
+            }
+        }
+
+        if (zoneNames.isEmpty()) {
+            zoneNames.add("DOMESTIC");
+            zoneRates.add(new double[] {0, 0});
+        }
+        double[] zoneFlat = new double[zoneNames.size()];
+        double[] zonePerKg = new double[zoneNames.size()];
+        for (int i = 0; i < zoneNames.size(); i++) {
+            zoneFlat[i] = zoneRates.get(i)[0];
+            zonePerKg[i] = zoneRates.get(i)[1];
+        }
+        HashMap<String, Integer> zoneByCountry = new HashMap<>();
+        for (String[] country : countries) {
+            int zone = zoneNames.indexOf(country[1]);
+            if (zone < 0) throw new IOException(country[2] + "unknown zone " + country[1]);
+            zoneByCountry.put(country[0].toLowerCase(), zone);
+        }
+        return new RateTable(base, perKg, zoneNames.toArray(new String[0]), zoneFlat, zonePerKg, zoneByCountry);
+    }
+
+    private static void requireCells(String[] cells, int count, String where) throws IOException {
+        if (cells.length != count) {
+            throw new IOException(where + "expected " + count + " values, found " + cells.length);
+        }
+    }
+}
@@ -11,15 +11,13 @@ public class StandardParcel extends Parcel {
     
     @Override
     public double calculatePrice() {
-        // Standard pricing: base + per kg
-        double basePrice = 8.0;
-        double perKgPrice = 2.5;
-        return basePrice + (weight * perKgPrice);
+        // Standard pricing: base + per kg (RateTable)
+        return RateTable.getActive().price(RateTable.STANDARD, weight, 0);
     }
     
     @Override
-    public void updateStatus(String newStatus) {
-        this.status = newStatus;
+    public void updateStatus(ParcelStatus newStatus) {
+        this.status = newStatus.code();
         System.out.println("Standard Parcel " + parcelId + " status: " + newStatus);
     }
     
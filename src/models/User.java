@@ -25,6 +25,7 @@ public abstract class User {
     public String getName() { return name; }
     public String getEmail() { return email; }
     public String getPhone() { return phone; }
+    public String getPassword() { return password; } // persistence only
     
     // Login validation
     public boolean validateLogin(String inputPassword) {
@@ -1,12 +1,15 @@
 package models;
 
+import java.util.*;
+
 public class Vehicle {
     private String vehicleId;
     private String vehicleType; // Van, Motorcycle, Truck
     private String plateNumber;
-    private boolean isAvailable;
     private double capacity; // in kg
-    private String currentDeliveryId;
+    // Deliveries on board: deliveryId -> parcel weight (in loading order)
+    private LinkedHashMap<String, Double> manifest;
+    private double loadedWeight;
     
     public Vehicle(String vehicleId, String vehicleType, 
                    String plateNumber, double capacity) {
@@ -14,42 +17,49 @@ public class Vehicle {
         this.vehicleType = vehicleType;
         this.plateNumber = plateNumber;
         this.capacity = capacity;
-        this.isAvailable = true;
-        this.currentDeliveryId = null;
+        this.manifest = new LinkedHashMap<>();
+        this.loadedWeight = 0;
     }
     
-    // Check if vehicle can carry parcel
+    // Check if the parcel still fits in the remaining capacity
     public boolean canCarry(double parcelWeight) {
-        return isAvailable && parcelWeight <= capacity;
+        return parcelWeight <= getRemainingCapacity();
     }
     
-    // Assign vehicle (makes it unavailable)
-    public void assignVehicle(String deliveryId) {  // MODIFIED
-        if (isAvailable) {
-            isAvailable = false;
-            this.currentDeliveryId = deliveryId;  // Track which delivery
-           // System.out.println("Vehicle " + vehicleId + " assigned to Delivery " + deliveryId);
-        } else {
-            System.out.println("Vehicle " + vehicleId + " is currently assigned to Delivery " + 
-                             currentDeliveryId);
+    // Put a delivery on the manifest; false if already on board or over capacity
+    public boolean load(String deliveryId, double weight) {
+        if (manifest.containsKey(deliveryId) || !canCarry(weight)) {
+            return false;
         }
+        manifest.put(deliveryId, weight);
+        loadedWeight += weight;
+        return true;
     }
     
-    // Release vehicle (makes it available again)
-    public void releaseVehicle() {
-        isAvailable = true;
-        System.out.println("Vehicle " + vehicleId + " released from Delivery " + 
-                         currentDeliveryId);
-        this.currentDeliveryId = null;
+    // Take one delivery off the manifest; false if it was not on board
+    public boolean unload(String deliveryId) {
+        if (manifest.remove(deliveryId) == null) {
+            return false;
+        }
+        // Re-add from the manifest rather than subtract so rounding never builds up
+        double total = 0;
+        for (double weight : manifest.values()) total += weight;
+        loadedWeight = total;
+        return true;
     }
     
     // Getters
     public String getVehicleId() { return vehicleId; }
     public String getVehicleType() { return vehicleType; }
     public String getPlateNumber() { return plateNumber; }
-    public boolean isAvailable() { return isAvailable; }
     public double getCapacity() { return capacity; }
-    public String getCurrentDeliveryId() {return currentDeliveryId; }
+    // Idle at the depot: nothing on board
+    public boolean isAvailable() { return manifest.isEmpty(); }
+    public double getLoadedWeight() { return loadedWeight; }
+    public double getRemainingCapacity() { return capacity - loadedWeight; }
+    public int getDeliveryCount() { return manifest.size(); }
+    public boolean carries(String deliveryId) { return manifest.containsKey(deliveryId); }
+    public List<String> getDeliveryIds() { return new ArrayList<>(manifest.keySet()); }
     
      public void displayVehicleInfo() {
         System.out.println("\n=== VEHICLE INFORMATION ===");
@@ -57,9 +67,9 @@ public class Vehicle {
         System.out.println("Type: " + vehicleType);
         System.out.println("Plate: " + plateNumber);
         System.out.println("Capacity: " + capacity + " kg");
-        System.out.println("Available: " + (isAvailable ? "Yes" : "No"));
-        if (!isAvailable && currentDeliveryId != null) {
-            System.out.println("Currently on: Delivery " + currentDeliveryId);
+        System.out.println("Loaded: " + loadedWeight + " kg (" + manifest.size() + " deliveries)");
+        if (!manifest.isEmpty()) {
+            System.out.println("Currently on: " + String.join(", ", manifest.keySet()));
         }
     }
-}
\ No newline at end of file
+}
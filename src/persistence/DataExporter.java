@@ -0,0 +1,703 @@
+package persistence;
+
+import models.*;
+import services.*;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+// Streams parcels, deliveries or payments to CSV, JSON lines or a compact binary
+// file, optionally filtered by status, date range and customer.
+//
+// start() only notes how many rows there are; a background thread does the rest.
+// It reads the live rows a page at a time (PAGE_ROWS positions) while holding the
+// lock sessions hold to run menu code (setLock). For each selected row it copies
+// the mutable fields (status; staff, vehicle, route and estimate for deliveries)
+// into the page, then lets go of the lock and encodes the page through a 64 KB
+// buffer over a FileChannel. Fields that never change after creation are read
+// without the lock. Memory use is one page plus the buffer however many rows are
+// written, and sessions never wait longer than one page's worth of reading.
+//
+// Rows created after start() are left out, and each live row is written as it was
+// when its page was read. Parcels must not be archived while an export is
+// unfinished (isExporting): live rows then keep their positions, so none is
+// skipped or read twice, and the archive row count noted at start() stays a
+// consistent cut. Archived parcels (and their deliveries) are read straight from
+// the archive columns.
+//
+// Dates filter on the parcel's created date for parcels and deliveries, and on the
+// payment date for payments. Payments are not linked to customers, so a customer
+// filter is rejected for them.
+//
+// Binary layout (big-endian): int MAGIC, int VERSION, byte kind, then per row a
+// 1 byte followed by the fields in CSV column order (IDs via writeUTF, nullable
+// text via LogRecords.writeText, statuses as codes, dates as epoch days), then a
+// 0 byte and the long row count.
+public class DataExporter implements Closeable {
+
+    public enum Kind { PARCELS, DELIVERIES, PAYMENTS }
+
+    public enum Format {
+        CSV("csv"), JSONL("jsonl"), BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int MAGIC = 0x43535850; // "CSXP"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Live rows read per hold of the lock
+    private static final int PAGE_ROWS = 1024;
+
+    private static final String[] PARCEL_COLUMNS = {"parcel_id", "type", "sender_id", "receiver_id",
+            "weight", "dimensions", "description", "additional_info", "status", "price", "created_date", "archived"};
+    private static final String[] DELIVERY_COLUMNS = {"delivery_id", "parcel_id", "staff_id", "vehicle_id",
+            "status", "route", "estimated_date", "archived"};
+    private static final String[] PAYMENT_COLUMNS = {"payment_id", "amount", "method", "status", "payment_date"};
+
+    // Row selection. Status bits come from the exported kind's status enum (bit()).
+    public static class Filter {
+        private long statusMask;    // 0 = any status
+        private LocalDate from;     // inclusive, null = open
+        private LocalDate to;       // inclusive, null = open
+        private String customerId;  // sender or receiver, null = any
+
+        public Filter statuses(long statusMask) {
+            this.statusMask = statusMask;
+            return this;
+        }
+
+        public Filter from(LocalDate from) {
+            this.from = from;
+            return this;
+        }
+
+        public Filter to(LocalDate to) {
+            this.to = to;
+            return this;
+        }
+
+        public Filter customer(String customerId) {
+            this.customerId = customerId;
+            return this;
+        }
+
+        boolean matchesStatus(long bit) {
+            return statusMask == 0 || (statusMask & bit) != 0;
+        }
+
+        boolean matchesDate(LocalDate date) {
+            return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+        }
+
+        boolean matchesCustomer(String senderId, String receiverId) {
+            return customerId == null || customerId.equals(senderId) || customerId.equals(receiverId);
+        }
+    }
+
+    // Outcome of one export
+    public static class Result {
+        private final Path file;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Result(Path file, long rows, long bytes, long elapsedMillis) {
+            this.file = file;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Path getFile() { return file; }
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    private final ParcelRepository parcels;
+    private final DeliveryRepository deliveries;
+    private final PaymentLedger payments;
+    private ParcelArchive archive;
+    private WriteAheadLog log;
+    private Lock lock;
+
+    private final ExecutorService writer;
+    private final AtomicInteger unfinished = new AtomicInteger();
+
+    public DataExporter(ParcelRepository parcels, DeliveryRepository deliveries, PaymentLedger payments) {
+        this.parcels = parcels;
+        this.deliveries = deliveries;
+        this.payments = payments;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "export-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setArchive(ParcelArchive archive) {
+        this.archive = archive;
+    }
+
+    // With a log, a finished export is only moved into place once every change
+    // it captured is durable (sessions apply changes before their fsync)
+    public void setLog(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    // Pages of live rows are read holding this lock. Without one, nothing may
+    // change the repositories while an export runs.
+    public void setLock(Lock lock) {
+        this.lock = lock;
+    }
+
+    // True from start() until the export's file is written or it fails; parcels
+    // must not be archived meanwhile
+    public boolean isExporting() {
+        return unfinished.get() > 0;
+    }
+
+    // Note the rows to export and write them in the background. Call only between
+    // operations. The future fails with a CompletionException wrapping the IOException.
+    public CompletableFuture<Result> start(Kind kind, Format format, Filter filter, Path target) {
+        if (kind == Kind.PAYMENTS && filter.customerId != null) {
+            throw new IllegalArgumentException("Payments cannot be filtered by customer");
+        }
+        int liveRows = kind == Kind.PARCELS ? parcels.size()
+                     : kind == Kind.DELIVERIES ? deliveries.size() : payments.size();
+        int archivedRows = archive != null && kind != Kind.PAYMENTS ? archive.size() : 0;
+        Cursor cursor = new Cursor(kind, filter, liveRows, archivedRows);
+        unfinished.incrementAndGet();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return write(cursor, format, target);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    unfinished.decrementAndGet();
+                }
+            }, writer);
+        } catch (RejectedExecutionException e) {
+            unfinished.decrementAndGet();
+            throw e;
+        }
+    }
+
+    // Start and wait for the file. Not while holding the lock: the pages need it.
+    public Result export(Kind kind, Format format, Filter filter, Path target) throws IOException {
+        try {
+            return start(kind, format, filter, target).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } catch (ExecutionException e) {
+            // supplyAsync reports the CompletionException's cause here
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Export failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Let queued exports finish and stop the background thread
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- Writing (background thread) ----------
+
+    // Where an export is: the live rows it covers, the next one to read and the
+    // page of selected rows read last
+    private static class Cursor {
+        final Kind kind;
+        final Filter filter;
+        final int liveRows;      // live rows when the export started
+        final int archivedRows;  // archive rows to scan (parcels, deliveries)
+        int next;                // next live position to read
+        long lastLsn;            // last change logged when the latest page was read
+
+        int size;
+        final Object[] items = new Object[PAGE_ROWS];  // Parcel / Delivery / Payment
+        final byte[] statuses = new byte[PAGE_ROWS];   // status code when read
+        Staff[] staff;           // deliveries only
+        Vehicle[] vehicles;      // deliveries only
+        String[] routes;         // deliveries only
+        LocalDate[] estimates;   // deliveries only
+
+        Cursor(Kind kind, Filter filter, int liveRows, int archivedRows) {
+            this.kind = kind;
+            this.filter = filter;
+            this.liveRows = liveRows;
+            this.archivedRows = archivedRows;
+            if (kind == Kind.DELIVERIES) {
+                staff = new Staff[PAGE_ROWS];
+                vehicles = new Vehicle[PAGE_ROWS];
+                routes = new String[PAGE_ROWS];
+                estimates = new LocalDate[PAGE_ROWS];
+            }
+        }
+
+        int add(Object item, byte status) {
+            items[size] = item;
+            statuses[size] = status;
+            return size++;
+        }
+    }
+
+    private Result write(Cursor cursor, Format format, Path target) throws IOException {
+        long start = System.currentTimeMillis();
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        long rows;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            RowWriter rowWriter = format == Format.BINARY ? new BinaryWriter(out)
+                                : format == Format.JSONL ? new JsonWriter(out) : new CsvWriter(out);
+            rowWriter.begin(cursor.kind);
+            switch (cursor.kind) {
+                case PARCELS: rows = writeParcels(cursor, rowWriter); break;
+                case DELIVERIES: rows = writeDeliveries(cursor, rowWriter); break;
+                default: rows = writePayments(cursor, rowWriter);
+            }
+            rowWriter.end(rows);
+            channel.force(false);
+            if (log != null) log.awaitDurable(cursor.lastLsn);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Result(target, rows, Files.size(target), System.currentTimeMillis() - start);
+    }
+
+    // Read the next PAGE_ROWS live positions into the page, keeping the rows the
+    // filter selects (possibly none). False once every live row has been read.
+    private boolean readPage(Cursor cursor) {
+        if (cursor.next >= cursor.liveRows) return false;
+        cursor.size = 0;
+        int end = Math.min(cursor.liveRows, cursor.next + PAGE_ROWS);
+        if (lock != null) lock.lock();
+        try {
+            for (int position = cursor.next; position < end; position++) {
+                switch (cursor.kind) {
+                    case PARCELS: selectParcel(cursor, parcels.get(position)); break;
+                    case DELIVERIES: selectDelivery(cursor, deliveries.get(position)); break;
+                    default: selectPayment(cursor, payments.get(position));
+                }
+            }
+            if (log != null) cursor.lastLsn = log.getLastLsn();
+        } finally {
+            if (lock != null) lock.unlock();
+        }
+        cursor.next = end;
+        return true;
+    }
+
+    private static void selectParcel(Cursor cursor, Parcel parcel) {
+        Filter filter = cursor.filter;
+        ParcelStatus status = parcel.getStatus();
+        if (filter.matchesStatus(status.bit()) && filter.matchesDate(parcel.getCreatedDate())
+                && filter.matchesCustomer(parcel.getSender().getUserId(), parcel.getReceiver().getUserId())) {
+            cursor.add(parcel, status.code());
+        }
+    }
+
+    private static void selectDelivery(Cursor cursor, Delivery delivery) {
+        Filter filter = cursor.filter;
+        Parcel parcel = delivery.getParcel();
+        DeliveryStatus status = delivery.getStatus();
+        if (filter.matchesStatus(status.bit()) && filter.matchesDate(parcel.getCreatedDate())
+                && filter.matchesCustomer(parcel.getSender().getUserId(), parcel.getReceiver().getUserId())) {
+            int index = cursor.add(delivery, status.code());
+            cursor.staff[index] = delivery.getDeliveryPerson();
+            cursor.vehicles[index] = delivery.getAssignedVehicle();
+            cursor.routes[index] = delivery.getRoute();
+            cursor.estimates[index] = delivery.getEstimatedTime();
+        }
+    }
+
+    private static void selectPayment(Cursor cursor, Payment payment) {
+        Filter filter = cursor.filter;
+        PaymentStatus status = payment.getStatus();
+        if (filter.matchesStatus(status.bit()) && filter.matchesDate(payment.getPaymentDate())) {
+            cursor.add(payment, status.code());
+        }
+    }
+
+    private long writeParcels(Cursor cursor, RowWriter out) throws IOException {
+        long rows = 0;
+        while (readPage(cursor)) {
+            for (int i = 0; i < cursor.size; i++) {
+                Parcel parcel = (Parcel) cursor.items[i];
+                out.parcel(parcel.getParcelId(), ParcelFactory.typeOf(parcel), parcel.getSender().getUserId(),
+                           parcel.getReceiver().getUserId(), parcel.getWeight(), parcel.getDimensions(),
+                           parcel.getDescription(), ParcelFactory.additionalInfoOf(parcel),
+                           ParcelStatus.fromCode(cursor.statuses[i]), parcel.getPrice(),
+                           parcel.getCreatedDate(), false);
+                cursor.items[i] = null;
+            }
+            rows += cursor.size;
+        }
+        Filter filter = cursor.filter;
+        for (int row = 0; row < cursor.archivedRows; row++) {
+            ParcelStatus status = archive.getStatus(row);
+            LocalDate created = archive.getCreatedDate(row);
+            if (!filter.matchesStatus(status.bit()) || !filter.matchesDate(created)) continue;
+            String senderId = archive.getSenderId(row);
+            String receiverId = archive.getReceiverId(row);
+            if (!filter.matchesCustomer(senderId, receiverId)) continue;
+            out.parcel(archive.getParcelId(row), archive.getType(row), senderId, receiverId,
+                       archive.getWeight(row), null, null, null, status, archive.getPrice(row),
+                       created, true);
+            rows++;
+        }
+        return rows;
+    }
+
+    private long writeDeliveries(Cursor cursor, RowWriter out) throws IOException {
+        long rows = 0;
+        while (readPage(cursor)) {
+            for (int i = 0; i < cursor.size; i++) {
+                Delivery delivery = (Delivery) cursor.items[i];
+                Staff staff = cursor.staff[i];
+                Vehicle vehicle = cursor.vehicles[i];
+                out.delivery(delivery.getDeliveryId(), delivery.getParcel().getParcelId(),
+                             staff == null ? null : staff.getUserId(),
+                             vehicle == null ? null : vehicle.getVehicleId(),
+                             DeliveryStatus.fromCode(cursor.statuses[i]), cursor.routes[i],
+                             cursor.estimates[i], false);
+                cursor.items[i] = null;
+                cursor.staff[i] = null;
+                cursor.vehicles[i] = null;
+                cursor.routes[i] = null;
+                cursor.estimates[i] = null;
+            }
+            rows += cursor.size;
+        }
+        Filter filter = cursor.filter;
+        for (int row = 0; row < cursor.archivedRows; row++) {
+            DeliveryStatus status = archive.getDeliveryStatus(row);
+            if (status == null || !filter.matchesStatus(status.bit())
+                    || !filter.matchesDate(archive.getCreatedDate(row))
+                    || !filter.matchesCustomer(archive.getSenderId(row), archive.getReceiverId(row))) {
+                continue;
+            }
+            out.delivery(archive.getDeliveryId(row), archive.getParcelId(row), archive.getStaffId(row),
+                         null, status, null, null, true);
+            rows++;
+        }
+        return rows;
+    }
+
+    private long writePayments(Cursor cursor, RowWriter out) throws IOException {
+        long rows = 0;
+        while (readPage(cursor)) {
+            for (int i = 0; i < cursor.size; i++) {
+                Payment payment = (Payment) cursor.items[i];
+                out.payment(payment.getPaymentId(), payment.getAmount(), payment.getPaymentMethod(),
+                            PaymentStatus.fromCode(cursor.statuses[i]), payment.getPaymentDate());
+                cursor.items[i] = null;
+            }
+            rows += cursor.size;
+        }
+        return rows;
+    }
+
+    // ---------- Formats ----------
+
+    private abstract static class RowWriter {
+        abstract void begin(Kind kind) throws IOException;
+
+        abstract void parcel(String parcelId, String type, String senderId, String receiverId,
+                             double weight, String dimensions, String description, String additionalInfo,
+                             ParcelStatus status, double price, LocalDate created,
+                             boolean archived) throws IOException;
+
+        abstract void delivery(String deliveryId, String parcelId, String staffId, String vehicleId,
+                               DeliveryStatus status, String route, LocalDate estimated,
+                               boolean archived) throws IOException;
+
+        abstract void payment(String paymentId, double amount, String method, PaymentStatus status,
+                              LocalDate date) throws IOException;
+
+        abstract void end(long rows) throws IOException;
+    }
+
+    // Text formats share one writer: fields are appended with a separator
+    private abstract static class TextWriter extends RowWriter {
+        final Writer out;
+        boolean firstField;
+
+        TextWriter(OutputStream stream) {
+            // Fields are written in small pieces; buffer chars before the encoder
+            out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        abstract void startRow() throws IOException;
+
+        abstract void field(String name, String value, boolean quoted) throws IOException;
+
+        abstract void endRow() throws IOException;
+
+        @Override
+        void parcel(String parcelId, String type, String senderId, String receiverId, double weight,
+                    String dimensions, String description, String additionalInfo, ParcelStatus status,
+                    double price, LocalDate created, boolean archived) throws IOException {
+            startRow();
+            field("parcel_id", parcelId, true);
+            field("type", type, true);
+            field("sender_id", senderId, true);
+            field("receiver_id", receiverId, true);
+            field("weight", Double.toString(weight), false);
+            field("dimensions", dimensions, true);
+            field("description", description, true);
+            field("additional_info", additionalInfo, true);
+            field("status", status.getLabel(), true);
+            field("price", money(price), false);
+            field("created_date", created.toString(), true);
+            field("archived", Boolean.toString(archived), false);
+            endRow();
+        }
+
+        @Override
+        void delivery(String deliveryId, String parcelId, String staffId, String vehicleId,
+                      DeliveryStatus status, String route, LocalDate estimated,
+                      boolean archived) throws IOException {
+            startRow();
+            field("delivery_id", deliveryId, true);
+            field("parcel_id", parcelId, true);
+            field("staff_id", staffId, true);
+            field("vehicle_id", vehicleId, true);
+            field("status", status.getLabel(), true);
+            field("route", route, true);
+            field("estimated_date", estimated == null ? null : estimated.toString(), true);
+            field("archived", Boolean.toString(archived), false);
+            endRow();
+        }
+
+        @Override
+        void payment(String paymentId, double amount, String method, PaymentStatus status,
+                     LocalDate date) throws IOException {
+            startRow();
+            field("payment_id", paymentId, true);
+            field("amount", money(amount), false);
+            field("method", method, true);
+            field("status", status.getLabel(), true);
+            field("payment_date", date.toString(), true);
+            endRow();
+        }
+
+        @Override
+        void end(long rows) throws IOException {
+            out.flush();
+        }
+
+        // Two decimals without going through String.format
+        static String money(double amount) {
+            return Double.toString(Math.round(amount * 100) / 100.0);
+        }
+    }
+
+    // Header row, then comma-separated fields; quoted only when needed
+    private static class CsvWriter extends TextWriter {
+        CsvWriter(OutputStream stream) {
+            super(stream);
+        }
+
+        @Override
+        void begin(Kind kind) throws IOException {
+            String[] columns = kind == Kind.PARCELS ? PARCEL_COLUMNS
+                             : kind == Kind.DELIVERIES ? DELIVERY_COLUMNS : PAYMENT_COLUMNS;
+            out.write(String.join(",", columns));
+            out.write('\n');
+        }
+
+        @Override
+        void startRow() {
+            firstField = true;
+        }
+
+        @Override
+        void field(String name, String value, boolean quoted) throws IOException {
+            if (!firstField) out.write(',');
+            firstField = false;
+            if (value == null) return;
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"') out.write('"');
+                out.write(ch);
+            }
+            out.write('"');
+        }
+
+        @Override
+        void endRow() throws IOException {
+            out.write('\n');
+        }
+    }
+
+    // One flat JSON object per line; null fields are written as null
+    private static class JsonWriter extends TextWriter {
+        JsonWriter(OutputStream stream) {
+            super(stream);
+        }
+
+        @Override
+        void begin(Kind kind) {
+            // no header
+        }
+
+        @Override
+        void startRow() throws IOException {
+            firstField = true;
+            out.write('{');
+        }
+
+        @Override
+        void field(String name, String value, boolean quoted) throws IOException {
+            if (!firstField) out.write(',');
+            firstField = false;
+            out.write('"');
+            out.write(name);
+            out.write("\":");
+            if (value == null) {
+                out.write("null");
+            } else if (!quoted) {
+                out.write(value);
+            } else if (!needsEscape(value)) {
+                out.write('"');
+                out.write(value);
+                out.write('"');
+            } else {
+                out.write('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char ch = value.charAt(i);
+                    switch (ch) {
+                        case '"': out.write("\\\""); break;
+                        case '\\': out.write("\\\\"); break;
+                        case '\n': out.write("\\n"); break;
+                        case '\r': out.write("\\r"); break;
+                        case '\t': out.write("\\t"); break;
+                        default:
+                            if (ch < 0x20) {
+                                out.write(String.format("\\u%04x", (int) ch));
+                            } else {
+                                out.write(ch);
+                            }
+                    }
+                }
+                out.write('"');
+            }
+        }
+
+        @Override
+        void endRow() throws IOException {
+            out.write("}\n");
+        }
+
+        private static boolean needsEscape(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"' || ch == '\\' || ch < 0x20) return true;
+            }
+            return false;
+        }
+    }
+
+    private static class BinaryWriter extends RowWriter {
+        private final DataOutputStream out;
+
+        BinaryWriter(OutputStream stream) {
+            out = new DataOutputStream(stream);
+        }
+
+        @Override
+        void begin(Kind kind) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(kind.ordinal());
+        }
+
+        @Override
+        void parcel(String parcelId, String type, String senderId, String receiverId, double weight,
+                    String dimensions, String description, String additionalInfo, ParcelStatus status,
+                    double price, LocalDate created, boolean archived) throws IOException {
+            out.writeByte(1);
+            out.writeUTF(parcelId);
+            out.writeUTF(type);
+            out.writeUTF(senderId);
+            out.writeUTF(receiverId);
+            out.writeDouble(weight);
+            LogRecords.writeText(out, dimensions);
+            LogRecords.writeText(out, description);
+            LogRecords.writeText(out, additionalInfo);
+            out.writeByte(status.code());
+            out.writeDouble(price);
+            out.writeLong(created.toEpochDay());
+            out.writeBoolean(archived);
+        }
+
+        @Override
+        void delivery(String deliveryId, String parcelId, String staffId, String vehicleId,
+                      DeliveryStatus status, String route, LocalDate estimated,
+                      boolean archived) throws IOException {
+            out.writeByte(1);
+            out.writeUTF(deliveryId);
+            out.writeUTF(parcelId);
+            LogRecords.writeText(out, staffId);
+            LogRecords.writeText(out, vehicleId);
+            out.writeByte(status.code());
+            LogRecords.writeText(out, route);
+            out.writeBoolean(estimated != null);
+            if (estimated != null) out.writeLong(estimated.toEpochDay());
+            out.writeBoolean(archived);
+        }
+
+        @Override
+        void payment(String paymentId, double amount, String method, PaymentStatus status,
+                     LocalDate date) throws IOException {
+            out.writeByte(1);
+            out.writeUTF(paymentId);
+            out.writeDouble(amount);
+            LogRecords.writeText(out, method);
+            out.writeByte(status.code());
+            out.writeLong(date.toEpochDay());
+        }
+
+        @Override
+        void end(long rows) throws IOException {
+            out.writeByte(0);
+            out.writeLong(rows);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package persistence;
+
+import models.*;
+import services.CourierEventListener;
+import java.io.*;
+
+// Writes every change to the write-ahead log before it is applied: installed as
+// the EventBus journal, which the repositories call ahead of each change (the
+// arguments describe the new state), so the log has the changes in the order
+// they are applied. Installed after recovery, so replayed changes are not
+// logged twice.
+//
+// Outside a batch each call returns once its record is durable (group commit in
+// WriteAheadLog). Inside a batch records are only queued, and the outermost
+// batchFinished waits once for all of them. Batches belong to the calling
+// thread: a repository adding many entities opens one around the adds, and a
+// session keeps one open for as long as it holds Main.SYSTEM, so its changes
+// apply straight away and the wait for the disk happens after it lets go of
+// the lock (see Main.leave).
+public class LogRecorder implements CourierEventListener {
+
+    private final WriteAheadLog log;
+    // Per thread: {open batch depth, last LSN queued in the batch}
+    private final ThreadLocal<long[]> batch = ThreadLocal.withInitial(() -> new long[2]);
+
+    public LogRecorder(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void userAdded(User user) {
+        append(LogRecords.USER_ADDED, out -> LogRecords.writeUser(out, user));
+    }
+
+    @Override
+    public void loyaltyPointsChanged(Customer customer, int delta) {
+        append(LogRecords.LOYALTY_CHANGED, out -> {
+            out.writeUTF(customer.getUserId());
+            out.writeInt(delta);
+        });
+    }
+
+    @Override
+    public void staffAvailabilityChanged(Staff staff, boolean available) {
+        append(LogRecords.STAFF_AVAILABILITY, out -> {
+            out.writeUTF(staff.getUserId());
+            out.writeBoolean(available);
+        });
+    }
+
+    @Override
+    public void parcelCreated(Parcel parcel) {
+        append(LogRecords.PARCEL_CREATED, out -> LogRecords.writeParcel(out, parcel));
+    }
+
+    @Override
+    public void parcelStatusChanged(Parcel parcel, ParcelStatus oldStatus, ParcelStatus newStatus) {
+        append(LogRecords.PARCEL_STATUS, out -> {
+            out.writeUTF(parcel.getParcelId());
+            out.writeByte(newStatus.code());
+        });
+    }
+
+    @Override
+    public void parcelArchived(Parcel parcel, Delivery delivery) {
+        append(LogRecords.PARCEL_ARCHIVED, out -> out.writeUTF(parcel.getParcelId()));
+    }
+
+    @Override
+    public void deliveryCreated(Delivery delivery) {
+        append(LogRecords.DELIVERY_CREATED, out -> LogRecords.writeDelivery(out, delivery));
+    }
+
+    @Override
+    public void deliveryStatusChanged(Delivery delivery, DeliveryStatus oldStatus,
+                                      DeliveryStatus newStatus) {
+        append(LogRecords.DELIVERY_STATUS, out -> {
+            out.writeUTF(delivery.getDeliveryId());
+            out.writeByte(newStatus.code());
+        });
+    }
+
+    @Override
+    public void deliveryStaffAssigned(Delivery delivery, Staff oldStaff, Staff newStaff) {
+        append(LogRecords.DELIVERY_STAFF, out -> {
+            out.writeUTF(delivery.getDeliveryId());
+            LogRecords.writeText(out, newStaff == null ? null : newStaff.getUserId());
+        });
+    }
+
+    @Override
+    public void deliveryRouteAssigned(Delivery delivery, String route) {
+        append(LogRecords.DELIVERY_ROUTE, out -> {
+            out.writeUTF(delivery.getDeliveryId());
+            LogRecords.writeText(out, route);
+        });
+    }
+
+    @Override
+    public void vehicleAdded(Vehicle vehicle) {
+        append(LogRecords.VEHICLE_ADDED, out -> LogRecords.writeVehicle(out, vehicle));
+    }
+
+    @Override
+    public void vehicleAssigned(Vehicle vehicle, Delivery delivery) {
+        append(LogRecords.VEHICLE_ASSIGNED, out -> {
+            out.writeUTF(vehicle.getVehicleId());
+            out.writeUTF(delivery.getDeliveryId());
+        });
+    }
+
+    @Override
+    public void vehicleReleased(Vehicle vehicle, String deliveryId) {
+        append(LogRecords.VEHICLE_UNLOADED, out -> {
+            out.writeUTF(vehicle.getVehicleId());
+            out.writeUTF(deliveryId);
+        });
+    }
+
+    @Override
+    public void paymentRecorded(Payment payment) {
+        append(LogRecords.PAYMENT_RECORDED, out -> LogRecords.writePayment(out, payment));
+    }
+
+    @Override
+    public void paymentStatusChanged(Payment payment, PaymentStatus oldStatus, PaymentStatus newStatus) {
+        append(LogRecords.PAYMENT_STATUS, out -> {
+            out.writeUTF(payment.getPaymentId());
+            out.writeByte(newStatus.code());
+        });
+    }
+
+    @Override
+    public void batchStarted() {
+        batch.get()[0]++;
+    }
+
+    @Override
+    public void batchFinished() {
+        long[] open = batch.get();
+        if (open[0] > 0 && --open[0] == 0 && open[1] > 0) {
+            long lastLsn = open[1];
+            open[1] = 0;
+            log.awaitDurable(lastLsn);
+        }
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoder.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream, not expected
+        }
+        long[] open = batch.get();
+        if (open[0] > 0) {
+            open[1] = log.enqueue(type, bytes.toByteArray());
+        } else {
+            log.append(type, bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package persistence;
+
+import models.*;
+import services.DeliveryRepository;
+import services.ParcelRepository;
+import services.UserDirectory;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.List;
+
+// Record type codes and the binary encoding of each entity.
+// Codes are part of the on-disk format: never renumber, only append.
+public final class LogRecords {
+
+    public static final byte USER_ADDED = 1;
+    public static final byte LOYALTY_CHANGED = 2;
+    public static final byte STAFF_AVAILABILITY = 3;
+    public static final byte PARCEL_CREATED = 4;
+    public static final byte PARCEL_STATUS = 5;
+    public static final byte DELIVERY_CREATED = 6;
+    public static final byte DELIVERY_STATUS = 7;
+    public static final byte DELIVERY_STAFF = 8;
+    public static final byte VEHICLE_ADDED = 9;
+    public static final byte VEHICLE_ASSIGNED = 10;
+    public static final byte VEHICLE_RELEASED = 11;   // older logs: empties the whole vehicle
+    public static final byte PAYMENT_RECORDED = 12;
+    public static final byte PAYMENT_STATUS = 13;
+    public static final byte PARCEL_ARCHIVED = 14;
+    public static final byte VEHICLE_UNLOADED = 15;   // one delivery off the manifest
+    public static final byte DELIVERY_ROUTE = 16;
+
+    private static final byte CUSTOMER = 'C';
+    private static final byte STAFF = 'S';
+
+    private LogRecords() {}
+
+    // ---------- Users ----------
+
+    public static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeByte(user instanceof Customer ? CUSTOMER : STAFF);
+        out.writeUTF(user.getUserId());
+        writeText(out, user.getName());
+        writeText(out, user.getEmail());
+        writeText(out, user.getPassword());
+        writeText(out, user.getPhone());
+        if (user instanceof Customer) {
+            Customer customer = (Customer) user;
+            writeText(out, customer.getAddress());
+            out.writeInt(customer.getLoyaltyPoints());
+        } else {
+            Staff staff = (Staff) user;
+            writeText(out, staff.getRole());
+            out.writeDouble(staff.getSalary());
+            out.writeBoolean(staff.isAvailable());
+        }
+    }
+
+    public static User readUser(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        String userId = in.readUTF();
+        String name = readText(in);
+        String email = readText(in);
+        String password = readText(in);
+        String phone = readText(in);
+        if (kind == CUSTOMER) {
+            Customer customer = new Customer(userId, name, email, password, phone, readText(in));
+            customer.addLoyaltyPoints(in.readInt());
+            return customer;
+        }
+        if (kind == STAFF) {
+            Staff staff = new Staff(userId, name, email, password, phone, readText(in), in.readDouble());
+            staff.setAvailable(in.readBoolean());
+            return staff;
+        }
+        throw new IOException("Unknown user kind: " + kind);
+    }
+
+    // ---------- Parcels ----------
+
+    public static void writeParcel(DataOutput out, Parcel parcel) throws IOException {
+        writeParcel(out, parcel, parcel.getStatus());
+    }
+
+    // Status passed separately so a snapshot can write the value it captured earlier
+    public static void writeParcel(DataOutput out, Parcel parcel, ParcelStatus status) throws IOException {
+        out.writeUTF(parcel.getParcelId());
+        out.writeUTF(ParcelFactory.typeOf(parcel));
+        out.writeUTF(parcel.getSender().getUserId());
+        out.writeUTF(parcel.getReceiver().getUserId());
+        out.writeDouble(parcel.getWeight());
+        writeText(out, parcel.getDimensions());
+        writeText(out, parcel.getDescription());
+        writeText(out, ParcelFactory.additionalInfoOf(parcel));
+        out.writeByte(status.code());
+        out.writeDouble(parcel.getPrice());
+        out.writeLong(parcel.getCreatedDate().toEpochDay());
+    }
+
+    public static Parcel readParcel(DataInput in, UserDirectory users) throws IOException {
+        String parcelId = in.readUTF();
+        String type = in.readUTF();
+        User sender = requireUser(users, in.readUTF());
+        User receiver = requireUser(users, in.readUTF());
+        double weight = in.readDouble();
+        String dimensions = readText(in);
+        String description = readText(in);
+        String additionalInfo = readText(in);
+        ParcelStatus status = ParcelStatus.fromCode(in.readByte());
+        double price = in.readDouble();
+        LocalDate created = LocalDate.ofEpochDay(in.readLong());
+        return ParcelFactory.restoreParcel(type, parcelId, sender, receiver, weight, dimensions,
+                                           description, additionalInfo, status, price, created);
+    }
+
+    // ---------- Deliveries ----------
+
+    // The vehicle link is not part of the delivery; it is restored from the vehicle side
+    public static void writeDelivery(DataOutput out, Delivery delivery) throws IOException {
+        out.writeUTF(delivery.getDeliveryId());
+        out.writeUTF(delivery.getParcel().getParcelId());
+        Staff staff = delivery.getDeliveryPerson();
+        writeText(out, staff == null ? null : staff.getUserId());
+        out.writeByte(delivery.getStatus().code());
+        writeText(out, delivery.getRoute());
+        out.writeLong(delivery.getEstimatedTime().toEpochDay());
+    }
+
+    public static Delivery readDelivery(DataInput in, ParcelRepository parcels,
+                                        UserDirectory users) throws IOException {
+        String deliveryId = in.readUTF();
+        String parcelId = in.readUTF();
+        Parcel parcel = parcels.findById(parcelId);
+        if (parcel == null) throw new IOException("Delivery " + deliveryId + " refers to unknown parcel " + parcelId);
+        String staffId = readText(in);
+        Staff staff = staffId == null ? null : requireStaff(users, staffId);
+
+        Delivery delivery = new Delivery(deliveryId, parcel, staff);
+        delivery.setStatus(DeliveryStatus.fromCode(in.readByte()));
+        String route = readText(in);
+        delivery.restoreSchedule(route, LocalDate.ofEpochDay(in.readLong()));
+        return delivery;
+    }
+
+    // ---------- Vehicles ----------
+
+    // The trailing text is the single assignment of the pre-manifest format. It is
+    // always written empty now; loads are recorded as VEHICLE_ASSIGNED records and
+    // in the snapshot manifest, but older logs and snapshots may still carry one.
+    public static void writeVehicle(DataOutput out, Vehicle vehicle) throws IOException {
+        out.writeUTF(vehicle.getVehicleId());
+        writeText(out, vehicle.getVehicleType());
+        writeText(out, vehicle.getPlateNumber());
+        out.writeDouble(vehicle.getCapacity());
+        writeText(out, null);
+    }
+
+    // Returns an empty vehicle; an old-format assignment is added to deliveryIds
+    // for the caller to load once the delivery is known
+    public static Vehicle readVehicle(DataInput in, List<String> deliveryIds) throws IOException {
+        Vehicle vehicle = new Vehicle(in.readUTF(), readText(in), readText(in), in.readDouble());
+        String deliveryId = readText(in);
+        if (deliveryId != null) deliveryIds.add(deliveryId);
+        return vehicle;
+    }
+
+    public static void writeManifest(DataOutput out, Vehicle vehicle) throws IOException {
+        List<String> deliveryIds = vehicle.getDeliveryIds();
+        out.writeInt(deliveryIds.size());
+        for (String deliveryId : deliveryIds) out.writeUTF(deliveryId);
+    }
+
+    public static void readManifest(DataInput in, List<String> deliveryIds) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) deliveryIds.add(in.readUTF());
+    }
+
+    // ---------- Payments ----------
+
+    public static void writePayment(DataOutput out, Payment payment) throws IOException {
+        writePayment(out, payment, payment.getStatus());
+    }
+
+    public static void writePayment(DataOutput out, Payment payment, PaymentStatus status) throws IOException {
+        out.writeUTF(payment.getPaymentId());
+        out.writeDouble(payment.getAmount());
+        writeText(out, payment.getPaymentMethod());
+        out.writeByte(status.code());
+        out.writeLong(payment.getPaymentDate().toEpochDay());
+    }
+
+    public static Payment readPayment(DataInput in) throws IOException {
+        Payment payment = new Payment(in.readUTF(), in.readDouble(), readText(in));
+        payment.setStatus(PaymentStatus.fromCode(in.readByte()));
+        payment.setPaymentDate(LocalDate.ofEpochDay(in.readLong()));
+        return payment;
+    }
+
+    // ---------- Helpers ----------
+
+    // Nullable string: presence flag + UTF
+    public static void writeText(DataOutput out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) out.writeUTF(text);
+    }
+
+    public static String readText(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static User requireUser(UserDirectory users, String userId) throws IOException {
+        User user = users.findById(userId);
+        if (user == null) throw new IOException("Unknown user in log: " + userId);
+        return user;
+    }
+
+    static Staff requireStaff(UserDirectory users, String staffId) throws IOException {
+        Staff staff = users.findStaffById(staffId);
+        if (staff == null) throw new IOException("Unknown staff in log: " + staffId);
+        return staff;
+    }
+
+    static Delivery requireDelivery(DeliveryRepository deliveries, String deliveryId) throws IOException {
+        Delivery delivery = deliveries.findById(deliveryId);
+        if (delivery == null) throw new IOException("Unknown delivery in log: " + deliveryId);
+        return delivery;
+    }
+}
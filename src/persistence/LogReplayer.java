@@ -0,0 +1,146 @@
+package persistence;
+
+import models.*;
+import services.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Rebuilds in-memory state from write-ahead log records.
+// Changes go through the repositories' restore paths, so indexes and
+// listeners (statistics) are updated exactly as they were originally,
+// but nothing is printed and no transition rules are re-checked.
+public class LogReplayer implements WriteAheadLog.RecordHandler {
+
+    private final UserDirectory users;
+    private final ParcelRepository parcels;
+    private final DeliveryRepository deliveries;
+    private final VehicleRepository vehicles;
+    private final PaymentLedger payments;
+    private final ParcelArchiver archiver; // null when there is no archive (snapshot loading)
+
+    public LogReplayer(UserDirectory users, ParcelRepository parcels, DeliveryRepository deliveries,
+                       VehicleRepository vehicles, PaymentLedger payments) {
+        this(users, parcels, deliveries, vehicles, payments, null);
+    }
+
+    public LogReplayer(UserDirectory users, ParcelRepository parcels, DeliveryRepository deliveries,
+                       VehicleRepository vehicles, PaymentLedger payments, ParcelArchiver archiver) {
+        this.users = users;
+        this.parcels = parcels;
+        this.deliveries = deliveries;
+        this.vehicles = vehicles;
+        this.payments = payments;
+        this.archiver = archiver;
+    }
+
+    @Override
+    public void apply(long lsn, byte type, DataInput in) throws IOException {
+        switch (type) {
+            case LogRecords.USER_ADDED:
+                users.add(LogRecords.readUser(in));
+                break;
+            case LogRecords.LOYALTY_CHANGED: {
+                String customerId = in.readUTF();
+                Customer customer = users.findCustomerById(customerId);
+                if (customer == null) throw new IOException("Unknown customer in log: " + customerId);
+                users.addLoyaltyPoints(customer, in.readInt());
+                break;
+            }
+            case LogRecords.STAFF_AVAILABILITY:
+                users.setStaffAvailable(LogRecords.requireStaff(users, in.readUTF()), in.readBoolean());
+                break;
+            case LogRecords.PARCEL_CREATED:
+                parcels.add(LogRecords.readParcel(in, users));
+                break;
+            case LogRecords.PARCEL_STATUS: {
+                Parcel parcel = requireParcel(in.readUTF());
+                parcels.restoreStatus(parcel, ParcelStatus.fromCode(in.readByte()));
+                break;
+            }
+            case LogRecords.PARCEL_ARCHIVED: {
+                // The rows were written to the archive before this record, so the
+                // move only drops the parcel and its delivery from the live tier
+                if (archiver == null) throw new IOException("Archived parcel in log but no archive is open");
+                archiver.moveToArchive(List.of(requireParcel(in.readUTF())));
+                break;
+            }
+            case LogRecords.DELIVERY_CREATED:
+                deliveries.add(LogRecords.readDelivery(in, parcels, users));
+                break;
+            case LogRecords.DELIVERY_STATUS: {
+                Delivery delivery = LogRecords.requireDelivery(deliveries, in.readUTF());
+                deliveries.restoreStatus(delivery, DeliveryStatus.fromCode(in.readByte()));
+                break;
+            }
+            case LogRecords.DELIVERY_STAFF: {
+                Delivery delivery = LogRecords.requireDelivery(deliveries, in.readUTF());
+                String staffId = LogRecords.readText(in);
+                deliveries.assignStaff(delivery, staffId == null ? null : LogRecords.requireStaff(users, staffId));
+                break;
+            }
+            case LogRecords.DELIVERY_ROUTE: {
+                Delivery delivery = LogRecords.requireDelivery(deliveries, in.readUTF());
+                deliveries.assignRoute(delivery, LogRecords.readText(in));
+                break;
+            }
+            case LogRecords.VEHICLE_ADDED: {
+                List<String> deliveryIds = new ArrayList<>(1);
+                Vehicle vehicle = LogRecords.readVehicle(in, deliveryIds);
+                addVehicle(vehicle, deliveryIds);
+                break;
+            }
+            case LogRecords.VEHICLE_ASSIGNED: {
+                Vehicle vehicle = requireVehicle(in.readUTF());
+                Delivery delivery = LogRecords.requireDelivery(deliveries, in.readUTF());
+                if (!vehicles.assign(vehicle, delivery)) {
+                    throw new IOException("Cannot load " + delivery.getDeliveryId() + " onto " + vehicle.getVehicleId());
+                }
+                break;
+            }
+            case LogRecords.VEHICLE_RELEASED:
+                vehicles.releaseAll(requireVehicle(in.readUTF()));
+                break;
+            case LogRecords.VEHICLE_UNLOADED: {
+                Vehicle vehicle = requireVehicle(in.readUTF());
+                vehicles.release(vehicle, in.readUTF());
+                break;
+            }
+            case LogRecords.PAYMENT_RECORDED:
+                payments.record(LogRecords.readPayment(in));
+                break;
+            case LogRecords.PAYMENT_STATUS: {
+                String paymentId = in.readUTF();
+                Payment payment = payments.findById(paymentId);
+                if (payment == null) throw new IOException("Unknown payment in log: " + paymentId);
+                payments.restoreStatus(payment, PaymentStatus.fromCode(in.readByte()));
+                break;
+            }
+            default:
+                throw new IOException("Unknown log record type " + type + " at LSN " + lsn);
+        }
+    }
+
+    // A vehicle may arrive with deliveries on board (snapshots); load them back in order
+    void addVehicle(Vehicle vehicle, List<String> deliveryIds) throws IOException {
+        vehicles.add(vehicle);
+        for (String deliveryId : deliveryIds) {
+            Delivery delivery = LogRecords.requireDelivery(deliveries, deliveryId);
+            if (!vehicles.assign(vehicle, delivery)) {
+                throw new IOException("Cannot load " + deliveryId + " onto " + vehicle.getVehicleId());
+            }
+        }
+    }
+
+    private Parcel requireParcel(String parcelId) throws IOException {
+        Parcel parcel = parcels.findById(parcelId);
+        if (parcel == null) throw new IOException("Unknown parcel in log: " + parcelId);
+        return parcel;
+    }
+
+    private Vehicle requireVehicle(String vehicleId) throws IOException {
+        Vehicle vehicle = vehicles.findById(vehicleId);
+        if (vehicle == null) throw new IOException("Unknown vehicle in log: " + vehicleId);
+        return vehicle;
+    }
+}
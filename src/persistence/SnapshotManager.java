@@ -0,0 +1,370 @@
+package persistence;
+
+import models.*;
+import services.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Periodic binary snapshots of the full state, so startup loads one file and
+// replays only the part of the write-ahead log written after it.
+//
+// File layout (big-endian, entities encoded as in LogRecords, references by ID):
+//   int  MAGIC, int VERSION
+//   long lastLsn          (last log record contained in the snapshot)
+//   long logPosition      (log file offset just past that record)
+//   long createdMillis
+//   int n + n users, int n (parcels), int n + n deliveries,
+//   int n + n (vehicle, manifest), int n + n payments
+//   int  crc32 of everything above
+//
+// The parcels themselves are in a ParcelTable next to it, <file>.parcels.<lastLsn>,
+// which startup maps rather than reads: only the parcels that are used are ever
+// built (see ParcelRepository). Versions 1 and 2 held the parcels inline.
+//
+// Taking a snapshot has two phases. capture() runs on the caller's thread at a
+// point where no change is in progress: it copies parcel and payment references
+// with their status (the only fields that change after creation) into arrays and
+// encodes the small collections directly. Writing the parcel table, encoding the
+// payments and writing the file happen on a background thread while the system
+// keeps running. Both files are written under a temporary name and renamed into
+// place, the table first, so a crash mid-write leaves the previous snapshot intact.
+// Once the rename is durable the older tables and the log segments the snapshot
+// covers are deleted (a table still mapped stays readable until shutdown).
+public class SnapshotManager implements Closeable {
+
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int VERSION = 3;   // 2: vehicles carry a manifest of deliveries
+                                            // 3: parcels in a ParcelTable of their own
+    private static final int MAP_WINDOW = 1 << 28; // map large files 256 MB at a time
+
+    private final Path file;
+    private final WriteAheadLog log;
+    private final UserDirectory users;
+    private final ParcelRepository parcels;
+    private final DeliveryRepository deliveries;
+    private final VehicleRepository vehicles;
+    private final PaymentLedger payments;
+    private final long interval; // log records between automatic snapshots
+
+    private final ExecutorService writer;
+    // Set only by checkpoint, which runs between operations. Not guarded by a
+    // monitor: capture waits for the log, and a session on a virtual thread that
+    // waits holding one pins its carrier (with one CPU, the only carrier).
+    private volatile Future<?> inFlight;
+    private volatile long snapshotLsn;   // last LSN covered by the newest snapshot on disk
+    private long loadedLogPosition;
+    private volatile long lastDurationMillis;
+
+    public SnapshotManager(Path file, WriteAheadLog log, UserDirectory users, ParcelRepository parcels,
+                           DeliveryRepository deliveries, VehicleRepository vehicles,
+                           PaymentLedger payments, long interval) {
+        this.file = file;
+        this.log = log;
+        this.users = users;
+        this.parcels = parcels;
+        this.deliveries = deliveries;
+        this.vehicles = vehicles;
+        this.payments = payments;
+        this.interval = interval;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---------- Loading ----------
+
+    // Load the snapshot (if any) into the empty repositories.
+    // Returns the last LSN it covers, or 0 when there is no snapshot.
+    public long load() throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 * 2 + 8 * 3 + 4) throw new IOException("Snapshot " + file + " is truncated");
+
+            // Pass 1: checksum, so nothing is applied from a damaged file
+            CRC32 crc = new CRC32();
+            DataInputStream data = new DataInputStream(new BufferedInputStream(
+                    new MappedInputStream(channel, size - 4), 1 << 16));
+            byte[] chunk = new byte[1 << 16];
+            int read;
+            while ((read = data.read(chunk)) > 0) crc.update(chunk, 0, read);
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            channel.read(trailer, size - 4);
+            if ((int) crc.getValue() != trailer.getInt(0)) {
+                throw new IOException("Snapshot " + file + " failed its checksum");
+            }
+
+            // Pass 2: decode straight from the mapping
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new MappedInputStream(channel, size - 4), 1 << 16));
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a snapshot");
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported snapshot version " + version);
+            long lastLsn = in.readLong();
+            long logPosition = in.readLong();
+            in.readLong(); // created
+
+            LogReplayer replayer = new LogReplayer(users, parcels, deliveries, vehicles, payments);
+            User[] stored = new User[in.readInt()];
+            for (int i = 0; i < stored.length; i++) {
+                stored[i] = LogRecords.readUser(in);
+                users.add(stored[i]);
+            }
+            if (version >= 3) {
+                int parcelCount = in.readInt();
+                ParcelTable table = ParcelTable.open(tableFile(lastLsn), stored);
+                if (table.size() != parcelCount) {
+                    throw new IOException("Parcel table " + tableFile(lastLsn) + " does not match the snapshot");
+                }
+                parcels.attach(table);
+            } else {
+                for (int i = in.readInt(); i > 0; i--) parcels.add(LogRecords.readParcel(in, users));
+            }
+            for (int i = in.readInt(); i > 0; i--) deliveries.add(LogRecords.readDelivery(in, parcels, users));
+            for (int i = in.readInt(); i > 0; i--) {
+                List<String> deliveryIds = new ArrayList<>();
+                Vehicle vehicle = LogRecords.readVehicle(in, deliveryIds);
+                if (version >= 2) LogRecords.readManifest(in, deliveryIds);
+                replayer.addVehicle(vehicle, deliveryIds);
+            }
+            for (int i = in.readInt(); i > 0; i--) payments.record(LogRecords.readPayment(in));
+
+            snapshotLsn = lastLsn;
+            loadedLogPosition = logPosition;
+            return lastLsn;
+        }
+    }
+
+    // Log offset recorded by the loaded snapshot (pass to WriteAheadLog.recover)
+    public long getLoadedLogPosition() {
+        return loadedLogPosition;
+    }
+
+    // ---------- Writing ----------
+
+    // Take a snapshot if enough log records were written since the last one and
+    // no snapshot is being written. Call only between operations.
+    public boolean maybeCheckpoint() {
+        if (log.getLastLsn() - snapshotLsn < interval) return false;
+        return checkpoint();
+    }
+
+    // Capture now and write in the background (false if a write is still running
+    // or nothing changed since the last snapshot). Call only between operations.
+    public boolean checkpoint() {
+        if (inFlight != null && !inFlight.isDone()) return false;
+        if (log.getLastLsn() == snapshotLsn) return false;
+
+        Capture capture;
+        try {
+            capture = capture();
+        } catch (IOException e) {
+            System.out.println("❌ Snapshot capture failed: " + e.getMessage());
+            return false;
+        }
+        inFlight = writer.submit(() -> write(capture));
+        return true;
+    }
+
+    // Wait for a running background write to finish
+    public void awaitIdle() {
+        Future<?> pending = inFlight;
+        if (pending == null) return;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // already reported by write()
+        }
+    }
+
+    public long getSnapshotLsn() {
+        return snapshotLsn;
+    }
+
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    // State copied at the capture point. Parcels and payments are written later
+    // on the snapshot thread, which reads only their captured status and fields
+    // that are fixed once they are stored; everything else is encoded here.
+    private static class Capture {
+        long lastLsn;
+        long logPosition;
+        byte[] header;       // magic .. users, parcel count
+        User[] users;        // in the order written (the table refers to them by position)
+        ParcelTable.Rows parcels;
+        byte[] middle;       // deliveries + vehicles
+        Payment[] payments;
+        byte[] paymentStatus;
+    }
+
+    private Capture capture() throws IOException {
+        Capture capture = new Capture();
+        // Sessions holding Main.SYSTEM only queue their changes: flush what is
+        // queued (one wait per snapshot), so every change captured below is on
+        // disk and the cut has a log position
+        log.awaitDurable(log.getLastLsn());
+        capture.lastLsn = log.getDurableLsn();
+        capture.logPosition = log.getDurablePosition();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(capture.lastLsn);
+        out.writeLong(capture.logPosition);
+        out.writeLong(System.currentTimeMillis());
+        capture.users = users.getAll().toArray(new User[0]);
+        out.writeInt(capture.users.length);
+        for (User user : capture.users) LogRecords.writeUser(out, user);
+        capture.parcels = parcels.captureRows();
+        out.writeInt(capture.parcels.size());
+        out.flush();
+        capture.header = bytes.toByteArray();
+
+        bytes.reset();
+        out.writeInt(deliveries.size());
+        for (Delivery delivery : deliveries.getAll()) LogRecords.writeDelivery(out, delivery);
+        out.writeInt(vehicles.size());
+        for (Vehicle vehicle : vehicles.getAll()) {
+            LogRecords.writeVehicle(out, vehicle);
+            LogRecords.writeManifest(out, vehicle);
+        }
+        out.flush();
+        capture.middle = bytes.toByteArray();
+
+        capture.payments = payments.getAll().toArray(new Payment[0]);
+        capture.paymentStatus = new byte[capture.payments.length];
+        for (int i = 0; i < capture.payments.length; i++) {
+            capture.paymentStatus[i] = capture.payments[i].getStatus().code();
+        }
+        return capture;
+    }
+
+    // Background phase: write the parcel table, encode the captured references and write the file
+    private void write(Capture capture) {
+        long start = System.currentTimeMillis();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            ParcelTable.write(tableFile(capture.lastLsn), capture.parcels, capture.users);
+
+            CRC32 crc = new CRC32();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream checked = new CheckedOutputStream(
+                        Channels.newOutputStream(channel), crc);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+
+                out.write(capture.header);
+                out.write(capture.middle);
+                out.writeInt(capture.payments.length);
+                for (int i = 0; i < capture.payments.length; i++) {
+                    LogRecords.writePayment(out, capture.payments[i], PaymentStatus.fromCode(capture.paymentStatus[i]));
+                }
+                out.flush();
+
+                ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+                while (trailer.hasRemaining()) channel.write(trailer);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            WriteAheadLog.forceDirectory(file.toAbsolutePath().getParent());
+
+            snapshotLsn = capture.lastLsn;
+            lastDurationMillis = System.currentTimeMillis() - start;
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("❌ Snapshot write failed (the change log still has everything): "
+                             + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // nothing more to do
+            }
+            return;
+        }
+        // Only now that the new snapshot is durable: the older tables and the log it
+        // covers are no longer needed
+        try {
+            deleteTablesExcept(tableFile(capture.lastLsn));
+            log.truncateBefore(capture.lastLsn);
+        } catch (IOException e) {
+            System.out.println("❌ Deleting old snapshot files failed (retried after the next snapshot): "
+                             + e.getMessage());
+        }
+    }
+
+    // Parcel table of the snapshot covering the log up to lastLsn
+    private Path tableFile(long lastLsn) {
+        return file.resolveSibling(String.format("%s.parcels.%020d", file.getFileName(), lastLsn));
+    }
+
+    private void deleteTablesExcept(Path keep) throws IOException {
+        try (DirectoryStream<Path> tables = Files.newDirectoryStream(keep.toAbsolutePath().getParent(),
+                                                                     file.getFileName() + ".parcels.*")) {
+            for (Path table : tables) {
+                if (!table.getFileName().equals(keep.getFileName())) Files.deleteIfExists(table);
+            }
+        }
+    }
+
+    // Wait for the last write and stop the background thread
+    @Override
+    public void close() {
+        awaitIdle();
+        writer.shutdown();
+    }
+
+    // Sequential reads over a file through read-only mappings of MAP_WINDOW bytes,
+    // so files larger than one MappedByteBuffer (2 GB) still load
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long limit;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInputStream(FileChannel channel, long limit) {
+            this.channel = channel;
+            this.limit = limit;
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) return true;
+            long next = window == null ? 0 : windowStart + window.capacity();
+            if (next >= limit) return false;
+            windowStart = next;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(MAP_WINDOW, limit - next));
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!ensureWindow()) return -1;
+            int count = Math.min(length, window.remaining());
+            window.get(buffer, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only, checksummed log of state changes, kept as a series of segment
+// files next to the base path: <file>.<first LSN, 20 digits>. The writer starts
+// a new segment once the current one has reached segmentBytes, and segments
+// whose changes are all in a snapshot are deleted (truncateBefore), so the log
+// on disk is about one snapshot interval long however long the system runs.
+//
+// Frame layout (big-endian):
+//   int  payloadLength
+//   int  crc32 over lsn, type and payload
+//   long lsn            (1, 2, 3, ... - never reused)
+//   byte type           (see LogRecords)
+//   byte[payloadLength]
+//
+// Group commit: append() queues the frame and waits until it is on disk.
+// A single writer thread takes everything queued since its last flush,
+// writes it in one call and forces the file once, so concurrent callers
+// share one fsync instead of paying for one each. Waiting is done on a
+// ReentrantLock condition rather than a monitor, so a session on a virtual
+// thread gives its carrier back while its record is being forced.
+public class WriteAheadLog implements Closeable {
+
+    public static final int HEADER_SIZE = 4 + 4 + 8 + 1;
+    public static final int MAX_PAYLOAD = 1 << 20;
+
+    // Called for every valid record during recovery
+    public interface RecordHandler {
+        void apply(long lsn, byte type, DataInput payload) throws IOException;
+    }
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private final Path file;
+    private final long segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();    // writer: frames to write, or closing
+    private final Condition flushed = lock.newCondition();   // callers: durableLsn moved, or failure
+    private final TreeMap<Long, Path> segments = new TreeMap<>();   // first LSN -> segment file
+    private ArrayList<byte[]> pending = new ArrayList<>();   // encoded frames waiting for the writer
+    private long nextLsn = 1;
+    private long durableLsn;          // highest LSN known to be on disk
+    private long durablePosition;     // offset in the current segment just past that LSN's frame
+    private IOException failure;      // sticky writer failure
+    private boolean recovered;
+    private boolean closed;
+
+    // Segment being written (writer thread; null until the first record)
+    private FileChannel channel;
+    private long channelSize;
+
+    private Thread writer;
+
+    // Metrics
+    private long syncCount;
+    private long recordCount;
+    private long bytesWritten;
+
+    public WriteAheadLog(Path file) throws IOException {
+        this(file, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public WriteAheadLog(Path file, long segmentBytes) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.segmentBytes = Math.max(HEADER_SIZE, segmentBytes);
+        Files.createDirectories(this.file.getParent());
+        adoptSingleFile();
+        String prefix = this.file.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.file.getParent(), prefix + "*")) {
+            for (Path segment : files) {
+                String suffix = segment.getFileName().toString().substring(prefix.length());
+                if (suffix.length() == 20 && suffix.chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(suffix), segment);
+                }
+            }
+        }
+    }
+
+    // Logs written before segments were a single file at the base path: rename
+    // it to the segment name of its first record
+    private void adoptSingleFile() throws IOException {
+        if (!Files.isRegularFile(file)) return;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel single = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && single.read(header, header.position()) > 0) {
+                // keep reading
+            }
+        }
+        if (header.hasRemaining()) {
+            // not even one whole frame
+            Files.delete(file);
+        } else {
+            Files.move(file, segmentPath(header.getLong(8)), StandardCopyOption.ATOMIC_MOVE);
+        }
+        forceDirectory(file.getParent());
+    }
+
+    // Replay every valid record, then cut off a torn or corrupt tail (a crash
+    // mid-write) and start the writer after the last good frame.
+    // Must be called once before the first append. Returns the number of records replayed.
+    public long recover(RecordHandler handler) throws IOException {
+        return recover(0, 0, handler);
+    }
+
+    // Replay only the records after a snapshot: afterLsn is the last LSN the snapshot
+    // covers and startPosition the offset just past it in its segment (see
+    // getDurablePosition). Reading starts at the segment holding afterLsn + 1 and, in
+    // the segment holding afterLsn, at that offset, so the covered prefix is never
+    // read again; if the frame found there is not afterLsn + 1 that segment is scanned
+    // from its start instead and only records with lsn > afterLsn are applied.
+    public long recover(long afterLsn, long startPosition, RecordHandler handler) throws IOException {
+        lock.lock();
+        try {
+            if (recovered) throw new IllegalStateException("Log already recovered");
+        } finally {
+            lock.unlock();
+        }
+        long lastLsn = afterLsn;
+        long applied = 0;
+        Long first = segments.floorKey(afterLsn + 1);
+        if (first == null && !segments.isEmpty()) {
+            // deleted segments were covered by a snapshot newer than this one
+            throw new IOException("Write-ahead log starts at change " + segments.firstKey()
+                                + " but the snapshot only reaches change " + afterLsn);
+        }
+
+        if (first != null) {
+            Map.Entry<Long, Path> segment = segments.ceilingEntry(first);
+            while (segment != null) {
+                Map.Entry<Long, Path> next = segments.higherEntry(segment.getKey());
+                FileChannel segmentChannel = FileChannel.open(segment.getValue(),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long size = segmentChannel.size();
+                long position = 0;
+                if (segment.getKey() <= afterLsn && startPosition > 0 && startPosition <= size
+                        && frameAt(segmentChannel, startPosition, afterLsn + 1, size)) {
+                    position = startPosition;
+                }
+                long expectedLsn = position > 0 ? afterLsn + 1 : segment.getKey();
+
+                // Not closed: closing the stream would close the channel as well
+                DataInputStream in = new DataInputStream(new BufferedInputStream(
+                        Channels.newInputStream(segmentChannel.position(position)), 1 << 16));
+                CRC32 crc = new CRC32();
+                while (position + HEADER_SIZE <= size) {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    long lsn = in.readLong();
+                    byte type = in.readByte();
+                    if (length < 0 || length > MAX_PAYLOAD || position + HEADER_SIZE + length > size) {
+                        break; // torn write
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+
+                    crc.reset();
+                    crc.update(ByteBuffer.allocate(9).putLong(lsn).put(type).array());
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum || lsn != expectedLsn) {
+                        break; // corrupt frame - nothing after it can be trusted
+                    }
+                    if (lsn > afterLsn) {
+                        handler.apply(lsn, type, new DataInputStream(new ByteArrayInputStream(payload)));
+                        applied++;
+                    }
+                    lastLsn = Math.max(lastLsn, lsn);
+                    expectedLsn = lsn + 1;
+                    position += HEADER_SIZE + length;
+                }
+
+                if (next != null) {
+                    segmentChannel.close();
+                    if (position < size || next.getKey() != expectedLsn) {
+                        // Only the newest segment can end in a torn write
+                        throw new IOException("Write-ahead log segment " + segment.getValue()
+                                            + " is damaged at offset " + position);
+                    }
+                } else {
+                    if (position < size) {
+                        System.out.println("⚠ Write-ahead log: discarding " + (size - position)
+                                         + " bytes of incomplete data at the end of " + segment.getValue());
+                        segmentChannel.truncate(position);
+                        segmentChannel.force(true);
+                    }
+                    channel = segmentChannel.position(position);
+                    channelSize = position;
+                }
+                segment = next;
+            }
+        }
+
+        lock.lock();
+        try {
+            nextLsn = lastLsn + 1;
+            durableLsn = lastLsn;
+            durablePosition = channelSize;
+            recovered = true;
+        } finally {
+            lock.unlock();
+        }
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return applied;
+    }
+
+    // True if a frame with the expected LSN starts at the given offset (at end of file:
+    // nothing was appended after the snapshot, which is also fine)
+    private static boolean frameAt(FileChannel channel, long position, long expectedLsn,
+                                   long size) throws IOException {
+        if (position == size) return true;
+        if (position + HEADER_SIZE > size) return false;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, position + header.position()) > 0) {
+            // keep reading
+        }
+        return !header.hasRemaining() && header.getLong(8) == expectedLsn;
+    }
+
+    // Append one record and wait until it is durable. Returns its LSN.
+    public long append(byte type, byte[] payload) {
+        long lsn = enqueue(type, payload);
+        awaitDurable(lsn);
+        return lsn;
+    }
+
+    // Queue one record without waiting (bulk loads: queue a batch, then awaitDurable
+    // on the last LSN, so the writer flushes it in as few forces as it can)
+    public long enqueue(byte type, byte[] payload) {
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Log record too large: " + payload.length + " bytes");
+        }
+        lock.lock();
+        try {
+            checkWritable();
+            long lsn = nextLsn++;
+            pending.add(frame(lsn, type, payload));
+            queued.signal();
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Wait until every record up to lsn is on disk
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for log flush"));
+                }
+            }
+            if (durableLsn < lsn) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (!recovered) throw new IllegalStateException("Log must be recovered before appending");
+        if (closed) throw new IllegalStateException("Log is closed");
+        if (failure != null) throw new UncheckedIOException("Write-ahead log failed", failure);
+    }
+
+    private static byte[] frame(long lsn, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(payload.length);
+        header.putInt(0); // checksum placeholder
+        header.putLong(lsn);
+        header.put(type);
+        crc.update(header.array(), 8, 9);
+        crc.update(payload);
+        header.putInt(4, (int) crc.getValue());
+
+        byte[] frame = new byte[HEADER_SIZE + payload.length];
+        System.arraycopy(header.array(), 0, frame, 0, HEADER_SIZE);
+        System.arraycopy(payload, 0, frame, HEADER_SIZE, payload.length);
+        return frame;
+    }
+
+    // Writer thread: one write + one force per batch of queued frames
+    private void writeLoop() {
+        while (true) {
+            ArrayList<byte[]> batch;
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        queued.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) return; // closed and drained
+                batch = pending;
+                pending = new ArrayList<>();
+                batchEnd = nextLsn - 1; // frames are queued in LSN order
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (channel == null || channelSize >= segmentBytes) {
+                    startSegment(batchEnd - batch.size() + 1);
+                }
+                int total = 0;
+                for (byte[] frame : batch) total += frame.length;
+                ByteBuffer buffer = ByteBuffer.allocate(total);
+                for (byte[] frame : batch) buffer.put(frame);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                channelSize += total;
+
+                lock.lock();
+                try {
+                    durableLsn = batchEnd;
+                    durablePosition = channelSize;
+                    syncCount++;
+                    recordCount += batch.size();
+                    bytesWritten += total;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    // Writer thread: close the full segment (already forced) and start the next one
+    // at firstLsn. The directory is forced too, so the new file survives a crash.
+    private void startSegment(long firstLsn) throws IOException {
+        Path segment = segmentPath(firstLsn);
+        FileChannel next = FileChannel.open(segment, StandardOpenOption.CREATE_NEW,
+                                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        forceDirectory(file.getParent());
+        if (channel != null) channel.close();
+        channel = next;
+        channelSize = 0;
+        lock.lock();
+        try {
+            segments.put(firstLsn, segment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Delete the segments whose changes are all at or below lsn (covered by a
+    // durable snapshot). The segment being written is always kept. Returns how
+    // many were deleted.
+    public int truncateBefore(long lsn) throws IOException {
+        ArrayList<Path> covered = new ArrayList<>();
+        lock.lock();
+        try {
+            while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= lsn + 1) {
+                covered.add(segments.pollFirstEntry().getValue());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path segment : covered) Files.deleteIfExists(segment);
+        return covered.size();
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return file.resolveSibling(file.getFileName() + "." + String.format("%020d", firstLsn));
+    }
+
+    // Make created, renamed or deleted directory entries durable (where the
+    // platform allows a directory to be opened)
+    static void forceDirectory(Path dir) {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // not supported here (e.g. Windows): entries are flushed by the OS
+        }
+    }
+
+    // Stop accepting records, let the writer drain what is queued, and close the file
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) channel.close();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return nextLsn - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDurableLsn() {
+        lock.lock();
+        try {
+            return durableLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Offset just past the last durable frame, in the segment that holds it
+    public long getDurablePosition() {
+        lock.lock();
+        try {
+            return durablePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBytesWritten() {
+        lock.lock();
+        try {
+            return bytesWritten;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
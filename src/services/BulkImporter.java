@@ -0,0 +1,516 @@
+package services;
+
+import models.*;
+import utils.Validator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Streams parcels, customers or vehicles from a CSV or JSON-lines file into the
+// repositories without reading the file into memory.
+//
+// Pipeline:
+//   1. The calling thread reads the file line by line and cuts it into chunks.
+//   2. Worker threads parse each chunk, apply the same Validator rules as the
+//      interactive screens and build the entities (parcels are priced by their
+//      constructor through ParcelFactory). Parcels without an ID get one from an
+//      IdAllocator lease taken once per chunk.
+//   3. The calling thread takes finished chunks back in file order and adds
+//      each one as a batch (addAll), so the change log is flushed once per
+//      chunk instead of once per row, before any row of the chunk is applied.
+// At most a few chunks are in flight, so memory stays flat however large the file.
+//
+// Rejected rows are written to <input>.rejected as "line<TAB>reason<TAB>original row".
+// Duplicate IDs and emails are only detected at insert time, against everything
+// already stored (including earlier rows of the same file).
+//
+// Workers read the user directory (parcel senders/receivers) while the calling
+// thread inserts, so an import must not run alongside other changes.
+public class BulkImporter {
+
+    public enum Kind {
+        PARCELS("parcel_id", "type", "sender_id", "receiver_id", "weight",
+                "dimensions", "description", "additional_info"),
+        CUSTOMERS("customer_id", "name", "email", "password", "phone", "address"),
+        VEHICLES("vehicle_id", "vehicle_type", "plate_number", "capacity");
+
+        private final String[] columns;
+
+        Kind(String... columns) {
+            this.columns = columns;
+        }
+
+        public String[] getColumns() {
+            return columns.clone();
+        }
+    }
+
+    // Columns that may be missing from the header / JSON object
+    private static final Set<String> OPTIONAL_COLUMNS = Set.of("parcel_id", "additional_info");
+
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    private UserDirectory users;
+    private ParcelRepository parcels;
+    private VehicleRepository vehicles;
+    private IdAllocator idAllocator;
+    private int threads;
+    private int chunkSize;
+
+    public BulkImporter(UserDirectory users, ParcelRepository parcels, VehicleRepository vehicles,
+                        IdAllocator idAllocator) {
+        this(users, parcels, vehicles, idAllocator,
+             Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImporter(UserDirectory users, ParcelRepository parcels, VehicleRepository vehicles,
+                        IdAllocator idAllocator, int threads, int chunkSize) {
+        this.users = users;
+        this.parcels = parcels;
+        this.vehicles = vehicles;
+        this.idAllocator = idAllocator;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Outcome of one import
+    public static class Result {
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long elapsedMillis;
+        private Path rejectFile; // null when nothing was rejected
+
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public Path getRejectFile() { return rejectFile; }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rowsRead : rowsRead * 1000.0 / elapsedMillis;
+        }
+    }
+
+    // Format follows the extension: .jsonl/.json = JSON lines, anything else CSV with a header
+    public static boolean isJsonLines(Path input) {
+        String name = input.getFileName().toString().toLowerCase();
+        return name.endsWith(".jsonl") || name.endsWith(".json");
+    }
+
+    public static Path rejectFileFor(Path input) {
+        return input.resolveSibling(input.getFileName() + ".rejected");
+    }
+
+    public Result importFile(Kind kind, Path input) throws IOException {
+        long start = System.currentTimeMillis();
+        boolean json = isJsonLines(input);
+        Path rejectPath = rejectFileFor(input);
+        Result result = new Result();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "import-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * 2;
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectPath, StandardCharsets.UTF_8)) {
+            int[] columnIndex = null; // CSV: canonical column -> header position
+            long lineNumber = 0;
+            Chunk chunk = new Chunk(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                if (!json && columnIndex == null) {
+                    columnIndex = mapHeader(kind, line);
+                    continue;
+                }
+                chunk.add(lineNumber, line);
+                if (chunk.size == chunkSize) {
+                    inFlight.add(submit(workers, kind, json, columnIndex, chunk));
+                    chunk = new Chunk(chunkSize);
+                    if (inFlight.size() >= maxInFlight) {
+                        insert(kind, await(inFlight.poll()), rejects, result);
+                    }
+                }
+            }
+            if (chunk.size > 0) inFlight.add(submit(workers, kind, json, columnIndex, chunk));
+            while (!inFlight.isEmpty()) {
+                insert(kind, await(inFlight.poll()), rejects, result);
+            }
+        } finally {
+            for (Future<Chunk> pending : inFlight) pending.cancel(true);
+            workers.shutdownNow();
+        }
+
+        if (result.rejected == 0) {
+            Files.deleteIfExists(rejectPath);
+        } else {
+            result.rejectFile = rejectPath;
+        }
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    // ---------- Reading ----------
+
+    // Lines of the file handed to one worker
+    private static class Chunk {
+        final long[] lineNumbers;
+        final String[] lines;
+        int size;
+
+        // Filled in by the worker
+        Object[] entities;   // Parcel / Customer / Vehicle, null if rejected
+        String[] reasons;
+
+        Chunk(int capacity) {
+            lineNumbers = new long[capacity];
+            lines = new String[capacity];
+        }
+
+        void add(long lineNumber, String line) {
+            lineNumbers[size] = lineNumber;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    private static int[] mapHeader(Kind kind, String headerLine) throws IOException {
+        List<String> header = parseCsvLine(headerLine);
+        int[] index = new int[kind.columns.length];
+        for (int c = 0; c < kind.columns.length; c++) {
+            index[c] = -1;
+            for (int h = 0; h < header.size(); h++) {
+                if (header.get(h).trim().equalsIgnoreCase(kind.columns[c])) {
+                    index[c] = h;
+                    break;
+                }
+            }
+            if (index[c] < 0 && !OPTIONAL_COLUMNS.contains(kind.columns[c])) {
+                throw new IOException("CSV header is missing column '" + kind.columns[c] + "' (expected: "
+                                      + String.join(",", kind.columns) + ")");
+            }
+        }
+        return index;
+    }
+
+    private Future<Chunk> submit(ExecutorService workers, Kind kind, boolean json,
+                                 int[] columnIndex, Chunk chunk) {
+        return workers.submit(() -> {
+            validate(kind, json, columnIndex, chunk);
+            return chunk;
+        });
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import worker failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // ---------- Validation (worker threads) ----------
+
+    private void validate(Kind kind, boolean json, int[] columnIndex, Chunk chunk) {
+        chunk.entities = new Object[chunk.size];
+        chunk.reasons = new String[chunk.size];
+        String[][] rows = new String[chunk.size][];
+        int missingIds = 0;
+
+        for (int i = 0; i < chunk.size; i++) {
+            try {
+                rows[i] = json ? fromJson(kind, chunk.lines[i]) : fromCsv(kind, columnIndex, chunk.lines[i]);
+                chunk.reasons[i] = checkRow(kind, rows[i]);
+            } catch (IllegalArgumentException e) {
+                chunk.reasons[i] = e.getMessage();
+            }
+            if (chunk.reasons[i] == null && kind == Kind.PARCELS && rows[i][0].isEmpty()) {
+                missingIds++;
+            }
+        }
+
+        // One lease per chunk covers every valid parcel that came without an ID
+        IdAllocator.Lease lease = missingIds == 0 ? null : idAllocator.lease(IdAllocator.PARCEL, missingIds);
+        for (int i = 0; i < chunk.size; i++) {
+            if (chunk.reasons[i] == null) chunk.entities[i] = build(kind, rows[i], lease);
+        }
+    }
+
+    // Same rules as the interactive screens; null if the row is valid
+    private String checkRow(Kind kind, String[] row) {
+        switch (kind) {
+            case PARCELS: {
+                if (!row[0].isEmpty() && !row[0].matches("P\\d{3,}")) return "Invalid parcel ID: " + row[0];
+                if (!Validator.isValidParcelType(row[1])) return "Invalid parcel type: " + row[1];
+                if (users.findCustomerById(row[2]) == null) return "Unknown sender: " + row[2];
+                if (users.findCustomerById(row[3]) == null) return "Unknown receiver: " + row[3];
+                Double weight = parseNumber(row[4]);
+                if (weight == null || !Validator.isValidWeight(weight)) {
+                    return "Invalid weight (must be between 0.1 and 100 kg): " + row[4];
+                }
+                if (!Validator.isValidDimensions(row[5])) return "Invalid dimensions (use LxWxH): " + row[5];
+                return null;
+            }
+            case CUSTOMERS:
+                if (!Validator.isValidCustomerId(row[0])) return "Invalid customer ID: " + row[0];
+                if (row[1].length() < 2) return "Name must be at least 2 characters";
+                if (!Validator.isValidEmail(row[2])) return "Invalid email: " + row[2];
+                if (row[3].length() < 6) return "Password must be at least 6 characters";
+                if (!Validator.isValidPhone(row[4])) return "Invalid phone number: " + row[4];
+                if (row[5].length() < 10) return "Address must be at least 10 characters";
+                return null;
+            default: {
+                if (row[0].isEmpty()) return "Missing vehicle ID";
+                Double capacity = parseNumber(row[3]);
+                if (capacity == null || capacity <= 0) return "Capacity must be positive: " + row[3];
+                return null;
+            }
+        }
+    }
+
+    private Object build(Kind kind, String[] row, IdAllocator.Lease lease) {
+        switch (kind) {
+            case PARCELS: {
+                String parcelId = row[0].isEmpty() ? lease.next() : row[0];
+                return ParcelFactory.createParcel(row[1].trim().toUpperCase(), parcelId,
+                        users.findCustomerById(row[2]), users.findCustomerById(row[3]),
+                        Double.parseDouble(row[4]), row[5], row[6], row[7]);
+            }
+            case CUSTOMERS:
+                return new Customer(row[0], row[1], row[2], row[3], row[4], row[5]);
+            default:
+                return new Vehicle(row[0], row[1], row[2], Double.parseDouble(row[3]));
+        }
+    }
+
+    private static Double parseNumber(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ---------- Insertion (calling thread, file order) ----------
+
+    private void insert(Kind kind, Chunk chunk, BufferedWriter rejects, Result result) throws IOException {
+        ArrayList<Object> valid = new ArrayList<>(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            if (chunk.reasons[i] == null) valid.add(chunk.entities[i]);
+        }
+        boolean[] added = store(kind, valid);
+
+        int next = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            result.rowsRead++;
+            String reason = chunk.reasons[i];
+            if (reason == null && !added[next++]) reason = duplicateReason(kind, chunk.entities[i]);
+            if (reason == null) {
+                result.imported++;
+            } else {
+                result.rejected++;
+                rejects.write(chunk.lineNumbers[i] + "\t" + reason + "\t" + chunk.lines[i]);
+                rejects.newLine();
+            }
+        }
+    }
+
+    // Add a chunk's validated entities in one batch (one log flush); returns
+    // which were added - the rest clash with stored data or an earlier row
+    @SuppressWarnings("unchecked")
+    private boolean[] store(Kind kind, ArrayList<Object> entities) {
+        boolean[] added;
+        switch (kind) {
+            case PARCELS:
+                added = parcels.addAll((List<Parcel>) (List<?>) entities);
+                break;
+            case CUSTOMERS:
+                added = users.addAll((List<Customer>) (List<?>) entities);
+                break;
+            default:
+                added = vehicles.addAll((List<Vehicle>) (List<?>) entities);
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (added[i]) idAllocator.observe(idOf(kind, entities.get(i)));
+        }
+        return added;
+    }
+
+    private static String idOf(Kind kind, Object entity) {
+        switch (kind) {
+            case PARCELS: return ((Parcel) entity).getParcelId();
+            case CUSTOMERS: return ((Customer) entity).getUserId();
+            default: return ((Vehicle) entity).getVehicleId();
+        }
+    }
+
+    private static String duplicateReason(Kind kind, Object entity) {
+        switch (kind) {
+            case PARCELS: return "Duplicate parcel ID: " + idOf(kind, entity);
+            case CUSTOMERS: return "Duplicate customer ID or email: " + idOf(kind, entity);
+            default: return "Duplicate vehicle ID: " + idOf(kind, entity);
+        }
+    }
+
+    // ---------- Parsing ----------
+
+    // Row values in the kind's column order; missing optional columns become ""
+    private static String[] fromCsv(Kind kind, int[] columnIndex, String line) {
+        List<String> fields = parseCsvLine(line);
+        String[] row = new String[kind.columns.length];
+        for (int c = 0; c < row.length; c++) {
+            int index = columnIndex[c];
+            if (index >= fields.size()) {
+                throw new IllegalArgumentException("Expected " + (index + 1) + " fields, found " + fields.size());
+            }
+            row[c] = index < 0 ? "" : fields.get(index).trim();
+        }
+        return row;
+    }
+
+    private static String[] fromJson(Kind kind, String line) {
+        Map<String, String> object = parseJsonObject(line);
+        String[] row = new String[kind.columns.length];
+        for (int c = 0; c < row.length; c++) {
+            String value = object.get(kind.columns[c]);
+            if (value == null && !OPTIONAL_COLUMNS.contains(kind.columns[c])) {
+                throw new IllegalArgumentException("Missing field '" + kind.columns[c] + "'");
+            }
+            row[c] = value == null ? "" : value.trim();
+        }
+        return row;
+    }
+
+    // Comma-separated fields; double quotes around a field allow commas, "" is a quote.
+    // Fields cannot span lines.
+    static List<String> parseCsvLine(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // One flat JSON object per line: string, number, boolean or null values.
+    // Numbers and booleans are kept as their text; null is treated as missing.
+    static Map<String, String> parseJsonObject(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        HashMap<String, String> object = new HashMap<>();
+        cursor.expect('{');
+        if (cursor.peek() == '}') {
+            cursor.pos++;
+        } else {
+            while (true) {
+                String key = cursor.readString();
+                cursor.expect(':');
+                String value = cursor.readValue();
+                if (value != null) object.put(key, value);
+                char next = cursor.next();
+                if (next == '}') break;
+                if (next != ',') throw new IllegalArgumentException("Expected ',' or '}' at column " + cursor.pos);
+            }
+        }
+        if (cursor.peek() != 0) throw new IllegalArgumentException("Unexpected text after JSON object");
+        return object;
+    }
+
+    private static class JsonCursor {
+        final String text;
+        int pos;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        // Next non-blank character without consuming it (0 at the end)
+        char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        char next() {
+            char ch = peek();
+            if (ch == 0) throw new IllegalArgumentException("Unexpected end of JSON");
+            pos++;
+            return ch;
+        }
+
+        void expect(char ch) {
+            if (next() != ch) throw new IllegalArgumentException("Expected '" + ch + "' at column " + pos);
+        }
+
+        String readValue() {
+            char ch = peek();
+            if (ch == '"') return readString();
+            if (ch == '{' || ch == '[') throw new IllegalArgumentException("Nested values are not supported");
+            int start = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0) pos++;
+            String literal = text.substring(start, pos).trim();
+            if (literal.isEmpty()) throw new IllegalArgumentException("Missing value at column " + start);
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char ch = text.charAt(pos++);
+                if (ch == '"') return value.toString();
+                if (ch != '\\') {
+                    value.append(ch);
+                    continue;
+                }
+                if (pos >= text.length()) break;
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) throw new IllegalArgumentException("Bad \\u escape");
+                        value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: value.append(escaped); // \" \\ \/
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package services;
+
+import models.*;
+
+// Entity lifecycle callbacks published by the repositories through the EventBus.
+// All methods are no-ops by default so listeners only override what they track.
+// The arguments carry the new state, so the same callbacks also describe a
+// change before it is applied (EventBus.journal).
+public interface CourierEventListener {
+
+    default void userAdded(User user) {}
+
+    default void loyaltyPointsChanged(Customer customer, int delta) {}
+
+    default void staffAvailabilityChanged(Staff staff, boolean available) {}
+
+    default void parcelCreated(Parcel parcel) {}
+
+    default void parcelStatusChanged(Parcel parcel, ParcelStatus oldStatus, ParcelStatus newStatus) {}
+
+    // Parcel (and its closed delivery, may be null) moved from the live tier to the archive
+    default void parcelArchived(Parcel parcel, Delivery delivery) {}
+
+    default void deliveryCreated(Delivery delivery) {}
+
+    default void deliveryStatusChanged(Delivery delivery, DeliveryStatus oldStatus,
+                                       DeliveryStatus newStatus) {}
+
+    default void deliveryStaffAssigned(Delivery delivery, Staff oldStaff, Staff newStaff) {}
+
+    default void deliveryRouteAssigned(Delivery delivery, String route) {}
+
+    default void vehicleAdded(Vehicle vehicle) {}
+
+    default void vehicleAssigned(Vehicle vehicle, Delivery delivery) {}
+
+    default void vehicleReleased(Vehicle vehicle, String deliveryId) {}
+
+    default void vehicleAvailabilityChanged(Vehicle vehicle) {}
+
+    default void paymentRecorded(Payment payment) {}
+
+    default void paymentStatusChanged(Payment payment, PaymentStatus oldStatus, PaymentStatus newStatus) {}
+
+    // Bracket a run of events that belong together (bulk adds). Listeners may
+    // defer per-event work until batchFinished, e.g. the log waits for one flush.
+    default void batchStarted() {}
+
+    default void batchFinished() {}
+}
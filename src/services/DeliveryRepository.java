@@ -0,0 +1,258 @@
+package services;
+
+import models.Delivery;
+import models.DeliveryStatus;
+import models.Parcel;
+import models.Staff;
+import models.Vehicle;
+import java.util.*;
+
+public class DeliveryRepository {
+
+    // Primary key index: deliveryId -> Delivery
+    private HashMap<String, Delivery> deliveriesById;
+
+    // Creation order, for listings and for reading by position (get); removed
+    // deliveries are swept out at the next ordered read (as in ParcelRepository)
+    private ArrayList<Delivery> inOrder;
+    private boolean hasRemoved;
+
+    // Parcel -> Delivery link (Delivery -> Parcel is Delivery.getParcel())
+    private HashMap<String, Delivery> deliveryByParcelId;
+
+    // Staff workload index: staffId -> deliveryIds (creation order),
+    // and staffId -> status -> deliveryIds for "my deliveries in status X"
+    private HashMap<String, LinkedHashSet<String>> deliveriesByStaff;
+    private HashMap<String, EnumMap<DeliveryStatus, LinkedHashSet<String>>> deliveriesByStaffStatus;
+
+    private EventBus events;
+
+    // Fleet whose manifests a closed delivery is taken off (null = none kept)
+    private VehicleRepository vehicles;
+
+    public DeliveryRepository() {
+        this(new EventBus());
+    }
+
+    public DeliveryRepository(EventBus events) {
+        this(events, null);
+    }
+
+    public DeliveryRepository(EventBus events, VehicleRepository vehicles) {
+        this.events = events;
+        this.vehicles = vehicles;
+        deliveriesById = new HashMap<>();
+        inOrder = new ArrayList<>();
+        deliveryByParcelId = new HashMap<>();
+        deliveriesByStaff = new HashMap<>();
+        deliveriesByStaffStatus = new HashMap<>();
+    }
+
+    // Add delivery (rejects duplicate IDs) and link it to its parcel
+    public boolean add(Delivery delivery) {
+        if (delivery == null || deliveriesById.containsKey(delivery.getDeliveryId())) {
+            return false;
+        }
+        events.journal().deliveryCreated(delivery);
+        deliveriesById.put(delivery.getDeliveryId(), delivery);
+        inOrder.add(delivery);
+        deliveryByParcelId.put(delivery.getParcel().getParcelId(), delivery);
+        indexStaff(delivery);
+        events.deliveryCreated(delivery);
+        return true;
+    }
+
+    // Update status through the repository so the staff status buckets stay current.
+    // A delivery reaching an end state is taken off its vehicle, freeing its share.
+    // Returns false (and leaves the delivery untouched) for an illegal transition.
+    public boolean updateStatus(Delivery delivery, DeliveryStatus newStatus) {
+        DeliveryStatus oldStatus = delivery.getStatus();
+        if (!oldStatus.canTransitionTo(newStatus)) {
+            return false;
+        }
+        events.journal().deliveryStatusChanged(delivery, oldStatus, newStatus);
+        unindexStaff(delivery);
+        delivery.updateDeliveryStatus(newStatus);
+        indexStaff(delivery);
+        events.deliveryStatusChanged(delivery, oldStatus, newStatus);
+        if (newStatus.isTerminal()) releaseVehicle(delivery);
+        return true;
+    }
+
+    // Take closed deliveries off the vehicles still carrying them (data written
+    // before updateStatus released them); returns how many were released
+    public int releaseClosed() {
+        int released = 0;
+        for (Delivery delivery : deliveriesById.values()) {
+            if (delivery.getStatus().isTerminal() && releaseVehicle(delivery)) released++;
+        }
+        return released;
+    }
+
+    private boolean releaseVehicle(Delivery delivery) {
+        Vehicle vehicle = delivery.getAssignedVehicle();
+        return vehicles != null && vehicle != null && vehicles.release(vehicle, delivery.getDeliveryId());
+    }
+
+    // Recovery path: apply a recorded status as-is, without console output
+    public void restoreStatus(Delivery delivery, DeliveryStatus status) {
+        DeliveryStatus oldStatus = delivery.getStatus();
+        if (oldStatus == status) return;
+        events.journal().deliveryStatusChanged(delivery, oldStatus, status);
+        unindexStaff(delivery);
+        delivery.setStatus(status);
+        indexStaff(delivery);
+        events.deliveryStatusChanged(delivery, oldStatus, status);
+    }
+
+    // (Re)assign delivery staff and move the delivery to the new staff's buckets
+    public void assignStaff(Delivery delivery, Staff staff) {
+        Staff oldStaff = delivery.getDeliveryPerson();
+        events.journal().deliveryStaffAssigned(delivery, oldStaff, staff);
+        unindexStaff(delivery);
+        delivery.setDeliveryPerson(staff);
+        indexStaff(delivery);
+        events.deliveryStaffAssigned(delivery, oldStaff, staff);
+    }
+
+    // Hand a delivery to staff and move it to "Assigned". Returns false, and
+    // changes nothing, when the delivery is past the point it can be assigned
+    public boolean assignTo(Delivery delivery, Staff staff) {
+        if (!delivery.getStatus().canTransitionTo(DeliveryStatus.ASSIGNED)) {
+            return false;
+        }
+        assignStaff(delivery, staff);
+        return updateStatus(delivery, DeliveryStatus.ASSIGNED);
+    }
+
+    // Route label from the route planner (e.g. "V001 run, stop 3 of 12")
+    public void assignRoute(Delivery delivery, String route) {
+        events.journal().deliveryRouteAssigned(delivery, route);
+        delivery.setRoute(route);
+        events.deliveryRouteAssigned(delivery, route);
+    }
+
+    // Drop a delivery from the live tier and its indexes (used when its parcel is
+    // archived; ParcelArchiver logs the move)
+    public boolean remove(Delivery delivery) {
+        if (deliveriesById.remove(delivery.getDeliveryId()) == null) return false;
+        deliveryByParcelId.remove(delivery.getParcel().getParcelId());
+        unindexStaff(delivery);
+        hasRemoved = true;
+        return true;
+    }
+
+    // Find delivery by ID - O(1)
+    public Delivery findById(String deliveryId) {
+        if (deliveryId == null) return null;
+        return deliveriesById.get(deliveryId);
+    }
+
+    // Find the delivery linked to a parcel - O(1)
+    public Delivery findByParcelId(String parcelId) {
+        if (parcelId == null) return null;
+        return deliveryByParcelId.get(parcelId);
+    }
+
+    public Delivery findByParcel(Parcel parcel) {
+        return parcel == null ? null : findByParcelId(parcel.getParcelId());
+    }
+
+    // All deliveries assigned to a staff member (creation order)
+    public List<Delivery> findByStaff(String staffId) {
+        return resolve(deliveriesByStaff.get(staffId));
+    }
+
+    // Deliveries assigned to a staff member that are in the given status
+    public List<Delivery> findByStaffAndStatus(String staffId, DeliveryStatus status) {
+        EnumMap<DeliveryStatus, LinkedHashSet<String>> buckets = deliveriesByStaffStatus.get(staffId);
+        return resolve(buckets == null ? null : buckets.get(status));
+    }
+
+    // Number of deliveries a staff member holds that are not yet closed
+    public int countActiveByStaff(String staffId) {
+        EnumMap<DeliveryStatus, LinkedHashSet<String>> buckets = deliveriesByStaffStatus.get(staffId);
+        if (buckets == null) return 0;
+        int count = 0;
+        for (Map.Entry<DeliveryStatus, LinkedHashSet<String>> bucket : buckets.entrySet()) {
+            if (!bucket.getKey().isTerminal()) {
+                count += bucket.getValue().size();
+            }
+        }
+        return count;
+    }
+
+    public boolean contains(String deliveryId) {
+        return deliveryId != null && deliveriesById.containsKey(deliveryId);
+    }
+
+    public int size() {
+        return deliveriesById.size();
+    }
+
+    public boolean isEmpty() {
+        return deliveriesById.isEmpty();
+    }
+
+    // Read-only view of all deliveries in creation order
+    public Collection<Delivery> getAll() {
+        sweep();
+        return Collections.unmodifiableList(inOrder);
+    }
+
+    // Delivery at a position in creation order (0 .. size() - 1)
+    public Delivery get(int position) {
+        sweep();
+        return inOrder.get(position);
+    }
+
+    private void sweep() {
+        if (!hasRemoved) return;
+        inOrder.removeIf(delivery -> deliveriesById.get(delivery.getDeliveryId()) != delivery);
+        hasRemoved = false;
+    }
+
+    private void indexStaff(Delivery delivery) {
+        if (delivery.getDeliveryPerson() == null) return;
+        String staffId = delivery.getDeliveryPerson().getUserId();
+        String deliveryId = delivery.getDeliveryId();
+        deliveriesByStaff.computeIfAbsent(staffId, k -> new LinkedHashSet<>()).add(deliveryId);
+        deliveriesByStaffStatus.computeIfAbsent(staffId, k -> new EnumMap<>(DeliveryStatus.class))
+                               .computeIfAbsent(delivery.getStatus(), k -> new LinkedHashSet<>())
+                               .add(deliveryId);
+    }
+
+    private void unindexStaff(Delivery delivery) {
+        if (delivery.getDeliveryPerson() == null) return;
+        String staffId = delivery.getDeliveryPerson().getUserId();
+        String deliveryId = delivery.getDeliveryId();
+
+        LinkedHashSet<String> all = deliveriesByStaff.get(staffId);
+        if (all != null) {
+            all.remove(deliveryId);
+            if (all.isEmpty()) deliveriesByStaff.remove(staffId);
+        }
+
+        EnumMap<DeliveryStatus, LinkedHashSet<String>> buckets = deliveriesByStaffStatus.get(staffId);
+        if (buckets != null) {
+            LinkedHashSet<String> bucket = buckets.get(delivery.getStatus());
+            if (bucket != null) {
+                bucket.remove(deliveryId);
+                if (bucket.isEmpty()) buckets.remove(delivery.getStatus());
+            }
+            if (buckets.isEmpty()) deliveriesByStaffStatus.remove(staffId);
+        }
+    }
+
+    private ArrayList<Delivery> resolve(LinkedHashSet<String> deliveryIds) {
+        ArrayList<Delivery> result = new ArrayList<>();
+        if (deliveryIds == null) return result;
+        for (String deliveryId : deliveryIds) {
+            Delivery delivery = deliveriesById.get(deliveryId);
+            if (delivery != null) {
+                result.add(delivery);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,223 @@
+package services;
+
+import models.*;
+import java.util.*;
+
+// Assigns delivery staff and vehicles to new parcels in batches.
+//
+// Parcels are queued as they are created and dispatched together once the batch
+// window has passed (or the batch is full). Within a batch:
+//   - Express parcels go first, then heavier before lighter, so the scarce large
+//     vehicles are not used up by small parcels that fit elsewhere
+//   - vehicles carry many deliveries up to their capacity; each parcel goes on
+//     the vehicle with the least room left that still fits it (best-fit
+//     decreasing over the VehicleRepository's remaining-capacity pool), so loads
+//     are consolidated before another vehicle is started
+//   - each parcel goes to the available staff member with the fewest open
+//     deliveries (the StaffPool), so work spreads across drivers
+// A window of 0 dispatches every parcel on its own straight away (the console
+// default, so customers still see their driver immediately).
+//
+// Every batch is also run through the old first-fit rule on paper (first available
+// staff, first idle vehicle in fleet order that can carry the parcel, one parcel
+// per vehicle) so the metrics can show fleet utilization and driver load both ways.
+public class Dispatcher {
+
+    private UserDirectory users;
+    private DeliveryRepository deliveries;
+    private VehicleRepository vehicles;
+    private StaffPool staffPool;
+    private IdAllocator idAllocator;
+    private long windowMillis;
+    private int maxBatch;
+
+    // Parcels waiting for the next batch (submission order)
+    private ArrayList<Parcel> pending;
+    private long windowStart;
+
+    private Metrics metrics;
+
+    // staffPool must be subscribed to the same EventBus as users and deliveries
+    public Dispatcher(UserDirectory users, DeliveryRepository deliveries, VehicleRepository vehicles,
+                      StaffPool staffPool, IdAllocator idAllocator, long windowMillis, int maxBatch) {
+        this.users = users;
+        this.deliveries = deliveries;
+        this.vehicles = vehicles;
+        this.staffPool = staffPool;
+        this.idAllocator = idAllocator;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.pending = new ArrayList<>();
+        this.metrics = new Metrics();
+    }
+
+    // Queue a parcel; dispatches right away when the window is 0 or the batch is full.
+    // Returns the deliveries created by this call (empty if the parcel is still waiting).
+    public List<Delivery> submit(Parcel parcel) {
+        if (pending.isEmpty()) windowStart = System.currentTimeMillis();
+        pending.add(parcel);
+        if (windowMillis == 0 || pending.size() >= maxBatch) {
+            return dispatch();
+        }
+        return Collections.emptyList();
+    }
+
+    // Dispatch if the window has passed. Call only between operations.
+    public List<Delivery> maybeDispatch() {
+        if (pending.isEmpty() || System.currentTimeMillis() - windowStart < windowMillis) {
+            return Collections.emptyList();
+        }
+        return dispatch();
+    }
+
+    // Dispatch everything queued now. Parcels stay queued if no staff is available.
+    public List<Delivery> dispatch() {
+        if (pending.isEmpty()) return Collections.emptyList();
+
+        if (staffPool.size() == 0) return Collections.emptyList();
+
+        ArrayList<Parcel> batch = pending;
+        pending = new ArrayList<>();
+        recordFirstFit(batch);
+
+        // Express first, then heaviest first (stable: ties keep submission order)
+        batch.sort(Comparator.comparing((Parcel parcel) -> !(parcel instanceof ExpressParcel))
+                             .thenComparing(Parcel::getWeight, Comparator.reverseOrder()));
+
+        // Both pools re-order themselves from the add / assign events, so every
+        // lookup sees the loads left by the parcels before it
+        ArrayList<Delivery> created = new ArrayList<>(batch.size());
+        for (Parcel parcel : batch) {
+            Delivery delivery = new Delivery(idAllocator.next(IdAllocator.DELIVERY), parcel,
+                                             staffPool.leastLoaded());
+            deliveries.add(delivery);
+
+            Vehicle vehicle = vehicles.findBestFit(parcel.getWeight());
+            boolean newTrip = vehicle != null && vehicle.isAvailable();
+            if (vehicle != null) vehicles.assign(vehicle, delivery);
+            metrics.record(metrics.dispatched, parcel, vehicle, newTrip);
+            created.add(delivery);
+        }
+        metrics.batches++;
+        metrics.dispatched.maxDriverLoad = staffPool.getMaxLoad();
+        return created;
+    }
+
+    public boolean isPending(Parcel parcel) {
+        return pending.contains(parcel);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    // ---------- Helpers ----------
+
+    // The old rule scanned the directory, so its simulation does too
+    private List<Staff> availableStaff() {
+        ArrayList<Staff> available = new ArrayList<>();
+        for (Staff staff : users.getStaff()) {
+            if (staff.isAvailable()) available.add(staff);
+        }
+        return available;
+    }
+
+    private List<Vehicle> idleVehicles() {
+        ArrayList<Vehicle> idle = new ArrayList<>();
+        for (Vehicle vehicle : vehicles.getAll()) {
+            if (vehicle.isAvailable()) idle.add(vehicle);
+        }
+        return idle;
+    }
+
+    // What the old assignDelivery would have done with the same batch
+    private void recordFirstFit(List<Parcel> batch) {
+        List<Staff> staff = availableStaff();
+        List<Vehicle> idleVehicles = idleVehicles();
+        boolean[] used = new boolean[idleVehicles.size()];
+        for (Parcel parcel : batch) {
+            Vehicle chosen = null;
+            for (int v = 0; v < idleVehicles.size(); v++) {
+                if (!used[v] && idleVehicles.get(v).getCapacity() >= parcel.getWeight()) {
+                    used[v] = true;
+                    chosen = idleVehicles.get(v);
+                    break;
+                }
+            }
+            metrics.record(metrics.firstFit, parcel, chosen, true);
+        }
+        // Every parcel goes to the first available staff member
+        int[] load = new int[staff.size()];
+        for (int i = 0; i < staff.size(); i++) {
+            load[i] = deliveries.countActiveByStaff(staff.get(i).getUserId());
+        }
+        load[0] += batch.size();
+        metrics.firstFit.maxDriverLoad = max(load);
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) max = Math.max(max, value);
+        return max;
+    }
+
+    // ---------- Metrics ----------
+
+    // Totals for one assignment rule
+    public static class Totals {
+        private long parcels;
+        private long withVehicle;
+        private long express;
+        private long expressWithVehicle;
+        private double weightCarried;
+        private long trips;            // times an idle vehicle was put into service
+        private double capacityUsed;   // capacity of those vehicles, once per trip
+        private int maxDriverLoad;     // open deliveries on the busiest driver after the last batch
+
+        public long getParcels() { return parcels; }
+        public long getWithVehicle() { return withVehicle; }
+        public long getWithoutVehicle() { return parcels - withVehicle; }
+        public long getExpress() { return express; }
+        public long getExpressWithVehicle() { return expressWithVehicle; }
+        public long getTrips() { return trips; }
+        public int getMaxDriverLoad() { return maxDriverLoad; }
+
+        // Share of the capacity of vehicles in service actually filled with parcel weight
+        public double getUtilization() {
+            return capacityUsed == 0 ? 0 : weightCarried / capacityUsed;
+        }
+    }
+
+    public static class Metrics {
+        private long batches;
+        private final Totals dispatched = new Totals();
+        private final Totals firstFit = new Totals();
+
+        public long getBatches() { return batches; }
+        public Totals getDispatched() { return dispatched; }
+        public Totals getFirstFit() { return firstFit; }
+
+        private void record(Totals totals, Parcel parcel, Vehicle vehicle, boolean newTrip) {
+            totals.parcels++;
+            boolean express = parcel instanceof ExpressParcel;
+            if (express) totals.express++;
+            if (vehicle != null) {
+                totals.withVehicle++;
+                if (express) totals.expressWithVehicle++;
+                totals.weightCarried += parcel.getWeight();
+                if (newTrip) {
+                    totals.trips++;
+                    totals.capacityUsed += vehicle.getCapacity();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package services;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Distances between service areas, loaded from a CSV file (see distances.csv
+// next to this class for the format and the built-in Klang Valley table).
+// Place 0 is the depot. Distances sit in one flat row-major array so the route
+// planner's inner loops only do index arithmetic.
+public class DistanceMatrix {
+
+    public static final int DEPOT = 0;
+
+    private final String[] names;
+    private final double[] distances;   // names.length * names.length
+    private final int size;
+
+    // Lower-cased name or alias -> place index
+    private final HashMap<String, Integer> indexByName;
+
+    public DistanceMatrix(String[] names, double[] distances) {
+        if (distances.length != names.length * names.length) {
+            throw new IllegalArgumentException("Need " + names.length * names.length + " distances, got "
+                                               + distances.length);
+        }
+        this.size = names.length;
+        this.names = new String[size];
+        this.distances = distances;
+        this.indexByName = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String[] aliases = names[i].split("\\|");
+            this.names[i] = aliases[0].trim();
+            for (String alias : aliases) {
+                indexByName.putIfAbsent(alias.trim().toLowerCase(), i);
+            }
+        }
+    }
+
+    // ---------- Loading ----------
+
+    public static DistanceMatrix load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader, file.toString());
+        }
+    }
+
+    // The table shipped with the application
+    public static DistanceMatrix loadBuiltIn() throws IOException {
+        InputStream in = DistanceMatrix.class.getResourceAsStream("distances.csv");
+        if (in == null) throw new FileNotFoundException("Built-in distances.csv is missing");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return load(reader, "built-in distances.csv");
+        }
+    }
+
+    public static DistanceMatrix load(BufferedReader reader, String source) throws IOException {
+        String[] header = null;
+        double[] distances = null;
+        int row = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] cells = line.split(",", -1);
+            if (header == null) {
+                header = Arrays.copyOfRange(cells, 1, cells.length);
+                distances = new double[header.length * header.length];
+                continue;
+            }
+            if (row == header.length) {
+                throw new IOException(source + ":" + lineNumber + ": more rows than places");
+            }
+            if (cells.length != header.length + 1) {
+                throw new IOException(source + ":" + lineNumber + ": expected " + (header.length + 1)
+                                      + " cells, found " + cells.length);
+            }
+            for (int col = 0; col < header.length; col++) {
+                try {
+                    distances[row * header.length + col] = Double.parseDouble(cells[col + 1].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException(source + ":" + lineNumber + ": bad distance '" + cells[col + 1] + "'");
+                }
+            }
+            row++;
+        }
+        if (header == null || header.length == 0) throw new IOException(source + ": no places");
+        if (row != header.length) {
+            throw new IOException(source + ": " + header.length + " places but " + row + " rows");
+        }
+        validate(header, distances, source);
+        return new DistanceMatrix(header, distances);
+    }
+
+    // 2-opt reverses parts of a route, which is only safe on a symmetric table
+    private static void validate(String[] names, double[] distances, String source) throws IOException {
+        int n = names.length;
+        for (int i = 0; i < n; i++) {
+            if (distances[i * n + i] != 0) {
+                throw new IOException(source + ": distance from " + names[i] + " to itself is not 0");
+            }
+            for (int j = i + 1; j < n; j++) {
+                double there = distances[i * n + j];
+                double back = distances[j * n + i];
+                if (there < 0 || Double.isNaN(there) || Double.isInfinite(there)) {
+                    throw new IOException(source + ": bad distance " + names[i] + " -> " + names[j]);
+                }
+                if (Math.abs(there - back) > 1e-9) {
+                    throw new IOException(source + ": " + names[i] + " -> " + names[j] + " is " + there
+                                          + " but the way back is " + back);
+                }
+            }
+        }
+    }
+
+    // ---------- Lookups ----------
+
+    public double distance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int place) {
+        return names[place];
+    }
+
+    // Place for an address: a comma-separated part equal to a name or alias
+    // (last part first, where the area usually is), else the longest name the
+    // address contains. -1 if nothing matches.
+    public int indexOf(String address) {
+        if (address == null) return -1;
+        String[] parts = address.split(",");
+        for (int i = parts.length - 1; i >= 0; i--) {
+            Integer place = indexByName.get(parts[i].trim().toLowerCase());
+            if (place != null) return place;
+        }
+        String text = address.toLowerCase();
+        int best = -1;
+        int bestLength = 0;
+        for (Map.Entry<String, Integer> entry : indexByName.entrySet()) {
+            // short aliases such as "KL" only count as whole parts
+            if (entry.getKey().length() > 3 && entry.getKey().length() > bestLength
+                    && text.contains(entry.getKey())) {
+                best = entry.getValue();
+                bestLength = entry.getKey().length();
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,140 @@
+package services;
+
+import models.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class EventBus implements CourierEventListener {
+
+    private static final CourierEventListener NO_JOURNAL = new CourierEventListener() {};
+
+    // Listeners are registered once at startup and read on every event
+    private CopyOnWriteArrayList<CourierEventListener> listeners;
+
+    // Write-ahead journal (the change log), told about a change BEFORE it is
+    // applied: repositories call journal() first and apply the change once it
+    // returns, so the log has every change in the order it was applied.
+    // Listeners hear about the change afterwards. The record is durable when
+    // the call returns, unless the calling thread has a batch open; then it is
+    // durable once the outermost batchFinished returns (see LogRecorder).
+    private volatile CourierEventListener journal = NO_JOURNAL;
+
+    public EventBus() {
+        listeners = new CopyOnWriteArrayList<>();
+    }
+
+    public void setJournal(CourierEventListener journal) {
+        this.journal = journal == null ? NO_JOURNAL : journal;
+    }
+
+    // The journal, or a no-op one (no log yet, e.g. while recovering from it)
+    public CourierEventListener journal() {
+        return journal;
+    }
+
+    public void subscribe(CourierEventListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void unsubscribe(CourierEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void userAdded(User user) {
+        for (CourierEventListener listener : listeners) listener.userAdded(user);
+    }
+
+    @Override
+    public void loyaltyPointsChanged(Customer customer, int delta) {
+        for (CourierEventListener listener : listeners) listener.loyaltyPointsChanged(customer, delta);
+    }
+
+    @Override
+    public void staffAvailabilityChanged(Staff staff, boolean available) {
+        for (CourierEventListener listener : listeners) listener.staffAvailabilityChanged(staff, available);
+    }
+
+    @Override
+    public void parcelCreated(Parcel parcel) {
+        for (CourierEventListener listener : listeners) listener.parcelCreated(parcel);
+    }
+
+    @Override
+    public void parcelStatusChanged(Parcel parcel, ParcelStatus oldStatus, ParcelStatus newStatus) {
+        for (CourierEventListener listener : listeners) {
+            listener.parcelStatusChanged(parcel, oldStatus, newStatus);
+        }
+    }
+
+    @Override
+    public void parcelArchived(Parcel parcel, Delivery delivery) {
+        for (CourierEventListener listener : listeners) listener.parcelArchived(parcel, delivery);
+    }
+
+    @Override
+    public void deliveryCreated(Delivery delivery) {
+        for (CourierEventListener listener : listeners) listener.deliveryCreated(delivery);
+    }
+
+    @Override
+    public void deliveryStatusChanged(Delivery delivery, DeliveryStatus oldStatus,
+                                      DeliveryStatus newStatus) {
+        for (CourierEventListener listener : listeners) {
+            listener.deliveryStatusChanged(delivery, oldStatus, newStatus);
+        }
+    }
+
+    @Override
+    public void deliveryStaffAssigned(Delivery delivery, Staff oldStaff, Staff newStaff) {
+        for (CourierEventListener listener : listeners) {
+            listener.deliveryStaffAssigned(delivery, oldStaff, newStaff);
+        }
+    }
+
+    @Override
+    public void deliveryRouteAssigned(Delivery delivery, String route) {
+        for (CourierEventListener listener : listeners) listener.deliveryRouteAssigned(delivery, route);
+    }
+
+    @Override
+    public void vehicleAdded(Vehicle vehicle) {
+        for (CourierEventListener listener : listeners) listener.vehicleAdded(vehicle);
+    }
+
+    @Override
+    public void vehicleAssigned(Vehicle vehicle, Delivery delivery) {
+        for (CourierEventListener listener : listeners) listener.vehicleAssigned(vehicle, delivery);
+    }
+
+    @Override
+    public void vehicleReleased(Vehicle vehicle, String deliveryId) {
+        for (CourierEventListener listener : listeners) listener.vehicleReleased(vehicle, deliveryId);
+    }
+
+    @Override
+    public void vehicleAvailabilityChanged(Vehicle vehicle) {
+        for (CourierEventListener listener : listeners) listener.vehicleAvailabilityChanged(vehicle);
+    }
+
+    @Override
+    public void paymentRecorded(Payment payment) {
+        for (CourierEventListener listener : listeners) listener.paymentRecorded(payment);
+    }
+
+    @Override
+    public void paymentStatusChanged(Payment payment, PaymentStatus oldStatus, PaymentStatus newStatus) {
+        for (CourierEventListener listener : listeners) {
+            listener.paymentStatusChanged(payment, oldStatus, newStatus);
+        }
+    }
+
+    @Override
+    public void batchStarted() {
+        for (CourierEventListener listener : listeners) listener.batchStarted();
+    }
+
+    @Override
+    public void batchFinished() {
+        for (CourierEventListener listener : listeners) listener.batchFinished();
+    }
+}
@@ -0,0 +1,133 @@
+package services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IdAllocator {
+
+    // Entity prefixes
+    public static final String PARCEL = "P";
+    public static final String DELIVERY = "D";
+    public static final String CUSTOMER = "C";
+    public static final String STAFF = "S";
+    public static final String VEHICLE = "V";
+
+    // Payments have time-ordered IDs of their own (PaymentIdGenerator)
+    private static final String[] PREFIXES = {PARCEL, DELIVERY, CUSTOMER, STAFF, VEHICLE};
+
+    // Order of the high-water marks stored in files (ParcelTable, ParcelArchive):
+    // append only. The null slot held payment marks and stays reserved.
+    static final String[] MARKED = {PARCEL, DELIVERY, null, CUSTOMER, STAFF, VEHICLE};
+
+    // prefix -> high-water mark (last number handed out or seen)
+    private ConcurrentHashMap<String, AtomicLong> sequences;
+
+    public IdAllocator() {
+        sequences = new ConcurrentHashMap<>();
+        for (String prefix : PREFIXES) {
+            sequences.put(prefix, new AtomicLong(0));
+        }
+    }
+
+    // Allocate the next ID for an entity type, e.g. next(PARCEL) -> "P003"
+    public String next(String prefix) {
+        return format(prefix, sequence(prefix).incrementAndGet());
+    }
+
+    // Reserve a block of IDs in one atomic step (bulk ingestion)
+    public Lease lease(String prefix, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Lease size must be positive: " + count);
+        }
+        long first = sequence(prefix).getAndAdd(count) + 1;
+        return new Lease(prefix, first, first + count - 1);
+    }
+
+    // Record an ID that was created elsewhere (seed data, manual entry, replay)
+    // so the counter never hands it out again. IDs without a numeric suffix are ignored.
+    public void observe(String id) {
+        if (id == null) return;
+        for (String prefix : PREFIXES) {
+            if (id.startsWith(prefix)) {
+                long number = parseNumber(id.substring(prefix.length()));
+                if (number > 0) {
+                    sequence(prefix).accumulateAndGet(number, Math::max);
+                }
+                return;
+            }
+        }
+    }
+
+    // Current high-water mark (persisted with snapshots, restored on startup)
+    public long getHighWaterMark(String prefix) {
+        return sequence(prefix).get();
+    }
+
+    public void restoreHighWaterMark(String prefix, long mark) {
+        sequence(prefix).accumulateAndGet(mark, Math::max);
+    }
+
+    // High-water marks in MARKED order, as stored (0 in the reserved slot)
+    long[] getMarks() {
+        long[] marks = new long[MARKED.length];
+        for (int i = 0; i < marks.length; i++) {
+            if (MARKED[i] != null) marks[i] = getHighWaterMark(MARKED[i]);
+        }
+        return marks;
+    }
+
+    void restoreMarks(long[] marks) {
+        for (int i = 0; i < marks.length; i++) {
+            if (MARKED[i] != null) restoreHighWaterMark(MARKED[i], marks[i]);
+        }
+    }
+
+    // Minimum 3 digits (P001) but grows past 999 (P1000) instead of overflowing
+    public static String format(String prefix, long number) {
+        return String.format("%s%03d", prefix, number);
+    }
+
+    private AtomicLong sequence(String prefix) {
+        AtomicLong sequence = sequences.get(prefix);
+        if (sequence == null) {
+            throw new IllegalArgumentException("Unknown ID prefix: " + prefix);
+        }
+        return sequence;
+    }
+
+    private static long parseNumber(String digits) {
+        if (digits.isEmpty() || digits.length() > 18) return -1;
+        for (int i = 0; i < digits.length(); i++) {
+            if (!Character.isDigit(digits.charAt(i))) return -1;
+        }
+        return Long.parseLong(digits);
+    }
+
+    // Block of pre-reserved IDs, handed out by a single ingesting thread
+    public static class Lease {
+        private final String prefix;
+        private final long last;
+        private long next;
+
+        private Lease(String prefix, long first, long last) {
+            this.prefix = prefix;
+            this.next = first;
+            this.last = last;
+        }
+
+        public boolean hasNext() {
+            return next <= last;
+        }
+
+        public String next() {
+            if (next > last) {
+                throw new IllegalStateException("ID lease exhausted for prefix " + prefix);
+            }
+            return format(prefix, next++);
+        }
+
+        public long remaining() {
+            return last - next + 1;
+        }
+    }
+}
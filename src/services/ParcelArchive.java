@@ -0,0 +1,494 @@
+package services;
+
+import models.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+
+// Cold tier for closed parcels (and their closed deliveries).
+//
+// Each field is a fixed-width column in its own memory-mapped file, so reports
+// scan only the columns they need and nothing is kept on the heap per parcel.
+// Parcel objects are rebuilt on demand for the occasional tracking lookup.
+//
+//   parcel_id, sender_id, receiver_id, delivery_id, staff_id : 16 bytes ASCII, zero padded
+//   weight, price                                             : 8-byte double
+//   created                                                   : 4-byte epoch day
+//   type, status, delivery_status                             : 1 byte (delivery_status -1 = none)
+//
+// parcel_id.idx is an open-addressing hash index over the parcel IDs (int per
+// slot: row + 1, 0 = empty), two slots per row of capacity, so opening the
+// archive maps it rather than hashing every ID.
+//
+// archive.meta holds the committed row count, the ID high-water marks and the
+// parcel and delivery counts by type and status, so startup reads neither IDs
+// nor statuses. Rows and index entries are written and forced first, then the
+// meta, so a crash never exposes a partial row. Index entries of rows past the
+// count are ignored, and counts recorded for another row count (a torn meta
+// write) are recounted on open.
+public class ParcelArchive implements Closeable {
+
+    public static final int ID_WIDTH = 16;
+
+    private static final int MAGIC = 0x43415243; // "CARC"
+    private static final int VERSION = 2;   // 2: index file, ID marks and counts in the meta
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // archive.meta
+    private static final int META_SIZE = 1024;
+    private static final int ROWS_AT = 8;
+    private static final int COUNTED_ROWS_AT = 16;   // row count the counts and marks are for
+    private static final int INDEX_SLOTS_AT = 24;    // slot count of the last complete index (0 = none)
+    private static final int STATUSES_AT = 28;
+    private static final int DELIVERY_STATUSES_AT = 32;
+    private static final int MARKS_AT = 40;
+    private static final int COUNTS_AT = MARKS_AT + 8 * 8;
+
+    // Type names by RateTable code
+    static final String[] TYPES = {"STANDARD", "EXPRESS", "INTERNATIONAL"};
+
+    private final Path dir;
+    private final UserDirectory users;
+
+    private final Column parcelIds;
+    private final Column senderIds;
+    private final Column receiverIds;
+    private final Column deliveryIds;
+    private final Column staffIds;
+    private final Column weights;
+    private final Column prices;
+    private final Column created;
+    private final Column types;
+    private final Column statuses;
+    private final Column deliveryStatuses;
+    private final Column[] columns;
+
+    private final FileChannel metaChannel;
+    private final MappedByteBuffer meta;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCount;
+
+    private int rowCount;
+    private int capacity;
+
+    // Kept current by append and stored in the meta
+    private long[][] parcelCounts;    // [type code][status ordinal]
+    private long[] deliveryCounts;    // [delivery status ordinal]
+    private IdAllocator marks;
+
+    public ParcelArchive(Path dir, UserDirectory users) throws IOException {
+        this.dir = dir;
+        this.users = users;
+        Files.createDirectories(dir);
+
+        metaChannel = FileChannel.open(dir.resolve("archive.meta"), StandardOpenOption.CREATE,
+                                       StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = metaChannel.size() == 0;
+        meta = metaChannel.map(FileChannel.MapMode.READ_WRITE, 0, META_SIZE);
+        if (fresh) {
+            meta.putInt(0, MAGIC).putInt(4, VERSION).putLong(ROWS_AT, 0);
+            meta.force();
+        } else if (meta.getInt(0) != MAGIC || meta.getInt(4) < 1 || meta.getInt(4) > VERSION) {
+            throw new IOException("Unsupported archive format in " + dir);
+        }
+        rowCount = (int) meta.getLong(ROWS_AT);
+        capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, rowCount)) << 1);
+
+        parcelIds = new Column("parcel_id", ID_WIDTH);
+        senderIds = new Column("sender_id", ID_WIDTH);
+        receiverIds = new Column("receiver_id", ID_WIDTH);
+        deliveryIds = new Column("delivery_id", ID_WIDTH);
+        staffIds = new Column("staff_id", ID_WIDTH);
+        weights = new Column("weight", 8);
+        prices = new Column("price", 8);
+        created = new Column("created", 4);
+        types = new Column("type", 1);
+        statuses = new Column("status", 1);
+        deliveryStatuses = new Column("delivery_status", 1);
+        columns = new Column[] {parcelIds, senderIds, receiverIds, deliveryIds, staffIds,
+                                weights, prices, created, types, statuses, deliveryStatuses};
+
+        // Version 1 had none of the below: built once here, then kept
+        indexChannel = FileChannel.open(dir.resolve("parcel_id.idx"), StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slotCount = capacity * 2;
+        if (meta.getInt(4) < 2 || meta.getInt(INDEX_SLOTS_AT) != slotCount
+                || indexChannel.size() != 4L * slotCount) {
+            rebuildIndex();
+        } else {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, 4L * slotCount);
+        }
+        if (meta.getInt(4) < 2 || meta.getLong(COUNTED_ROWS_AT) != rowCount
+                || meta.getInt(STATUSES_AT) != ParcelStatus.count()
+                || meta.getInt(DELIVERY_STATUSES_AT) != DeliveryStatus.count()) {
+            recount();
+            meta.putInt(4, VERSION);
+            writeMeta();
+        } else {
+            readCounts();
+        }
+    }
+
+    // ---------- Writing ----------
+
+    // True if the parcel can be stored (all IDs fit the fixed-width columns)
+    public static boolean canArchive(Parcel parcel, Delivery delivery) {
+        if (!fits(parcel.getParcelId()) || !fits(parcel.getSender().getUserId())
+                || !fits(parcel.getReceiver().getUserId())) {
+            return false;
+        }
+        if (delivery == null) return true;
+        Staff staff = delivery.getDeliveryPerson();
+        return fits(delivery.getDeliveryId()) && (staff == null || fits(staff.getUserId()));
+    }
+
+    // Append rows (skipping parcels already archived) and make them durable with
+    // one force per column. deliveries[i] may be null. Returns rows added.
+    public int append(Parcel[] parcels, Delivery[] deliveries) throws IOException {
+        int added = 0;
+        for (int i = 0; i < parcels.length; i++) {
+            Parcel parcel = parcels[i];
+            if (contains(parcel.getParcelId())) continue;
+            ensureCapacity(rowCount + 1);
+
+            int row = rowCount;
+            Delivery delivery = deliveries[i];
+            parcelIds.putId(row, parcel.getParcelId());
+            senderIds.putId(row, parcel.getSender().getUserId());
+            receiverIds.putId(row, parcel.getReceiver().getUserId());
+            weights.buffer.putDouble(row * 8, parcel.getWeight());
+            prices.buffer.putDouble(row * 8, parcel.getPrice());
+            created.buffer.putInt(row * 4, (int) parcel.getCreatedDate().toEpochDay());
+            types.buffer.put(row, typeCode(parcel));
+            statuses.buffer.put(row, parcel.getStatus().code());
+            if (delivery != null) {
+                deliveryIds.putId(row, delivery.getDeliveryId());
+                Staff staff = delivery.getDeliveryPerson();
+                staffIds.putId(row, staff == null ? null : staff.getUserId());
+                deliveryStatuses.buffer.put(row, delivery.getStatus().code());
+            } else {
+                deliveryIds.putId(row, null);
+                staffIds.putId(row, null);
+                deliveryStatuses.buffer.put(row, (byte) -1);
+            }
+
+            rowCount++;
+            place(hash(parcel.getParcelId()), row);
+            count(row);
+            marks.observe(parcel.getParcelId());
+            if (delivery != null) marks.observe(delivery.getDeliveryId());
+            added++;
+        }
+        if (added > 0) {
+            for (Column column : columns) column.buffer.force();
+            index.force();
+            writeMeta();
+        }
+        return added;
+    }
+
+    // ---------- Lookups ----------
+
+    public boolean contains(String parcelId) {
+        return findRow(parcelId) >= 0;
+    }
+
+    // Rebuild the parcel as it was when archived (null if unknown). The archive keeps
+    // only the columns above, so description and dimensions are not restored.
+    public Parcel findById(String parcelId) {
+        int row = findRow(parcelId);
+        return row < 0 ? null : restoreParcel(row);
+    }
+
+    // Rebuild the closed delivery of an archived parcel (null if it had none)
+    public Delivery findDelivery(Parcel parcel) {
+        int row = findRow(parcel.getParcelId());
+        if (row < 0 || deliveryStatuses.buffer.get(row) < 0) return null;
+        String staffId = staffIds.getId(row);
+        Delivery delivery = new Delivery(deliveryIds.getId(row), parcel,
+                                         staffId == null ? null : users.findStaffById(staffId));
+        delivery.setStatus(DeliveryStatus.fromCode(deliveryStatuses.buffer.get(row)));
+        return delivery;
+    }
+
+    private Parcel restoreParcel(int row) {
+        User sender = users.findById(senderIds.getId(row));
+        User receiver = users.findById(receiverIds.getId(row));
+        if (sender == null || receiver == null) return null;
+        return ParcelFactory.restoreParcel(TYPES[types.buffer.get(row)], parcelIds.getId(row),
+                sender, receiver, weights.buffer.getDouble(row * 8), "", "(archived)", "",
+                getStatus(row), prices.buffer.getDouble(row * 8),
+                LocalDate.ofEpochDay(created.buffer.getInt(row * 4)));
+    }
+
+    // ---------- Column access for reports and statistics ----------
+
+    public int size() {
+        return rowCount;
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    // Parcel type name as used by ParcelFactory
+    public String getType(int row) {
+        return TYPES[types.buffer.get(row)];
+    }
+
+    // Type as a RateTable code (same order as TYPES)
+    public byte getTypeCode(int row) {
+        return types.buffer.get(row);
+    }
+
+    public ParcelStatus getStatus(int row) {
+        return ParcelStatus.fromCode(statuses.buffer.get(row));
+    }
+
+    // Delivery status of the archived delivery, or null if the parcel had none
+    public DeliveryStatus getDeliveryStatus(int row) {
+        byte code = deliveryStatuses.buffer.get(row);
+        return code < 0 ? null : DeliveryStatus.fromCode(code);
+    }
+
+    public double getPrice(int row) {
+        return prices.buffer.getDouble(row * 8);
+    }
+
+    public double getWeight(int row) {
+        return weights.buffer.getDouble(row * 8);
+    }
+
+    public String getParcelId(int row) {
+        return parcelIds.getId(row);
+    }
+
+    public String getSenderId(int row) {
+        return senderIds.getId(row);
+    }
+
+    public String getReceiverId(int row) {
+        return receiverIds.getId(row);
+    }
+
+    public LocalDate getCreatedDate(int row) {
+        return LocalDate.ofEpochDay(created.buffer.getInt(row * 4));
+    }
+
+    // Delivery and staff IDs of the archived delivery (null if none)
+    public String getDeliveryId(int row) {
+        return deliveryStatuses.buffer.get(row) < 0 ? null : deliveryIds.getId(row);
+    }
+
+    public String getStaffId(int row) {
+        return deliveryStatuses.buffer.get(row) < 0 ? null : staffIds.getId(row);
+    }
+
+    public long countByStatus(ParcelStatus status) {
+        long count = 0;
+        for (long[] byStatus : parcelCounts) count += byStatus[status.ordinal()];
+        return count;
+    }
+
+    // Archived parcels of a type (RateTable code) and status; archived deliveries of a status
+    public long countParcels(int typeCode, ParcelStatus status) {
+        return parcelCounts[typeCode][status.ordinal()];
+    }
+
+    public long countDeliveries(DeliveryStatus status) {
+        return deliveryCounts[status.ordinal()];
+    }
+
+    public double totalPrice() {
+        double total = 0;
+        for (int row = 0; row < rowCount; row++) {
+            total += prices.buffer.getDouble(row * 8);
+        }
+        return total;
+    }
+
+    // Move an allocator past every archived parcel and delivery ID (no row is read)
+    public void observeIds(IdAllocator allocator) {
+        allocator.restoreMarks(marks.getMarks());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Column column : columns) column.channel.close();
+        indexChannel.close();
+        metaChannel.close();
+    }
+
+    // ---------- Internals ----------
+
+    private static boolean fits(String id) {
+        if (id == null || id.isEmpty() || id.length() > ID_WIDTH) return false;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == 0 || c > 127) return false;
+        }
+        return true;
+    }
+
+    private static byte typeCode(Parcel parcel) {
+        if (parcel instanceof ExpressParcel) return 1;
+        if (parcel instanceof InternationalParcel) return 2;
+        return 0;
+    }
+
+    private void ensureCapacity(int rows) throws IOException {
+        if (rows <= capacity) return;
+        int newCapacity = capacity;
+        while (newCapacity < rows) newCapacity <<= 1;
+        capacity = newCapacity;
+        for (Column column : columns) column.remap();
+        slotCount = capacity * 2;
+        rebuildIndex();
+    }
+
+    // Write the index for the current capacity from the committed rows. The meta
+    // names it complete only once it is forced.
+    private void rebuildIndex() throws IOException {
+        meta.putInt(INDEX_SLOTS_AT, 0);
+        meta.force();
+        indexChannel.truncate(0);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, 4L * slotCount);
+        for (int row = 0; row < rowCount; row++) {
+            place(hash(parcelIds.getId(row)), row);
+        }
+        index.force();
+        meta.putInt(INDEX_SLOTS_AT, slotCount);
+        meta.force();
+    }
+
+    private void place(int hash, int row) {
+        int mask = slotCount - 1;
+        int slot = hash & mask;
+        while (index.getInt(slot * 4) != 0) slot = (slot + 1) & mask;
+        index.putInt(slot * 4, row + 1);
+    }
+
+    // Slots of rows past the committed count (left by a crash mid-append) are skipped
+    private int findRow(String parcelId) {
+        if (parcelId == null || !fits(parcelId)) return -1;
+        int mask = slotCount - 1;
+        int slot = hash(parcelId) & mask;
+        int entry;
+        while ((entry = index.getInt(slot * 4)) != 0) {
+            int row = entry - 1;
+            if (row < rowCount && parcelIds.idEquals(row, parcelId)) return row;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Counts and ID marks from every row (archives from before version 2, or
+    // after a crash between writing the counts and the row count)
+    private void recount() {
+        parcelCounts = new long[TYPES.length][ParcelStatus.count()];
+        deliveryCounts = new long[DeliveryStatus.count()];
+        marks = new IdAllocator();
+        for (int row = 0; row < rowCount; row++) {
+            count(row);
+            marks.observe(parcelIds.getId(row));
+            if (deliveryStatuses.buffer.get(row) >= 0) marks.observe(deliveryIds.getId(row));
+        }
+    }
+
+    private void count(int row) {
+        parcelCounts[types.buffer.get(row)][statuses.buffer.get(row)]++;
+        byte deliveryStatus = deliveryStatuses.buffer.get(row);
+        if (deliveryStatus >= 0) deliveryCounts[deliveryStatus]++;
+    }
+
+    private void readCounts() {
+        parcelCounts = new long[TYPES.length][ParcelStatus.count()];
+        deliveryCounts = new long[DeliveryStatus.count()];
+        long[] stored = new long[IdAllocator.MARKED.length];
+        for (int i = 0; i < stored.length; i++) stored[i] = meta.getLong(MARKS_AT + 8 * i);
+        marks = new IdAllocator();
+        marks.restoreMarks(stored);
+        int at = COUNTS_AT;
+        for (long[] byStatus : parcelCounts) {
+            for (int status = 0; status < byStatus.length; status++, at += 8) byStatus[status] = meta.getLong(at);
+        }
+        for (int status = 0; status < deliveryCounts.length; status++, at += 8) deliveryCounts[status] = meta.getLong(at);
+    }
+
+    // Counts and marks first, then the row count they are for, in one force
+    private void writeMeta() {
+        meta.putInt(STATUSES_AT, ParcelStatus.count()).putInt(DELIVERY_STATUSES_AT, DeliveryStatus.count());
+        long[] stored = marks.getMarks();
+        for (int i = 0; i < stored.length; i++) meta.putLong(MARKS_AT + 8 * i, stored[i]);
+        int at = COUNTS_AT;
+        for (long[] byStatus : parcelCounts) {
+            for (long count : byStatus) {
+                meta.putLong(at, count);
+                at += 8;
+            }
+        }
+        for (long count : deliveryCounts) {
+            meta.putLong(at, count);
+            at += 8;
+        }
+        meta.putLong(COUNTED_ROWS_AT, rowCount);
+        meta.putLong(ROWS_AT, rowCount);
+        meta.force();
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // One fixed-width column file, mapped read-write at the current capacity
+    private class Column {
+        final int width;
+        final FileChannel channel;
+        MappedByteBuffer buffer;
+
+        Column(String name, int width) throws IOException {
+            this.width = width;
+            this.channel = FileChannel.open(dir.resolve(name + ".col"), StandardOpenOption.CREATE,
+                                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            remap();
+        }
+
+        void remap() throws IOException {
+            if (buffer != null) buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * width);
+        }
+
+        void putId(int row, String id) {
+            int base = row * width;
+            int length = id == null ? 0 : id.length();
+            for (int i = 0; i < width; i++) {
+                buffer.put(base + i, i < length ? (byte) id.charAt(i) : 0);
+            }
+        }
+
+        String getId(int row) {
+            int base = row * width;
+            int length = 0;
+            while (length < width && buffer.get(base + length) != 0) length++;
+            if (length == 0) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(base, bytes);
+            return new String(bytes, StandardCharsets.US_ASCII);
+        }
+
+        boolean idEquals(int row, String id) {
+            int base = row * width;
+            for (int i = 0; i < width; i++) {
+                byte b = buffer.get(base + i);
+                if (i >= id.length()) return b == 0;
+                if (b != (byte) id.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+}
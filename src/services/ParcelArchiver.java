@@ -0,0 +1,103 @@
+package services;
+
+import models.*;
+import java.io.IOException;
+import java.util.*;
+
+// Moves closed parcels (and their closed deliveries) from the live repositories
+// into the ParcelArchive, so the heap holds open work rather than all history.
+// Statistics keep counting archived parcels: the move publishes parcelArchived,
+// not a removal, and recounts include the archive.
+public class ParcelArchiver {
+
+    private ParcelRepository parcels;
+    private DeliveryRepository deliveries;
+    private ParcelArchive archive;
+    private EventBus events;
+    private int batchSize;
+    private Runnable writeBarrier = () -> { };
+
+    public ParcelArchiver(ParcelRepository parcels, DeliveryRepository deliveries,
+                          ParcelArchive archive, EventBus events, int batchSize) {
+        this.parcels = parcels;
+        this.deliveries = deliveries;
+        this.archive = archive;
+        this.events = events;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Run before archive rows are written (e.g. wait for the change log, so the
+    // archive never holds a state the log could still lose in a crash)
+    public void setWriteBarrier(Runnable writeBarrier) {
+        this.writeBarrier = writeBarrier;
+    }
+
+    public ParcelArchive getArchive() {
+        return archive;
+    }
+
+    // Archive once enough closed parcels have built up. Call only between operations.
+    public int maybeArchive() throws IOException {
+        if (parcels.closedCount() < batchSize) return 0;
+        return archiveClosed();
+    }
+
+    // Archive every closed parcel whose delivery is closed too and no longer holds a vehicle
+    public int archiveClosed() throws IOException {
+        ArrayList<Parcel> ready = new ArrayList<>();
+        for (Parcel parcel : parcels.findClosed()) {
+            Delivery delivery = deliveries.findByParcel(parcel);
+            if (delivery != null) {
+                if (!delivery.getStatus().isTerminal()) continue;
+                Vehicle vehicle = delivery.getAssignedVehicle();
+                if (vehicle != null && vehicle.carries(delivery.getDeliveryId())) {
+                    continue; // still on the vehicle's manifest
+                }
+            }
+            if (ParcelArchive.canArchive(parcel, delivery)) {
+                ready.add(parcel);
+            }
+        }
+        return moveToArchive(ready);
+    }
+
+    // After recovery: drop live parcels that already reached the archive (a crash
+    // after the archive write but before the log record). Returns how many.
+    public int reconcile() throws IOException {
+        ArrayList<Parcel> archived = new ArrayList<>();
+        for (Parcel parcel : parcels.findClosed()) {
+            if (archive.contains(parcel.getParcelId())) archived.add(parcel);
+        }
+        return moveToArchive(archived);
+    }
+
+    // Write the rows durably first (after the write barrier), log the moves (one
+    // flush for the batch), then drop the parcels from the live tier. Parcels
+    // already in the archive (e.g. after a crash between the steps) are only dropped.
+    public int moveToArchive(List<Parcel> ready) throws IOException {
+        if (ready.isEmpty()) return 0;
+        Parcel[] batch = ready.toArray(new Parcel[0]);
+        Delivery[] batchDeliveries = new Delivery[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            batchDeliveries[i] = deliveries.findByParcel(batch[i]);
+        }
+        writeBarrier.run();
+        archive.append(batch, batchDeliveries);
+
+        CourierEventListener journal = events.journal();
+        journal.batchStarted();
+        try {
+            for (int i = 0; i < batch.length; i++) {
+                journal.parcelArchived(batch[i], batchDeliveries[i]);
+            }
+        } finally {
+            journal.batchFinished();
+        }
+        for (int i = 0; i < batch.length; i++) {
+            parcels.remove(batch[i]);
+            if (batchDeliveries[i] != null) deliveries.remove(batchDeliveries[i]);
+            events.parcelArchived(batch[i], batchDeliveries[i]);
+        }
+        return batch.length;
+    }
+}
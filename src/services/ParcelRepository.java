@@ -0,0 +1,392 @@
+package services;
+
+import models.Parcel;
+import models.ParcelStatus;
+import models.RateTable;
+import java.util.*;
+
+public class ParcelRepository {
+
+    // Primary key index: parcelId -> Parcel
+    private HashMap<String, Parcel> parcelsById;
+
+    // Creation order, for listings and for reading by position (get). Removed
+    // parcels are swept out in one pass at the next ordered read, so archiving
+    // a batch costs one sweep rather than one per parcel.
+    private ArrayList<Parcel> inOrder;
+    private boolean hasRemoved;
+
+    // Parcels of the loaded snapshot, read in place (null if none was loaded).
+    // They come before the parcels above in creation order. A stored row is built
+    // into a Parcel in parcelsById the first time it is used and the object is
+    // used from then on; a removed row stays gone. The indexes below hold only
+    // the parcels added since loading: the table has its own per-customer lists.
+    private ParcelTable stored;
+    private BitSet built;           // stored rows built into objects (removed ones too)
+    private int builtCount;
+    private BitSet removedRows;     // stored rows removed from the live tier
+    private int removedCount;
+    private int[] liveRows;         // stored rows not removed, by position (null = every row)
+    private boolean rowsRemoved;    // liveRows is out of date
+
+    // Secondary indexes: customerId -> parcelIds (creation order)
+    private HashMap<String, LinkedHashSet<String>> sentBy;
+    private HashMap<String, LinkedHashSet<String>> receivedBy;
+    private HashMap<String, LinkedHashSet<String>> involving;   // sent OR received
+    private HashMap<String, LinkedHashSet<String>> unpaidBy;    // sent and still CREATED
+
+    // Parcels in an end state (Delivered/Returned/Cancelled) - candidates for the archive
+    private LinkedHashSet<String> closedIds;
+
+    private EventBus events;
+
+    public ParcelRepository() {
+        this(new EventBus());
+    }
+
+    public ParcelRepository(EventBus events) {
+        this.events = events;
+        parcelsById = new HashMap<>();
+        inOrder = new ArrayList<>();
+        sentBy = new HashMap<>();
+        receivedBy = new HashMap<>();
+        involving = new HashMap<>();
+        unpaidBy = new HashMap<>();
+        closedIds = new LinkedHashSet<>();
+    }
+
+    // Load path: serve the parcels of a snapshot from its table. Only for an empty
+    // repository; publishes no events (subscribers recount after loading).
+    public void attach(ParcelTable table) {
+        if (stored != null || !parcelsById.isEmpty()) {
+            throw new IllegalStateException("Parcels are already loaded");
+        }
+        stored = table;
+        built = new BitSet(table.size());
+        removedRows = new BitSet(table.size());
+        for (int row : table.closedRows()) closedIds.add(table.getParcelId(row));
+    }
+
+    // Add parcel (rejects duplicate IDs) and index it by sender/receiver
+    public boolean add(Parcel parcel) {
+        if (parcel == null || contains(parcel.getParcelId())) {
+            return false;
+        }
+        events.journal().parcelCreated(parcel);
+        put(parcel);
+        events.parcelCreated(parcel);
+        return true;
+    }
+
+    // Add many parcels with a single log flush. Parcels whose ID is already
+    // stored, or taken by an earlier one in the batch, are skipped; returns
+    // which were added.
+    public boolean[] addAll(List<Parcel> batch) {
+        boolean[] added = new boolean[batch.size()];
+        HashSet<String> ids = new HashSet<>();
+        for (int i = 0; i < added.length; i++) {
+            Parcel parcel = batch.get(i);
+            added[i] = parcel != null && !contains(parcel.getParcelId())
+                    && ids.add(parcel.getParcelId());
+        }
+        CourierEventListener journal = events.journal();
+        journal.batchStarted();
+        try {
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) journal.parcelCreated(batch.get(i));
+            }
+        } finally {
+            journal.batchFinished();
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (!added[i]) continue;
+            put(batch.get(i));
+            events.parcelCreated(batch.get(i));
+        }
+        return added;
+    }
+
+    private void put(Parcel parcel) {
+        String parcelId = parcel.getParcelId();
+        String senderId = parcel.getSender().getUserId();
+        String receiverId = parcel.getReceiver().getUserId();
+
+        parcelsById.put(parcelId, parcel);
+        inOrder.add(parcel);
+        addToIndex(sentBy, senderId, parcelId);
+        addToIndex(receivedBy, receiverId, parcelId);
+        addToIndex(involving, senderId, parcelId);
+        addToIndex(involving, receiverId, parcelId);
+        if (parcel.getStatus() == ParcelStatus.CREATED) {
+            addToIndex(unpaidBy, senderId, parcelId);
+        }
+        if (parcel.getStatus().isTerminal()) {
+            closedIds.add(parcelId);
+        }
+    }
+
+    // Update status through the repository so the unpaid index stays current.
+    // Returns false (and leaves the parcel untouched) for an illegal transition.
+    public boolean updateStatus(Parcel parcel, ParcelStatus newStatus) {
+        ParcelStatus oldStatus = parcel.getStatus();
+        if (!oldStatus.canTransitionTo(newStatus)) {
+            return false;
+        }
+
+        events.journal().parcelStatusChanged(parcel, oldStatus, newStatus);
+        parcel.updateStatus(newStatus); // POLYMORPHISM: subclass-specific message
+        statusApplied(parcel, oldStatus, newStatus);
+        return true;
+    }
+
+    // Recovery path: apply a recorded status as-is, without console output
+    public void restoreStatus(Parcel parcel, ParcelStatus status) {
+        ParcelStatus oldStatus = parcel.getStatus();
+        if (oldStatus == status) return;
+        events.journal().parcelStatusChanged(parcel, oldStatus, status);
+        parcel.setStatus(status);
+        statusApplied(parcel, oldStatus, status);
+    }
+
+    private void statusApplied(Parcel parcel, ParcelStatus oldStatus, ParcelStatus newStatus) {
+        // CREATED is never re-entered, so the parcel can only leave the unpaid index
+        if (oldStatus == ParcelStatus.CREATED) {
+            removeFromIndex(unpaidBy, parcel.getSender().getUserId(), parcel.getParcelId());
+        }
+        if (newStatus.isTerminal()) {
+            closedIds.add(parcel.getParcelId());
+        }
+        events.parcelStatusChanged(parcel, oldStatus, newStatus);
+    }
+
+    // Drop a parcel from the live tier and all its indexes (used when it moves to
+    // the archive; ParcelArchiver logs the move)
+    public boolean remove(Parcel parcel) {
+        String parcelId = parcel.getParcelId();
+        if (parcelsById.remove(parcelId) == null) return false;
+        String senderId = parcel.getSender().getUserId();
+        String receiverId = parcel.getReceiver().getUserId();
+        removeFromIndex(sentBy, senderId, parcelId);
+        removeFromIndex(receivedBy, receiverId, parcelId);
+        removeFromIndex(involving, senderId, parcelId);
+        removeFromIndex(involving, receiverId, parcelId);
+        removeFromIndex(unpaidBy, senderId, parcelId);
+        closedIds.remove(parcelId);
+        // A built stored row's object is the only live parcel with its ID
+        int row = stored == null ? -1 : stored.findRow(parcelId);
+        if (row >= 0 && built.get(row) && !removedRows.get(row)) {
+            removedRows.set(row);
+            removedCount++;
+            rowsRemoved = true;
+        } else {
+            hasRemoved = true;
+        }
+        return true;
+    }
+
+    // Find parcel by ID - O(1)
+    public Parcel findById(String parcelId) {
+        if (parcelId == null) return null;
+        Parcel parcel = parcelsById.get(parcelId);
+        if (parcel != null || stored == null) return parcel;
+        int row = stored.findRow(parcelId);
+        return row < 0 || built.get(row) ? null : build(row);
+    }
+
+    public boolean contains(String parcelId) {
+        if (parcelId == null) return false;
+        if (parcelsById.containsKey(parcelId)) return true;
+        if (stored == null) return false;
+        int row = stored.findRow(parcelId);
+        return row >= 0 && !built.get(row);
+    }
+
+    // Parcels sent by a customer
+    public List<Parcel> findBySender(String customerId) {
+        return resolve(stored == null ? null : stored.rowsSentBy(customerId), false, sentBy.get(customerId));
+    }
+
+    // Parcels addressed to a customer
+    public List<Parcel> findByReceiver(String customerId) {
+        return resolve(stored == null ? null : stored.rowsReceivedBy(customerId), false, receivedBy.get(customerId));
+    }
+
+    // Parcels sent by OR addressed to a customer
+    public List<Parcel> findByCustomer(String customerId) {
+        return resolve(stored == null ? null : stored.rowsInvolving(customerId), false, involving.get(customerId));
+    }
+
+    // Parcels sent by a customer that are still awaiting payment
+    public List<Parcel> findUnpaidBySender(String customerId) {
+        return resolve(stored == null ? null : stored.rowsSentBy(customerId), true, unpaidBy.get(customerId));
+    }
+
+    // Closed parcels still in the live tier (creation order)
+    public List<Parcel> findClosed() {
+        return resolve(null, false, closedIds);
+    }
+
+    public int closedCount() {
+        return closedIds.size();
+    }
+
+    public int size() {
+        return parcelsById.size() + (stored == null ? 0 : stored.size() - builtCount);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Read-only view of all parcels in creation order. Going through it builds
+    // every stored parcel, so use the counts and lookups above where they will do.
+    public Collection<Parcel> getAll() {
+        sweep();
+        if (stored == null) return Collections.unmodifiableList(inOrder);
+        return new AbstractList<Parcel>() {
+            @Override
+            public Parcel get(int position) {
+                return ParcelRepository.this.get(position);
+            }
+
+            @Override
+            public int size() {
+                return ParcelRepository.this.size();
+            }
+        };
+    }
+
+    // Parcel at a position in creation order (0 .. size() - 1). Positions only
+    // shift when parcels are removed.
+    public Parcel get(int position) {
+        sweep();
+        int storedLive = stored == null ? 0 : stored.size() - removedCount;
+        if (position < storedLive) return storedParcel(liveRows == null ? position : liveRows[position]);
+        return inOrder.get(position - storedLive);
+    }
+
+    // RUBRIC: conversion to Object array
+    public Parcel[] toArray() {
+        return getAll().toArray(new Parcel[0]);
+    }
+
+    // Parcels per type (RateTable code) and status ordinal, without building stored ones
+    public long[][] countByTypeAndStatus() {
+        long[][] counts = new long[3][ParcelStatus.count()];
+        if (stored != null) {
+            for (int type = 0; type < 3; type++) {
+                for (ParcelStatus status : ParcelStatus.values()) {
+                    counts[type][status.ordinal()] = stored.count(type, status);
+                }
+            }
+            // Built rows are counted from their objects below (or are gone)
+            for (int row = built.nextSetBit(0); row >= 0; row = built.nextSetBit(row + 1)) {
+                counts[stored.getTypeCode(row)][stored.getStatus(row).ordinal()]--;
+            }
+        }
+        for (Parcel parcel : parcelsById.values()) {
+            counts[RateTable.typeCode(parcel)][parcel.getStatus().ordinal()]++;
+        }
+        return counts;
+    }
+
+    // Move an allocator past every parcel ID (stored rows by the table's high-water marks)
+    public void observeIds(IdAllocator allocator) {
+        if (stored != null) stored.observeIds(allocator);
+        for (String parcelId : parcelsById.keySet()) allocator.observe(parcelId);
+    }
+
+    // The parcels as a snapshot writes them, taken at a point where no change is
+    // in progress: stored rows nobody used are copied from the table, the rest
+    // are written from their objects with the status they have now
+    public ParcelTable.Rows captureRows() {
+        sweep();
+        int storedObjects = stored == null ? 0 : builtCount - removedCount;
+        Parcel[] objects = new Parcel[storedObjects + inOrder.size()];
+        int[] replacing = new int[objects.length];
+        int next = 0;
+        if (stored != null) {
+            for (int row = built.nextSetBit(0); row >= 0; row = built.nextSetBit(row + 1)) {
+                if (removedRows.get(row)) continue;
+                objects[next] = parcelsById.get(stored.getParcelId(row));
+                replacing[next++] = row;
+            }
+        }
+        for (Parcel parcel : inOrder) {
+            objects[next] = parcel;
+            replacing[next++] = -1;
+        }
+        byte[] statuses = new byte[objects.length];
+        for (int i = 0; i < objects.length; i++) statuses[i] = objects[i].getStatus().code();
+        return new ParcelTable.Rows(stored, stored == null ? new BitSet() : (BitSet) built.clone(),
+                                    objects, statuses, replacing);
+    }
+
+    private Parcel build(int row) {
+        Parcel parcel = stored.restore(row);
+        built.set(row);
+        builtCount++;
+        parcelsById.put(parcel.getParcelId(), parcel);
+        return parcel;
+    }
+
+    // The live parcel of a stored row (null once removed)
+    private Parcel storedParcel(int row) {
+        if (!built.get(row)) return build(row);
+        return removedRows.get(row) ? null : parcelsById.get(stored.getParcelId(row));
+    }
+
+    private void sweep() {
+        if (hasRemoved) {
+            inOrder.removeIf(parcel -> parcelsById.get(parcel.getParcelId()) != parcel);
+            hasRemoved = false;
+        }
+        if (rowsRemoved) {
+            liveRows = new int[stored.size() - removedCount];
+            int position = 0;
+            for (int row = removedRows.nextClearBit(0); row < stored.size(); row = removedRows.nextClearBit(row + 1)) {
+                liveRows[position++] = row;
+            }
+            rowsRemoved = false;
+        }
+    }
+
+    // Stored rows (skipping, without building, those not awaiting payment if
+    // unpaidOnly) followed by the parcels of a heap index
+    private ArrayList<Parcel> resolve(int[] rows, boolean unpaidOnly, LinkedHashSet<String> parcelIds) {
+        ArrayList<Parcel> result = new ArrayList<>();
+        if (rows != null) {
+            for (int row : rows) {
+                if (unpaidOnly && !built.get(row) && stored.getStatus(row) != ParcelStatus.CREATED) continue;
+                Parcel parcel = storedParcel(row);
+                if (parcel != null && (!unpaidOnly || parcel.getStatus() == ParcelStatus.CREATED)) {
+                    result.add(parcel);
+                }
+            }
+        }
+        if (parcelIds == null) return result;
+        for (String parcelId : parcelIds) {
+            Parcel parcel = findById(parcelId);
+            if (parcel != null) {
+                result.add(parcel);
+            }
+        }
+        return result;
+    }
+
+    private static void addToIndex(HashMap<String, LinkedHashSet<String>> index,
+                                   String key, String parcelId) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(parcelId);
+    }
+
+    private static void removeFromIndex(HashMap<String, LinkedHashSet<String>> index,
+                                        String key, String parcelId) {
+        LinkedHashSet<String> ids = index.get(key);
+        if (ids != null) {
+            ids.remove(parcelId);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -1,46 +1,70 @@
 package services;
 
+import models.Delivery;
 import models.Parcel;
-import java.util.ArrayList;
+import models.ParcelStatus;
 
 public class ParcelService {
     
-    // SINGLE source of truth - uses the parcels ArrayList from Main
-    private ArrayList<Parcel> parcels;
+    // SINGLE source of truth - uses the parcel repository from Main
+    private ParcelRepository parcels;
+    
+    // Cold tier for closed parcels (null when running without persistence)
+    private ParcelArchive archive;
+    
+    private PricingKernel kernel = PricingKernel.select();
+    
+    // Upper weight limits (kg) of the weight categories; also the brackets of
+    // the repricing forecast
+    private static final double[] WEIGHT_LIMITS = {0.5, 1.0, 2.0, 5.0, 10.0, 20.0, 30.0};
     
     // Arrays for RUBRIC DEMONSTRATION only (not used for actual data storage)
-    private double[] weightCategories = {0.5, 1.0, 2.0, 5.0, 10.0, 20.0, 30.0};
+    private double[] weightCategories = WEIGHT_LIMITS.clone();
     private String[] statusOptions = {"Created", "Processing", "In Transit", 
                                      "Out for Delivery", "Delivered", "Returned"};
     
-    public ParcelService(ArrayList<Parcel> parcels) {
+    public ParcelService(ParcelRepository parcels) {
         this.parcels = parcels;
     }
     
-    // Add parcel to the single ArrayList
+    public static double[] getWeightCategories() {
+        return WEIGHT_LIMITS.clone();
+    }
+    
+    public ParcelRepository getRepository() {
+        return parcels;
+    }
+    
+    public void setArchive(ParcelArchive archive) {
+        this.archive = archive;
+    }
+    
+    // Add parcel to the repository
     public void addParcel(Parcel parcel) {
         parcels.add(parcel);
        // System.out.println("✓ Parcel added to system. Total parcels: " + parcels.size());
     }
     
-    // Find parcel by ID
+    // Find parcel by ID (hash lookup), falling through to the archive for closed parcels
     public Parcel findParcelById(String parcelId) {
-        for (Parcel parcel : parcels) {
-            if (parcel.getParcelId().equals(parcelId)) {
-                return parcel;
-            }
+        Parcel parcel = parcels.findById(parcelId);
+        if (parcel == null && archive != null) {
+            parcel = archive.findById(parcelId);
         }
-        return null;
+        return parcel;
     }
     
-    // Update parcel status
-    public boolean updateParcelStatus(String parcelId, String newStatus) {
-        Parcel parcel = findParcelById(parcelId);
-        if (parcel != null) {
-            parcel.updateStatus(newStatus);
-            return true;
-        }
-        return false;
+    // Closed delivery of an archived parcel (null for live parcels or none)
+    public Delivery findArchivedDelivery(Parcel parcel) {
+        if (archive == null || parcels.contains(parcel.getParcelId())) return null;
+        return archive.findDelivery(parcel);
+    }
+    
+    // Update parcel status (false if the parcel is unknown or the transition is illegal;
+    // archived parcels are closed, so only live parcels are looked up)
+    public boolean updateParcelStatus(String parcelId, ParcelStatus newStatus) {
+        Parcel parcel = parcels.findById(parcelId);
+        return parcel != null && parcels.updateStatus(parcel, newStatus);
     }
     
     // RUBRIC: Demonstrate array usage
@@ -51,9 +75,12 @@ public class ParcelService {
         System.out.println("\n1. PRIMITIVE ARRAY (double[] weightCategories):");
         System.out.println("   Index | Weight Limit (kg)");
         System.out.println("   ------|------------------");
+        long[] perCategory = countByWeightCategory();
         for (int i = 0; i < weightCategories.length; i++) {
-            System.out.printf("   [%d]   | %.1f kg\n", i, weightCategories[i]);
+            System.out.printf("   [%d]   | %.1f kg  (%d parcels)\n", i, weightCategories[i], perCategory[i]);
         }
+        System.out.println("   Over " + weightCategories[weightCategories.length - 1] + " kg: " 
+                         + perCategory[weightCategories.length] + " parcels");
         
         // 2. String array demonstration
         System.out.println("\n2. STRING ARRAY (String[] statusOptions):");
@@ -64,11 +91,11 @@ public class ParcelService {
         
         // 3. Object array demonstration (converted from ArrayList)
         System.out.println("\n3. OBJECT ARRAY DEMONSTRATION:");
-        System.out.println("   Parcels in ArrayList: " + parcels.size());
+        System.out.println("   Parcels in repository: " + parcels.size());
         
         if (!parcels.isEmpty()) {
-            // Convert ArrayList to array for demonstration
-            Parcel[] parcelArray = parcels.toArray(new Parcel[0]);
+            // Convert repository contents to array for demonstration
+            Parcel[] parcelArray = parcels.toArray();
             System.out.println("   Converted to array length: " + parcelArray.length);
             System.out.println("   First 2 parcels in array:");
             for (int i = 0; i < Math.min(2, parcelArray.length); i++) {
@@ -83,31 +110,55 @@ public class ParcelService {
         System.out.println("   ✓ Array indexing (weightCategories[0])");
         System.out.println("   ✓ Array length property (statusOptions.length)");
         System.out.println("   ✓ Array iteration (for loops)");
-        System.out.println("   ✓ ArrayList to Array conversion");
+        System.out.println("   ✓ Collection to Array conversion");
+    }
+    
+    // Parcels (live + archived) per weight category: index k counts weights up to
+    // WEIGHT_LIMITS[k] and above the previous limit, the last index the heavier ones
+    public long[] countByWeightCategory() {
+        int live = parcels.size();
+        int archived = archive == null ? 0 : archive.size();
+        double[] weights = new double[live + archived];
+        int i = 0;
+        for (Parcel parcel : parcels.getAll()) {
+            weights[i++] = parcel.getWeight();
+        }
+        for (int row = 0; row < archived; row++) {
+            weights[i++] = archive.getWeight(row);
+        }
+        long[] counts = new long[WEIGHT_LIMITS.length + 1];
+        kernel.brackets(WEIGHT_LIMITS, weights, null, counts, null, 0, weights.length);
+        return counts;
     }
     
     // Count parcels by status
-    public int countParcelsByStatus(String status) {
+    public int countParcelsByStatus(ParcelStatus status) {
         int count = 0;
-        for (Parcel parcel : parcels) {
-            if (parcel.getStatus().equalsIgnoreCase(status)) {
+        for (Parcel parcel : parcels.getAll()) {
+            if (parcel.getStatus() == status) {
                 count++;
             }
         }
+        if (archive != null) {
+            count += (int) archive.countByStatus(status);
+        }
         return count;
     }
     
-    // Get parcel count
+    // Get parcel count (live + archived)
     public int getParcelCount() {
-        return parcels.size();
+        return parcels.size() + (archive == null ? 0 : archive.size());
     }
     
     // Calculate total value of all parcels
     public double calculateTotalValue() {
         double total = 0;
-        for (Parcel parcel : parcels) {
+        for (Parcel parcel : parcels.getAll()) {
             total += parcel.getPrice();
         }
+        if (archive != null) {
+            total += archive.totalPrice();
+        }
         return total;
     }
 }
\ No newline at end of file
@@ -0,0 +1,718 @@
+package services;
+
+import models.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// The parcels of a snapshot as fixed-width columns in one memory-mapped file, so
+// startup maps the file instead of decoding every parcel. ParcelRepository reads
+// rows in place and builds a Parcel object only for the parcels that are used.
+// A table is written once, in the background (see SnapshotManager), and never
+// changed; the next snapshot copies the rows nobody touched straight across.
+//
+// Layout (big-endian, every region 8-byte aligned, region offsets follow from the counts):
+//   header (4 KB)     MAGIC, VERSION, rows, users, slots, closed rows, end of data,
+//                     ID high-water marks, parcels per type and status, checksums
+//   record            long per row + 1: offset of the row's record in records
+//   sender, receiver  int per row: position of the user among the snapshot's users
+//   weight, price     double per row
+//   created           int per row: epoch day
+//   type, status      byte per row (RateTable type codes, ParcelStatus codes)
+//   slot              int per slot: row + 1 of the parcel ID hashed there (0 = empty)
+//   sent, received    int per user + 1: where the user's rows start; then the rows
+//                     of every user in creation order
+//   records           per row: UTF parcel ID, then dimensions, description and
+//                     additional info as nullable text (as in LogRecords)
+//   closed            int per row in an end state
+//   checksums         CRC32 per 256 KB block, from the end of the header to the end of data
+//
+// Only the header and the checksum list are read when the table is opened. Each
+// block is checked the first time something in it is read, so a damaged table
+// is still refused, but only the parts that are used are ever read.
+public class ParcelTable {
+
+    private static final int MAGIC = 0x43505442; // "CPTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    private static final int BLOCK_SHIFT = 18;   // 256 KB checksum blocks
+    private static final int WINDOW_SHIFT = 30;  // mapped 1 GB at a time
+    private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+
+    // Header fields
+    private static final int ROWS_AT = 8;
+    private static final int USERS_AT = 12;
+    private static final int SLOTS_AT = 16;
+    private static final int CLOSED_AT = 20;
+    private static final int DATA_END_AT = 24;
+    private static final int STATUSES_AT = 32;
+    private static final int MARKS_AT = 40;
+    private static final int COUNTS_AT = MARKS_AT + 8 * 8;
+    private static final int CHECKSUMS_CRC_AT = HEADER_SIZE - 8;
+    private static final int HEADER_CRC_AT = HEADER_SIZE - 4;
+
+    private final Path file;
+    private final MappedByteBuffer[] windows;
+    private final Layout at;
+    private final int rowCount;
+    private final int slotCount;
+    private final int closedCount;
+    private final long dataEnd;
+    private final long[][] counts;   // [type code][status ordinal]
+    private final long[] marks;      // IdAllocator.MARKED order
+
+    // Users by their position in the snapshot, and back
+    private final User[] users;
+    private final HashMap<String, Integer> userIndex;
+
+    // Blocks checked so far. Read by sessions and by the snapshot writer at once:
+    // two threads may both check a block, which is harmless.
+    private final byte[] checked;
+    private final int[] checksums;
+
+    private ParcelTable(Path file, MappedByteBuffer[] windows, ByteBuffer header, User[] users)
+            throws IOException {
+        this.file = file;
+        this.windows = windows;
+        this.users = users;
+        rowCount = header.getInt(ROWS_AT);
+        slotCount = header.getInt(SLOTS_AT);
+        closedCount = header.getInt(CLOSED_AT);
+        dataEnd = header.getLong(DATA_END_AT);
+        at = new Layout(rowCount, header.getInt(USERS_AT), slotCount);
+
+        int statuses = header.getInt(STATUSES_AT);
+        if (statuses > ParcelStatus.count()) throw new IOException("Parcel table " + file + " has unknown statuses");
+        counts = new long[3][ParcelStatus.count()];
+        for (int type = 0; type < 3; type++) {
+            for (int status = 0; status < statuses; status++) {
+                counts[type][status] = header.getLong(COUNTS_AT + 8 * (type * statuses + status));
+            }
+        }
+        marks = new long[IdAllocator.MARKED.length];
+        for (int i = 0; i < marks.length; i++) marks[i] = header.getLong(MARKS_AT + 8 * i);
+
+        int blocks = blockCount(dataEnd);
+        checked = new byte[blocks];
+        checksums = new int[blocks];
+        long checksumsAt = align(dataEnd);
+        CRC32 crc = new CRC32();
+        update(crc, checksumsAt, checksumsAt + 4L * blocks);
+        if ((int) crc.getValue() != header.getInt(CHECKSUMS_CRC_AT)) {
+            throw new IOException("Parcel table " + file + " failed its checksum");
+        }
+        for (int i = 0; i < blocks; i++) checksums[i] = window(checksumsAt + 4L * i).getInt(index(checksumsAt + 4L * i));
+
+        userIndex = new HashMap<>(users.length * 2);
+        for (int i = 0; i < users.length; i++) userIndex.put(users[i].getUserId(), i);
+    }
+
+    // Map a table written for these users (the snapshot's users, in its order)
+    public static ParcelTable open(Path file, User[] users) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) throw new IOException("Parcel table " + file + " is truncated");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new EOFException(file.toString());
+            }
+            if (header.getInt(0) != MAGIC) throw new IOException(file + " is not a parcel table");
+            if (header.getInt(4) != VERSION) throw new IOException("Unsupported parcel table version " + header.getInt(4));
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 0, HEADER_CRC_AT);
+            if ((int) crc.getValue() != header.getInt(HEADER_CRC_AT)) {
+                throw new IOException("Parcel table " + file + " failed its checksum");
+            }
+            if (header.getInt(USERS_AT) != users.length) {
+                throw new IOException("Parcel table " + file + " does not match the snapshot's users");
+            }
+            long end = align(header.getLong(DATA_END_AT)) + 4L * blockCount(header.getLong(DATA_END_AT));
+            if (end > size) throw new IOException("Parcel table " + file + " is truncated");
+
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_SHIFT)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i << WINDOW_SHIFT;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << WINDOW_SHIFT, size - start));
+            }
+            return new ParcelTable(file, windows, header, users);
+        }
+    }
+
+    // ---------- Rows ----------
+
+    public int size() {
+        return rowCount;
+    }
+
+    // Row of a parcel ID, or -1
+    public int findRow(String parcelId) {
+        byte[] key = idBytes(parcelId);
+        if (key == null || rowCount == 0) return -1;
+        int mask = slotCount - 1;
+        int slot = hash(key, 0, key.length) & mask;
+        while (true) {
+            int entry = getInt(at.slot + 4L * slot);
+            if (entry == 0) return -1;
+            byte[] stored = idBytes(entry - 1);
+            if (Arrays.equals(stored, key)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public String getParcelId(int row) {
+        return decode(record(row)).readUTFQuietly();
+    }
+
+    public ParcelStatus getStatus(int row) {
+        return ParcelStatus.fromCode(getByte(at.status + row));
+    }
+
+    public byte getTypeCode(int row) {
+        return getByte(at.type + row);
+    }
+
+    // Build the parcel object of a row
+    public Parcel restore(int row) {
+        RecordReader record = decode(record(row));
+        String parcelId = record.readUTFQuietly();
+        String dimensions = record.readTextQuietly();
+        String description = record.readTextQuietly();
+        String additionalInfo = record.readTextQuietly();
+        return ParcelFactory.restoreParcel(ParcelArchive.TYPES[getTypeCode(row)], parcelId,
+                users[getInt(at.sender + 4L * row)], users[getInt(at.receiver + 4L * row)],
+                getDouble(at.weight + 8L * row), dimensions, description, additionalInfo,
+                getStatus(row), getDouble(at.price + 8L * row),
+                LocalDate.ofEpochDay(getInt(at.created + 4L * row)));
+    }
+
+    // Rows sent by / addressed to / sent by or addressed to a customer, in creation order
+    public int[] rowsSentBy(String customerId) {
+        return userRows(at.sentStart, at.sentRows, customerId);
+    }
+
+    public int[] rowsReceivedBy(String customerId) {
+        return userRows(at.receivedStart, at.receivedRows, customerId);
+    }
+
+    public int[] rowsInvolving(String customerId) {
+        int[] sent = rowsSentBy(customerId);
+        int[] received = rowsReceivedBy(customerId);
+        int[] merged = new int[sent.length + received.length];
+        int s = 0, r = 0, count = 0;
+        while (s < sent.length || r < received.length) {
+            int next;
+            if (r == received.length || (s < sent.length && sent[s] <= received[r])) {
+                next = sent[s++];
+                if (r < received.length && received[r] == next) r++;   // sent to themselves
+            } else {
+                next = received[r++];
+            }
+            merged[count++] = next;
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    // Rows that were in an end state when the table was written
+    public int[] closedRows() {
+        int[] rows = new int[closedCount];
+        for (int i = 0; i < closedCount; i++) rows[i] = getInt(Layout.closed(dataEnd, closedCount) + 4L * i);
+        return rows;
+    }
+
+    // Rows of a type (RateTable code) and status, as written
+    public long count(int typeCode, ParcelStatus status) {
+        return counts[typeCode][status.ordinal()];
+    }
+
+    // Move an allocator past every ID in the table (no row is read)
+    public void observeIds(IdAllocator allocator) {
+        allocator.restoreMarks(marks);
+    }
+
+    private int[] userRows(long starts, long rows, String userId) {
+        Integer user = userId == null ? null : userIndex.get(userId);
+        if (user == null) return new int[0];
+        int from = getInt(starts + 4L * user);
+        int to = getInt(starts + 4L * (user + 1));
+        int[] result = new int[to - from];
+        for (int i = 0; i < result.length; i++) result[i] = getInt(rows + 4L * (from + i));
+        return result;
+    }
+
+    // ---------- Writing ----------
+
+    // The parcels a snapshot writes, in creation order: rows of the loaded table
+    // that were never built into objects are copied as stored, the rest are
+    // written from their objects (built by ParcelRepository.captureRows)
+    public static final class Rows {
+        private final ParcelTable source;     // null if nothing was loaded
+        private final BitSet notCopied;       // source rows written from an object, or gone
+        private final Parcel[] parcels;       // parcels written from their objects, in order
+        private final byte[] statuses;        // ... with their status when captured
+        private final int[] replacing;        // source row each one takes the place of, -1 = after them
+
+        Rows(ParcelTable source, BitSet notCopied, Parcel[] parcels, byte[] statuses, int[] replacing) {
+            this.source = source;
+            this.notCopied = notCopied;
+            this.parcels = parcels;
+            this.statuses = statuses;
+            this.replacing = replacing;
+        }
+
+        public int size() {
+            int copied = source == null ? 0 : source.rowCount - notCopied.cardinality();
+            return copied + parcels.length;
+        }
+    }
+
+    // Write rows as a new table (under a temporary name, forced, then renamed
+    // into place). users are the snapshot's users in its order.
+    public static void write(Path file, Rows rows, User[] users) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            writeTable(temp, rows, users);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeTable(Path file, Rows rows, User[] users) throws IOException {
+        HashMap<String, Integer> userIndex = new HashMap<>(users.length * 2);
+        for (int i = 0; i < users.length; i++) userIndex.put(users[i].getUserId(), i);
+        ParcelTable source = rows.source;
+        int sourceRows = source == null ? 0 : source.rowCount;
+        int[] sourceUsers = source == null ? new int[0] : new int[source.users.length];
+        for (int i = 0; i < sourceUsers.length; i++) {
+            Integer user = userIndex.get(source.users[i].getUserId());
+            sourceUsers[i] = user == null ? -1 : user;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel, rows.size(), users.length);
+            if (source != null) source.observeIds(out.marks);
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            DataOutputStream encoder = new DataOutputStream(encoded);
+
+            int next = 0;   // next of rows.parcels
+            for (int from = 0; from <= sourceRows; from++) {
+                // Objects taking the place of this source row (after the last one: all the rest)
+                while (next < rows.parcels.length && (rows.replacing[next] == from
+                        || (from == sourceRows && rows.replacing[next] < 0))) {
+                    Parcel parcel = rows.parcels[next];
+                    encoded.reset();
+                    encoder.writeUTF(parcel.getParcelId());
+                    writeText(encoder, parcel.getDimensions());
+                    writeText(encoder, parcel.getDescription());
+                    writeText(encoder, ParcelFactory.additionalInfoOf(parcel));
+                    out.marks.observe(parcel.getParcelId());
+                    out.addRow(encoded.toByteArray(),
+                               requireUser(userIndex, parcel, parcel.getSender()),
+                               requireUser(userIndex, parcel, parcel.getReceiver()),
+                               parcel.getWeight(), parcel.getPrice(), (int) parcel.getCreatedDate().toEpochDay(),
+                               RateTable.typeCode(parcel), rows.statuses[next++]);
+                }
+                if (from == sourceRows || rows.notCopied.get(from)) continue;
+
+                // Copied as stored
+                out.addRow(source.record(from),
+                           mapUser(sourceUsers, source.getInt(source.at.sender + 4L * from), source, from),
+                           mapUser(sourceUsers, source.getInt(source.at.receiver + 4L * from), source, from),
+                           source.getDouble(source.at.weight + 8L * from),
+                           source.getDouble(source.at.price + 8L * from),
+                           source.getInt(source.at.created + 4L * from),
+                           source.getTypeCode(from), source.getByte(source.at.status + from));
+            }
+            out.finish();
+        }
+    }
+
+    // Writes the rows one at a time, keeping what can only be written once every
+    // row is known (ID slots, user lists, closed rows, counts) until finish()
+    private static final class Writer {
+        private final FileChannel channel;
+        private final Layout at;
+        private final int rowCount;
+        private final int userCount;
+        private final ColumnWriter recordAt, weight, price, created, type, status, records;
+
+        private int row;
+        private final int[] slots;
+        private final int[] senders;
+        private final int[] receivers;
+        private final long[][] counts = new long[3][ParcelStatus.count()];
+        private final IdAllocator marks = new IdAllocator();
+        private int[] closed = new int[16];
+        private int closedCount;
+
+        Writer(FileChannel channel, int rowCount, int userCount) {
+            this.channel = channel;
+            this.rowCount = rowCount;
+            this.userCount = userCount;
+            slots = new int[Integer.highestOneBit(Math.max(8, rowCount) * 2 - 1) << 1];
+            senders = new int[rowCount];
+            receivers = new int[rowCount];
+            at = new Layout(rowCount, userCount, slots.length);
+            recordAt = new ColumnWriter(channel, at.record);
+            weight = new ColumnWriter(channel, at.weight);
+            price = new ColumnWriter(channel, at.price);
+            created = new ColumnWriter(channel, at.created);
+            type = new ColumnWriter(channel, at.type);
+            status = new ColumnWriter(channel, at.status);
+            records = new ColumnWriter(channel, at.records);
+        }
+
+        void addRow(byte[] record, int sender, int receiver, double weightKg, double priceRm, int epochDay,
+                    byte typeCode, byte statusCode) throws IOException {
+            recordAt.putLong(records.written());
+            records.put(record);
+            weight.putDouble(weightKg);
+            price.putDouble(priceRm);
+            created.putInt(epochDay);
+            type.put(typeCode);
+            status.put(statusCode);
+            senders[row] = sender;
+            receivers[row] = receiver;
+            counts[typeCode][statusCode]++;
+
+            int mask = slots.length - 1;
+            int slot = hash(record, 2, ((record[0] & 0xFF) << 8) | (record[1] & 0xFF)) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = row + 1;
+
+            if (ParcelStatus.fromCode(statusCode).isTerminal()) {
+                if (closedCount == closed.length) closed = Arrays.copyOf(closed, closedCount * 2);
+                closed[closedCount++] = row;
+            }
+            row++;
+        }
+
+        // Write everything held back, the checksums and the header, then force
+        void finish() throws IOException {
+            if (row != rowCount) throw new IOException("Parcel table rows changed while being written");
+            recordAt.putLong(records.written());
+            long recordsEnd = records.position();
+            for (ColumnWriter column : new ColumnWriter[] {recordAt, weight, price, created, type, status, records}) {
+                column.flush();
+            }
+            writeInts(at.sender, senders);
+            writeInts(at.receiver, receivers);
+            writeInts(at.slot, slots);
+            int[] byUser = new int[rowCount];
+            writeUserRows(at.sentStart, at.sentRows, senders, byUser);
+            writeUserRows(at.receivedStart, at.receivedRows, receivers, byUser);
+            long closedAt = align(recordsEnd);
+            writeInts(closedAt, Arrays.copyOf(closed, closedCount));
+            long dataEnd = closedAt + 4L * closedCount;
+
+            // Block checksums, read back from the file
+            int blocks = blockCount(dataEnd);
+            int[] checksums = new int[blocks];
+            ByteBuffer block = ByteBuffer.allocate(1 << BLOCK_SHIFT);
+            for (int i = 0; i < blocks; i++) {
+                long start = HEADER_SIZE + ((long) i << BLOCK_SHIFT);
+                block.clear().limit((int) Math.min(block.capacity(), dataEnd - start));
+                while (block.hasRemaining()) {
+                    if (channel.read(block, start + block.position()) < 0) {
+                        // Padding after the last region, not written yet: zeros once the checksums are
+                        while (block.hasRemaining()) block.put((byte) 0);
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(block.flip());
+                checksums[i] = (int) crc.getValue();
+            }
+            writeInts(align(dataEnd), checksums);
+            ByteBuffer list = ByteBuffer.allocate(4 * blocks);
+            list.asIntBuffer().put(checksums);
+            CRC32 listCrc = new CRC32();
+            listCrc.update(list);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC).putInt(4, VERSION)
+                  .putInt(ROWS_AT, rowCount).putInt(USERS_AT, userCount)
+                  .putInt(SLOTS_AT, slots.length).putInt(CLOSED_AT, closedCount)
+                  .putLong(DATA_END_AT, dataEnd).putInt(STATUSES_AT, ParcelStatus.count());
+            long[] stored = marks.getMarks();
+            for (int i = 0; i < stored.length; i++) header.putLong(MARKS_AT + 8 * i, stored[i]);
+            for (int t = 0; t < 3; t++) {
+                for (int s = 0; s < ParcelStatus.count(); s++) {
+                    header.putLong(COUNTS_AT + 8 * (t * ParcelStatus.count() + s), counts[t][s]);
+                }
+            }
+            header.putInt(CHECKSUMS_CRC_AT, (int) listCrc.getValue());
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 0, HEADER_CRC_AT);
+            header.putInt(HEADER_CRC_AT, (int) crc.getValue());
+            while (header.hasRemaining()) channel.write(header, header.position());
+            channel.force(true);
+        }
+
+        private void writeInts(long start, int[] values) throws IOException {
+            ColumnWriter out = new ColumnWriter(channel, start);
+            for (int value : values) out.putInt(value);
+            out.flush();
+        }
+
+        // Counting sort of the rows by user: where each user's rows start (users + 1), then the rows
+        private void writeUserRows(long startsAt, long rowsAt, int[] userOfRow, int[] byUser) throws IOException {
+            int[] starts = new int[userCount + 1];
+            for (int user : userOfRow) starts[user + 1]++;
+            for (int i = 0; i < userCount; i++) starts[i + 1] += starts[i];
+            writeInts(startsAt, starts);
+            for (int r = 0; r < userOfRow.length; r++) byUser[starts[userOfRow[r]]++] = r;
+            writeInts(rowsAt, byUser);
+        }
+    }
+
+    private static int requireUser(HashMap<String, Integer> userIndex, Parcel parcel, User user) throws IOException {
+        Integer index = userIndex.get(user.getUserId());
+        if (index == null) {
+            throw new IOException("Parcel " + parcel.getParcelId() + " refers to user " + user.getUserId()
+                                + ", who is not in the snapshot");
+        }
+        return index;
+    }
+
+    private static int mapUser(int[] sourceUsers, int user, ParcelTable source, int row) throws IOException {
+        if (sourceUsers[user] < 0) {
+            throw new IOException("Parcel " + source.getParcelId(row) + " refers to user "
+                                + source.users[user].getUserId() + ", who is not in the snapshot");
+        }
+        return sourceUsers[user];
+    }
+
+    // ---------- Internals ----------
+
+    // Region offsets for a table of this shape (records and what follows them
+    // start where the fixed-width regions end)
+    private static final class Layout {
+        final long record, sender, receiver, weight, price, created, type, status, slot;
+        final long sentStart, sentRows, receivedStart, receivedRows, records;
+
+        Layout(int rows, int users, int slots) {
+            long next = HEADER_SIZE;
+            record = next;        next = align(next + 8L * (rows + 1));
+            sender = next;        next = align(next + 4L * rows);
+            receiver = next;      next = align(next + 4L * rows);
+            weight = next;        next = align(next + 8L * rows);
+            price = next;         next = align(next + 8L * rows);
+            created = next;       next = align(next + 4L * rows);
+            type = next;          next = align(next + rows);
+            status = next;        next = align(next + rows);
+            slot = next;          next = align(next + 4L * slots);
+            sentStart = next;     next = align(next + 4L * (users + 1));
+            sentRows = next;      next = align(next + 4L * rows);
+            receivedStart = next; next = align(next + 4L * (users + 1));
+            receivedRows = next;  next = align(next + 4L * rows);
+            records = next;
+        }
+
+        // The closed rows follow the records and end the data
+        static long closed(long dataEnd, int closedCount) {
+            return dataEnd - 4L * closedCount;
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static int blockCount(long dataEnd) {
+        return (int) ((Math.max(0, dataEnd - HEADER_SIZE) + (1L << BLOCK_SHIFT) - 1) >>> BLOCK_SHIFT);
+    }
+
+    private MappedByteBuffer window(long offset) {
+        return windows[(int) (offset >>> WINDOW_SHIFT)];
+    }
+
+    private static int index(long offset) {
+        return (int) (offset & WINDOW_MASK);
+    }
+
+    // Fixed-width values are aligned to their width, so none spans two windows
+    private byte getByte(long offset) {
+        check(offset, 1);
+        return window(offset).get(index(offset));
+    }
+
+    private int getInt(long offset) {
+        check(offset, 4);
+        return window(offset).getInt(index(offset));
+    }
+
+    private long getLong(long offset) {
+        check(offset, 8);
+        return window(offset).getLong(index(offset));
+    }
+
+    private double getDouble(long offset) {
+        check(offset, 8);
+        return window(offset).getDouble(index(offset));
+    }
+
+    private byte[] getBytes(long offset, int length) {
+        check(offset, length);
+        byte[] bytes = new byte[length];
+        for (int done = 0; done < length; ) {
+            long position = offset + done;
+            int count = (int) Math.min(length - done, (1L << WINDOW_SHIFT) - index(position));
+            window(position).get(index(position), bytes, done, count);
+            done += count;
+        }
+        return bytes;
+    }
+
+    private byte[] record(int row) {
+        long start = getLong(at.record + 8L * row);
+        long end = getLong(at.record + 8L * (row + 1));
+        return getBytes(at.records + start, (int) (end - start));
+    }
+
+    // The parcel ID of a row as stored (modified UTF-8, without the length)
+    private byte[] idBytes(int row) {
+        long start = at.records + getLong(at.record + 8L * row);
+        byte[] length = getBytes(start, 2);
+        return getBytes(start + 2, ((length[0] & 0xFF) << 8) | (length[1] & 0xFF));
+    }
+
+    // A parcel ID as it is stored, or null if it could not be (too long)
+    private static byte[] idBytes(String parcelId) {
+        if (parcelId == null) return null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(parcelId.length() + 2);
+        try {
+            new DataOutputStream(bytes).writeUTF(parcelId);
+        } catch (IOException e) {
+            return null;
+        }
+        byte[] encoded = bytes.toByteArray();
+        return Arrays.copyOfRange(encoded, 2, encoded.length);
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) h = (h ^ bytes[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    private void check(long offset, int length) {
+        if (offset < HEADER_SIZE || length == 0) return;
+        int last = (int) ((offset + length - 1 - HEADER_SIZE) >>> BLOCK_SHIFT);
+        for (int block = (int) ((offset - HEADER_SIZE) >>> BLOCK_SHIFT); block <= last; block++) {
+            if (checked[block] != 0) continue;
+            long start = HEADER_SIZE + ((long) block << BLOCK_SHIFT);
+            CRC32 crc = new CRC32();
+            update(crc, start, Math.min(start + (1L << BLOCK_SHIFT), dataEnd));
+            if ((int) crc.getValue() != checksums[block]) {
+                String problem = "Parcel table " + file + " failed its checksum at block " + block;
+                throw new UncheckedIOException(problem, new IOException(problem));
+            }
+            checked[block] = 1;
+        }
+    }
+
+    private void update(CRC32 crc, long from, long to) {
+        for (long position = from; position < to; ) {
+            int count = (int) Math.min(to - position, (1L << WINDOW_SHIFT) - index(position));
+            crc.update(window(position).slice(index(position), count));
+            position += count;
+        }
+    }
+
+    private static void writeText(DataOutput out, String text) throws IOException {
+        out.writeBoolean(text != null);
+        if (text != null) out.writeUTF(text);
+    }
+
+    private RecordReader decode(byte[] record) {
+        return new RecordReader(record);
+    }
+
+    // A row's record. A record that does not decode is a damaged table, which
+    // the block checksums let through only if it was written that way.
+    private class RecordReader extends DataInputStream {
+        RecordReader(byte[] record) {
+            super(new ByteArrayInputStream(record));
+        }
+
+        String readUTFQuietly() {
+            try {
+                return readUTF();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Parcel table " + file + " has a damaged record", e);
+            }
+        }
+
+        String readTextQuietly() {
+            try {
+                return readBoolean() ? readUTF() : null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Parcel table " + file + " has a damaged record", e);
+            }
+        }
+    }
+
+    // Buffered sequential writes to one region of the file
+    private static final class ColumnWriter {
+        private final FileChannel channel;
+        private final long start;
+        private long position;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        ColumnWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+            this.position = start;
+        }
+
+        void put(byte value) throws IOException {
+            room(1).put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            room(4).putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            room(8).putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            room(8).putDouble(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int done = 0; done < bytes.length; ) {
+                int count = Math.min(bytes.length - done, room(1).remaining());
+                buffer.put(bytes, done, count);
+                done += count;
+            }
+        }
+
+        // Bytes written since the start of the region
+        long written() {
+            return position() - start;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            buffer.clear();
+        }
+
+        private ByteBuffer room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PaymentIdGenerator {
+
+    // 64-bit layout: [41 bits ms since EPOCH][10 bits node][12 bits per-ms counter]
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int COUNTER_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    // Fixed-width base-36 body so string order == numeric order == creation order
+    private static final int ID_WIDTH = 13;
+    private static final String PREFIX = "PAY";
+
+    private final long nodeId;
+
+    // Last issued (timestamp << COUNTER_BITS | counter); advanced with CAS only
+    private final AtomicLong lastState = new AtomicLong(0);
+
+    public PaymentIdGenerator() {
+        this(Long.getLong("courier.nodeId", 0L));
+    }
+
+    public PaymentIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE);
+        }
+        this.nodeId = nodeId;
+    }
+
+    // Next unique, time-sortable payment ID (lock-free)
+    public String nextId() {
+        return format(nextRaw());
+    }
+
+    public long nextRaw() {
+        while (true) {
+            long last = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long lastTime = last >>> COUNTER_BITS;
+
+            // New millisecond starts the counter at 0. In the same (or a backwards-stepped)
+            // millisecond we bump the counter; overflow carries into the next millisecond,
+            // so IDs stay strictly increasing even if the clock goes back.
+            long next = (now > lastTime) ? (now << COUNTER_BITS) : last + 1;
+
+            if (lastState.compareAndSet(last, next)) {
+                long time = next >>> COUNTER_BITS;
+                long counter = next & COUNTER_MASK;
+                return (time << (NODE_BITS + COUNTER_BITS)) | (nodeId << COUNTER_BITS) | counter;
+            }
+        }
+    }
+
+    // Never issue an ID at or below one issued before (by any node), e.g. the
+    // highest stored ID at startup. Unknown formats and null are ignored.
+    public void observe(String paymentId) {
+        long raw = rawOf(paymentId);
+        if (raw < 0) return;
+        long state = ((raw >>> (NODE_BITS + COUNTER_BITS)) << COUNTER_BITS) | (raw & COUNTER_MASK);
+        lastState.accumulateAndGet(state, Math::max);
+    }
+
+    // Lowest possible ID created at or after the given time - use as a range-scan bound
+    public static String lowerBound(long epochMillis) {
+        long time = Math.max(0, epochMillis - EPOCH);
+        return format(time << (NODE_BITS + COUNTER_BITS));
+    }
+
+    // Creation time embedded in an ID (-1 if the ID is not in this format)
+    public static long timestampOf(String paymentId) {
+        long raw = rawOf(paymentId);
+        return raw < 0 ? -1 : (raw >>> (NODE_BITS + COUNTER_BITS)) + EPOCH;
+    }
+
+    private static long rawOf(String paymentId) {
+        if (paymentId == null || !paymentId.startsWith(PREFIX)
+                || paymentId.length() != PREFIX.length() + ID_WIDTH) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(paymentId.substring(PREFIX.length()), 36);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String format(long raw) {
+        String body = Long.toString(raw, 36).toUpperCase();
+        StringBuilder id = new StringBuilder(PREFIX.length() + ID_WIDTH).append(PREFIX);
+        for (int i = body.length(); i < ID_WIDTH; i++) {
+            id.append('0');
+        }
+        return id.append(body).toString();
+    }
+}
@@ -0,0 +1,224 @@
+package services;
+
+import models.Payment;
+import models.PaymentStatus;
+import java.util.*;
+
+public class PaymentLedger {
+
+    // Payments in creation order (== payment ID order, see PaymentIdGenerator)
+    private ArrayList<Payment> payments;
+
+    // Highest payment ID recorded, and whether creation order is still ID order
+    // (false after a payment sorted below an earlier one - recorded by a
+    // generator that was not seeded with highestId)
+    private String highestId;
+    private boolean inIdOrder = true;
+
+    // Primary key index: paymentId -> Payment
+    private HashMap<String, Payment> paymentsById;
+
+    // Running totals, kept in cents so they always equal an exact recount
+    private long[][] totalsByStatus;                  // status ordinal -> {count, cents}
+    private HashMap<String, long[]> totalsByMethod;   // method -> {count, cents}
+    private HashMap<String, long[]> revenueByMethod;  // method -> {count, cents} (Completed only)
+    private long grandTotalCents;
+
+    private EventBus events;
+
+    public PaymentLedger() {
+        this(new EventBus());
+    }
+
+    public PaymentLedger(EventBus events) {
+        this.events = events;
+        payments = new ArrayList<>();
+        paymentsById = new HashMap<>();
+        totalsByStatus = new long[PaymentStatus.count()][2];
+        totalsByMethod = new HashMap<>();
+        revenueByMethod = new HashMap<>();
+    }
+
+    // Record a new payment (rejects duplicate IDs)
+    public boolean record(Payment payment) {
+        if (payment == null || paymentsById.containsKey(payment.getPaymentId())) {
+            return false;
+        }
+        events.journal().paymentRecorded(payment);
+        payments.add(payment);
+        paymentsById.put(payment.getPaymentId(), payment);
+        if (highestId == null || payment.getPaymentId().compareTo(highestId) > 0) {
+            highestId = payment.getPaymentId();
+        } else {
+            inIdOrder = false;
+        }
+
+        long cents = toCents(payment.getAmount());
+        grandTotalCents += cents;
+        add(totalsByMethod, payment.getPaymentMethod(), 1, cents);
+        add(totalsByStatus[payment.getStatus().ordinal()], 1, cents);
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            add(revenueByMethod, payment.getPaymentMethod(), 1, cents);
+        }
+        events.paymentRecorded(payment);
+        return true;
+    }
+
+    // Process a payment and move its amount into the "Completed" totals.
+    // False if the payment is unknown or already settled (only pending
+    // payments can complete), in which case nothing changes
+    public boolean process(String paymentId) {
+        Payment payment = paymentsById.get(paymentId);
+        if (payment == null) return false;
+
+        PaymentStatus oldStatus = payment.getStatus();
+        if (!oldStatus.canTransitionTo(PaymentStatus.COMPLETED)) return false;
+        events.journal().paymentStatusChanged(payment, oldStatus, PaymentStatus.COMPLETED);
+        payment.processPayment();
+        statusApplied(payment, oldStatus, PaymentStatus.COMPLETED);
+        return true;
+    }
+
+    // Recovery path: apply a recorded status as-is, without console output
+    public void restoreStatus(Payment payment, PaymentStatus status) {
+        PaymentStatus oldStatus = payment.getStatus();
+        if (oldStatus == status) return;
+        events.journal().paymentStatusChanged(payment, oldStatus, status);
+        payment.setStatus(status);
+        statusApplied(payment, oldStatus, status);
+    }
+
+    // Move a payment between status totals after its status changed
+    private void statusApplied(Payment payment, PaymentStatus oldStatus, PaymentStatus newStatus) {
+        long cents = toCents(payment.getAmount());
+        add(totalsByStatus[oldStatus.ordinal()], -1, -cents);
+        add(totalsByStatus[newStatus.ordinal()], 1, cents);
+        if (oldStatus == PaymentStatus.COMPLETED) {
+            add(revenueByMethod, payment.getPaymentMethod(), -1, -cents);
+        } else if (newStatus == PaymentStatus.COMPLETED) {
+            add(revenueByMethod, payment.getPaymentMethod(), 1, cents);
+        }
+        events.paymentStatusChanged(payment, oldStatus, newStatus);
+    }
+
+    // Find payment by ID - O(1)
+    public Payment findById(String paymentId) {
+        return paymentId == null ? null : paymentsById.get(paymentId);
+    }
+
+    // O(1) dashboard figures
+    public double getRevenue() {
+        return getTotalByStatus(PaymentStatus.COMPLETED);
+    }
+
+    public int getCountByStatus(PaymentStatus status) {
+        return (int) totalsByStatus[status.ordinal()][0];
+    }
+
+    public double getTotalByStatus(PaymentStatus status) {
+        return totalsByStatus[status.ordinal()][1] / 100.0;
+    }
+
+    public int getCountByMethod(String method) {
+        long[] totals = totalsByMethod.get(method);
+        return totals == null ? 0 : (int) totals[0];
+    }
+
+    public double getTotalByMethod(String method) {
+        long[] totals = totalsByMethod.get(method);
+        return totals == null ? 0 : totals[1] / 100.0;
+    }
+
+    public double getRevenueByMethod(String method) {
+        long[] totals = revenueByMethod.get(method);
+        return totals == null ? 0 : totals[1] / 100.0;
+    }
+
+    public double getGrandTotal() {
+        return grandTotalCents / 100.0;
+    }
+
+    public Set<String> getPaymentMethods() {
+        return Collections.unmodifiableSet(totalsByMethod.keySet());
+    }
+
+    // Most recent payments, newest first
+    public List<Payment> getRecent(int limit) {
+        ArrayList<Payment> recent = new ArrayList<>();
+        for (int i = payments.size() - 1; i >= 0 && recent.size() < limit; i--) {
+            recent.add(payments.get(i));
+        }
+        return recent;
+    }
+
+    // Payments created in [fromMillis, toMillis), in creation order. IDs sort by
+    // creation time, so the range is found by binary search without a date index
+    // (or by one pass if the ledger is not in ID order)
+    public List<Payment> getCreatedBetween(long fromMillis, long toMillis) {
+        if (!inIdOrder) {
+            ArrayList<Payment> created = new ArrayList<>();
+            for (Payment payment : payments) {
+                long time = PaymentIdGenerator.timestampOf(payment.getPaymentId());
+                if (time >= fromMillis && time < toMillis) created.add(payment);
+            }
+            return created;
+        }
+        int start = lowerBoundIndex(PaymentIdGenerator.lowerBound(fromMillis));
+        int end = lowerBoundIndex(PaymentIdGenerator.lowerBound(toMillis));
+        return List.copyOf(payments.subList(start, Math.max(start, end)));
+    }
+
+    // Highest payment ID recorded (null if none): the generator's starting point
+    public String getHighestId() {
+        return highestId;
+    }
+
+    // Read-only view in creation (= ID) order
+    public List<Payment> getAll() {
+        return Collections.unmodifiableList(payments);
+    }
+
+    // Payment at a position in creation order (0 .. size() - 1)
+    public Payment get(int position) {
+        return payments.get(position);
+    }
+
+    public int size() {
+        return payments.size();
+    }
+
+    public boolean isEmpty() {
+        return payments.isEmpty();
+    }
+
+    private int lowerBoundIndex(String id) {
+        int low = 0, high = payments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (payments.get(mid).getPaymentId().compareTo(id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static void add(long[] entry, long count, long cents) {
+        entry[0] += count;
+        entry[1] += cents;
+    }
+
+    private static void add(HashMap<String, long[]> totals, String key, long count, long cents) {
+        long[] entry = totals.computeIfAbsent(key, k -> new long[2]);
+        entry[0] += count;
+        entry[1] += cents;
+        if (entry[0] == 0) {
+            totals.remove(key);
+        }
+    }
+}
@@ -1,66 +1,76 @@
 package services;
 
 import models.Payment;
-import java.util.ArrayList;
+import java.util.List;
 
 public class PaymentService {
-    private ArrayList<Payment> payments;
-    
+    private PaymentLedger ledger; // id index + running totals
+    private PaymentIdGenerator idGenerator;
+
     public PaymentService() {
-        payments = new ArrayList<>();
+        this(new PaymentLedger(), new PaymentIdGenerator());
+    }
+
+    public PaymentService(PaymentLedger ledger) {
+        this(ledger, new PaymentIdGenerator());
+    }
+
+    public PaymentService(PaymentLedger ledger, PaymentIdGenerator idGenerator) {
+        this.ledger = ledger;
+        this.idGenerator = idGenerator;
     }
-    
-    // Create new payment
+
+    // Start new IDs after the highest the ledger holds (call once stored payments
+    // are loaded), so they sort after it even if the clock is now behind it
+    public void observeExistingIds() {
+        idGenerator.observe(ledger.getHighestId());
+    }
+
+    // Create new payment (unique, time-ordered ID - no same-millisecond collisions)
     public Payment createPayment(double amount, String method) {
-        String paymentId = "PAY" + System.currentTimeMillis();
+        String paymentId = idGenerator.nextId();
         Payment payment = new Payment(paymentId, amount, method);
-        payments.add(payment);
+        ledger.record(payment);
         return payment;
     }
-    
-    // Process payment by ID
+
+    // Process payment by ID (ledger moves the amount into the "Completed" totals)
     public void processPayment(String paymentId) {
-        for (Payment payment : payments) {
-            if (payment.getPaymentId().equals(paymentId)) {
-                payment.processPayment();
-                return;
+        if (!ledger.process(paymentId)) {
+            Payment payment = ledger.findById(paymentId);
+            if (payment == null) {
+                System.out.println("Payment not found!");
+            } else {
+                System.out.println("Payment " + paymentId + " is already " + payment.getStatus() + "!");
             }
         }
-        System.out.println("Payment not found!");
     }
-    
-    // Get total revenue
+
+    // Get total revenue - running total, O(1)
     public double calculateTotalRevenue() {
-        double total = 0;
-        for (Payment payment : payments) {
-            if (payment.getStatus().equals("Completed")) {
-                total += payment.getAmount();
-            }
-        }
-        return total;
+        return ledger.getRevenue();
     }
-    
+
     // Display all payments
     public void displayAllPayments() {
         System.out.println("\n=== ALL PAYMENTS ===");
-        for (Payment payment : payments) {
-            System.out.println(payment.getPaymentId() + " - RM" + 
+        for (Payment payment : ledger.getAll()) {
+            System.out.println(payment.getPaymentId() + " - RM" +
                              payment.getAmount() + " - " + payment.getStatus());
         }
     }
-    
-    // Get payments list
-    public ArrayList<Payment> getPayments() {
-        return payments;
+
+    // Get payments list (read-only, creation order)
+    public List<Payment> getPayments() {
+        return ledger.getAll();
     }
-    
-    // Get payment by ID
+
+    public PaymentLedger getLedger() {
+        return ledger;
+    }
+
+    // Get payment by ID - hash lookup
     public Payment getPaymentById(String paymentId) {
-        for (Payment payment : payments) {
-            if (payment.getPaymentId().equals(paymentId)) {
-                return payment;
-            }
-        }
-        return null;
+        return ledger.findById(paymentId);
     }
-}
\ No newline at end of file
+}
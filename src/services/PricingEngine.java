@@ -0,0 +1,201 @@
+package services;
+
+import models.*;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+// Prices batches of parcel specs held in primitive arrays (type code, weight,
+// destination zone) against a RateTable, split across a fork/join pool. No
+// Parcel or other object is created per quote, so bulk quotes and repricing
+// campaigns over millions of parcels cost a few arrays and one pass. The
+// arithmetic itself runs in a PricingKernel (vectorised when available).
+public class PricingEngine implements Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final PricingKernel kernel;
+
+    public PricingEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public PricingEngine(int threads, int chunkSize) {
+        this(threads, chunkSize, PricingKernel.select());
+    }
+
+    public PricingEngine(int threads, int chunkSize, PricingKernel kernel) {
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.chunkSize = Math.max(1, chunkSize);
+        this.kernel = kernel;
+    }
+
+    public PricingKernel getKernel() {
+        return kernel;
+    }
+
+    // ---------- Batch pricing ----------
+
+    // prices[i] = price of (types[i], weights[i], zones[i]); zones may be null (all zone 0)
+    public void price(RateTable table, byte[] types, double[] weights, int[] zones, double[] prices) {
+        int count = types.length;
+        if (weights.length != count || prices.length != count || (zones != null && zones.length != count)) {
+            throw new IllegalArgumentException("Batch arrays differ in length");
+        }
+        Rates rates = new Rates(table, kernel);
+        if (count <= chunkSize) {
+            rates.price(types, weights, zones, prices, 0, count);
+            return;
+        }
+        // One task per chunk; the pool's workers take them in turn
+        ArrayList<Callable<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < count; from += chunkSize) {
+            int start = from;
+            int end = Math.min(count, from + chunkSize);
+            chunks.add(() -> {
+                rates.price(types, weights, zones, prices, start, end);
+                return null;
+            });
+        }
+        for (Future<Void> chunk : pool.invokeAll(chunks)) {
+            try {
+                chunk.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new IllegalStateException("Pricing failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Pricing interrupted");
+            }
+        }
+    }
+
+    // Current parcels (live and archived) priced against another table, without
+    // changing any parcel
+    public Repricing reprice(RateTable table, ParcelRepository parcels, ParcelArchive archive) {
+        long start = System.nanoTime();
+        int live = parcels.size();
+        int archived = archive == null ? 0 : archive.size();
+        int count = live + archived;
+        byte[] types = new byte[count];
+        double[] weights = new double[count];
+        int[] zones = new int[count];
+        double[] current = new double[count];
+        // Weights of the parcels that carry a surcharge, for the fee forecast
+        double[] expressWeights = new double[count];
+        double[] internationalWeights = new double[count];
+        int express = 0;
+        int international = 0;
+
+        int i = 0;
+        for (Parcel parcel : parcels.getAll()) {
+            types[i] = RateTable.typeCode(parcel);
+            weights[i] = parcel.getWeight();
+            zones[i] = table.zoneOf(RateTable.destinationOf(parcel));
+            current[i] = parcel.getPrice();
+            i++;
+        }
+        // The archive keeps no destination, so archived parcels price in zone 0
+        for (int row = 0; row < archived; row++, i++) {
+            types[i] = archive.getTypeCode(row);
+            weights[i] = archive.getWeight(row);
+            current[i] = archive.getPrice(row);
+        }
+        for (int p = 0; p < count; p++) {
+            if (types[p] == RateTable.EXPRESS) expressWeights[express++] = weights[p];
+            else if (types[p] == RateTable.INTERNATIONAL) internationalWeights[international++] = weights[p];
+        }
+        long captured = System.nanoTime();
+
+        double[] repriced = new double[count];
+        price(table, types, weights, zones, repriced);
+
+        Repricing result = new Repricing();
+        result.parcels = count;
+        result.archived = archived;
+        result.kernel = kernel.getName();
+        result.currentTotal = kernel.sum(current, 0, count);
+        result.repricedTotal = kernel.sum(repriced, 0, count);
+        for (int p = 0; p < count; p++) {
+            if (repriced[p] > current[p] + 0.005) result.increased++;
+            else if (repriced[p] < current[p] - 0.005) result.decreased++;
+        }
+        // Fees in place: the weight arrays are not needed afterwards
+        kernel.linear(ExpressParcel.URGENT_FLAT, ExpressParcel.URGENT_PER_KG, expressWeights, expressWeights, 0, express);
+        kernel.linear(0, InternationalParcel.CUSTOMS_PER_KG, internationalWeights, internationalWeights, 0, international);
+        result.urgentFees = kernel.sum(expressWeights, 0, express);
+        result.customsFees = kernel.sum(internationalWeights, 0, international);
+
+        result.bracketLimits = ParcelService.getWeightCategories();
+        result.bracketCounts = new long[result.bracketLimits.length + 1];
+        result.bracketTotals = new double[result.bracketLimits.length + 1];
+        kernel.brackets(result.bracketLimits, weights, repriced, result.bracketCounts, result.bracketTotals, 0, count);
+        result.captureMillis = (captured - start) / 1_000_000;
+        result.priceMillis = (System.nanoTime() - captured) / 1_000_000;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // ---------- Workers ----------
+
+    // Rate arrays copied out of the table once per batch
+    private static class Rates {
+        final double[] base;
+        final double[] perKg;
+        final double[] zoneFlat;
+        final double[] zonePerKg;
+        final PricingKernel kernel;
+
+        Rates(RateTable table, PricingKernel kernel) {
+            base = table.getBaseRates();
+            perKg = table.getPerKgRates();
+            zoneFlat = table.getZoneFlat();
+            zonePerKg = table.getZonePerKg();
+            this.kernel = kernel;
+        }
+
+        void price(byte[] types, double[] weights, int[] zones, double[] prices, int from, int to) {
+            kernel.price(base, perKg, zoneFlat, zonePerKg, types, weights, zones, prices, from, to);
+        }
+    }
+
+    // ---------- Results ----------
+
+    public static class Repricing {
+        private int parcels;
+        private int archived;
+        private double currentTotal;
+        private double repricedTotal;
+        private int increased;
+        private int decreased;
+        private long captureMillis;
+        private long priceMillis;
+        private String kernel;
+        private double urgentFees;     // Express urgent fees (shown apart from the price)
+        private double customsFees;    // International customs fees (likewise)
+        private double[] bracketLimits;
+        private long[] bracketCounts;  // parcels per weight category (last: over the top limit)
+        private double[] bracketTotals; // repriced revenue per weight category
+
+        public int getParcels() { return parcels; }
+        public int getArchived() { return archived; }
+        public double getCurrentTotal() { return currentTotal; }
+        public double getRepricedTotal() { return repricedTotal; }
+        public int getIncreased() { return increased; }
+        public int getDecreased() { return decreased; }
+        public long getCaptureMillis() { return captureMillis; }
+        public long getPriceMillis() { return priceMillis; }
+        public String getKernel() { return kernel; }
+        public double getUrgentFees() { return urgentFees; }
+        public double getCustomsFees() { return customsFees; }
+        public double[] getBracketLimits() { return bracketLimits.clone(); }
+        public long[] getBracketCounts() { return bracketCounts.clone(); }
+        public double[] getBracketTotals() { return bracketTotals.clone(); }
+    }
+}
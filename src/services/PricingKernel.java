@@ -0,0 +1,52 @@
+package services;
+
+// Arithmetic over primitive parcel columns (type code, weight, zone, price),
+// shared by repricing, revenue forecasts and the weight-category report.
+// ScalarPricingKernel is plain Java; VectorPricingKernel evaluates the same
+// formulas several lanes at a time with the (incubating) Vector API when the
+// JVM was started with --add-modules jdk.incubator.vector.
+//
+// Prices come out bit-for-bit the same from both kernels (same operations in
+// the same order per parcel); sums may differ in the last digits because the
+// vector kernel adds lanes in a different order.
+public interface PricingKernel {
+
+    // prices[i] = base[t] + perKg[t] * w + zoneFlat[z] + zonePerKg[z] * w
+    // for t = types[i], w = weights[i], z = zones[i] (zone 0 when zones is null)
+    void price(double[] base, double[] perKg, double[] zoneFlat, double[] zonePerKg,
+               byte[] types, double[] weights, int[] zones, double[] prices, int from, int to);
+
+    // out[i] = flat + perKg * weights[i] (urgent fee, customs fee)
+    void linear(double flat, double perKg, double[] weights, double[] out, int from, int to);
+
+    // Sum of values[from..to)
+    double sum(double[] values, int from, int to);
+
+    // Weight brackets: bracket k holds weights in (limits[k-1], limits[k]], the
+    // last bracket (index limits.length) everything heavier. Adds the number of
+    // weights per bracket to counts and, when values is not null, the sum of
+    // their values to totals. limits must be ascending.
+    void brackets(double[] limits, double[] weights, double[] values,
+                  long[] counts, double[] totals, int from, int to);
+
+    String getName();
+
+    // The vector kernel when the module is loaded and the hardware has useful
+    // vector lanes, otherwise the scalar one. -Dcourier.pricing.vector=false
+    // forces the scalar kernel.
+    static PricingKernel select() {
+        if (Boolean.parseBoolean(System.getProperty("courier.pricing.vector", "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // By name, so this interface still links without the module
+                Class<?> vectorKernel = Class.forName("services.VectorPricingKernel");
+                if ((Boolean) vectorKernel.getMethod("isSupported").invoke(null)) {
+                    return (PricingKernel) vectorKernel.getConstructor().newInstance();
+                }
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar kernel
+            }
+        }
+        return new ScalarPricingKernel();
+    }
+}
@@ -0,0 +1,147 @@
+package services;
+
+import models.RateTable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Prices of recently quoted parcel shapes - (type, weight bucket, destination
+// country) - so re-quoting the same parcel does not build a Parcel or run the
+// rate formula again.
+//
+//   - bounded: at most `capacity` shapes, the least recently quoted goes first
+//   - time-limited: a shape is re-priced once it is older than `ttlMillis`
+//   - rate changes: entries remember the RateTable they were priced with; the
+//     first quote after RateTable.setActive drops all of them in one step, so
+//     a quote never mixes old and new rates
+//
+// A shape is priced at its bucket's weight (RateTable.weightBucket), which is
+// the weight a parcel of that shape is created with: a cached quote is always
+// exactly the price the parcel is charged.
+public class QuoteCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+    private final int capacity;
+    private final long ttlMillis;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    // Table the cached prices came from
+    private RateTable rates;
+
+    private long hits;
+    private long misses;
+    private long evictions;      // least recently used shape dropped to make room
+    private long expirations;    // shape older than the time limit
+    private long invalidations;  // times the whole cache was dropped for new rates
+
+    public QuoteCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+    }
+
+    public QuoteCache(int capacity, long ttlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlMillis = Math.max(0, ttlMillis);
+        // access order: iteration starts at the least recently quoted shape
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Price of a parcel of this type (RateTable.STANDARD / EXPRESS / INTERNATIONAL),
+    // weight and destination (ignored unless international) at the active rates
+    public synchronized double quote(int type, double weight, String destination) {
+        RateTable active = RateTable.getActive();
+        if (active != rates) {
+            if (!entries.isEmpty()) invalidations++;
+            entries.clear();
+            rates = active;
+        }
+
+        String country = type == RateTable.INTERNATIONAL && destination != null
+                ? destination.trim().toLowerCase() : "";
+        Key key = new Key(type, RateTable.weightBucket(weight), country);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now - entry.pricedAt <= ttlMillis) {
+                hits++;
+                return entry.price;
+            }
+            entries.remove(key);
+            expirations++;
+        }
+
+        misses++;
+        double price = price(active, type, RateTable.bucketWeight(key.bucket), country);
+        entries.put(key, new Entry(price, now));
+        if (entries.size() > capacity) {
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+        return price;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // ---------- Counters ----------
+
+    public synchronized int size() { return entries.size(); }
+    public int getCapacity() { return capacity; }
+    public long getTtlMillis() { return ttlMillis; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getExpirations() { return expirations; }
+    public synchronized long getInvalidations() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long quotes = hits + misses;
+        return quotes == 0 ? 0 : (double) hits / quotes;
+    }
+
+    // ---------- Helpers ----------
+
+    // Same formula and zone rules as the parcel classes' calculatePrice
+    private static double price(RateTable rates, int type, double weight, String country) {
+        return rates.price(type, weight, rates.zoneOf(country));
+    }
+
+    private static final class Key {
+        private final int type;
+        private final long bucket;
+        private final String country;
+
+        Key(int type, long bucket, String country) {
+            this.type = type;
+            this.bucket = bucket;
+            this.country = country;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            return type == key.type && bucket == key.bucket && country.equals(key.country);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, bucket, country);
+        }
+    }
+
+    private static final class Entry {
+        private final double price;
+        private final long pricedAt;
+
+        Entry(double price, long pricedAt) {
+            this.price = price;
+            this.pricedAt = pricedAt;
+        }
+    }
+}
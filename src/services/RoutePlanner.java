@@ -0,0 +1,314 @@
+package services;
+
+import models.*;
+import java.util.*;
+
+// Orders the stops of a vehicle's run to keep the round trip from the depot short.
+//
+// A route is built with nearest neighbour (always drive to the closest stop not
+// yet visited), then improved until nothing helps or the time budget runs out:
+//   - 2-opt: take out two legs and reconnect the route the other way round,
+//     which removes crossings
+//   - Or-opt: move a run of 1-3 consecutive stops, either way round, to the
+//     place between two other stops where it costs least
+// Both take the first improving move they find and start over, so the route
+// only ever gets shorter and stopping at the budget always leaves a valid route.
+//
+// Stops are place indices in a DistanceMatrix; the depot (place 0) is the start
+// and end of every route and is never part of the stop list.
+public class RoutePlanner {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 200;
+
+    private static final double EPSILON = 1e-9;
+    private static final int MAX_SEGMENT = 3;
+
+    private final DistanceMatrix matrix;
+    private final long budgetNanos;
+
+    public RoutePlanner(DistanceMatrix matrix) {
+        this(matrix, DEFAULT_BUDGET_MILLIS);
+    }
+
+    public RoutePlanner(DistanceMatrix matrix, long budgetMillis) {
+        this.matrix = matrix;
+        this.budgetNanos = Math.max(0, budgetMillis) * 1_000_000L;
+    }
+
+    public DistanceMatrix getMatrix() {
+        return matrix;
+    }
+
+    // ---------- Planning ----------
+
+    // Plan a round trip through the given places (duplicates and the depot are dropped)
+    public Plan plan(int[] stops) {
+        return plan(stops, true);
+    }
+
+    // Nearest neighbour only, without the improvement passes
+    public Plan construct(int[] stops) {
+        return plan(stops, false);
+    }
+
+    private Plan plan(int[] stops, boolean improve) {
+        long start = System.nanoTime();
+        int[] tour = nearestNeighbour(distinctStops(stops));
+        double constructed = tourLength(tour);
+
+        int moves = 0;
+        boolean exhausted = false;
+        if (improve) {
+            long deadline = start + budgetNanos;
+            boolean improved = true;
+            while (improved) {
+                if (System.nanoTime() > deadline) {
+                    exhausted = true;
+                    break;
+                }
+                improved = twoOpt(tour, deadline) || orOpt(tour, deadline);
+                if (improved) moves++;
+            }
+        }
+        return new Plan(Arrays.copyOfRange(tour, 1, tour.length), tourLength(tour), constructed,
+                        moves, System.nanoTime() - start, exhausted);
+    }
+
+    // Round trip length visiting the stops in the given order (depot excluded)
+    public double routeLength(int[] stops) {
+        double total = 0;
+        int from = DistanceMatrix.DEPOT;
+        for (int stop : stops) {
+            total += matrix.distance(from, stop);
+            from = stop;
+        }
+        return total + matrix.distance(from, DistanceMatrix.DEPOT);
+    }
+
+    // Plan the run for everything on a vehicle's manifest. Deliveries whose
+    // receiver address matches no place in the matrix are listed as unrouted.
+    public VehicleRoute planVehicle(Vehicle vehicle, DeliveryRepository deliveries) {
+        LinkedHashMap<Integer, List<Delivery>> byPlace = new LinkedHashMap<>();
+        ArrayList<Delivery> unrouted = new ArrayList<>();
+        for (String deliveryId : vehicle.getDeliveryIds()) {
+            Delivery delivery = deliveries.findById(deliveryId);
+            if (delivery == null) continue;
+            int place = matrix.indexOf(addressOf(delivery.getParcel().getReceiver()));
+            // no matching place, or the depot itself (handed over at the counter)
+            if (place <= DistanceMatrix.DEPOT) {
+                unrouted.add(delivery);
+            } else {
+                byPlace.computeIfAbsent(place, key -> new ArrayList<>()).add(delivery);
+            }
+        }
+        // Loading order is what a driver without a plan would follow
+        int[] loadingOrder = new int[byPlace.size()];
+        int i = 0;
+        for (int place : byPlace.keySet()) loadingOrder[i++] = place;
+
+        Plan plan = plan(loadingOrder);
+        return new VehicleRoute(matrix, vehicle, plan, byPlace, unrouted, routeLength(distinctStops(loadingOrder)));
+    }
+
+    private static String addressOf(User user) {
+        return user instanceof Customer ? ((Customer) user).getAddress() : null;
+    }
+
+    // ---------- Construction ----------
+
+    private int[] distinctStops(int[] stops) {
+        boolean[] seen = new boolean[matrix.size()];
+        seen[DistanceMatrix.DEPOT] = true;
+        int[] distinct = new int[stops.length];
+        int count = 0;
+        for (int stop : stops) {
+            if (!seen[stop]) {
+                seen[stop] = true;
+                distinct[count++] = stop;
+            }
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+
+    // tour[0] is the depot; the route closes back to it after the last stop
+    private int[] nearestNeighbour(int[] stops) {
+        int[] tour = new int[stops.length + 1];
+        tour[0] = DistanceMatrix.DEPOT;
+        boolean[] visited = new boolean[stops.length];
+        int current = DistanceMatrix.DEPOT;
+        for (int position = 1; position < tour.length; position++) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int s = 0; s < stops.length; s++) {
+                if (!visited[s] && matrix.distance(current, stops[s]) < bestDistance) {
+                    best = s;
+                    bestDistance = matrix.distance(current, stops[s]);
+                }
+            }
+            visited[best] = true;
+            current = stops[best];
+            tour[position] = current;
+        }
+        return tour;
+    }
+
+    private double tourLength(int[] tour) {
+        double total = 0;
+        for (int i = 0; i < tour.length; i++) {
+            total += matrix.distance(tour[i], tour[(i + 1) % tour.length]);
+        }
+        return total;
+    }
+
+    // ---------- Improvement ----------
+
+    // Legs (a,b) and (c,d) become (a,c) and (b,d) by reversing b..c
+    private boolean twoOpt(int[] tour, long deadline) {
+        int n = tour.length;
+        for (int i = 0; i < n - 2; i++) {
+            int a = tour[i];
+            int b = tour[i + 1];
+            double ab = matrix.distance(a, b);
+            for (int j = i + 2; j < n; j++) {
+                if (i == 0 && j == n - 1) continue; // the two legs share the depot
+                int c = tour[j];
+                int d = tour[(j + 1) % n];
+                double delta = matrix.distance(a, c) + matrix.distance(b, d) - ab - matrix.distance(c, d);
+                if (delta < -EPSILON) {
+                    reverse(tour, i + 1, j);
+                    return true;
+                }
+            }
+            if (System.nanoTime() > deadline) return false;
+        }
+        return false;
+    }
+
+    // Move tour[i .. i+length-1] between two other neighbouring stops
+    private boolean orOpt(int[] tour, long deadline) {
+        int n = tour.length;
+        for (int length = 1; length <= MAX_SEGMENT && length < n - 1; length++) {
+            for (int i = 1; i + length <= n; i++) {
+                int first = tour[i];
+                int last = tour[i + length - 1];
+                int before = tour[i - 1];
+                int after = tour[(i + length) % n];
+                double saved = matrix.distance(before, first) + matrix.distance(last, after)
+                             - matrix.distance(before, after);
+                if (saved <= EPSILON) continue;
+
+                for (int j = 0; j < n; j++) {
+                    // skip legs that touch the segment
+                    if (j >= i - 1 && j <= i + length - 1) continue;
+                    int a = tour[j];
+                    int b = tour[(j + 1) % n];
+                    double ab = matrix.distance(a, b);
+                    double forward = matrix.distance(a, first) + matrix.distance(last, b) - ab;
+                    double backward = matrix.distance(a, last) + matrix.distance(first, b) - ab;
+                    if (Math.min(forward, backward) < saved - EPSILON) {
+                        moveSegment(tour, i, length, a, backward < forward);
+                        return true;
+                    }
+                }
+                if (System.nanoTime() > deadline) return false;
+            }
+        }
+        return false;
+    }
+
+    private static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int swap = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = swap;
+        }
+    }
+
+    // Cut the segment out and put it back right after place 'after' (the depot
+    // never moves, since segments start at index 1 or later)
+    private static void moveSegment(int[] tour, int start, int length, int after, boolean reversed) {
+        int[] segment = Arrays.copyOfRange(tour, start, start + length);
+        if (reversed) reverse(segment, 0, length - 1);
+        int[] rest = new int[tour.length - length];
+        System.arraycopy(tour, 0, rest, 0, start);
+        System.arraycopy(tour, start + length, rest, start, tour.length - start - length);
+
+        int out = 0;
+        for (int place : rest) {
+            tour[out++] = place;
+            if (place == after) {
+                System.arraycopy(segment, 0, tour, out, length);
+                out += length;
+            }
+        }
+    }
+
+    // ---------- Results ----------
+
+    public static class Plan {
+        private final int[] stops;              // visiting order, depot excluded
+        private final double distance;
+        private final double constructedDistance; // after nearest neighbour
+        private final int moves;                 // improving 2-opt / Or-opt moves applied
+        private final long elapsedNanos;
+        private final boolean budgetExhausted;
+
+        Plan(int[] stops, double distance, double constructedDistance, int moves,
+             long elapsedNanos, boolean budgetExhausted) {
+            this.stops = stops;
+            this.distance = distance;
+            this.constructedDistance = constructedDistance;
+            this.moves = moves;
+            this.elapsedNanos = elapsedNanos;
+            this.budgetExhausted = budgetExhausted;
+        }
+
+        public int[] getStops() { return stops.clone(); }
+        public int getStopCount() { return stops.length; }
+        public int getStop(int position) { return stops[position]; }
+        public double getDistance() { return distance; }
+        public double getConstructedDistance() { return constructedDistance; }
+        public int getMoves() { return moves; }
+        public long getElapsedNanos() { return elapsedNanos; }
+        public boolean isBudgetExhausted() { return budgetExhausted; }
+    }
+
+    public static class VehicleRoute {
+        private final DistanceMatrix matrix;
+        private final Vehicle vehicle;
+        private final Plan plan;
+        private final Map<Integer, List<Delivery>> deliveriesByPlace;
+        private final List<Delivery> unrouted;
+        private final double loadingOrderDistance;
+
+        VehicleRoute(DistanceMatrix matrix, Vehicle vehicle, Plan plan, Map<Integer, List<Delivery>> deliveriesByPlace,
+                     List<Delivery> unrouted, double loadingOrderDistance) {
+            this.matrix = matrix;
+            this.vehicle = vehicle;
+            this.plan = plan;
+            this.deliveriesByPlace = deliveriesByPlace;
+            this.unrouted = unrouted;
+            this.loadingOrderDistance = loadingOrderDistance;
+        }
+
+        public Vehicle getVehicle() { return vehicle; }
+        public String getPlaceName(int place) { return matrix.getName(place); }
+        public Plan getPlan() { return plan; }
+        public List<Delivery> getUnrouted() { return unrouted; }
+        // Distance if the stops were driven in the order the parcels were loaded
+        public double getLoadingOrderDistance() { return loadingOrderDistance; }
+
+        public List<Delivery> getDeliveriesAt(int place) {
+            List<Delivery> atPlace = deliveriesByPlace.get(place);
+            return atPlace == null ? Collections.emptyList() : atPlace;
+        }
+
+        // 1-based stop number of a delivery on this route, 0 if it is not routed
+        public int getStopNumber(Delivery delivery) {
+            for (int position = 0; position < plan.getStopCount(); position++) {
+                if (getDeliveriesAt(plan.getStop(position)).contains(delivery)) return position + 1;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package services;
+
+// One parcel at a time; the reference for VectorPricingKernel and the fallback
+// when the Vector API is not available.
+public class ScalarPricingKernel implements PricingKernel {
+
+    @Override
+    public void price(double[] base, double[] perKg, double[] zoneFlat, double[] zonePerKg,
+                      byte[] types, double[] weights, int[] zones, double[] prices, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int type = types[i];
+            int zone = zones == null ? 0 : zones[i];
+            double weight = weights[i];
+            prices[i] = base[type] + perKg[type] * weight + zoneFlat[zone] + zonePerKg[zone] * weight;
+        }
+    }
+
+    @Override
+    public void linear(double flat, double perKg, double[] weights, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = flat + perKg * weights[i];
+        }
+    }
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    @Override
+    public void brackets(double[] limits, double[] weights, double[] values,
+                         long[] counts, double[] totals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int bracket = bracketOf(limits, weights[i]);
+            counts[bracket]++;
+            if (values != null) totals[bracket] += values[i];
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    // First limit the weight is within (limits.length if heavier than all)
+    static int bracketOf(double[] limits, double weight) {
+        int bracket = 0;
+        while (bracket < limits.length && weight > limits[bracket]) bracket++;
+        return bracket;
+    }
+}
@@ -0,0 +1,104 @@
+package services;
+
+import models.*;
+import java.util.*;
+
+// Available staff ordered by workload (open deliveries), kept current from
+// lifecycle events so "least-loaded available driver" never scans the directory.
+//
+// Subscribe it to the same EventBus as the user directory and the delivery
+// repository before any data is loaded (like StatisticsEngine). Each event that
+// can change a driver's workload re-reads that driver's count from the
+// repository's staff index and moves the driver in the ordering - O(log n).
+public class StaffPool implements CourierEventListener {
+
+    private DeliveryRepository deliveries;
+
+    // Open deliveries per staff member, and registration order for ties
+    private HashMap<String, Integer> loadByStaff;
+    private HashMap<String, Integer> orderByStaff;
+
+    // Available staff, least loaded first
+    private TreeSet<Staff> available;
+
+    public StaffPool(DeliveryRepository deliveries) {
+        this.deliveries = deliveries;
+        loadByStaff = new HashMap<>();
+        orderByStaff = new HashMap<>();
+        available = new TreeSet<>(Comparator
+                .comparingInt((Staff staff) -> loadByStaff.get(staff.getUserId()))
+                .thenComparingInt(staff -> orderByStaff.get(staff.getUserId())));
+    }
+
+    // ---------- Event handlers ----------
+
+    @Override
+    public void userAdded(User user) {
+        if (user instanceof Staff) {
+            orderByStaff.putIfAbsent(user.getUserId(), orderByStaff.size());
+            refresh((Staff) user);
+        }
+    }
+
+    @Override
+    public void staffAvailabilityChanged(Staff staff, boolean available) {
+        refresh(staff);
+    }
+
+    @Override
+    public void deliveryCreated(Delivery delivery) {
+        refresh(delivery.getDeliveryPerson());
+    }
+
+    @Override
+    public void deliveryStatusChanged(Delivery delivery, DeliveryStatus oldStatus, DeliveryStatus newStatus) {
+        refresh(delivery.getDeliveryPerson());
+    }
+
+    @Override
+    public void deliveryStaffAssigned(Delivery delivery, Staff oldStaff, Staff newStaff) {
+        refresh(oldStaff);
+        refresh(newStaff);
+    }
+
+    @Override
+    public void parcelArchived(Parcel parcel, Delivery delivery) {
+        if (delivery != null) refresh(delivery.getDeliveryPerson());
+    }
+
+    // ---------- Queries ----------
+
+    // Available staff member with the fewest open deliveries (null if none)
+    public Staff leastLoaded() {
+        return available.isEmpty() ? null : available.first();
+    }
+
+    // Available staff, least loaded first
+    public List<Staff> getAvailable() {
+        return new ArrayList<>(available);
+    }
+
+    // Open deliveries held by a staff member
+    public int getLoad(Staff staff) {
+        Integer load = loadByStaff.get(staff.getUserId());
+        return load == null ? 0 : load;
+    }
+
+    // Open deliveries on the busiest available staff member
+    public int getMaxLoad() {
+        return available.isEmpty() ? 0 : getLoad(available.last());
+    }
+
+    public int size() {
+        return available.size();
+    }
+
+    // Re-read the workload and put the staff member back in order
+    private void refresh(Staff staff) {
+        if (staff == null || !orderByStaff.containsKey(staff.getUserId())) return;
+        // Out before the load changes, or the TreeSet can no longer find it
+        if (loadByStaff.containsKey(staff.getUserId())) available.remove(staff);
+        loadByStaff.put(staff.getUserId(), deliveries.countActiveByStaff(staff.getUserId()));
+        if (staff.isAvailable()) available.add(staff);
+    }
+}
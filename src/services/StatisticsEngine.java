@@ -0,0 +1,249 @@
+package services;
+
+import models.*;
+import java.util.*;
+
+// Dashboard counters kept current from lifecycle events, so the admin
+// statistics screen never walks the entity collections.
+public class StatisticsEngine implements CourierEventListener {
+
+    // User counters
+    private long customerCount;
+    private long staffCount;
+
+    // Parcel counters
+    private long parcelCount;
+    private long standardCount;
+    private long expressCount;
+    private long internationalCount;
+    private long[] parcelsByStatus;     // indexed by ParcelStatus ordinal
+
+    // Delivery counters
+    private long deliveryCount;
+    private long[] deliveriesByStatus;  // indexed by DeliveryStatus ordinal
+
+    // Vehicle counters
+    private long vehicleCount;
+    private long availableVehicleCount;
+
+    // Verification mode: every dashboard read is checked against a full recount
+    private boolean verifyMode;
+
+    // Cold tier included in recounts (archived parcels stay in every counter)
+    private ParcelArchive archive;
+
+    public StatisticsEngine() {
+        parcelsByStatus = new long[ParcelStatus.count()];
+        deliveriesByStatus = new long[DeliveryStatus.count()];
+    }
+
+    // ---------- Event handlers ----------
+
+    @Override
+    public void userAdded(User user) {
+        if (user instanceof Customer) customerCount++;
+        else if (user instanceof Staff && !user.getUserId().equals("ADMIN")) staffCount++;
+    }
+
+    @Override
+    public void parcelCreated(Parcel parcel) {
+        parcelCount++;
+        if (parcel instanceof StandardParcel) standardCount++;
+        else if (parcel instanceof ExpressParcel) expressCount++;
+        else if (parcel instanceof InternationalParcel) internationalCount++;
+        parcelsByStatus[parcel.getStatus().ordinal()]++;
+    }
+
+    @Override
+    public void parcelStatusChanged(Parcel parcel, ParcelStatus oldStatus, ParcelStatus newStatus) {
+        parcelsByStatus[oldStatus.ordinal()]--;
+        parcelsByStatus[newStatus.ordinal()]++;
+    }
+
+    @Override
+    public void deliveryCreated(Delivery delivery) {
+        deliveryCount++;
+        deliveriesByStatus[delivery.getStatus().ordinal()]++;
+    }
+
+    @Override
+    public void deliveryStatusChanged(Delivery delivery, DeliveryStatus oldStatus,
+                                       DeliveryStatus newStatus) {
+        deliveriesByStatus[oldStatus.ordinal()]--;
+        deliveriesByStatus[newStatus.ordinal()]++;
+    }
+
+    @Override
+    public void vehicleAdded(Vehicle vehicle) {
+        vehicleCount++;
+        if (vehicle.isAvailable()) availableVehicleCount++;
+    }
+
+    @Override
+    public void vehicleAvailabilityChanged(Vehicle vehicle) {
+        availableVehicleCount += vehicle.isAvailable() ? 1 : -1;
+    }
+
+    // ---------- Dashboard reads (independent of entity counts) ----------
+
+    public long getCustomerCount() { return customerCount; }
+    public long getStaffCount() { return staffCount; }
+    public long getUserCount() { return customerCount + staffCount; }
+
+    public long getParcelCount() { return parcelCount; }
+    public long getStandardCount() { return standardCount; }
+    public long getExpressCount() { return expressCount; }
+    public long getInternationalCount() { return internationalCount; }
+
+    public long getDeliveryCount() { return deliveryCount; }
+
+    public long getVehicleCount() { return vehicleCount; }
+    public long getAvailableVehicleCount() { return availableVehicleCount; }
+
+    public long getParcelCountByStatus(ParcelStatus status) {
+        return parcelsByStatus[status.ordinal()];
+    }
+
+    public long getDeliveryCountByStatus(DeliveryStatus status) {
+        return deliveriesByStatus[status.ordinal()];
+    }
+
+    // Dashboard status groups as bitsets over the status ordinals
+    private static final long PARCELS_CREATED = ParcelStatus.mask(ParcelStatus.CREATED);
+    private static final long PARCELS_PROCESSING = ParcelStatus.mask(ParcelStatus.PAID, ParcelStatus.PROCESSING);
+    private static final long PARCELS_DELIVERED = ParcelStatus.mask(ParcelStatus.DELIVERED);
+    private static final long DELIVERIES_SCHEDULED = DeliveryStatus.mask(DeliveryStatus.SCHEDULED);
+    private static final long DELIVERIES_IN_TRANSIT = DeliveryStatus.mask(DeliveryStatus.IN_TRANSIT);
+    private static final long DELIVERIES_COMPLETED = DeliveryStatus.mask(DeliveryStatus.DELIVERED);
+
+    public long getParcelsCreated() { return countMask(parcelsByStatus, PARCELS_CREATED); }
+    public long getParcelsProcessing() { return countMask(parcelsByStatus, PARCELS_PROCESSING); }
+    public long getParcelsDelivered() { return countMask(parcelsByStatus, PARCELS_DELIVERED); }
+
+    public long getDeliveriesScheduled() { return countMask(deliveriesByStatus, DELIVERIES_SCHEDULED); }
+    public long getDeliveriesInTransit() { return countMask(deliveriesByStatus, DELIVERIES_IN_TRANSIT); }
+    public long getDeliveriesCompleted() { return countMask(deliveriesByStatus, DELIVERIES_COMPLETED); }
+
+    // Sum the counters whose status bit is set in the mask
+    private static long countMask(long[] counts, long mask) {
+        long total = 0;
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            total += counts[Long.numberOfTrailingZeros(bits)];
+        }
+        return total;
+    }
+
+    // ---------- Verification ----------
+
+    public boolean isVerifyMode() {
+        return verifyMode;
+    }
+
+    public void setVerifyMode(boolean verifyMode) {
+        this.verifyMode = verifyMode;
+    }
+
+    public void setArchive(ParcelArchive archive) {
+        this.archive = archive;
+    }
+
+    // Build a fresh engine from a full pass over the current entities
+    public static StatisticsEngine recount(UserDirectory users, ParcelRepository parcels,
+                                           DeliveryRepository deliveries, VehicleRepository vehicles) {
+        return recount(users, parcels, deliveries, vehicles, null);
+    }
+
+    // Replace every counter with another engine's (used after startup, once the
+    // archive is open: replayed parcels that were then archived would otherwise
+    // be counted from both their events and their archive rows)
+    public void restoreFrom(StatisticsEngine counts) {
+        customerCount = counts.customerCount;
+        staffCount = counts.staffCount;
+        parcelCount = counts.parcelCount;
+        standardCount = counts.standardCount;
+        expressCount = counts.expressCount;
+        internationalCount = counts.internationalCount;
+        parcelsByStatus = counts.parcelsByStatus.clone();
+        deliveryCount = counts.deliveryCount;
+        deliveriesByStatus = counts.deliveriesByStatus.clone();
+        vehicleCount = counts.vehicleCount;
+        availableVehicleCount = counts.availableVehicleCount;
+    }
+
+    // Same, including the archived parcels and deliveries. Parcels are counted by
+    // type and status from the repository and the archive, so no parcel object is
+    // built and no archive row is read.
+    public static StatisticsEngine recount(UserDirectory users, ParcelRepository parcels,
+                                           DeliveryRepository deliveries, VehicleRepository vehicles,
+                                           ParcelArchive archive) {
+        StatisticsEngine engine = new StatisticsEngine();
+        for (User user : users.getAll()) engine.userAdded(user);
+        long[][] live = parcels.countByTypeAndStatus();
+        for (int type = 0; type < live.length; type++) {
+            for (ParcelStatus status : ParcelStatus.values()) {
+                long count = live[type][status.ordinal()];
+                if (archive != null) count += archive.countParcels(type, status);
+                engine.countParcels(type, status, count);
+            }
+        }
+        for (Delivery delivery : deliveries.getAll()) engine.deliveryCreated(delivery);
+        if (archive != null) {
+            for (DeliveryStatus status : DeliveryStatus.values()) {
+                engine.deliveryCount += archive.countDeliveries(status);
+                engine.deliveriesByStatus[status.ordinal()] += archive.countDeliveries(status);
+            }
+        }
+        for (Vehicle vehicle : vehicles.getAll()) engine.vehicleAdded(vehicle);
+        return engine;
+    }
+
+    private void countParcels(int typeCode, ParcelStatus status, long count) {
+        parcelCount += count;
+        switch (typeCode) {
+            case RateTable.EXPRESS: expressCount += count; break;
+            case RateTable.INTERNATIONAL: internationalCount += count; break;
+            default: standardCount += count;
+        }
+        parcelsByStatus[status.ordinal()] += count;
+    }
+
+    // Compare the incremental counters against a full recount; empty list = consistent
+    public List<String> verify(UserDirectory users, ParcelRepository parcels,
+                               DeliveryRepository deliveries, VehicleRepository vehicles) {
+        Map<String, Long> expected = recount(users, parcels, deliveries, vehicles, archive).snapshot();
+        Map<String, Long> actual = snapshot();
+
+        List<String> mismatches = new ArrayList<>();
+        TreeSet<String> keys = new TreeSet<>(expected.keySet());
+        keys.addAll(actual.keySet());
+        for (String key : keys) {
+            long want = expected.getOrDefault(key, 0L);
+            long got = actual.getOrDefault(key, 0L);
+            if (want != got) {
+                mismatches.add(key + ": incremental=" + got + ", recount=" + want);
+            }
+        }
+        return mismatches;
+    }
+
+    // All counters as a flat, ordered map
+    public Map<String, Long> snapshot() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        values.put("users.customers", customerCount);
+        values.put("users.staff", staffCount);
+        values.put("parcels.total", parcelCount);
+        values.put("parcels.type.standard", standardCount);
+        values.put("parcels.type.express", expressCount);
+        values.put("parcels.type.international", internationalCount);
+        for (ParcelStatus status : ParcelStatus.values()) {
+            values.put("parcels.status." + status.getLabel(), parcelsByStatus[status.ordinal()]);
+        }
+        values.put("deliveries.total", deliveryCount);
+        for (DeliveryStatus status : DeliveryStatus.values()) {
+            values.put("deliveries.status." + status.getLabel(), deliveriesByStatus[status.ordinal()]);
+        }
+        values.put("vehicles.total", vehicleCount);
+        values.put("vehicles.available", availableVehicleCount);
+        return values;
+    }
+}
@@ -0,0 +1,187 @@
+package services;
+
+import models.Customer;
+import models.Staff;
+import models.User;
+import java.util.*;
+
+public class UserDirectory {
+
+    // All users by ID (IDs are unique across customers and staff; creation order kept)
+    private LinkedHashMap<String, User> usersById;
+
+    // Typed indexes - kept separately for customers and staff
+    private LinkedHashMap<String, Customer> customersById;
+    private LinkedHashMap<String, Staff> staffById;
+    private HashMap<String, Customer> customersByEmail;
+    private HashMap<String, Staff> staffByEmail;
+
+    private EventBus events;
+
+    public UserDirectory() {
+        this(new EventBus());
+    }
+
+    public UserDirectory(EventBus events) {
+        this.events = events;
+        usersById = new LinkedHashMap<>();
+        customersById = new LinkedHashMap<>();
+        staffById = new LinkedHashMap<>();
+        customersByEmail = new HashMap<>();
+        staffByEmail = new HashMap<>();
+    }
+
+    // Add user (rejects duplicate IDs and duplicate emails within the same user type)
+    public boolean add(User user) {
+        if (!canAdd(user)) {
+            return false;
+        }
+        events.journal().userAdded(user);
+        put(user);
+        events.userAdded(user);
+        return true;
+    }
+
+    // Add many users with a single log flush. Users that clash with a stored
+    // user or an earlier one in the batch are skipped; returns which were added.
+    public boolean[] addAll(List<? extends User> batch) {
+        boolean[] added = new boolean[batch.size()];
+        HashSet<String> ids = new HashSet<>();
+        HashSet<String> emails = new HashSet<>();   // "S:"/"C:" + email: unique per user type
+        for (int i = 0; i < added.length; i++) {
+            User user = batch.get(i);
+            String emailKey = user == null ? null : emailKey(user.getEmail());
+            added[i] = canAdd(user) && ids.add(user.getUserId())
+                    && (emailKey == null || emails.add((user instanceof Staff ? "S:" : "C:") + emailKey));
+        }
+        CourierEventListener journal = events.journal();
+        journal.batchStarted();
+        try {
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) journal.userAdded(batch.get(i));
+            }
+        } finally {
+            journal.batchFinished();
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (!added[i]) continue;
+            put(batch.get(i));
+            events.userAdded(batch.get(i));
+        }
+        return added;
+    }
+
+    private boolean canAdd(User user) {
+        if (user == null || usersById.containsKey(user.getUserId())) {
+            return false;
+        }
+        String emailKey = emailKey(user.getEmail());
+        if (emailKey == null) return true;
+        if (user instanceof Customer) return !customersByEmail.containsKey(emailKey);
+        if (user instanceof Staff) return !staffByEmail.containsKey(emailKey);
+        return true;
+    }
+
+    private void put(User user) {
+        String emailKey = emailKey(user.getEmail());
+        if (user instanceof Customer) {
+            Customer customer = (Customer) user;
+            customersById.put(customer.getUserId(), customer);
+            if (emailKey != null) customersByEmail.put(emailKey, customer);
+        } else if (user instanceof Staff) {
+            Staff staff = (Staff) user;
+            staffById.put(staff.getUserId(), staff);
+            if (emailKey != null) staffByEmail.put(emailKey, staff);
+        }
+        usersById.put(user.getUserId(), user);
+    }
+
+    // Loyalty changes go through the directory so they are logged before they apply
+    public void addLoyaltyPoints(Customer customer, int points) {
+        events.journal().loyaltyPointsChanged(customer, points);
+        customer.addLoyaltyPoints(points);
+        events.loyaltyPointsChanged(customer, points);
+    }
+
+    public void setStaffAvailable(Staff staff, boolean available) {
+        if (staff.isAvailable() == available) return;
+        events.journal().staffAvailabilityChanged(staff, available);
+        staff.setAvailable(available);
+        events.staffAvailabilityChanged(staff, available);
+    }
+
+    // Lookups - all O(1)
+    public User findById(String userId) {
+        return userId == null ? null : usersById.get(userId);
+    }
+
+    public Customer findCustomerById(String customerId) {
+        return customerId == null ? null : customersById.get(customerId);
+    }
+
+    public Staff findStaffById(String staffId) {
+        return staffId == null ? null : staffById.get(staffId);
+    }
+
+    public Customer findCustomerByEmail(String email) {
+        String key = emailKey(email);
+        return key == null ? null : customersByEmail.get(key);
+    }
+
+    public Staff findStaffByEmail(String email) {
+        String key = emailKey(email);
+        return key == null ? null : staffByEmail.get(key);
+    }
+
+    public boolean containsId(String userId) {
+        return userId != null && usersById.containsKey(userId);
+    }
+
+    public boolean containsCustomerEmail(String email) {
+        return findCustomerByEmail(email) != null;
+    }
+
+    // Login checks: accept either the user ID or the email address
+    public Customer authenticateCustomer(String idOrEmail, String password) {
+        Customer customer = findCustomerById(idOrEmail);
+        if (customer == null) customer = findCustomerByEmail(idOrEmail);
+        return (customer != null && customer.validateLogin(password)) ? customer : null;
+    }
+
+    public Staff authenticateStaff(String idOrEmail, String password) {
+        Staff staff = findStaffById(idOrEmail);
+        if (staff == null) staff = findStaffByEmail(idOrEmail);
+        return (staff != null && staff.validateLogin(password)) ? staff : null;
+    }
+
+    // Read-only views (creation order)
+    public Collection<User> getAll() {
+        return Collections.unmodifiableCollection(usersById.values());
+    }
+
+    public Collection<Customer> getCustomers() {
+        return Collections.unmodifiableCollection(customersById.values());
+    }
+
+    public Collection<Staff> getStaff() {
+        return Collections.unmodifiableCollection(staffById.values());
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    public int customerCount() {
+        return customersById.size();
+    }
+
+    public int staffCount() {
+        return staffById.size();
+    }
+
+    // Emails are matched case-insensitively; blank emails are not indexed
+    private static String emailKey(String email) {
+        if (email == null || email.trim().isEmpty()) return null;
+        return email.trim().toLowerCase();
+    }
+}
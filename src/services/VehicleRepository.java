@@ -0,0 +1,174 @@
+package services;
+
+import models.Delivery;
+import models.Vehicle;
+import java.util.*;
+
+public class VehicleRepository {
+
+    // Primary key index: vehicleId -> Vehicle (fleet order kept for listings)
+    private LinkedHashMap<String, Vehicle> vehiclesById;
+
+    // Availability pool: remaining capacity -> vehicles with exactly that much room.
+    // Full vehicles are left out, so "smallest vehicle that can carry X kg" is a
+    // ceiling lookup. Kept current by add / assign / release.
+    private TreeMap<Double, LinkedHashSet<Vehicle>> vehiclesByRemaining;
+
+    private EventBus events;
+
+    public VehicleRepository() {
+        this(new EventBus());
+    }
+
+    public VehicleRepository(EventBus events) {
+        this.events = events;
+        vehiclesById = new LinkedHashMap<>();
+        vehiclesByRemaining = new TreeMap<>();
+    }
+
+    // Add vehicle to the fleet (rejects duplicate IDs)
+    public boolean add(Vehicle vehicle) {
+        if (vehicle == null || vehiclesById.containsKey(vehicle.getVehicleId())) {
+            return false;
+        }
+        events.journal().vehicleAdded(vehicle);
+        put(vehicle);
+        events.vehicleAdded(vehicle);
+        return true;
+    }
+
+    // Add many vehicles with a single log flush. Vehicles whose ID is already
+    // stored, or taken by an earlier one in the batch, are skipped; returns
+    // which were added.
+    public boolean[] addAll(List<Vehicle> batch) {
+        boolean[] added = new boolean[batch.size()];
+        HashSet<String> ids = new HashSet<>();
+        for (int i = 0; i < added.length; i++) {
+            Vehicle vehicle = batch.get(i);
+            added[i] = vehicle != null && !vehiclesById.containsKey(vehicle.getVehicleId())
+                    && ids.add(vehicle.getVehicleId());
+        }
+        CourierEventListener journal = events.journal();
+        journal.batchStarted();
+        try {
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) journal.vehicleAdded(batch.get(i));
+            }
+        } finally {
+            journal.batchFinished();
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (!added[i]) continue;
+            put(batch.get(i));
+            events.vehicleAdded(batch.get(i));
+        }
+        return added;
+    }
+
+    private void put(Vehicle vehicle) {
+        vehiclesById.put(vehicle.getVehicleId(), vehicle);
+        indexRemaining(vehicle);
+    }
+
+    // Load a delivery onto the vehicle through the repository so the change is logged
+    // before it applies. Fails if the delivery is already on board or the parcel does not fit.
+    public boolean assign(Vehicle vehicle, Delivery delivery) {
+        double weight = delivery.getParcel().getWeight();
+        if (vehicle.carries(delivery.getDeliveryId()) || !vehicle.canCarry(weight)) {
+            return false;
+        }
+        events.journal().vehicleAssigned(vehicle, delivery);
+        boolean wasAvailable = vehicle.isAvailable();
+        double oldRemaining = vehicle.getRemainingCapacity();
+        vehicle.load(delivery.getDeliveryId(), weight);
+        reindexRemaining(vehicle, oldRemaining);
+        delivery.setAssignedVehicle(vehicle);
+        events.vehicleAssigned(vehicle, delivery);
+        if (wasAvailable != vehicle.isAvailable()) {
+            events.vehicleAvailabilityChanged(vehicle);
+        }
+        return true;
+    }
+
+    // Take one delivery off the vehicle; the rest of the manifest stays on board
+    public boolean release(Vehicle vehicle, String deliveryId) {
+        if (!vehicle.carries(deliveryId)) {
+            return false;
+        }
+        events.journal().vehicleReleased(vehicle, deliveryId);
+        boolean wasAvailable = vehicle.isAvailable();
+        double oldRemaining = vehicle.getRemainingCapacity();
+        vehicle.unload(deliveryId);
+        reindexRemaining(vehicle, oldRemaining);
+        events.vehicleReleased(vehicle, deliveryId);
+        if (wasAvailable != vehicle.isAvailable()) {
+            events.vehicleAvailabilityChanged(vehicle);
+        }
+        return true;
+    }
+
+    // Empty the whole manifest (vehicle back at the depot)
+    public void releaseAll(Vehicle vehicle) {
+        for (String deliveryId : vehicle.getDeliveryIds()) {
+            release(vehicle, deliveryId);
+        }
+    }
+
+    // Find vehicle by ID - O(1)
+    public Vehicle findById(String vehicleId) {
+        return vehicleId == null ? null : vehiclesById.get(vehicleId);
+    }
+
+    // Smallest remaining capacity that still fits the weight (best fit) - O(log n)
+    public Vehicle findBestFit(double weight) {
+        Map.Entry<Double, LinkedHashSet<Vehicle>> entry = vehiclesByRemaining.ceilingEntry(weight);
+        return entry == null ? null : entry.getValue().iterator().next();
+    }
+
+    // Every vehicle that can still carry the weight, least room first
+    public List<Vehicle> findWithRoom(double weight) {
+        ArrayList<Vehicle> result = new ArrayList<>();
+        for (LinkedHashSet<Vehicle> group : vehiclesByRemaining.tailMap(weight, true).values()) {
+            result.addAll(group);
+        }
+        return result;
+    }
+
+    // Every vehicle that is not full, least room first
+    public List<Vehicle> findNotFull() {
+        return findWithRoom(Double.MIN_VALUE);
+    }
+
+    public boolean contains(String vehicleId) {
+        return vehicleId != null && vehiclesById.containsKey(vehicleId);
+    }
+
+    public int size() {
+        return vehiclesById.size();
+    }
+
+    public boolean isEmpty() {
+        return vehiclesById.isEmpty();
+    }
+
+    // Read-only view of the fleet
+    public Collection<Vehicle> getAll() {
+        return Collections.unmodifiableCollection(vehiclesById.values());
+    }
+
+    // ---------- Availability pool ----------
+
+    private void indexRemaining(Vehicle vehicle) {
+        double remaining = vehicle.getRemainingCapacity();
+        if (remaining <= 0) return;
+        vehiclesByRemaining.computeIfAbsent(remaining, key -> new LinkedHashSet<>()).add(vehicle);
+    }
+
+    private void reindexRemaining(Vehicle vehicle, double oldRemaining) {
+        LinkedHashSet<Vehicle> group = vehiclesByRemaining.get(oldRemaining);
+        if (group != null && group.remove(vehicle) && group.isEmpty()) {
+            vehiclesByRemaining.remove(oldRemaining);
+        }
+        indexRemaining(vehicle);
+    }
+}
@@ -0,0 +1,104 @@
+package utils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+// System.out for several sessions in one process. The controllers and views
+// print straight to System.out; once install() has run, System.out is this
+// stream, which hands every call to the calling thread's session stream (set
+// with bind) or to the real console for threads without a session.
+//
+// Calls are delegated whole, so each session stream does its own encoding and
+// locking and sessions never wait on each other to print.
+public final class SessionConsole extends PrintStream {
+
+    private static final ThreadLocal<Binding> SESSION = new ThreadLocal<>();
+    private static SessionConsole installed;
+
+    private final PrintStream console;
+
+    private SessionConsole(PrintStream console) {
+        super(OutputStream.nullOutputStream());
+        this.console = console;
+    }
+
+    // Route System.out per thread from now on (idempotent)
+    public static synchronized void install() {
+        if (installed == null) {
+            installed = new SessionConsole(System.out);
+            System.setOut(installed);
+        }
+    }
+
+    // Output of the calling thread goes to `out` until unbind(); `interactive`
+    // says whether a person is reading it (see isInteractive)
+    public static void bind(PrintStream out, boolean interactive) {
+        SESSION.set(new Binding(out, interactive));
+    }
+
+    public static void unbind() {
+        SESSION.remove();
+    }
+
+    // False for scripted and networked sessions, so the views can skip pauses
+    // meant for people at the console
+    public static boolean isInteractive() {
+        Binding binding = SESSION.get();
+        return binding == null || binding.interactive;
+    }
+
+    private PrintStream target() {
+        Binding binding = SESSION.get();
+        return binding == null ? console : binding.out;
+    }
+
+    private static final class Binding {
+        final PrintStream out;
+        final boolean interactive;
+
+        Binding(PrintStream out, boolean interactive) {
+            this.out = out;
+            this.interactive = interactive;
+        }
+    }
+
+    // ---------- Delegation ----------
+
+    @Override public void flush() { target().flush(); }
+    @Override public void close() { target().flush(); }
+    @Override public boolean checkError() { return target().checkError(); }
+    @Override public void write(int b) { target().write(b); }
+    @Override public void write(byte[] buf, int off, int len) { target().write(buf, off, len); }
+    @Override public void write(byte[] buf) { target().write(buf, 0, buf.length); }
+    @Override public void writeBytes(byte[] buf) { target().write(buf, 0, buf.length); }
+
+    @Override public void print(boolean b) { target().print(b); }
+    @Override public void print(char c) { target().print(c); }
+    @Override public void print(int i) { target().print(i); }
+    @Override public void print(long l) { target().print(l); }
+    @Override public void print(float f) { target().print(f); }
+    @Override public void print(double d) { target().print(d); }
+    @Override public void print(char[] s) { target().print(s); }
+    @Override public void print(String s) { target().print(s); }
+    @Override public void print(Object obj) { target().print(obj); }
+
+    @Override public void println() { target().println(); }
+    @Override public void println(boolean x) { target().println(x); }
+    @Override public void println(char x) { target().println(x); }
+    @Override public void println(int x) { target().println(x); }
+    @Override public void println(long x) { target().println(x); }
+    @Override public void println(float x) { target().println(x); }
+    @Override public void println(double x) { target().println(x); }
+    @Override public void println(char[] x) { target().println(x); }
+    @Override public void println(String x) { target().println(x); }
+    @Override public void println(Object x) { target().println(x); }
+
+    @Override public PrintStream printf(String format, Object... args) { target().printf(format, args); return this; }
+    @Override public PrintStream printf(Locale l, String format, Object... args) { target().printf(l, format, args); return this; }
+    @Override public PrintStream format(String format, Object... args) { target().format(format, args); return this; }
+    @Override public PrintStream format(Locale l, String format, Object... args) { target().format(l, format, args); return this; }
+    @Override public PrintStream append(CharSequence csq) { target().append(csq); return this; }
+    @Override public PrintStream append(CharSequence csq, int start, int end) { target().append(csq, start, end); return this; }
+    @Override public PrintStream append(char c) { target().append(c); return this; }
+}
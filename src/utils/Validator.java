@@ -124,11 +124,11 @@ public class Validator {
     }
     
     public static boolean isValidCustomerId(String id) {
-        return id != null && id.matches("C\\d{3}");
+        return id != null && id.matches("C\\d{3,}");
     }
     
     public static boolean isValidStaffId(String id) {
-        return id != null && id.matches("S\\d{3}");
+        return id != null && id.matches("S\\d{3,}");
     }
     
     // Demonstration of array and string methods
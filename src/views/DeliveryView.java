@@ -1,7 +1,10 @@
 package views;
 
 import models.Delivery;
+import models.DeliveryStatus;
 import models.Vehicle;
+import services.DistanceMatrix;
+import services.RoutePlanner;
 
 public class DeliveryView {
     
@@ -90,8 +93,8 @@ public class DeliveryView {
     public static void displayDeliveryStatusOptions() {
         System.out.println("\n--- DELIVERY STATUS ---");
         System.out.println("1. Scheduled");
-        System.out.println("2. Loading");
-        System.out.println("3. Departured");
+        System.out.println("2. Processing");
+        System.out.println("3. Loaded");
         System.out.println("4. In Transit");
         System.out.println("5. Out for Delivery");
         System.out.println("6. Delivered");
@@ -100,17 +103,18 @@ public class DeliveryView {
         System.out.print("\nSelect status (1-8): ");
     }
     
-    public static String getStatusFromChoice(int choice) {
+    // Maps the menu above onto the delivery state machine (null = invalid choice)
+    public static DeliveryStatus getStatusFromChoice(int choice) {
         switch (choice) {
-            case 1: return "Scheduled";
-            case 2: return "Loading";
-            case 3: return "Departured";
-            case 4: return "In Transit";
-            case 5: return "Out for Delivery";
-            case 6: return "Delivered";
-            case 7: return "Returned";
-            case 8: return "Cancelled";
-            default: return "Unknown";
+            case 1: return DeliveryStatus.SCHEDULED;
+            case 2: return DeliveryStatus.PROCESSING;
+            case 3: return DeliveryStatus.LOADED;
+            case 4: return DeliveryStatus.IN_TRANSIT;
+            case 5: return DeliveryStatus.OUT_FOR_DELIVERY;
+            case 6: return DeliveryStatus.DELIVERED;
+            case 7: return DeliveryStatus.RETURNED;
+            case 8: return DeliveryStatus.CANCELLED;
+            default: return null;
         }
     }
     
@@ -179,8 +183,10 @@ public class DeliveryView {
         System.out.printf("%-20s: %s\n", "Status", 
                          vehicle.isAvailable() ? "✅ Available" : "⛔ In Use");
         
-        if (!vehicle.isAvailable() && vehicle.getCurrentDeliveryId() != null) {
-            System.out.printf("%-20s: %s\n", "Current Delivery", vehicle.getCurrentDeliveryId());
+        System.out.printf("%-20s: %.1f kg\n", "Loaded", vehicle.getLoadedWeight());
+        
+        if (!vehicle.isAvailable()) {
+            System.out.printf("%-20s: %s\n", "Deliveries", String.join(", ", vehicle.getDeliveryIds()));
         }
         
         System.out.println("=".repeat(50));
@@ -230,16 +236,61 @@ public class DeliveryView {
         System.out.println("=".repeat(50));
     }
     
-   public static void displayDeliveryProgress(String status) {
+    // Planned run for a vehicle's manifest; marks the stop of the given delivery
+    public static void displayRouteMap(RoutePlanner.VehicleRoute route, Delivery highlight) {
+        RoutePlanner.Plan plan = route.getPlan();
+        Vehicle vehicle = route.getVehicle();
+        
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("              ROUTE MAP");
+        System.out.println("=".repeat(50));
+        System.out.println("🚚 Route: " + vehicle.getVehicleType() + " " + vehicle.getVehicleId() 
+                         + " (" + plan.getStopCount() + " stops)");
+        System.out.println("📍 Stops:");
+        
+        String from = route.getPlaceName(DistanceMatrix.DEPOT);
+        for (int position = 0; position < plan.getStopCount(); position++) {
+            int place = plan.getStop(position);
+            StringBuilder ids = new StringBuilder();
+            boolean mine = false;
+            for (Delivery delivery : route.getDeliveriesAt(place)) {
+                if (ids.length() > 0) ids.append(", ");
+                ids.append(delivery.getDeliveryId());
+                mine |= delivery == highlight;
+            }
+            System.out.printf("   %d. %s → %s (%s)%s\n", position + 1, from, route.getPlaceName(place), 
+                             ids, mine ? " 👉" : "");
+            from = route.getPlaceName(place);
+        }
+        System.out.println("   " + (plan.getStopCount() + 1) + ". Return to " 
+                         + route.getPlaceName(DistanceMatrix.DEPOT));
+        
+        // Rough estimate: 30 km/h average in traffic plus 10 minutes per stop
+        double hours = plan.getDistance() / 30.0 + plan.getStopCount() / 6.0;
+        System.out.printf("📏 Distance: %.1fkm (in loading order: %.1fkm)\n", 
+                         plan.getDistance(), route.getLoadingOrderDistance());
+        System.out.printf("⏱️ Estimated Time: %.1f hours\n", hours);
+        
+        if (!route.getUnrouted().isEmpty()) {
+            System.out.println("⚠️ Not on the map (deliver separately):");
+            for (Delivery delivery : route.getUnrouted()) {
+                System.out.println("   " + delivery.getDeliveryId() + " - " 
+                                 + delivery.getParcel().getReceiver().getName());
+            }
+        }
+        System.out.println("=".repeat(50));
+    }
+    
+   public static void displayDeliveryProgress(DeliveryStatus status) {
     System.out.println("\n--- DELIVERY PROGRESS ---");
     
-    String[] steps = {"Scheduled", "Processing", "Loaded", "In Transit", "Out for Delivery", "Delivered"};
-    String currentStep = status;
+    DeliveryStatus[] steps = DeliveryStatus.progressSteps();
+    DeliveryStatus currentStep = status;
     
     // Find the index of current step
     int currentIndex = -1;
     for (int i = 0; i < steps.length; i++) {
-        if (steps[i].equals(currentStep)) {
+        if (steps[i] == currentStep) {
             currentIndex = i;
             break;
         }
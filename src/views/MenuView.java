@@ -51,6 +51,11 @@ public class MenuView {
     
     public static void showLoading(String message) {
         System.out.print("\n" + message);
+        // The pause is for people; scripted sessions move straight on
+        if (!utils.SessionConsole.isInteractive()) {
+            System.out.println("...");
+            return;
+        }
         try {
             for (int i = 0; i < 3; i++) {
                 Thread.sleep(300);
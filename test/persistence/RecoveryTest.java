@@ -0,0 +1,236 @@
+package persistence;
+
+import models.*;
+import services.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Write, crash, recover: the log and the snapshot are cut where a crash would
+// leave them and the state read back is checked against what was written.
+public class RecoveryTest {
+
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("courier-recovery");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // ---------- Write-ahead log ----------
+
+    @Test
+    public void crashAtFrameBoundaryKeepsEveryWholeRecord() throws IOException {
+        Path file = dir.resolve("changes.wal");
+        writeRecords(file, 5);
+        Path segment = onlySegment(file);
+        List<Long> ends = frameEnds(segment);
+        assertEquals(5, ends.size());
+
+        // The last two records never reached the disk
+        truncate(segment, ends.get(2));
+
+        List<Long> replayed = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            assertEquals(3, log.recover((lsn, type, in) -> {
+                assertEquals(lsn, type);
+                assertEquals(lsn, in.readLong());
+                replayed.add(lsn);
+            }));
+            assertEquals(List.of(1L, 2L, 3L), replayed);
+            assertEquals(ends.get(2).longValue(), Files.size(segment));
+            assertEquals(4, log.append((byte) 4, payload(4)));
+        }
+        assertEquals(4, replayAll(file).size());
+    }
+
+    @Test
+    public void tornTailIsCutBackToTheLastWholeFrame() throws IOException {
+        Path file = dir.resolve("changes.wal");
+        writeRecords(file, 5);
+        Path segment = onlySegment(file);
+        List<Long> ends = frameEnds(segment);
+
+        // The crash hit in the middle of the fourth frame
+        truncate(segment, ends.get(2) + WriteAheadLog.HEADER_SIZE + 3);
+
+        assertEquals(List.of(1L, 2L, 3L), replayAll(file));
+        assertEquals(ends.get(2).longValue(), Files.size(segment));
+    }
+
+    @Test
+    public void corruptFrameEndsTheReplay() throws IOException {
+        Path file = dir.resolve("changes.wal");
+        writeRecords(file, 5);
+        Path segment = onlySegment(file);
+        List<Long> ends = frameEnds(segment);
+
+        // Flip one payload byte of the third record: its checksum no longer matches
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), ends.get(1) + WriteAheadLog.HEADER_SIZE);
+        }
+
+        assertEquals(List.of(1L, 2L), replayAll(file));
+        assertEquals(ends.get(1).longValue(), Files.size(segment));
+    }
+
+    // ---------- Snapshot + log replay ----------
+
+    @Test
+    public void snapshotAndLogReplayRestoreTheStateBeforeTheCrash() throws IOException {
+        Path wal = dir.resolve("changes.wal");
+        Path snapshot = dir.resolve("snapshot.bin");
+
+        Store before = new Store();
+        try (WriteAheadLog log = new WriteAheadLog(wal)) {
+            SnapshotManager snapshots = before.snapshots(snapshot, log);
+            assertEquals(0, log.recover(snapshots.load(), snapshots.getLoadedLogPosition(), before.replayer()));
+            before.events.setJournal(new LogRecorder(log));
+
+            Customer ali = new Customer("C001", "Ali", "ali@email.com", "pass123", "012-3456789", "123 Main St, KL");
+            Customer siti = new Customer("C002", "Siti", "siti@email.com", "pass456", "013-4567890", "456 Oak Ave, PJ");
+            Staff raju = new Staff("S001", "Raju", "raju@courier.com", "staff123", "011-2223333", "Delivery Driver", 2500);
+            before.users.add(ali);
+            before.users.add(siti);
+            before.users.add(raju);
+            Parcel p1 = ParcelFactory.createParcel("STANDARD", "P001", ali, siti, 2.5, "30x20x15", "Documents", "");
+            Parcel p2 = ParcelFactory.createParcel("EXPRESS", "P002", siti, ali, 1.2, "25x15x10", "Gift", "");
+            before.parcels.add(p1);
+            before.parcels.add(p2);
+            Vehicle van = new Vehicle("V001", "Van", "ABC1234", 500);
+            before.vehicles.add(van);
+            Delivery d1 = new Delivery("D001", p1, raju);
+            before.deliveries.add(d1);
+            before.vehicles.assign(van, d1);
+
+            // Snapshot the first half, then keep changing things on top of it
+            assertTrue(snapshots.checkpoint());
+            snapshots.close();
+            assertTrue(snapshots.getSnapshotLsn() > 0);
+
+            before.parcels.updateStatus(p1, ParcelStatus.IN_TRANSIT);
+            before.deliveries.updateStatus(d1, DeliveryStatus.IN_TRANSIT);
+            before.parcels.updateStatus(p2, ParcelStatus.PROCESSING);
+            before.parcels.add(ParcelFactory.createParcel("STANDARD", "P003", ali, siti, 4.0, "40x30x20", "Books", ""));
+        }
+
+        // Crash just before the last change (P003) was written
+        Path segment = onlySegment(wal);
+        List<Long> ends = frameEnds(segment);
+        truncate(segment, ends.get(ends.size() - 2));
+
+        Store after = new Store();
+        try (WriteAheadLog log = new WriteAheadLog(wal)) {
+            SnapshotManager snapshots = after.snapshots(snapshot, log);
+            long snapshotLsn = snapshots.load();
+            assertTrue(snapshotLsn > 0);
+            assertEquals(3, log.recover(snapshotLsn, snapshots.getLoadedLogPosition(), after.replayer()));
+            snapshots.close();
+        }
+
+        assertEquals(3, after.users.size());
+        assertEquals(2, after.parcels.size());
+        assertNull(after.parcels.findById("P003"));
+        assertEquals(ParcelStatus.IN_TRANSIT, after.parcels.findById("P001").getStatus());
+        assertEquals(ParcelStatus.PROCESSING, after.parcels.findById("P002").getStatus());
+        assertEquals("Ali", after.parcels.findById("P002").getReceiver().getName());
+
+        Delivery d1 = after.deliveries.findById("D001");
+        assertEquals(DeliveryStatus.IN_TRANSIT, d1.getStatus());
+        assertSame(after.parcels.findById("P001"), d1.getParcel());
+        assertSame(after.users.findStaffById("S001"), d1.getDeliveryPerson());
+        Vehicle van = after.vehicles.findById("V001");
+        assertSame(van, d1.getAssignedVehicle());
+        assertTrue(van.carries("D001"));
+        assertEquals(500 - 2.5, van.getRemainingCapacity(), 1e-9);
+    }
+
+    // ---------- Helpers ----------
+
+    // One set of repositories sharing an event bus, as Main wires them
+    private static class Store {
+        final EventBus events = new EventBus();
+        final UserDirectory users = new UserDirectory(events);
+        final ParcelRepository parcels = new ParcelRepository(events);
+        final VehicleRepository vehicles = new VehicleRepository(events);
+        final DeliveryRepository deliveries = new DeliveryRepository(events, vehicles);
+        final PaymentLedger payments = new PaymentLedger(events);
+
+        SnapshotManager snapshots(Path file, WriteAheadLog log) {
+            return new SnapshotManager(file, log, users, parcels, deliveries, vehicles, payments, 1000);
+        }
+
+        LogReplayer replayer() {
+            return new LogReplayer(users, parcels, deliveries, vehicles, payments);
+        }
+    }
+
+    // Records 1..count, each with its LSN as type and payload
+    private static void writeRecords(Path file, int count) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.recover((lsn, type, in) -> fail("new log has no records"));
+            for (int i = 1; i <= count; i++) {
+                assertEquals(i, log.append((byte) i, payload(i)));
+            }
+        }
+    }
+
+    private static byte[] payload(long lsn) {
+        return ByteBuffer.allocate(8 + (int) lsn).putLong(lsn).array();
+    }
+
+    private static List<Long> replayAll(Path file) throws IOException {
+        List<Long> replayed = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(file)) {
+            log.recover((lsn, type, in) -> replayed.add(lsn));
+        }
+        return replayed;
+    }
+
+    private static Path onlySegment(Path file) throws IOException {
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            List<Path> segments = files
+                    .filter(path -> path.getFileName().toString().startsWith(file.getFileName() + "."))
+                    .toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    // Offset just past each frame in a segment
+    private static List<Long> frameEnds(Path segment) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<Long> ends = new ArrayList<>();
+        while (data.remaining() >= WriteAheadLog.HEADER_SIZE) {
+            int length = data.getInt(data.position());
+            data.position(data.position() + WriteAheadLog.HEADER_SIZE + length);
+            ends.add((long) data.position());
+        }
+        assertFalse(data.hasRemaining());
+        return ends;
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package services;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// PricingKernel on the JDK incubator Vector API: each loop step prices a full
+// vector of parcels (8 on AVX-512, 4 on AVX2), with a scalar tail for the last
+// few. Needs --add-modules jdk.incubator.vector at compile and run time, so it
+// lives in its own source tree (vector/, compiled by build.xml's -post-compile);
+// load it through PricingKernel.select() so the application still runs without it.
+//
+// Type codes are read 8 at a time as bytes and widened to double lanes; the
+// per-type rates are then chosen with one compare-and-blend per rate table row
+// (three rows), which is cheaper than a gather. Zones use a gather since the
+// zone table can be longer.
+public class VectorPricingKernel implements PricingKernel {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final int BRACKET_BLOCK = 2048;
+
+    private final ScalarPricingKernel tail = new ScalarPricingKernel();
+
+    // At least two double lanes, and the 8 type bytes read per step split evenly into them
+    public static boolean isSupported() {
+        int lanes = DOUBLES.length();
+        return lanes >= 2 && lanes <= BYTES.length() && BYTES.length() % lanes == 0;
+    }
+
+    @Override
+    public void price(double[] base, double[] perKg, double[] zoneFlat, double[] zonePerKg,
+                      byte[] types, double[] weights, int[] zones, double[] prices, int from, int to) {
+        int lanes = DOUBLES.length();
+        int parts = BYTES.length() / lanes;
+        DoubleVector zoneFlat0 = DoubleVector.broadcast(DOUBLES, zoneFlat[0]);
+        DoubleVector zonePerKg0 = DoubleVector.broadcast(DOUBLES, zonePerKg[0]);
+        DoubleVector base0 = DoubleVector.broadcast(DOUBLES, base[0]);
+        DoubleVector perKg0 = DoubleVector.broadcast(DOUBLES, perKg[0]);
+
+        int i = from;
+        for (int upper = to - BYTES.length(); i <= upper; i += BYTES.length()) {
+            ByteVector typeBytes = ByteVector.fromArray(BYTES, types, i);
+            for (int part = 0; part < parts; part++) {
+                int at = i + part * lanes;
+                DoubleVector type = (DoubleVector) typeBytes.convertShape(VectorOperators.B2D, DOUBLES, part);
+                DoubleVector typeBase = base0;
+                DoubleVector typePerKg = perKg0;
+                for (int code = 1; code < base.length; code++) {
+                    VectorMask<Double> match = type.compare(VectorOperators.EQ, code);
+                    typeBase = typeBase.blend(base[code], match);
+                    typePerKg = typePerKg.blend(perKg[code], match);
+                }
+                DoubleVector weight = DoubleVector.fromArray(DOUBLES, weights, at);
+                DoubleVector flat = zones == null ? zoneFlat0 : DoubleVector.fromArray(DOUBLES, zoneFlat, 0, zones, at);
+                DoubleVector zonePerKgLanes = zones == null ? zonePerKg0
+                                                            : DoubleVector.fromArray(DOUBLES, zonePerKg, 0, zones, at);
+                // Same order as the scalar formula, no fused multiply-add, so prices match exactly
+                typeBase.add(typePerKg.mul(weight))
+                        .add(flat)
+                        .add(zonePerKgLanes.mul(weight))
+                        .intoArray(prices, at);
+            }
+        }
+        tail.price(base, perKg, zoneFlat, zonePerKg, types, weights, zones, prices, i, to);
+    }
+
+    @Override
+    public void linear(double flat, double perKg, double[] weights, double[] out, int from, int to) {
+        DoubleVector flatLanes = DoubleVector.broadcast(DOUBLES, flat);
+        int i = from;
+        for (int upper = to - DOUBLES.length(); i <= upper; i += DOUBLES.length()) {
+            flatLanes.add(DoubleVector.fromArray(DOUBLES, weights, i).mul(perKg)).intoArray(out, i);
+        }
+        tail.linear(flat, perKg, weights, out, i, to);
+    }
+
+    @Override
+    public double sum(double[] values, int from, int to) {
+        DoubleVector total = DoubleVector.zero(DOUBLES);
+        int i = from;
+        for (int upper = to - DOUBLES.length(); i <= upper; i += DOUBLES.length()) {
+            total = total.add(DoubleVector.fromArray(DOUBLES, values, i));
+        }
+        return total.reduceLanes(VectorOperators.ADD) + tail.sum(values, i, to);
+    }
+
+    @Override
+    public void brackets(double[] limits, double[] weights, double[] values,
+                         long[] counts, double[] totals, int from, int to) {
+        int lanes = DOUBLES.length();
+        int vectorEnd = from + (to - from) / lanes * lanes;
+        // One bracket at a time over a cache-sized block, so the running sum stays
+        // in a register rather than in an array of vectors
+        for (int block = from; block < vectorEnd; block += BRACKET_BLOCK) {
+            int blockEnd = Math.min(vectorEnd, block + BRACKET_BLOCK);
+            for (int b = 0; b <= limits.length; b++) {
+                double lower = b == 0 ? Double.NEGATIVE_INFINITY : limits[b - 1];
+                double upper = b == limits.length ? Double.POSITIVE_INFINITY : limits[b];
+                long count = 0;
+                DoubleVector sum = DoubleVector.zero(DOUBLES);
+                for (int i = block; i < blockEnd; i += lanes) {
+                    DoubleVector weight = DoubleVector.fromArray(DOUBLES, weights, i);
+                    VectorMask<Double> in = weight.compare(VectorOperators.GT, lower)
+                                                  .and(weight.compare(VectorOperators.LE, upper));
+                    count += in.trueCount();
+                    if (values != null) sum = sum.add(DoubleVector.fromArray(DOUBLES, values, i), in);
+                }
+                counts[b] += count;
+                if (values != null) totals[b] += sum.reduceLanes(VectorOperators.ADD);
+            }
+        }
+        tail.brackets(limits, weights, values, counts, totals, vectorEnd, to);
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + DOUBLES.length() + " x double)";
+    }
+}